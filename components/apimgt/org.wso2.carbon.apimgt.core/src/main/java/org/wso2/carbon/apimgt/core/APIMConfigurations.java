@@ -70,6 +70,10 @@ public class APIMConfigurations {
     @Element(description = "Identity Provider Implementation")
     private String idpImplClass = "org.wso2.carbon.apimgt.core.impl.DefaultIdentityProviderImpl";
 
+    @Element(description = "milliseconds after which a subscription change is certain to be committed, and is "
+            + "returned to the gateways")
+    private long subscriptionChangeSettleTime = 5000L;
+
     public String getHostname() {
         return hostname;
     }
@@ -141,4 +145,8 @@ public class APIMConfigurations {
     public String getIdpImplClass() {
         return idpImplClass;
     }
+
+    public long getSubscriptionChangeSettleTime() {
+        return subscriptionChangeSettleTime;
+    }
 }
@@ -22,6 +22,7 @@ import org.wso2.carbon.apimgt.core.exception.GatewayException;
 import org.wso2.carbon.apimgt.core.models.API;
 import org.wso2.carbon.apimgt.core.models.Endpoint;
 import org.wso2.carbon.apimgt.core.models.Subscription;
+import org.wso2.carbon.apimgt.core.models.policy.Policy;
 
 /**
  * The interface used to manage APIs in gateway
@@ -92,4 +93,31 @@ public interface APIGateway {
      */
     void deleteEndpoint(Endpoint endpoint) throws GatewayException;
 
+    /**
+     * Add throttle policy to gateways
+     *
+     * @param policyLevel level of the policy, application, subscription or api
+     * @param policy      throttle policy
+     * @throws GatewayException     If there is a failure to add policy to gateways
+     */
+    void addPolicy(String policyLevel, Policy policy) throws GatewayException;
+
+    /**
+     * Update throttle policy in gateways
+     *
+     * @param policyLevel level of the policy, application, subscription or api
+     * @param policy      throttle policy
+     * @throws GatewayException     If there is a failure to update policy in gateways
+     */
+    void updatePolicy(String policyLevel, Policy policy) throws GatewayException;
+
+    /**
+     * Delete throttle policy in gateways
+     *
+     * @param policyLevel level of the policy, application, subscription or api
+     * @param policy      throttle policy
+     * @throws GatewayException     If there is a failure to delete policy in gateways
+     */
+    void deletePolicy(String policyLevel, Policy policy) throws GatewayException;
+
 }
@@ -23,7 +23,9 @@ import org.wso2.carbon.apimgt.core.exception.APIConfigRetrievalException;
 import org.wso2.carbon.apimgt.core.exception.APIManagementException;
 import org.wso2.carbon.apimgt.core.models.API;
 import org.wso2.carbon.apimgt.core.models.APISummary;
+import org.wso2.carbon.apimgt.core.models.Endpoint;
 import org.wso2.carbon.apimgt.core.models.Label;
+import org.wso2.carbon.apimgt.core.models.SubscriptionChange;
 import org.wso2.carbon.apimgt.core.models.SubscriptionValidationData;
 import org.wso2.carbon.apimgt.core.models.UriTemplate;
 import org.wso2.carbon.apimgt.core.models.policy.Policy;
@@ -44,6 +46,21 @@ public interface APIMgtAdminService {
      */
     List<SubscriptionValidationData> getAPISubscriptions(int limit) throws APIManagementException;
 
+    /**
+     * Return a page of API subscriptions. Subscriptions are ordered by API ID, subscription ID and key environment
+     * type, and a page starts right after the given position.
+     *
+     * @param afterApiId          API ID of the last subscription of the previous page, or null for the first page
+     * @param afterSubscriptionId Subscription ID of the last subscription of the previous page
+     * @param afterKeyEnvType     Key environment type of the last subscription of the previous page
+     * @param limit               Maximum number of subscriptions to return
+     * @return subscriptions of the page
+     * @throws APIManagementException If failed to get list of subscriptions.
+     */
+    List<SubscriptionValidationData> getAPISubscriptions(String afterApiId, String afterSubscriptionId,
+                                                         String afterKeyEnvType, int limit)
+            throws APIManagementException;
+
     /**
      * Return all API subscriptions of a given API
      *
@@ -55,6 +72,24 @@ public interface APIMgtAdminService {
     List<SubscriptionValidationData> getAPISubscriptionsOfApi(String apiContext, String apiVersion)
             throws APIManagementException;
 
+    /**
+     * Return the changes made to subscriptions after a given change, in the order they were made
+     *
+     * @param afterSequenceId Sequence ID of the last change already known
+     * @param limit           Maximum number of changes to return
+     * @return subscription changes
+     * @throws APIManagementException If failed to get subscription changes.
+     */
+    List<SubscriptionChange> getSubscriptionChanges(long afterSequenceId, int limit) throws APIManagementException;
+
+    /**
+     * Return the sequence ID of the latest change made to subscriptions
+     *
+     * @return sequence ID of the latest change, or 0 if no changes were made
+     * @throws APIManagementException If failed to get the sequence ID.
+     */
+    long getLatestSubscriptionChangeSequenceId() throws APIManagementException;
+
     /**
      * Load api info from db
      *
@@ -177,4 +212,12 @@ public interface APIMgtAdminService {
      * @throws APIManagementException If failed to get API list
      */
     List<API> getAPIsByGatewayLabel(List<String> gatewayLabels) throws APIManagementException;
+
+    /**
+     * Get all endpoints, so that gateways can enforce their limits
+     *
+     * @return list of endpoints
+     * @throws APIManagementException If failed to get endpoints
+     */
+    List<Endpoint> getAllEndpoints() throws APIManagementException;
 }
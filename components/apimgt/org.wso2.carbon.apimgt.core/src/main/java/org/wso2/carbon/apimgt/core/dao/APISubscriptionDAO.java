@@ -23,6 +23,7 @@ package org.wso2.carbon.apimgt.core.dao;
 import org.wso2.carbon.apimgt.core.exception.APIMgtDAOException;
 import org.wso2.carbon.apimgt.core.models.APISubscriptionResults;
 import org.wso2.carbon.apimgt.core.models.Subscription;
+import org.wso2.carbon.apimgt.core.models.SubscriptionChange;
 import org.wso2.carbon.apimgt.core.models.SubscriptionValidationData;
 import org.wso2.carbon.apimgt.core.models.SubscriptionValidationResult;
 import org.wso2.carbon.apimgt.core.util.APIMgtConstants;
@@ -86,6 +87,22 @@ public interface APISubscriptionDAO {
     @CheckForNull
     List<SubscriptionValidationData> getAPISubscriptionsOfAPIForValidation(int limit) throws APIMgtDAOException;
 
+    /**
+     * Retrieve a page of API Subscriptions for validation. Subscriptions are ordered by API ID, subscription ID and
+     * key environment type, and a page starts right after the given position, so that each page is read with an
+     * index range scan regardless of how many pages were read before it.
+     *
+     * @param afterApiId          API ID of the last subscription of the previous page, or null for the first page
+     * @param afterSubscriptionId Subscription ID of the last subscription of the previous page
+     * @param afterKeyEnvType     Key environment type of the last subscription of the previous page
+     * @param limit               Maximum number of subscriptions to retrieve
+     * @return A list of {@link SubscriptionValidationData} objects
+     * @throws APIMgtDAOException   If failed to get subscriptions.
+     */
+    List<SubscriptionValidationData> getAPISubscriptionsForValidation(String afterApiId, String afterSubscriptionId,
+                                                                      String afterKeyEnvType, int limit)
+            throws APIMgtDAOException;
+
     /**
      * Retrieves all available API Subscriptions. This method supports result pagination and ensuring results
      * returned are those that belong to the specified username
@@ -226,4 +243,29 @@ public interface APISubscriptionDAO {
      * @throws APIMgtDAOException   If failed to get subscriptions.
      */
     List<Subscription> getPendingAPISubscriptionsByApplication(String applicationId) throws APIMgtDAOException;
+
+    /**
+     * Retrieve the changes made to subscriptions after a given change, in the order they were made. Changes made
+     * within the configured settle time are not returned until they are certain to be committed, so that a change is
+     * never returned after a change with a higher sequence ID.
+     * <p>
+     * The time of a change is set and compared by the clock of the DB, so the clocks of the API Manager nodes do not
+     * need to agree. It is still assumed that a transaction recording a change commits within the settle time, and
+     * that all nodes of the DB, if clustered, have synchronized clocks.
+     *
+     * @param afterSequenceId Sequence ID of the last change already retrieved
+     * @param limit           Maximum number of changes to retrieve
+     * @return A list of {@link SubscriptionChange} objects
+     * @throws APIMgtDAOException   If failed to get subscription changes.
+     */
+    List<SubscriptionChange> getSubscriptionChanges(long afterSequenceId, int limit) throws APIMgtDAOException;
+
+    /**
+     * Retrieve the sequence ID of the latest change made to subscriptions, among the changes returned by
+     * {@link #getSubscriptionChanges(long, int)}
+     *
+     * @return Sequence ID of the latest change, or 0 if no changes were made
+     * @throws APIMgtDAOException   If failed to get the sequence ID.
+     */
+    long getLatestSubscriptionChangeSequenceId() throws APIMgtDAOException;
 }
@@ -551,7 +551,8 @@ public interface ApiDAO {
     String getLastUpdatedTimeOfComment(String commentId) throws APIMgtDAOException;
 
     /**
-     * return list of respurces associated with API
+     * return list of respurces associated with API. The endpoints of a resource include the endpoints of the API
+     * for the endpoint types the resource does not override.
      *
      * @param apiContext context of API
      * @param apiVersion version of API
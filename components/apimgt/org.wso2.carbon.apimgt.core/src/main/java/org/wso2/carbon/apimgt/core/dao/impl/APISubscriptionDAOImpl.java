@@ -20,6 +20,7 @@
 
 package org.wso2.carbon.apimgt.core.dao.impl;
 
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wso2.carbon.apimgt.core.dao.APISubscriptionDAO;
@@ -28,9 +29,11 @@ import org.wso2.carbon.apimgt.core.models.API;
 import org.wso2.carbon.apimgt.core.models.APISubscriptionResults;
 import org.wso2.carbon.apimgt.core.models.Application;
 import org.wso2.carbon.apimgt.core.models.Subscription;
+import org.wso2.carbon.apimgt.core.models.SubscriptionChange;
 import org.wso2.carbon.apimgt.core.models.SubscriptionValidationData;
 import org.wso2.carbon.apimgt.core.models.SubscriptionValidationResult;
 import org.wso2.carbon.apimgt.core.util.APIMgtConstants;
+import org.wso2.carbon.apimgt.core.util.APIMgtConstants.SubscriptionChangeType;
 import org.wso2.carbon.apimgt.core.util.APIMgtConstants.SubscriptionStatus;
 
 import java.sql.Connection;
@@ -51,6 +54,30 @@ public class APISubscriptionDAOImpl implements APISubscriptionDAO {
     private static final String AM_SUBSCRIPTION_TABLE_NAME = "AM_SUBSCRIPTION";
     private static final Logger log = LoggerFactory.getLogger(APISubscriptionDAOImpl.class);
 
+    private static final String SUBSCRIPTION_VALIDATION_DATA_SQL = "SELECT SUBS.UUID AS SUBS_UUID, " +
+            "SUBS.API_ID AS API_ID, SUBS.APPLICATION_ID AS APP_ID, " +
+            "SUBS.SUB_STATUS AS SUB_STATUS, API.PROVIDER AS API_PROVIDER, API.NAME AS API_NAME, " +
+            "API.CONTEXT AS API_CONTEXT, API.VERSION AS API_VERSION, APP.NAME AS APP_NAME, " +
+            "APP.CREATED_BY AS APP_OWNER, POLICY.NAME AS SUBS_POLICY , KEY_MAP.CLIENT_ID AS CLIENT_ID, " +
+            "KEY_MAP.KEY_TYPE AS KEY_ENV_TYPE " +
+            "FROM AM_SUBSCRIPTION SUBS, AM_API API, AM_APPLICATION APP, AM_SUBSCRIPTION_POLICY POLICY, " +
+            "AM_APP_KEY_MAPPING KEY_MAP " +
+            "WHERE SUBS.API_ID = API.UUID AND SUBS.APPLICATION_ID = APP.UUID AND SUBS.TIER_ID = POLICY.UUID AND " +
+            "KEY_MAP.APPLICATION_ID = SUBS.APPLICATION_ID";
+    private static final String SUBSCRIPTION_VALIDATION_DATA_ORDER =
+            " ORDER BY SUBS.API_ID, SUBS.UUID, KEY_MAP.KEY_TYPE";
+
+    private final APISubscriptionDAOVendorSpecificStatements sqlStatements;
+    // Sequence IDs are assigned on insert, but changes become visible on commit. Changes are returned only after
+    // this many milliseconds, so that a change with a lower sequence ID committing later is not skipped.
+    private final long subscriptionChangeSettleTime;
+
+    APISubscriptionDAOImpl(APISubscriptionDAOVendorSpecificStatements sqlStatements,
+                           long subscriptionChangeSettleTime) {
+        this.sqlStatements = sqlStatements;
+        this.subscriptionChangeSettleTime = subscriptionChangeSettleTime;
+    }
+
     /**
      * Retrieve a given instance of an API Subscription
      *
@@ -180,17 +207,53 @@ public class APISubscriptionDAOImpl implements APISubscriptionDAO {
         if (limit == 0) {
             return new ArrayList<>();
         }
-        final String getSubscriptionsSql = "SELECT SUBS.API_ID AS API_ID, SUBS.APPLICATION_ID AS APP_ID, " +
-                "SUBS.SUB_STATUS AS SUB_STATUS, API.PROVIDER AS API_PROVIDER, API.NAME AS API_NAME, " +
-                "API.CONTEXT AS API_CONTEXT, API.VERSION AS API_VERSION, APP.NAME AS APP_NAME, " +
-                "APP.CREATED_BY AS APP_OWNER, POLICY.NAME AS SUBS_POLICY , KEY_MAP.CLIENT_ID AS CLIENT_ID, " +
-                "KEY_MAP.KEY_TYPE AS KEY_ENV_TYPE " +
-                "FROM AM_SUBSCRIPTION SUBS, AM_API API, AM_APPLICATION APP, AM_SUBSCRIPTION_POLICY POLICY, " +
-                "AM_APP_KEY_MAPPING KEY_MAP " +
-                "WHERE SUBS.API_ID = API.UUID AND SUBS.APPLICATION_ID = APP.UUID AND SUBS.TIER_ID = POLICY.UUID AND " +
-                "KEY_MAP.APPLICATION_ID = SUBS.APPLICATION_ID";
         try (Connection conn = DAOUtil.getConnection();
-             PreparedStatement ps = conn.prepareStatement(getSubscriptionsSql)) {
+             PreparedStatement ps = conn.prepareStatement(SUBSCRIPTION_VALIDATION_DATA_SQL)) {
+            if (limit > 0) {
+                ps.setMaxRows(limit);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                return createSubscriptionValidationDataFromResultSet(rs);
+            }
+        } catch (SQLException e) {
+            log.error("Error while executing sql query", e);
+            throw new APIMgtDAOException(e);
+        }
+    }
+
+    /**
+     * Retrieve a page of API Subscriptions for validation
+     *
+     * @param afterApiId          API ID of the last subscription of the previous page, or null for the first page
+     * @param afterSubscriptionId Subscription ID of the last subscription of the previous page
+     * @param afterKeyEnvType     Key environment type of the last subscription of the previous page
+     * @param limit               Maximum number of subscriptions to retrieve
+     * @return A list of {@link SubscriptionValidationData} objects
+     * @throws APIMgtDAOException   If failed to get subscriptions.
+     */
+    @Override
+    public List<SubscriptionValidationData> getAPISubscriptionsForValidation(String afterApiId,
+                                                                             String afterSubscriptionId,
+                                                                             String afterKeyEnvType, int limit)
+            throws APIMgtDAOException {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        // Row value comparison is not supported by all databases, hence the expanded form
+        final String getSubscriptionsPageSql = afterApiId == null ?
+                SUBSCRIPTION_VALIDATION_DATA_SQL + SUBSCRIPTION_VALIDATION_DATA_ORDER :
+                SUBSCRIPTION_VALIDATION_DATA_SQL + " AND (SUBS.API_ID > ? OR (SUBS.API_ID = ? AND (SUBS.UUID > ? OR " +
+                        "(SUBS.UUID = ? AND KEY_MAP.KEY_TYPE > ?))))" + SUBSCRIPTION_VALIDATION_DATA_ORDER;
+        try (Connection conn = DAOUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(getSubscriptionsPageSql)) {
+            if (afterApiId != null) {
+                ps.setString(1, afterApiId);
+                ps.setString(2, afterApiId);
+                ps.setString(3, afterSubscriptionId);
+                ps.setString(4, afterSubscriptionId);
+                ps.setString(5, afterKeyEnvType);
+            }
+            ps.setMaxRows(limit);
             try (ResultSet rs = ps.executeQuery()) {
                 return createSubscriptionValidationDataFromResultSet(rs);
             }
@@ -211,15 +274,8 @@ public class APISubscriptionDAOImpl implements APISubscriptionDAO {
     @Override
     public List<SubscriptionValidationData> getAPISubscriptionsOfAPIForValidation(String apiContext, String apiVersion)
             throws APIMgtDAOException {
-        final String getSubscriptionsByAPISql = "SELECT SUBS.API_ID AS API_ID, SUBS.APPLICATION_ID AS APP_ID, " +
-                "SUBS.SUB_STATUS AS SUB_STATUS, API.PROVIDER AS API_PROVIDER, API.NAME AS API_NAME, " +
-                "API.CONTEXT AS API_CONTEXT, API.VERSION AS API_VERSION, APP.NAME AS APP_NAME, " +
-                "APP.CREATED_BY AS APP_OWNER, POLICY.NAME AS SUBS_POLICY , KEY_MAP.CLIENT_ID AS CLIENT_ID, " +
-                "KEY_MAP.KEY_TYPE AS KEY_ENV_TYPE " +
-                "FROM AM_SUBSCRIPTION SUBS, AM_API API, AM_APPLICATION APP, AM_SUBSCRIPTION_POLICY POLICY, " +
-                "AM_APP_KEY_MAPPING KEY_MAP " +
-                "WHERE SUBS.API_ID = API.UUID AND SUBS.APPLICATION_ID = APP.UUID AND SUBS.TIER_ID = POLICY.UUID AND " +
-                "KEY_MAP.APPLICATION_ID = SUBS.APPLICATION_ID AND API.CONTEXT = ? AND API.VERSION = ?";
+        final String getSubscriptionsByAPISql = SUBSCRIPTION_VALIDATION_DATA_SQL +
+                " AND API.CONTEXT = ? AND API.VERSION = ?";
         try (Connection conn = DAOUtil.getConnection();
              PreparedStatement ps = conn.prepareStatement(getSubscriptionsByAPISql)) {
             ps.setString(1, apiContext);
@@ -363,6 +419,7 @@ public class APISubscriptionDAOImpl implements APISubscriptionDAO {
             boolean originalAutoCommitState = conn.getAutoCommit();
             conn.setAutoCommit(false);
             try (PreparedStatement ps = conn.prepareStatement(deleteSubscriptionSql)) {
+                recordSubscriptionChange(subscriptionId, SubscriptionChangeType.DELETED, conn);
                 ps.setString(1, subscriptionId);
                 ps.execute();
                 conn.commit();
@@ -450,6 +507,7 @@ public class APISubscriptionDAOImpl implements APISubscriptionDAO {
                 preparedStatement.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
                 preparedStatement.setString(3, subId);
                 preparedStatement.execute();
+                recordSubscriptionChange(subId, SubscriptionChangeType.UPDATED, conn);
                 conn.commit();
             } catch (SQLException ex) {
                 conn.rollback();
@@ -488,6 +546,7 @@ public class APISubscriptionDAOImpl implements APISubscriptionDAO {
                 preparedStatement.setString(1, policy);
                 preparedStatement.setString(2, subId);
                 preparedStatement.execute();
+                recordSubscriptionChange(subId, SubscriptionChangeType.UPDATED, conn);
                 conn.commit();
             } catch (SQLException ex) {
                 conn.rollback();
@@ -501,6 +560,65 @@ public class APISubscriptionDAOImpl implements APISubscriptionDAO {
         }
     }
 
+    /**
+     * @see APISubscriptionDAO#getSubscriptionChanges(long, int)
+     */
+    @Override
+    @SuppressFBWarnings("SQL_PREPARED_STATEMENT_GENERATED_FROM_NONCONSTANT_STRING")
+    public List<SubscriptionChange> getSubscriptionChanges(long afterSequenceId, int limit)
+            throws APIMgtDAOException {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        final String getSubscriptionChangesSql = "SELECT SEQUENCE_ID, SUBSCRIPTION_ID, API_CONTEXT, API_VERSION, " +
+                "APPLICATION_ID, CHANGE_TYPE FROM AM_SUBSCRIPTION_CHANGE WHERE SEQUENCE_ID > ? AND " +
+                sqlStatements.getSubscriptionChangeSettledCondition(subscriptionChangeSettleTime) +
+                " ORDER BY SEQUENCE_ID";
+        try (Connection conn = DAOUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(getSubscriptionChangesSql)) {
+            ps.setLong(1, afterSequenceId);
+            ps.setMaxRows(limit);
+            List<SubscriptionChange> changes = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    SubscriptionChange change = new SubscriptionChange(rs.getLong("SEQUENCE_ID"),
+                            rs.getString("SUBSCRIPTION_ID"),
+                            SubscriptionChangeType.valueOf(rs.getString("CHANGE_TYPE")));
+                    change.setApiContext(rs.getString("API_CONTEXT"));
+                    change.setApiVersion(rs.getString("API_VERSION"));
+                    change.setApplicationId(rs.getString("APPLICATION_ID"));
+                    changes.add(change);
+                }
+            }
+            return changes;
+        } catch (SQLException e) {
+            log.error("Error while executing sql query", e);
+            throw new APIMgtDAOException(e);
+        }
+    }
+
+    /**
+     * @see APISubscriptionDAO#getLatestSubscriptionChangeSequenceId()
+     */
+    @Override
+    @SuppressFBWarnings("SQL_PREPARED_STATEMENT_GENERATED_FROM_NONCONSTANT_STRING")
+    public long getLatestSubscriptionChangeSequenceId() throws APIMgtDAOException {
+        final String getLatestSequenceIdSql = "SELECT MAX(SEQUENCE_ID) AS SEQUENCE_ID FROM AM_SUBSCRIPTION_CHANGE " +
+                "WHERE " + sqlStatements.getSubscriptionChangeSettledCondition(subscriptionChangeSettleTime);
+        try (Connection conn = DAOUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(getLatestSequenceIdSql)) {
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getLong("SEQUENCE_ID");
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Error while executing sql query", e);
+            throw new APIMgtDAOException(e);
+        }
+        return 0L;
+    }
+
     /**
      * Validates a subscription
      *
@@ -564,6 +682,8 @@ public class APISubscriptionDAOImpl implements APISubscriptionDAO {
                 subValidationData.setApplicationName(rs.getString("APP_NAME"));
                 subValidationData.setApplicationOwner(rs.getString("APP_OWNER"));
                 subValidationData.setKeyEnvType(rs.getString("KEY_ENV_TYPE"));
+                subValidationData.setApiId(rs.getString("API_ID"));
+                subValidationData.setSubscriptionId(rs.getString("SUBS_UUID"));
                 subscriptionList.add(subValidationData);
             }
         } catch (SQLException e) {
@@ -696,5 +816,24 @@ public class APISubscriptionDAOImpl implements APISubscriptionDAO {
             ps.setTimestamp(6, Timestamp.valueOf(LocalDateTime.now()));
             ps.execute();
         }
+        recordSubscriptionChange(uuid, SubscriptionChangeType.ADDED, conn);
+    }
+
+    /**
+     * Records a change of a subscription in the subscription change log. Must be called within the transaction
+     * making the change, and before the subscription is deleted in case of deletions. The time of the change is set
+     * by the DB, so that it can be compared with the clock of the DB when the change is retrieved.
+     */
+    private void recordSubscriptionChange(String subscriptionId, SubscriptionChangeType changeType, Connection conn)
+            throws SQLException {
+        final String addSubscriptionChangeSql = "INSERT INTO AM_SUBSCRIPTION_CHANGE (SUBSCRIPTION_ID, API_CONTEXT, " +
+                "API_VERSION, APPLICATION_ID, CHANGE_TYPE) SELECT SUBS.UUID, API.CONTEXT, API.VERSION, " +
+                "SUBS.APPLICATION_ID, ? FROM AM_SUBSCRIPTION SUBS, AM_API API " +
+                "WHERE SUBS.UUID = ? AND SUBS.API_ID = API.UUID";
+        try (PreparedStatement ps = conn.prepareStatement(addSubscriptionChangeSql)) {
+            ps.setString(1, changeType.toString());
+            ps.setString(2, subscriptionId);
+            ps.execute();
+        }
     }
 }
@@ -0,0 +1,37 @@
+/*
+ *
+ *   Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+
+package org.wso2.carbon.apimgt.core.dao.impl;
+
+/**
+ *  Interface for getting SQL Statement strings. Implementation of the interface could return different values based
+ *  on DB vendor type being used
+ */
+public interface APISubscriptionDAOVendorSpecificStatements {
+
+    /**
+     * Returns the condition on AM_SUBSCRIPTION_CHANGE matching changes recorded at least the given time ago, measured
+     * by the clock of the DB which also sets the CHANGED_TIME of the changes
+     *
+     * @param settleTime Time in milliseconds
+     * @return String
+     */
+    String getSubscriptionChangeSettledCondition(long settleTime);
+}
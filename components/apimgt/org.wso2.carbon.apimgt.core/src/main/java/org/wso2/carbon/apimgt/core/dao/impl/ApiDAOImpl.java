@@ -1049,10 +1049,14 @@ public class ApiDAOImpl implements ApiDAO {
             preparedStatement.setString(2, apiVersion);
             try (ResultSet resultSet = preparedStatement.executeQuery()) {
                 if (resultSet.next()) {
-                    Map<String, UriTemplate> uriTemplateMap = getUriTemplates(connection,
-                            resultSet.getString("UUID"));
+                    String apiId = resultSet.getString("UUID");
+                    Map<String, UriTemplate> uriTemplateMap = getUriTemplates(connection, apiId);
+                    Map<String, Endpoint> apiEndpoints = getEndPointsForApi(connection, apiId);
                     uriTemplateMap.forEach((k, v) -> {
-                        uriTemplates.add(v);
+                        // Resources without an endpoint of their own are served by the endpoints of the API
+                        Map<String, Endpoint> endpoints = new HashMap<>(apiEndpoints);
+                        endpoints.putAll(v.getEndpoint());
+                        uriTemplates.add(new UriTemplate.UriTemplateBuilder(v).endpoint(endpoints).build());
                     });
                 }
             }
@@ -31,6 +31,7 @@ import org.wso2.carbon.apimgt.core.dao.PolicyDAO;
 import org.wso2.carbon.apimgt.core.dao.TagDAO;
 import org.wso2.carbon.apimgt.core.dao.WorkflowDAO;
 import org.wso2.carbon.apimgt.core.exception.APIMgtDAOException;
+import org.wso2.carbon.apimgt.core.internal.ServiceReferenceHolder;
 
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -130,18 +131,23 @@ public class DAOFactory {
         try (Connection connection = DAOUtil.getConnection()) {
             String driverName = connection.getMetaData().getDriverName();
 
-            if (driverName.contains(MYSQL) || driverName.contains(H2)) {
-                apiSubscriptionDAO = new APISubscriptionDAOImpl();
+            long settleTime = ServiceReferenceHolder.getInstance().getAPIMConfiguration()
+                    .getSubscriptionChangeSettleTime();
+
+            if (driverName.contains(MYSQL)) {
+                apiSubscriptionDAO = new APISubscriptionDAOImpl(new MysqlSQLStatements(), settleTime);
+            } else if (driverName.contains(H2)) {
+                apiSubscriptionDAO = new APISubscriptionDAOImpl(new H2SQLStatements(), settleTime);
             } else if (driverName.contains(DB2)) {
 
             } else if (driverName.contains(MS_SQL) || driverName.contains(MICROSOFT)) {
-                apiSubscriptionDAO = new APISubscriptionDAOImpl();
+                apiSubscriptionDAO = new APISubscriptionDAOImpl(new MssqlSQLStatements(), settleTime);
 
             } else if (driverName.contains(POSTGRE)) {
-                apiSubscriptionDAO = new APISubscriptionDAOImpl();
+                apiSubscriptionDAO = new APISubscriptionDAOImpl(new PostgresSQLStatements(), settleTime);
 
             } else if (driverName.contains(ORACLE)) {
-                apiSubscriptionDAO = new APISubscriptionDAOImpl();
+                apiSubscriptionDAO = new APISubscriptionDAOImpl(new OracleSQLStatements(), settleTime);
             } else {
                 throw new APIMgtDAOException("Unhandled DB Type detected");
             }
@@ -38,7 +38,8 @@ import java.util.Set;
 /**
  * SQL Statements that are specific to H2 Database.
  */
-public class H2SQLStatements implements ApiDAOVendorSpecificStatements {
+public class H2SQLStatements implements ApiDAOVendorSpecificStatements,
+        APISubscriptionDAOVendorSpecificStatements {
 
     private static final Logger log = LoggerFactory.getLogger(H2SQLStatements.class);
     private static final String API_SUMMARY_SELECT =
@@ -260,4 +261,12 @@ public class H2SQLStatements implements ApiDAOVendorSpecificStatements {
             throw new APIMgtDAOException(errorMsg, e);
         }
     }
+
+    /**
+     * @see APISubscriptionDAOVendorSpecificStatements#getSubscriptionChangeSettledCondition(long)
+     */
+    @Override
+    public String getSubscriptionChangeSettledCondition(long settleTime) {
+        return "CHANGED_TIME < DATEADD('MILLISECOND', -" + settleTime + ", CURRENT_TIMESTAMP)";
+    }
 }
@@ -39,7 +39,8 @@ import java.util.Set;
 /**
  * SQL Statements that are specific to Ms SQL Database.
  */
-public class MssqlSQLStatements implements ApiDAOVendorSpecificStatements {
+public class MssqlSQLStatements implements ApiDAOVendorSpecificStatements,
+        APISubscriptionDAOVendorSpecificStatements {
 
     private static final Logger log = LoggerFactory.getLogger(MssqlSQLStatements.class);
     private static final String API_SUMMARY_SELECT =
@@ -275,4 +276,12 @@ public class MssqlSQLStatements implements ApiDAOVendorSpecificStatements {
             throw new APIMgtDAOException(errorMsg, e);
         }
     }
+
+    /**
+     * @see APISubscriptionDAOVendorSpecificStatements#getSubscriptionChangeSettledCondition(long)
+     */
+    @Override
+    public String getSubscriptionChangeSettledCondition(long settleTime) {
+        return "CHANGED_TIME < DATEADD(MILLISECOND, -" + settleTime + ", GETDATE())";
+    }
 }
@@ -39,7 +39,8 @@ import java.util.Set;
 /**
  * SQL Statements that are specific to MySQL Database.
  */
-public class MysqlSQLStatements implements ApiDAOVendorSpecificStatements {
+public class MysqlSQLStatements implements ApiDAOVendorSpecificStatements,
+        APISubscriptionDAOVendorSpecificStatements {
 
     private static final Logger log = LoggerFactory.getLogger(MysqlSQLStatements.class);
     private static final String API_SUMMARY_SELECT =
@@ -277,4 +278,12 @@ public class MysqlSQLStatements implements ApiDAOVendorSpecificStatements {
             throw new APIMgtDAOException(errorMsg, e);
         }
     }
+
+    /**
+     * @see APISubscriptionDAOVendorSpecificStatements#getSubscriptionChangeSettledCondition(long)
+     */
+    @Override
+    public String getSubscriptionChangeSettledCondition(long settleTime) {
+        return "CHANGED_TIME < CURRENT_TIMESTAMP(6) - INTERVAL " + settleTime * 1000 + " MICROSECOND";
+    }
 }
@@ -39,7 +39,8 @@ import java.util.Set;
 /**
  * SQL Statements that are specific to Oracle Database.
  */
-public class OracleSQLStatements implements ApiDAOVendorSpecificStatements {
+public class OracleSQLStatements implements ApiDAOVendorSpecificStatements,
+        APISubscriptionDAOVendorSpecificStatements {
 
     private static Logger log = LoggerFactory.getLogger(OracleSQLStatements.class);
 
@@ -288,4 +289,12 @@ public class OracleSQLStatements implements ApiDAOVendorSpecificStatements {
         }
 
     }
+
+    /**
+     * @see APISubscriptionDAOVendorSpecificStatements#getSubscriptionChangeSettledCondition(long)
+     */
+    @Override
+    public String getSubscriptionChangeSettledCondition(long settleTime) {
+        return "CHANGED_TIME < CURRENT_TIMESTAMP - NUMTODSINTERVAL(" + settleTime + " / 1000, 'SECOND')";
+    }
 }
@@ -39,7 +39,8 @@ import java.util.Set;
 /**
  * SQL Statements that are specific to Postgres Database.
  */
-public class PostgresSQLStatements implements ApiDAOVendorSpecificStatements {
+public class PostgresSQLStatements implements ApiDAOVendorSpecificStatements,
+        APISubscriptionDAOVendorSpecificStatements {
 
     private static final Logger log = LoggerFactory.getLogger(PostgresSQLStatements.class);
     private static final String API_SUMMARY_SELECT =
@@ -275,4 +276,12 @@ public class PostgresSQLStatements implements ApiDAOVendorSpecificStatements {
             throw new APIMgtDAOException(errorMsg, e);
         }
     }
+
+    /**
+     * @see APISubscriptionDAOVendorSpecificStatements#getSubscriptionChangeSettledCondition(long)
+     */
+    @Override
+    public String getSubscriptionChangeSettledCondition(long settleTime) {
+        return "CHANGED_TIME < CURRENT_TIMESTAMP - INTERVAL '" + settleTime + " milliseconds'";
+    }
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.apimgt.core.dto;
+
+import org.wso2.carbon.apimgt.core.models.policy.Policy;
+
+/**
+ * Holds the throttle policy related details transferred to Gateway
+ */
+public class PolicyDTO extends GatewayDTO {
+    private String policyLevel;
+    private Policy policy;
+
+    public PolicyDTO(String eventType) {
+        super(eventType);
+    }
+
+    public String getPolicyLevel() {
+        return policyLevel;
+    }
+
+    public void setPolicyLevel(String policyLevel) {
+        this.policyLevel = policyLevel;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(Policy policy) {
+        this.policy = policy;
+    }
+}
@@ -54,6 +54,7 @@ public enum ExceptionCodes implements ErrorHandler {
     APIM_DAO_EXCEPTION(900320, "Internal server error.", 500, " Error occurred while retrieving data"),
     GATEWAY_LABELS_CANNOT_BE_NULL(900321, "Gateway labels cannot be null.", 400, "Gateway labels cannot be null"),
     STATUS_CANNOT_BE_NULL(900322, "Status cannot be null.", 400, " Status cannot be null"),
+    SUBSCRIPTION_CURSOR_INVALID(900323, "Invalid subscription cursor.", 400, " Subscription cursor is invalid"),
 
     // Generic codes
     JSON_PARSE_ERROR(900400, "Json parse error", 500, "JSON parse error"),
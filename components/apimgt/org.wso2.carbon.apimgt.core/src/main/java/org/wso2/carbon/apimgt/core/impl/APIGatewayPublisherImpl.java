@@ -25,6 +25,7 @@ import org.wso2.carbon.apimgt.core.api.APIGateway;
 import org.wso2.carbon.apimgt.core.dto.APIDTO;
 import org.wso2.carbon.apimgt.core.dto.EndpointDTO;
 import org.wso2.carbon.apimgt.core.dto.GatewayDTO;
+import org.wso2.carbon.apimgt.core.dto.PolicyDTO;
 import org.wso2.carbon.apimgt.core.dto.SubscriptionDTO;
 import org.wso2.carbon.apimgt.core.exception.GatewayException;
 import org.wso2.carbon.apimgt.core.internal.ServiceReferenceHolder;
@@ -32,6 +33,7 @@ import org.wso2.carbon.apimgt.core.models.API;
 import org.wso2.carbon.apimgt.core.models.APISummary;
 import org.wso2.carbon.apimgt.core.models.Endpoint;
 import org.wso2.carbon.apimgt.core.models.Subscription;
+import org.wso2.carbon.apimgt.core.models.policy.Policy;
 import org.wso2.carbon.apimgt.core.util.APIMgtConstants;
 import org.wso2.carbon.apimgt.core.util.BrokerUtil;
 
@@ -205,6 +207,39 @@ public class APIGatewayPublisherImpl implements APIGateway {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addPolicy(String policyLevel, Policy policy) throws GatewayException {
+        publishPolicyEvent(APIMgtConstants.GatewayEventTypes.POLICY_CREATE, policyLevel, policy);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void updatePolicy(String policyLevel, Policy policy) throws GatewayException {
+        publishPolicyEvent(APIMgtConstants.GatewayEventTypes.POLICY_UPDATE, policyLevel, policy);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deletePolicy(String policyLevel, Policy policy) throws GatewayException {
+        publishPolicyEvent(APIMgtConstants.GatewayEventTypes.POLICY_DELETE, policyLevel, policy);
+    }
+
+    private void publishPolicyEvent(String eventType, String policyLevel, Policy policy) throws GatewayException {
+        if (gwHome == null) {
+            PolicyDTO dto = new PolicyDTO(eventType);
+            dto.setPolicyLevel(policyLevel);
+            dto.setPolicy(policy);
+            publishToPublisherTopic(dto);
+        }
+    }
+
     /**
      * Publish event to publisher topic
      *
@@ -2,6 +2,7 @@ package org.wso2.carbon.apimgt.core.impl;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.wso2.carbon.apimgt.core.api.APIGateway;
 import org.wso2.carbon.apimgt.core.api.APIMgtAdminService;
 import org.wso2.carbon.apimgt.core.dao.APISubscriptionDAO;
 import org.wso2.carbon.apimgt.core.dao.ApiDAO;
@@ -14,10 +15,16 @@ import org.wso2.carbon.apimgt.core.exception.APIMgtDAOException;
 import org.wso2.carbon.apimgt.core.exception.ExceptionCodes;
 import org.wso2.carbon.apimgt.core.models.API;
 import org.wso2.carbon.apimgt.core.models.APISummary;
+import org.wso2.carbon.apimgt.core.models.Endpoint;
 import org.wso2.carbon.apimgt.core.models.Label;
+import org.wso2.carbon.apimgt.core.models.SubscriptionChange;
 import org.wso2.carbon.apimgt.core.models.SubscriptionValidationData;
 import org.wso2.carbon.apimgt.core.models.UriTemplate;
+import org.wso2.carbon.apimgt.core.models.policy.APIPolicy;
+import org.wso2.carbon.apimgt.core.models.policy.ApplicationPolicy;
 import org.wso2.carbon.apimgt.core.models.policy.Policy;
+import org.wso2.carbon.apimgt.core.models.policy.SubscriptionPolicy;
+import org.wso2.carbon.apimgt.core.util.APIMgtConstants;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -33,13 +40,15 @@ public class APIMgtAdminServiceImpl implements APIMgtAdminService {
     private PolicyDAO policyDAO;
     private ApiDAO apiDAO;
     private LabelDAO labelDAO;
+    private APIGateway apiGatewayPublisher;
 
     public APIMgtAdminServiceImpl(APISubscriptionDAO apiSubscriptionDAO, PolicyDAO policyDAO, ApiDAO apiDAO,
-                                  LabelDAO labelDAO) {
+                                  LabelDAO labelDAO, APIGateway apiGatewayPublisher) {
         this.apiSubscriptionDAO = apiSubscriptionDAO;
         this.policyDAO = policyDAO;
         this.apiDAO = apiDAO;
         this.labelDAO = labelDAO;
+        this.apiGatewayPublisher = apiGatewayPublisher;
     }
 
     /**
@@ -50,6 +59,17 @@ public class APIMgtAdminServiceImpl implements APIMgtAdminService {
         return apiSubscriptionDAO.getAPISubscriptionsOfAPIForValidation(limit);
     }
 
+    /**
+     * @see org.wso2.carbon.apimgt.core.api.APIMgtAdminService#getAPISubscriptions(String, String, String, int)
+     */
+    @Override
+    public List<SubscriptionValidationData> getAPISubscriptions(String afterApiId, String afterSubscriptionId,
+                                                                String afterKeyEnvType, int limit)
+            throws APIManagementException {
+        return apiSubscriptionDAO.getAPISubscriptionsForValidation(afterApiId, afterSubscriptionId, afterKeyEnvType,
+                limit);
+    }
+
     /**
      * @see org.wso2.carbon.apimgt.core.api.APIMgtAdminService#getAPISubscriptionsOfApi(String, String)
      */
@@ -59,6 +79,23 @@ public class APIMgtAdminServiceImpl implements APIMgtAdminService {
         return apiSubscriptionDAO.getAPISubscriptionsOfAPIForValidation(apiContext, apiVersion);
     }
 
+    /**
+     * @see org.wso2.carbon.apimgt.core.api.APIMgtAdminService#getSubscriptionChanges(long, int)
+     */
+    @Override
+    public List<SubscriptionChange> getSubscriptionChanges(long afterSequenceId, int limit)
+            throws APIManagementException {
+        return apiSubscriptionDAO.getSubscriptionChanges(afterSequenceId, limit);
+    }
+
+    /**
+     * @see org.wso2.carbon.apimgt.core.api.APIMgtAdminService#getLatestSubscriptionChangeSequenceId()
+     */
+    @Override
+    public long getLatestSubscriptionChangeSequenceId() throws APIManagementException {
+        return apiSubscriptionDAO.getLatestSubscriptionChangeSequenceId();
+    }
+
     /**
      * @see org.wso2.carbon.apimgt.core.api.APIMgtAdminService#getAPIInfo()
      */
@@ -83,6 +120,7 @@ public class APIMgtAdminServiceImpl implements APIMgtAdminService {
     @Override
     public void addPolicy(String policyLevel, Policy policy) throws APIManagementException {
         policyDAO.addPolicy(policyLevel, policy);
+        apiGatewayPublisher.addPolicy(policyLevel, policy);
     }
 
     /**
@@ -91,6 +129,7 @@ public class APIMgtAdminServiceImpl implements APIMgtAdminService {
     @Override
     public void updatePolicy(Policy policy) throws APIManagementException {
         policyDAO.updatePolicy(policy);
+        apiGatewayPublisher.updatePolicy(getPolicyLevel(policy), policy);
     }
 
     /**
@@ -98,14 +137,18 @@ public class APIMgtAdminServiceImpl implements APIMgtAdminService {
      */
     @Override
     public void deletePolicy(String policyName, String policyLevel) throws APIManagementException {
+        Policy policy = policyDAO.getPolicy(policyLevel, policyName);
         policyDAO.deletePolicy(policyName, policyLevel);
+        apiGatewayPublisher.deletePolicy(policyLevel, policy);
     }
 
     /**
      * @see org.wso2.carbon.apimgt.core.api.APIMgtAdminService#deletePolicyByUuid(String, String)
      */
     @Override public void deletePolicyByUuid(String uuid, String policyLevel) throws APIManagementException {
+        Policy policy = policyDAO.getPolicyByUuid(uuid, policyLevel);
         policyDAO.deletePolicyByUuid(uuid, policyLevel);
+        apiGatewayPublisher.deletePolicy(policyLevel, policy);
     }
 
     /**
@@ -260,4 +303,28 @@ public class APIMgtAdminServiceImpl implements APIMgtAdminService {
         return apiList;
     }
 
+    /**
+     * @see APIMgtAdminService#getAllEndpoints()
+     */
+    @Override
+    public List<Endpoint> getAllEndpoints() throws APIManagementException {
+        try {
+            return apiDAO.getEndpoints();
+        } catch (APIMgtDAOException e) {
+            String msg = "Couldn't retrieve endpoints";
+            log.error(msg, e);
+            throw new APIManagementException(msg, e, ExceptionCodes.APIMGT_DAO_EXCEPTION);
+        }
+    }
+
+    private static String getPolicyLevel(Policy policy) {
+        if (policy instanceof APIPolicy) {
+            return APIMgtConstants.ThrottlePolicyConstants.API_LEVEL;
+        } else if (policy instanceof ApplicationPolicy) {
+            return APIMgtConstants.ThrottlePolicyConstants.APPLICATION_LEVEL;
+        } else if (policy instanceof SubscriptionPolicy) {
+            return APIMgtConstants.ThrottlePolicyConstants.SUBSCRIPTION_LEVEL;
+        }
+        return null;
+    }
 }
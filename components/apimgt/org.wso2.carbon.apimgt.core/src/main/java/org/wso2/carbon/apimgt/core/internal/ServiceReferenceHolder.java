@@ -49,11 +49,12 @@ public class ServiceReferenceHolder {
     }
 
     public APIMConfigurations getAPIMConfiguration() {
-        try {
-            config = ServiceReferenceHolder.getInstance().getConfigProvider()
-                    .getConfigurationObject(APIMConfigurations.class);
-        } catch (CarbonConfigurationException e) {
-            log.error("error getting config : org.wso2.carbon.apimgt.core.internal.APIMConfiguration", e);
+        if (configProvider != null) {
+            try {
+                config = configProvider.getConfigurationObject(APIMConfigurations.class);
+            } catch (CarbonConfigurationException e) {
+                log.error("error getting config : org.wso2.carbon.apimgt.core.internal.APIMConfiguration", e);
+            }
         }
 
         if (config == null) {
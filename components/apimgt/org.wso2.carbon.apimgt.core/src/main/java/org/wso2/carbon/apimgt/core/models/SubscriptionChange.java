@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.core.models;
+
+import org.wso2.carbon.apimgt.core.util.APIMgtConstants.SubscriptionChangeType;
+
+/**
+ * Model for a change made to a subscription. Changes are numbered by a sequence which increases with each change.
+ */
+public final class SubscriptionChange {
+
+    private final long sequenceId;
+    private final String subscriptionId;
+    private final SubscriptionChangeType changeType;
+    private String apiContext;
+    private String apiVersion;
+    private String applicationId;
+
+    public SubscriptionChange(long sequenceId, String subscriptionId, SubscriptionChangeType changeType) {
+        this.sequenceId = sequenceId;
+        this.subscriptionId = subscriptionId;
+        this.changeType = changeType;
+    }
+
+    public long getSequenceId() {
+        return sequenceId;
+    }
+
+    public String getSubscriptionId() {
+        return subscriptionId;
+    }
+
+    public SubscriptionChangeType getChangeType() {
+        return changeType;
+    }
+
+    public String getApiContext() {
+        return apiContext;
+    }
+
+    public void setApiContext(String apiContext) {
+        this.apiContext = apiContext;
+    }
+
+    public String getApiVersion() {
+        return apiVersion;
+    }
+
+    public void setApiVersion(String apiVersion) {
+        this.apiVersion = apiVersion;
+    }
+
+    public String getApplicationId() {
+        return applicationId;
+    }
+
+    public void setApplicationId(String applicationId) {
+        this.applicationId = applicationId;
+    }
+}
@@ -35,6 +35,8 @@ public final class SubscriptionValidationData {
     private String applicationOwner;
     private String keyAuthType;
     private String keyEnvType;
+    private String apiId;
+    private String subscriptionId;
 
     public SubscriptionValidationData(String apiContext, String apiVersion, String consumerKey) {
         this.apiContext = apiContext;
@@ -109,4 +111,20 @@ public final class SubscriptionValidationData {
     public void setKeyEnvType(String keyEnvType) {
         this.keyEnvType = keyEnvType;
     }
+
+    public String getApiId() {
+        return apiId;
+    }
+
+    public void setApiId(String apiId) {
+        this.apiId = apiId;
+    }
+
+    public String getSubscriptionId() {
+        return subscriptionId;
+    }
+
+    public void setSubscriptionId(String subscriptionId) {
+        this.subscriptionId = subscriptionId;
+    }
 }
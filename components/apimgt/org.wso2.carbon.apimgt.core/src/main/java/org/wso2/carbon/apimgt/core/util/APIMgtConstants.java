@@ -138,6 +138,15 @@ public class APIMgtConstants {
         UN_SUBSCRIBE
     }
 
+    /**
+     * Types of the changes recorded for subscriptions
+     */
+    public enum SubscriptionChangeType {
+        ADDED,
+        UPDATED,
+        DELETED
+    }
+
 
     /**
      * API workflow statuses.
@@ -372,6 +381,9 @@ public class APIMgtConstants {
         public static final String ENDPOINT_DELETE = "ENDPOINT_DELETE";
         public static final String SUBSCRIPTION_CREATE = "SUBSCRIPTION_CREATE";
         public static final String SUBSCRIPTION_DELETE = "SUBSCRIPTION_DELETE";
+        public static final String POLICY_CREATE = "POLICY_CREATE";
+        public static final String POLICY_UPDATE = "POLICY_UPDATE";
+        public static final String POLICY_DELETE = "POLICY_DELETE";
     }
 
 }
@@ -28,13 +28,16 @@ import org.wso2.carbon.apimgt.core.models.API;
 import org.wso2.carbon.apimgt.core.models.Application;
 import org.wso2.carbon.apimgt.core.models.OAuthApplicationInfo;
 import org.wso2.carbon.apimgt.core.models.Subscription;
+import org.wso2.carbon.apimgt.core.models.SubscriptionChange;
 import org.wso2.carbon.apimgt.core.models.SubscriptionValidationData;
 import org.wso2.carbon.apimgt.core.util.APIMgtConstants;
 import org.wso2.carbon.apimgt.core.util.ETagUtils;
 import org.wso2.carbon.apimgt.core.util.KeyManagerConstants;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 public class SubscriptionDAOImplIT extends DAOIntegrationTestBase {
@@ -145,6 +148,53 @@ public class SubscriptionDAOImplIT extends DAOIntegrationTestBase {
         Assert.assertNotEquals(fingerprintBeforeUpdate, fingerprintAfterUpdate);
     }
 
+    @Test
+    public void testGetSubscriptionChanges() throws Exception {
+
+        //add new app
+        Application app = TestUtil.addTestApplication();
+        //add new api
+        API api = TestUtil.addTestAPI();
+        APISubscriptionDAO apiSubscriptionDAO = DAOFactory.getAPISubscriptionDAO();
+        long latestSequenceId = apiSubscriptionDAO.getLatestSubscriptionChangeSequenceId();
+
+        //add, update and delete subscription
+        String uuid = UUID.randomUUID().toString();
+        apiSubscriptionDAO.addAPISubscription(uuid, api.getId(), app.getId(), GOLD_TIER,
+                APIMgtConstants.SubscriptionStatus.ACTIVE);
+        apiSubscriptionDAO.updateSubscriptionPolicy(uuid, SILVER_TIER);
+        apiSubscriptionDAO.updateSubscriptionStatus(uuid, APIMgtConstants.SubscriptionStatus.BLOCKED);
+        apiSubscriptionDAO.deleteAPISubscription(uuid);
+
+        //changes are returned once they are settled
+        Assert.assertTrue(apiSubscriptionDAO.getSubscriptionChanges(latestSequenceId, 10).isEmpty());
+        Thread.sleep(6000);
+        List<SubscriptionChange> changes = new ArrayList<>();
+        for (SubscriptionChange change : apiSubscriptionDAO.getSubscriptionChanges(latestSequenceId, 10)) {
+            if (uuid.equals(change.getSubscriptionId())) {
+                changes.add(change);
+            }
+        }
+
+        //validate changes
+        Assert.assertEquals(changes.size(), 4);
+        Assert.assertEquals(changes.get(0).getChangeType(), APIMgtConstants.SubscriptionChangeType.ADDED);
+        Assert.assertEquals(changes.get(1).getChangeType(), APIMgtConstants.SubscriptionChangeType.UPDATED);
+        Assert.assertEquals(changes.get(2).getChangeType(), APIMgtConstants.SubscriptionChangeType.UPDATED);
+        Assert.assertEquals(changes.get(3).getChangeType(), APIMgtConstants.SubscriptionChangeType.DELETED);
+        for (int i = 0; i < changes.size(); i++) {
+            Assert.assertEquals(changes.get(i).getApiContext(), api.getContext());
+            Assert.assertEquals(changes.get(i).getApiVersion(), api.getVersion());
+            Assert.assertEquals(changes.get(i).getApplicationId(), app.getId());
+            if (i > 0) {
+                Assert.assertTrue(changes.get(i).getSequenceId() > changes.get(i - 1).getSequenceId());
+            }
+        }
+        Assert.assertTrue(apiSubscriptionDAO.getLatestSubscriptionChangeSequenceId() >= changes.get(3)
+                .getSequenceId());
+        Assert.assertEquals(apiSubscriptionDAO.getSubscriptionChanges(latestSequenceId, 2).size(), 2);
+    }
+
     @Test
     public void testGetSubscriptionsForValidation() throws Exception {
 
@@ -224,6 +274,48 @@ public class SubscriptionDAOImplIT extends DAOIntegrationTestBase {
         }
     }
 
+    @Test
+    public void testGetSubscriptionsForValidationByPage() throws Exception {
+
+        //add test apis, apps and subscriptions
+        ApisAndApps apisAndApps = createApisAppsAndSubscriptions();
+
+        APISubscriptionDAO subscriptionDAO = DAOFactory.getAPISubscriptionDAO();
+        ApplicationDAO applicationDAO = DAOFactory.getApplicationDAO();
+        for (int i = 0; i < apisAndApps.getApps().size(); i++) {
+            registerOAuthAppForApplication(applicationDAO, "client-key-for-app-" + i, "client-secret-for-app-" + i,
+                    apisAndApps.getApps().get(i).getId());
+        }
+
+        //read all subscriptions in pages of 4
+        List<SubscriptionValidationData> subscriptions = new ArrayList<>();
+        List<SubscriptionValidationData> page = subscriptionDAO.getAPISubscriptionsForValidation(null, null, null, 4);
+        Assert.assertEquals(page.size(), 4);
+        while (!page.isEmpty()) {
+            Assert.assertTrue(page.size() <= 4);
+            subscriptions.addAll(page);
+            SubscriptionValidationData last = page.get(page.size() - 1);
+            page = subscriptionDAO.getAPISubscriptionsForValidation(last.getApiId(), last.getSubscriptionId(),
+                    last.getKeyEnvType(), 4);
+        }
+
+        //pages should hold every subscription exactly once, grouped by API
+        Assert.assertEquals(subscriptions.size(), 9, "There should be 9 subscriptions (only).");
+        Set<String> subscriptionIds = new HashSet<>();
+        Set<String> completedApiIds = new HashSet<>();
+        String apiId = null;
+        for (SubscriptionValidationData subscription : subscriptions) {
+            Assert.assertTrue(subscriptionIds.add(subscription.getSubscriptionId()));
+            if (!subscription.getApiId().equals(apiId)) {
+                Assert.assertFalse(completedApiIds.contains(subscription.getApiId()));
+                completedApiIds.add(apiId);
+                apiId = subscription.getApiId();
+            }
+        }
+        Assert.assertTrue(subscriptionDAO.getAPISubscriptionsForValidation(null, null, null, 0).isEmpty());
+        Assert.assertEquals(subscriptionDAO.getAPISubscriptionsOfAPIForValidation(5).size(), 5);
+    }
+
     private void registerOAuthAppForApplication(ApplicationDAO applicationDAO, String clientKey, String clintSecret,
                                                 String appId) throws APIMgtDAOException {
         OAuthApplicationInfo oAuthAppInfo = new OAuthApplicationInfo();
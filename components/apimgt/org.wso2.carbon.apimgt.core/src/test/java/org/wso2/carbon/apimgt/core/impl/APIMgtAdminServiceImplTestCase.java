@@ -21,8 +21,10 @@
 package org.wso2.carbon.apimgt.core.impl;
 
 import org.mockito.Mockito;
+import org.testng.Assert;
 import org.testng.annotations.Test;
 import org.wso2.carbon.apimgt.core.SampleTestObjectCreator;
+import org.wso2.carbon.apimgt.core.api.APIGateway;
 import org.wso2.carbon.apimgt.core.dao.APISubscriptionDAO;
 import org.wso2.carbon.apimgt.core.dao.ApiDAO;
 import org.wso2.carbon.apimgt.core.dao.ApiType;
@@ -31,9 +33,12 @@ import org.wso2.carbon.apimgt.core.dao.PolicyDAO;
 import org.wso2.carbon.apimgt.core.exception.APIManagementException;
 import org.wso2.carbon.apimgt.core.exception.APIMgtDAOException;
 import org.wso2.carbon.apimgt.core.models.API;
+import org.wso2.carbon.apimgt.core.models.Endpoint;
 import org.wso2.carbon.apimgt.core.models.Label;
 import org.wso2.carbon.apimgt.core.models.SubscriptionValidationData;
+import org.wso2.carbon.apimgt.core.models.policy.ApplicationPolicy;
 import org.wso2.carbon.apimgt.core.models.policy.Policy;
+import org.wso2.carbon.apimgt.core.util.APIMgtConstants;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -61,6 +66,27 @@ public class APIMgtAdminServiceImplTestCase {
         verify(apiSubscriptionDAO, times(1)).getAPISubscriptionsOfAPIForValidation(LIMIT);
     }
 
+    @Test(description = "Get a page of api subscriptions")
+    public void testGetAPISubscriptionsPage() throws APIManagementException {
+        APISubscriptionDAO apiSubscriptionDAO = mock(APISubscriptionDAO.class);
+        APIMgtAdminServiceImpl adminService = newAPIMgtAdminServiceImplforAPISubscriptionDAO(apiSubscriptionDAO);
+        when(apiSubscriptionDAO.getAPISubscriptionsForValidation(null, null, null, LIMIT))
+                .thenReturn(new ArrayList<>());
+        adminService.getAPISubscriptions(null, null, null, LIMIT);
+        verify(apiSubscriptionDAO, times(1)).getAPISubscriptionsForValidation(null, null, null, LIMIT);
+    }
+
+    @Test(description = "Get subscription changes")
+    public void testGetSubscriptionChanges() throws APIManagementException {
+        APISubscriptionDAO apiSubscriptionDAO = mock(APISubscriptionDAO.class);
+        APIMgtAdminServiceImpl adminService = newAPIMgtAdminServiceImplforAPISubscriptionDAO(apiSubscriptionDAO);
+        when(apiSubscriptionDAO.getSubscriptionChanges(10L, LIMIT)).thenReturn(new ArrayList<>());
+        when(apiSubscriptionDAO.getLatestSubscriptionChangeSequenceId()).thenReturn(10L);
+        adminService.getSubscriptionChanges(10L, LIMIT);
+        verify(apiSubscriptionDAO, times(1)).getSubscriptionChanges(10L, LIMIT);
+        Assert.assertEquals(adminService.getLatestSubscriptionChangeSequenceId(), 10L);
+    }
+
     @Test(description = "Get api subscriptions of API")
     public void testGetAPISubscriptionsOfApi() throws APIManagementException {
         APISubscriptionDAO apiSubscriptionDAO = mock(APISubscriptionDAO.class);
@@ -102,6 +128,25 @@ public class APIMgtAdminServiceImplTestCase {
         verify(policyDAO, times(1)).addPolicy(POLICY_LEVEL, policy);
     }
 
+    @Test(description = "Policy changes are published to gateways")
+    public void testPolicyChangesPublishedToGateway() throws APIManagementException {
+        PolicyDAO policyDAO = mock(PolicyDAO.class);
+        APIGateway apiGateway = mock(APIGateway.class);
+        APIMgtAdminServiceImpl adminService = newAPIMgtAdminServiceImplforPolicyDAO(policyDAO, apiGateway);
+        ApplicationPolicy policy = new ApplicationPolicy(POLICY_NAME);
+        when(policyDAO.getPolicy(APIMgtConstants.ThrottlePolicyConstants.APPLICATION_LEVEL, POLICY_NAME))
+                .thenReturn(policy);
+
+        adminService.addPolicy(APIMgtConstants.ThrottlePolicyConstants.APPLICATION_LEVEL, policy);
+        verify(apiGateway, times(1)).addPolicy(APIMgtConstants.ThrottlePolicyConstants.APPLICATION_LEVEL, policy);
+        adminService.updatePolicy(policy);
+        verify(apiGateway, times(1)).updatePolicy(APIMgtConstants.ThrottlePolicyConstants.APPLICATION_LEVEL,
+                policy);
+        adminService.deletePolicy(POLICY_NAME, APIMgtConstants.ThrottlePolicyConstants.APPLICATION_LEVEL);
+        verify(apiGateway, times(1)).deletePolicy(APIMgtConstants.ThrottlePolicyConstants.APPLICATION_LEVEL,
+                policy);
+    }
+
     @Test(description = "Get API Info")
     public void testGetAPIInfo() throws APIManagementException {
         ApiDAO apiDAO = mock(ApiDAO.class);
@@ -112,6 +157,25 @@ public class APIMgtAdminServiceImplTestCase {
         verify(apiDAO, times(1)).getAPIs(ApiType.STANDARD);
     }
 
+    @Test(description = "Get all endpoints")
+    public void testGetAllEndpoints() throws APIManagementException {
+        ApiDAO apiDAO = mock(ApiDAO.class);
+        APIMgtAdminServiceImpl adminService = newAPIMgtAdminServiceImplforApiDAO(apiDAO);
+        List<Endpoint> endpoints = new ArrayList<>();
+        endpoints.add(SampleTestObjectCreator.createMockEndpoint());
+        when(apiDAO.getEndpoints()).thenReturn(endpoints);
+        Assert.assertEquals(adminService.getAllEndpoints(), endpoints);
+        verify(apiDAO, times(1)).getEndpoints();
+    }
+
+    @Test(description = "Exception when getting all endpoints", expectedExceptions = APIManagementException.class)
+    public void testGetAllEndpointsException() throws APIManagementException {
+        ApiDAO apiDAO = mock(ApiDAO.class);
+        APIMgtAdminServiceImpl adminService = newAPIMgtAdminServiceImplforApiDAO(apiDAO);
+        when(apiDAO.getEndpoints()).thenThrow(new APIMgtDAOException("Error occurred while getting endpoints"));
+        adminService.getAllEndpoints();
+    }
+
     @Test(description = "Delete a label")
     public void testDeleteLabel() throws APIManagementException {
         LabelDAO labelDAO = Mockito.mock(LabelDAO.class);
@@ -193,20 +257,25 @@ public class APIMgtAdminServiceImplTestCase {
     }
 
     private APIMgtAdminServiceImpl newAPIMgtAdminServiceImplforApiDAO(ApiDAO apiDAO) {
-        return new APIMgtAdminServiceImpl(null, null, apiDAO, null);
+        return new APIMgtAdminServiceImpl(null, null, apiDAO, null, mock(APIGateway.class));
     }
 
     private APIMgtAdminServiceImpl newAPIMgtAdminServiceImplforPolicyDAO(PolicyDAO policyDAO) {
-        return new APIMgtAdminServiceImpl(null, policyDAO, null, null);
+        return new APIMgtAdminServiceImpl(null, policyDAO, null, null, mock(APIGateway.class));
+    }
+
+    private APIMgtAdminServiceImpl newAPIMgtAdminServiceImplforPolicyDAO(PolicyDAO policyDAO,
+                                                                          APIGateway apiGateway) {
+        return new APIMgtAdminServiceImpl(null, policyDAO, null, null, apiGateway);
     }
 
     private APIMgtAdminServiceImpl newAPIMgtAdminServiceImplforAPISubscriptionDAO(APISubscriptionDAO
                                                                                           apiSubscriptionDAO) {
-        return new APIMgtAdminServiceImpl(apiSubscriptionDAO, null, null, null);
+        return new APIMgtAdminServiceImpl(apiSubscriptionDAO, null, null, null, mock(APIGateway.class));
     }
 
     private APIMgtAdminServiceImpl newAPIMgtAdminServiceImplforLabelDAO(LabelDAO labelDAO) {
-        return new APIMgtAdminServiceImpl(null, null, null, labelDAO);
+        return new APIMgtAdminServiceImpl(null, null, null, labelDAO, mock(APIGateway.class));
     }
 
 }
@@ -34,7 +34,7 @@ public class APIMConfigurations {
     @Element(description = "topic server port")
     private String topicServerPort = "5672";
     @Element(description = "topic name")
-    private String topicName = "MYTopic";
+    private String topicName = "PublisherTopic";
     @Element(description = "username for topic")
     private String username = "admin";
     @Element(description = "password for topic")
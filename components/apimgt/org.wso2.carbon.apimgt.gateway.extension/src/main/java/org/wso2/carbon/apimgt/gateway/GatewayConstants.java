@@ -41,4 +41,15 @@ public class GatewayConstants {
     public static final String END_USER_NAME = "api.ut.userName";
     public static final String REQUEST_RECEIVED_TIME = "wso2statistics.request.received.time";
     public static final String REST_FULL_REQUEST_PATH = "REST_FULL_REQUEST_PATH";
+
+    //Analytics related constants
+    public static final String REST_API_CONTEXT = "REST_API_CONTEXT";
+    public static final String REST_API_VERSION = "REST_API_VERSION";
+    public static final String SECURITY_LATENCY = "security_latency";
+    // Message properties set by the carbon transports
+    public static final String HTTP_METHOD = "HTTP_METHOD";
+    public static final String HTTP_STATUS_CODE = "HTTP_STATUS_CODE";
+    public static final String PROTOCOL = "PROTOCOL";
+    public static final String HOST_HEADER = "Host";
+    public static final String USER_AGENT_HEADER = "User-Agent";
 }
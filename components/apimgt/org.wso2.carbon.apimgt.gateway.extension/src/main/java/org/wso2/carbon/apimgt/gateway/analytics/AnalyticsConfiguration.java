@@ -31,6 +31,15 @@ public class AnalyticsConfiguration {
     private String eventPublisher = "org.wso2.carbon.apimgt.gateway.analytics.EventPublisherImpl";
     private String analyticsClient = "";
 
+    private String eventSink = "org.wso2.carbon.apimgt.gateway.analytics.RollingFileAnalyticsEventSink";
+    private int eventBufferSize = 8192;
+    private int eventBatchSize = 1000;
+    private long eventFlushInterval = 1000;
+
+    private String eventFileDirectory = "analytics";
+    private long eventFileMaxSize = 64L * 1024 * 1024;
+    private int eventFileMaxCount = 10;
+
     private String analyticsEventStreamName = "org.wso2.carbon.apim.event";
     private String analyticsEventStreamVersion = "2.0.0";
 
@@ -124,4 +133,60 @@ public class AnalyticsConfiguration {
     public void setWorkflowEventStreamVersion(String workflowEventStreamVersion) {
         this.workflowEventStreamVersion = workflowEventStreamVersion;
     }
+
+    public String getEventSink() {
+        return eventSink;
+    }
+
+    public void setEventSink(String eventSink) {
+        this.eventSink = eventSink;
+    }
+
+    public int getEventBufferSize() {
+        return eventBufferSize;
+    }
+
+    public void setEventBufferSize(int eventBufferSize) {
+        this.eventBufferSize = eventBufferSize;
+    }
+
+    public int getEventBatchSize() {
+        return eventBatchSize;
+    }
+
+    public void setEventBatchSize(int eventBatchSize) {
+        this.eventBatchSize = eventBatchSize;
+    }
+
+    public long getEventFlushInterval() {
+        return eventFlushInterval;
+    }
+
+    public void setEventFlushInterval(long eventFlushInterval) {
+        this.eventFlushInterval = eventFlushInterval;
+    }
+
+    public String getEventFileDirectory() {
+        return eventFileDirectory;
+    }
+
+    public void setEventFileDirectory(String eventFileDirectory) {
+        this.eventFileDirectory = eventFileDirectory;
+    }
+
+    public long getEventFileMaxSize() {
+        return eventFileMaxSize;
+    }
+
+    public void setEventFileMaxSize(long eventFileMaxSize) {
+        this.eventFileMaxSize = eventFileMaxSize;
+    }
+
+    public int getEventFileMaxCount() {
+        return eventFileMaxCount;
+    }
+
+    public void setEventFileMaxCount(int eventFileMaxCount) {
+        this.eventFileMaxCount = eventFileMaxCount;
+    }
 }
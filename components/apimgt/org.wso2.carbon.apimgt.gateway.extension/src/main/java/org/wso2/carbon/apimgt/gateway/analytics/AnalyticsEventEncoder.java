@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.analytics;
+
+import org.wso2.carbon.apimgt.gateway.analytics.dto.AnalyticsEventStreamDTO;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodes analytics events into compact binary batches.
+ * <pre>
+ * batch  := version:byte eventCount:int32 event{eventCount}
+ * event  := flags:byte string{attributeCount}
+ * string := ref:varint [length:varint utf8:byte{length}]
+ * </pre>
+ * Attributes are written in the order of {@link AnalyticsUtil#generateStream(AnalyticsEventStreamDTO)}. Strings
+ * are deduplicated within a batch: a reference of 0 is a null string, a reference to a string seen before in the
+ * batch is its 1-based position in the order the strings were first written, and the next unused reference is
+ * followed by the new string itself. Since API, application and gateway attributes repeat across the events of a
+ * batch, most attributes are written as a single byte. The flags hold the request, response, fault and throttle data
+ * markers of the event.
+ * <p>
+ * Instances are not thread safe and are reused from one batch to the next.
+ */
+public class AnalyticsEventEncoder {
+
+    public static final byte VERSION = 2;
+
+    private static final int REQUEST_DATA = 1;
+    private static final int RESPONSE_DATA = 1 << 1;
+    private static final int FAULT_DATA = 1 << 2;
+    private static final int THROTTLE_DATA = 1 << 3;
+    // Strings longer than this take a reference but are not looked up again, to keep the dictionary small
+    private static final int MAX_DICTIONARY_STRING_LENGTH = 256;
+
+    private final Buffer buffer = new Buffer();
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private int eventCount;
+    private int lastReference;
+
+    /**
+     * Starts a new batch, discarding the previous one.
+     */
+    public void reset() {
+        buffer.reset();
+        dictionary.clear();
+        eventCount = 0;
+        lastReference = 0;
+        buffer.write(VERSION);
+        writeInt(0);
+    }
+
+    /**
+     * Appends an event to the current batch.
+     *
+     * @param event analytics event
+     */
+    public void encode(AnalyticsEventStreamDTO event) {
+        if (buffer.size() == 0) {
+            reset();
+        }
+        int flags = (event.getIsRequestDataExist() ? REQUEST_DATA : 0)
+                | (event.getIsResponseDataExist() ? RESPONSE_DATA : 0)
+                | (event.getIsFaultDataExist() ? FAULT_DATA : 0)
+                | (event.getIsThrottleDataExist() ? THROTTLE_DATA : 0);
+        buffer.write(flags);
+        writeString(event.getUserAgent());
+        writeString(event.getHostName());
+        writeString(event.getMethod());
+        writeString(event.getClientIp());
+        writeString(event.getProtocol());
+        writeString(event.getApiName());
+        writeString(event.getContext());
+        writeString(event.getVersion());
+        writeString(event.getCreator());
+        writeString(event.getEndpoint());
+        writeString(event.getResourcePath());
+        writeString(event.getUriTemplate());
+        writeString(event.getConsumerKey());
+        writeString(event.getApplicationName());
+        writeString(event.getApplicationId());
+        writeString(event.getApplicationOwner());
+        writeString(event.getUserId());
+        writeString(event.getSubscriber());
+        writeString(event.getGatewayIp());
+        writeString(event.getGatewayDomain());
+        writeString(event.getIsThrottled());
+        writeString(event.getThrottledReason());
+        writeString(event.getThrottledPolicy());
+        writeString(event.getSubscriptionPolicy());
+        writeString(event.getRequestTime());
+        writeString(event.getRequestCount());
+        writeString(event.getRequestSize());
+        writeString(event.getResponseTime());
+        writeString(event.getServiceTime());
+        writeString(event.getBackendTime());
+        writeString(event.getBackendLatency());
+        writeString(event.getSecurityLatency());
+        writeString(event.getThrottlingLatency());
+        writeString(event.getRequestMediationLatency());
+        writeString(event.getResponseMediationLatency());
+        writeString(event.getOtherLatency());
+        writeString(event.getResponseCount());
+        writeString(event.getCacheHit());
+        writeString(event.getResponseSize());
+        writeString(event.getResponseCode());
+        writeString(event.getErrorCode());
+        writeString(event.getErrorMessage());
+        writeString(event.getFaultCount());
+        writeString(event.getThrottledTime());
+        writeString(event.getThrottledCount());
+        eventCount++;
+    }
+
+    /**
+     * @return number of events in the current batch
+     */
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * @return number of bytes of the current batch
+     */
+    public int getLength() {
+        return buffer.size();
+    }
+
+    /**
+     * Completes the current batch. The returned array is reused and only valid until the batch is reset.
+     *
+     * @return encoded batch, of {@link #getLength()} bytes
+     */
+    public byte[] finish() {
+        byte[] bytes = buffer.array();
+        bytes[1] = (byte) (eventCount >>> 24);
+        bytes[2] = (byte) (eventCount >>> 16);
+        bytes[3] = (byte) (eventCount >>> 8);
+        bytes[4] = (byte) eventCount;
+        return bytes;
+    }
+
+    private void writeString(String value) {
+        if (value == null) {
+            buffer.write(0);
+            return;
+        }
+        Integer reference = dictionary.get(value);
+        if (reference != null) {
+            writeVarInt(reference);
+            return;
+        }
+        reference = ++lastReference;
+        if (value.length() <= MAX_DICTIONARY_STRING_LENGTH) {
+            dictionary.put(value, reference);
+        }
+        writeVarInt(reference);
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length);
+        buffer.write(bytes, 0, bytes.length);
+    }
+
+    private void writeVarInt(int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer.write(value);
+    }
+
+    private void writeInt(int value) {
+        buffer.write(value >>> 24);
+        buffer.write(value >>> 16);
+        buffer.write(value >>> 8);
+        buffer.write(value);
+    }
+
+    /**
+     * Byte array output stream giving access to its array, to hand batches over without copying them.
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        private Buffer() {
+            super(64 * 1024);
+        }
+
+        private byte[] array() {
+            return buf;
+        }
+    }
+}
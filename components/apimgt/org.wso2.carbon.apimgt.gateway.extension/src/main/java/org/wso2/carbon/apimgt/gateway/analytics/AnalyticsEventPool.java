@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.analytics;
+
+import org.wso2.carbon.apimgt.gateway.analytics.dto.AnalyticsEventStreamDTO;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Bounded pool of analytics events, so that capturing the analytics data of a request does not allocate once the
+ * gateway is warmed up. Events are taken when a request is received and given back once they are published or
+ * dropped. Neither operation blocks: an empty pool creates a new event, and events given back to a full pool are
+ * left to the garbage collector.
+ */
+public final class AnalyticsEventPool {
+
+    private static final int DEFAULT_CAPACITY = 8192;
+    private static volatile AnalyticsEventPool instance = new AnalyticsEventPool(DEFAULT_CAPACITY);
+
+    private final BlockingQueue<AnalyticsEventStreamDTO> events;
+
+    AnalyticsEventPool(int capacity) {
+        events = new ArrayBlockingQueue<>(capacity);
+    }
+
+    public static AnalyticsEventPool getInstance() {
+        return instance;
+    }
+
+    /**
+     * Replaces the pool with one of the given capacity. Events taken from the previous pool can still be given
+     * back.
+     *
+     * @param capacity maximum number of idle events kept in the pool
+     */
+    public static void init(int capacity) {
+        instance = new AnalyticsEventPool(capacity);
+    }
+
+    /**
+     * @return an event with no attributes set
+     */
+    public AnalyticsEventStreamDTO acquire() {
+        AnalyticsEventStreamDTO event = events.poll();
+        return event != null ? event : new AnalyticsEventStreamDTO();
+    }
+
+    /**
+     * Clears the attributes of an event and gives it back to the pool. The event must not be used afterwards.
+     *
+     * @param event event taken from the pool
+     */
+    public void release(AnalyticsEventStreamDTO event) {
+        event.reset();
+        events.offer(event);
+    }
+}
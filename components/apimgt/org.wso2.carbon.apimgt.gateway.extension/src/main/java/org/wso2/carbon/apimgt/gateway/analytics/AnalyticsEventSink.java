@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.analytics;
+
+import java.io.IOException;
+
+/**
+ * Destination of the encoded analytics event batches. Sinks are called from the single encoder thread of
+ * {@link EventPublisherImpl}, never from request threads. Implementations must have a public no-argument
+ * constructor so that they can be selected through the analytics configuration.
+ */
+public interface AnalyticsEventSink {
+
+    /**
+     * Prepares the sink before the first batch is written.
+     *
+     * @param configuration analytics configuration
+     * @throws IOException if the sink cannot be prepared
+     */
+    void init(AnalyticsConfiguration configuration) throws IOException;
+
+    /**
+     * Writes a batch of events encoded by {@link AnalyticsEventEncoder}.
+     *
+     * @param batch      encoded batch. The array is reused and must not be kept after the call returns.
+     * @param length     number of bytes of the batch in the array
+     * @param eventCount number of events in the batch
+     * @throws IOException if the batch could not be written. The batch is discarded.
+     */
+    void write(byte[] batch, int length, int eventCount) throws IOException;
+
+    /**
+     * Releases the resources held by the sink.
+     */
+    void close();
+}
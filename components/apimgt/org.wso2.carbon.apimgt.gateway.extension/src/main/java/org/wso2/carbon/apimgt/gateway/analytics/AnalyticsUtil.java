@@ -21,8 +21,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wso2.carbon.apimgt.gateway.GatewayConstants;
 import org.wso2.carbon.apimgt.gateway.analytics.dto.AnalyticsEventStreamDTO;
+import org.wso2.carbon.apimgt.gateway.throttling.constants.APIThrottleConstants;
+import org.wso2.carbon.apimgt.gateway.throttling.utils.GatewayUtils;
 import org.wso2.carbon.messaging.CarbonMessage;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * This class used to implement some utility function which is used for analytics data processing
  */
@@ -58,6 +62,55 @@ public class AnalyticsUtil {
         if (dto == null) {
             dto = initializeStreamDTO(carbonMessage);
         }
+        long responseNanoTime = System.nanoTime();
+        long requestTime = Long.parseLong(dto.getRequestTime());
+        long serviceTime = TimeUnit.NANOSECONDS.toMillis(responseNanoTime - dto.getRequestNanoTime());
+        dto.setResponseTime(Long.toString(requestTime + serviceTime));
+        dto.setServiceTime(Long.toString(serviceTime));
+
+        // API and application attributes are set by the handlers and the router after the request is received
+        dto.setContext(getString(carbonMessage, GatewayConstants.REST_API_CONTEXT));
+        dto.setVersion(getString(carbonMessage, GatewayConstants.REST_API_VERSION));
+        dto.setResourcePath(getString(carbonMessage, GatewayConstants.REST_FULL_REQUEST_PATH));
+        dto.setApplicationId(getString(carbonMessage, GatewayConstants.APPLICATION_ID));
+        dto.setApplicationName(getString(carbonMessage, GatewayConstants.APPLICATION_NAME));
+        dto.setUserId(getString(carbonMessage, GatewayConstants.END_USER_NAME));
+
+        long securityLatency = getLong(carbonMessage, GatewayConstants.SECURITY_LATENCY);
+        long throttlingLatency = getLong(carbonMessage, APIThrottleConstants.THROTTLING_LATENCY);
+        long backendLatency = 0;
+        if (dto.getBackendRequestNanoTime() != 0 && dto.getBackendResponseNanoTime() != 0) {
+            backendLatency = TimeUnit.NANOSECONDS.toMillis(dto.getBackendResponseNanoTime() -
+                    dto.getBackendRequestNanoTime());
+            dto.setBackendTime(Long.toString(requestTime + TimeUnit.NANOSECONDS.toMillis(
+                    dto.getBackendResponseNanoTime() - dto.getRequestNanoTime())));
+        }
+        dto.setBackendLatency(Long.toString(backendLatency));
+        dto.setSecurityLatency(Long.toString(securityLatency));
+        dto.setThrottlingLatency(Long.toString(throttlingLatency));
+        dto.setOtherLatency(Long.toString(Math.max(0, serviceTime - backendLatency - securityLatency -
+                throttlingLatency)));
+
+        dto.setResponseCode(getString(carbonMessage, GatewayConstants.HTTP_STATUS_CODE));
+        dto.setResponseSize(Long.toString(GatewayUtils.getContentLength(carbonMessage)));
+        dto.setResponseCount("1");
+        dto.setIsResponseDataExist(true);
+
+        String throttledOutReason = getString(carbonMessage, APIThrottleConstants.THROTTLED_OUT_REASON);
+        dto.setIsThrottled(Boolean.toString(throttledOutReason != null));
+        if (throttledOutReason != null) {
+            dto.setThrottledReason(throttledOutReason);
+            dto.setThrottledTime(dto.getResponseTime());
+            dto.setThrottledCount("1");
+            dto.setIsThrottleDataExist(true);
+        }
+        String errorCode = getString(carbonMessage, APIThrottleConstants.ERROR_CODE);
+        if (errorCode != null) {
+            dto.setErrorCode(errorCode);
+            dto.setErrorMessage(getString(carbonMessage, APIThrottleConstants.ERROR_MESSAGE));
+            dto.setFaultCount("1");
+            dto.setIsFaultDataExist(true);
+        }
         return dto;
     }
 
@@ -94,20 +147,74 @@ public class AnalyticsUtil {
     }
 
     /**
-     * Initialize DTO with common attributes of the API invocation
+     * Initialize DTO with the attributes of the request line and headers, available when the request is received
      *
      * @param carbonMessage current properties of the message context
      * @return AnalyticsEventStreamDTO
      */
     public static AnalyticsEventStreamDTO initializeStreamDTO(CarbonMessage carbonMessage) {
         log.debug("Initializing AnalyticsEventStreamDTO");
-        AnalyticsEventStreamDTO dto = new AnalyticsEventStreamDTO();
-        dto.setApiName("sampleAPI");
-        dto.setVersion("1.0.0");
-        dto.setCreator("admin");
+        AnalyticsEventStreamDTO dto = AnalyticsEventPool.getInstance().acquire();
+        dto.setRequestNanoTime(System.nanoTime());
+        dto.setRequestTime(Long.toString(System.currentTimeMillis()));
+        dto.setMethod(getString(carbonMessage, GatewayConstants.HTTP_METHOD));
+        dto.setProtocol(getString(carbonMessage, GatewayConstants.PROTOCOL));
+        dto.setUserAgent(carbonMessage.getHeader(GatewayConstants.USER_AGENT_HEADER));
+        dto.setHostName(carbonMessage.getHeader(GatewayConstants.HOST_HEADER));
+        dto.setClientIp(GatewayUtils.getIp(carbonMessage));
+        dto.setRequestSize(Long.toString(GatewayUtils.getContentLength(carbonMessage)));
+        dto.setRequestCount("1");
+        dto.setIsRequestDataExist(true);
         return dto;
     }
 
+    /**
+     * Records the time the request is sent to the backend.
+     *
+     * @param carbonMessage current properties of the message context
+     */
+    public static void processBackendRequest(CarbonMessage carbonMessage) {
+        AnalyticsEventStreamDTO dto = (AnalyticsEventStreamDTO) carbonMessage
+                .getProperty(GatewayConstants.EVENT_DTO_PROPERTY_NAME);
+        if (dto != null) {
+            dto.setBackendRequestNanoTime(System.nanoTime());
+        }
+    }
+
+    /**
+     * Records the time the response is received from the backend.
+     *
+     * @param carbonMessage current properties of the message context
+     */
+    public static void processBackendResponse(CarbonMessage carbonMessage) {
+        AnalyticsEventStreamDTO dto = (AnalyticsEventStreamDTO) carbonMessage
+                .getProperty(GatewayConstants.EVENT_DTO_PROPERTY_NAME);
+        if (dto != null) {
+            dto.setBackendResponseNanoTime(System.nanoTime());
+        }
+    }
+
+    /**
+     * Creates and initializes the event publisher selected in the given configuration. Falls back to
+     * {@link EventPublisherImpl} if the configured publisher cannot be loaded.
+     *
+     * @param configuration analytics configuration
+     * @return initialized event publisher
+     */
+    public static EventPublisher createPublisher(AnalyticsConfiguration configuration) {
+        EventPublisher publisher;
+        String publisherClass = configuration.getEventPublisher();
+        try {
+            publisher = (EventPublisher) Class.forName(publisherClass).newInstance();
+        } catch (InstantiationException | IllegalAccessException | ClassNotFoundException | ClassCastException e) {
+            log.error("Error while loading event publisher : " + publisherClass + ". Using the default publisher",
+                    e);
+            publisher = new EventPublisherImpl();
+        }
+        publisher.init(configuration);
+        return publisher;
+    }
+
     /**
      * generate the event stream as a object array
      *
@@ -115,6 +222,38 @@ public class AnalyticsUtil {
      * @return list of object
      */
     public static Object[] generateStream(AnalyticsEventStreamDTO dto) {
-        return new Object[] { dto.getApiName(), dto.getVersion(), dto.getCreator() };
+        return new Object[] { dto.getUserAgent(), dto.getHostName(), dto.getMethod(), dto.getClientIp(),
+                dto.getProtocol(), dto.getApiName(), dto.getContext(), dto.getVersion(), dto.getCreator(),
+                dto.getEndpoint(), dto.getResourcePath(), dto.getUriTemplate(), dto.getConsumerKey(),
+                dto.getApplicationName(), dto.getApplicationId(), dto.getApplicationOwner(), dto.getUserId(),
+                dto.getSubscriber(), dto.getGatewayIp(), dto.getGatewayDomain(), dto.getIsThrottled(),
+                dto.getThrottledReason(), dto.getThrottledPolicy(), dto.getSubscriptionPolicy(),
+                dto.getRequestTime(), dto.getRequestCount(), dto.getRequestSize(), dto.getResponseTime(),
+                dto.getServiceTime(), dto.getBackendTime(), dto.getBackendLatency(), dto.getSecurityLatency(),
+                dto.getThrottlingLatency(), dto.getRequestMediationLatency(), dto.getResponseMediationLatency(),
+                dto.getOtherLatency(), dto.getResponseCount(), dto.getCacheHit(), dto.getResponseSize(),
+                dto.getResponseCode(), dto.getErrorCode(), dto.getErrorMessage(), dto.getFaultCount(),
+                dto.getThrottledTime(), dto.getThrottledCount() };
+    }
+
+    /**
+     * Reads a message property set as a string or a number, without failing on other types.
+     */
+    private static String getString(CarbonMessage carbonMessage, String name) {
+        Object value = carbonMessage.getProperty(name);
+        if (value instanceof String) {
+            return (String) value;
+        }
+        return value instanceof Number ? value.toString() : null;
+    }
+
+    /**
+     * Reads a numeric message property, such as the latencies set by the handlers.
+     *
+     * @return value of the property, or 0 if it is not set
+     */
+    private static long getLong(CarbonMessage carbonMessage, String name) {
+        Object value = carbonMessage.getProperty(name);
+        return value instanceof Number ? ((Number) value).longValue() : 0;
     }
 }
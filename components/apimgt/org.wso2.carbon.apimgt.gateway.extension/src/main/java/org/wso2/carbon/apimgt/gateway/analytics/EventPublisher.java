@@ -24,14 +24,22 @@ import org.wso2.carbon.apimgt.gateway.analytics.dto.AnalyticsEventStreamDTO;
  */
 public interface EventPublisher {
     /**
-     * Initialization of the publisher
+     * Initialization of the publisher. Called once, before any event is published.
+     *
+     * @param configuration analytics configuration
      */
-    void init();
+    void init(AnalyticsConfiguration configuration);
 
     /**
-     * Publish event DTO
+     * Publish event DTO. Called from request threads, so implementations must not block. The publisher takes over
+     * the DTO, which is taken from {@link AnalyticsEventPool}, and gives it back to the pool once it is done with it.
      *
      * @param dto AnalyticsEventStreamDTO to be published
      */
     void publishEvent(AnalyticsEventStreamDTO dto);
+
+    /**
+     * Publishes the events accepted so far and releases the resources of the publisher.
+     */
+    void shutdown();
 }
@@ -17,35 +17,202 @@ package org.wso2.carbon.apimgt.gateway.analytics;
  * under the License.
  */
 
-import com.google.gson.Gson;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wso2.carbon.apimgt.gateway.analytics.dto.AnalyticsEventStreamDTO;
+import org.wso2.carbon.apimgt.gateway.utils.RingBuffer;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Default implementation of the EventPublisher
+ * Default implementation of the EventPublisher.
+ * <p>
+ * Request threads only put the event into a bounded lock-free ring buffer and never block. When the buffer is full
+ * the event is dropped and counted, so analytics never slow down requests. A background encoder drains the buffer
+ * periodically, encodes the events into batches with {@link AnalyticsEventEncoder} and writes the batches to the
+ * {@link AnalyticsEventSink} selected in the analytics configuration.
  */
 public class EventPublisherImpl implements EventPublisher {
 
     private static Logger log = LoggerFactory.getLogger(EventPublisherImpl.class);
 
+    private final AnalyticsEventEncoder encoder = new AnalyticsEventEncoder();
+    private final AtomicLong publishedEvents = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong sentEvents = new AtomicLong();
+    private final AtomicLong failedEvents = new AtomicLong();
+    private final AtomicLong sentBytes = new AtomicLong();
+    private AnalyticsEventSink sink;
+    private RingBuffer<Entry> buffer;
+    private int batchSize;
+    private ScheduledExecutorService encoderExecutor;
+
     /**
      * Initialization of the publisher
      */
     @Override
-    public void init() {
+    public void init(AnalyticsConfiguration configuration) {
         log.debug("Initializing  EventPublisherImpl");
-
+        String sinkClass = configuration.getEventSink();
+        try {
+            sink = (AnalyticsEventSink) Class.forName(sinkClass).newInstance();
+            sink.init(configuration);
+        } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | ClassCastException
+                | IOException e) {
+            log.error("Error while initializing analytics event sink : " + sinkClass + ". Analytics events will be "
+                    + "dropped", e);
+            sink = null;
+        }
+        buffer = new RingBuffer<>(configuration.getEventBufferSize(), Entry::new);
+        batchSize = configuration.getEventBatchSize();
+        AnalyticsEventPool.init(buffer.capacity());
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactoryBuilder().setNameFormat("apim-analytics-event-encoder-%d").setDaemon(true).build());
+        long flushInterval = configuration.getEventFlushInterval();
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                log.error("Error while flushing analytics events", e);
+            }
+        }, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        encoderExecutor = executor;
     }
 
     /**
-     * Publish event DTO
+     * Publish event DTO. This method never blocks; the event is dropped if the buffer is full.
      *
      * @param dto AnalyticsEventStreamDTO to be published
      */
     @Override
     public void publishEvent(AnalyticsEventStreamDTO dto) {
-        log.debug("publish event...");
-        log.info("publishing event.. " + new Gson().toJson(AnalyticsUtil.generateStream(dto)));
+        long sequence = buffer.tryClaim();
+        if (sequence == RingBuffer.FULL) {
+            if (droppedEvents.getAndIncrement() == 0) {
+                log.warn("Analytics event buffer of " + buffer.capacity() + " events is full. Events will be "
+                        + "dropped until the buffer is flushed");
+            }
+            AnalyticsEventPool.getInstance().release(dto);
+            return;
+        }
+        buffer.get(sequence).event = dto;
+        buffer.publish(sequence);
+        publishedEvents.incrementAndGet();
+    }
+
+    /**
+     * Drains the buffered events and writes them to the sink in batches. Called periodically by the encoder thread.
+     */
+    public synchronized void flush() {
+        int capacity = buffer.capacity();
+        encoder.reset();
+        // Bounded so that a flush ends even if request threads keep filling the buffer
+        for (int drained = 0; drained < capacity; ) {
+            int count = buffer.drain(this::encode, Math.min(batchSize, capacity - drained));
+            if (count == 0) {
+                break;
+            }
+            drained += count;
+            if (encoder.getEventCount() >= batchSize) {
+                send();
+            }
+        }
+        if (encoder.getEventCount() > 0) {
+            send();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        if (encoderExecutor != null) {
+            encoderExecutor.shutdownNow();
+            flush();
+        }
+        if (sink != null) {
+            sink.close();
+        }
+    }
+
+    /**
+     * @return number of events accepted into the buffer
+     */
+    public long getPublishedEventCount() {
+        return publishedEvents.get();
+    }
+
+    /**
+     * @return number of events dropped because the buffer was full
+     */
+    public long getDroppedEventCount() {
+        return droppedEvents.get();
+    }
+
+    /**
+     * @return number of events written to the sink
+     */
+    public long getSentEventCount() {
+        return sentEvents.get();
+    }
+
+    /**
+     * @return number of events lost because the sink failed to write them, or could not be initialized
+     */
+    public long getFailedEventCount() {
+        return failedEvents.get();
+    }
+
+    /**
+     * @return number of encoded bytes written to the sink
+     */
+    public long getSentByteCount() {
+        return sentBytes.get();
+    }
+
+    /**
+     * @return approximate number of events waiting in the buffer
+     */
+    public int getBufferedEventCount() {
+        return buffer.size();
+    }
+
+    private void encode(Entry entry) {
+        AnalyticsEventStreamDTO event = entry.event;
+        entry.event = null;
+        try {
+            encoder.encode(event);
+        } finally {
+            AnalyticsEventPool.getInstance().release(event);
+        }
+    }
+
+    private void send() {
+        int eventCount = encoder.getEventCount();
+        int length = encoder.getLength();
+        try {
+            if (sink == null) {
+                failedEvents.addAndGet(eventCount);
+                return;
+            }
+            sink.write(encoder.finish(), length, eventCount);
+            sentEvents.addAndGet(eventCount);
+            sentBytes.addAndGet(length);
+        } catch (IOException | RuntimeException e) {
+            failedEvents.addAndGet(eventCount);
+            log.error("Error while writing " + eventCount + " analytics events", e);
+        } finally {
+            encoder.reset();
+        }
+    }
+
+    /**
+     * Buffered event. Entries are pre-allocated by the ring buffer and reused.
+     */
+    private static final class Entry {
+        private AnalyticsEventStreamDTO event;
     }
 }
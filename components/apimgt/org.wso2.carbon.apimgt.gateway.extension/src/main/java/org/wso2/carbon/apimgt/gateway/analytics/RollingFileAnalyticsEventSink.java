@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.analytics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes analytics event batches to local files, for an analytics agent to pick up. Each batch is written as a
+ * 4 byte length followed by the batch. A new file is started once the current file reaches the configured size,
+ * and the oldest files are deleted to keep the configured number of files.
+ */
+public class RollingFileAnalyticsEventSink implements AnalyticsEventSink {
+
+    private static final Logger log = LoggerFactory.getLogger(RollingFileAnalyticsEventSink.class);
+    private static final String FILE_PREFIX = "analytics-";
+    private static final String FILE_SUFFIX = ".bin";
+
+    private Path directory;
+    private long maxFileSize;
+    private int maxFileCount;
+    private DataOutputStream out;
+    private long fileSize;
+
+    @Override
+    public void init(AnalyticsConfiguration configuration) throws IOException {
+        directory = Paths.get(configuration.getEventFileDirectory());
+        maxFileSize = configuration.getEventFileMaxSize();
+        maxFileCount = Math.max(1, configuration.getEventFileMaxCount());
+        Files.createDirectories(directory);
+    }
+
+    @Override
+    public void write(byte[] batch, int length, int eventCount) throws IOException {
+        if (out == null || fileSize >= maxFileSize) {
+            roll();
+        }
+        out.writeInt(length);
+        out.write(batch, 0, length);
+        out.flush();
+        fileSize += 4 + length;
+    }
+
+    @Override
+    public void close() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                log.warn("Error while closing analytics event file", e);
+            }
+            out = null;
+        }
+    }
+
+    private void roll() throws IOException {
+        close();
+        // Timestamped names sort in creation order; the counter keeps names unique within a millisecond
+        File file;
+        int suffix = 0;
+        long now = System.currentTimeMillis();
+        do {
+            file = directory.resolve(FILE_PREFIX + now + '-' + suffix++ + FILE_SUFFIX).toFile();
+        } while (file.exists());
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+        fileSize = 0;
+        deleteOldFiles();
+    }
+
+    private void deleteOldFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        if (files.size() <= maxFileCount) {
+            return;
+        }
+        Collections.sort(files, (first, second) -> Long.compare(creationOrder(first), creationOrder(second)));
+        for (Path file : files.subList(0, files.size() - maxFileCount)) {
+            Files.deleteIfExists(file);
+            if (log.isDebugEnabled()) {
+                log.debug("Deleted analytics event file " + file);
+            }
+        }
+    }
+
+    private static long creationOrder(Path file) {
+        String name = file.getFileName().toString();
+        String[] parts = name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()).split("-");
+        try {
+            // Millisecond timestamp, with room for the counter of files created within the same millisecond
+            return Long.parseLong(parts[0]) * 1000 + (parts.length > 1 ? Long.parseLong(parts[1]) : 0);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -59,6 +59,7 @@ public class AnalyticsEventStreamDTO {
     private boolean isRequestDataExist;
     private String requestTime;
     private String requestCount;
+    private String requestSize;
 
     //    Response data
     private boolean isResponseDataExist;
@@ -89,6 +90,11 @@ public class AnalyticsEventStreamDTO {
     //    private String throttledReason;
     //    private String throttledPolicy;
 
+    //    Timestamps of the handler points, used to compute the latencies. These are not part of the stream
+    private long requestNanoTime;
+    private long backendRequestNanoTime;
+    private long backendResponseNanoTime;
+
     public String getUserAgent() {
         return userAgent;
     }
@@ -305,6 +311,14 @@ public class AnalyticsEventStreamDTO {
         this.requestCount = requestCount;
     }
 
+    public String getRequestSize() {
+        return requestSize;
+    }
+
+    public void setRequestSize(String requestSize) {
+        this.requestSize = requestSize;
+    }
+
     public boolean getIsResponseDataExist() {
         return isResponseDataExist;
     }
@@ -472,4 +486,50 @@ public class AnalyticsEventStreamDTO {
     public void setThrottledCount(String throttledCount) {
         this.throttledCount = throttledCount;
     }
+
+    public long getRequestNanoTime() {
+        return requestNanoTime;
+    }
+
+    public void setRequestNanoTime(long requestNanoTime) {
+        this.requestNanoTime = requestNanoTime;
+    }
+
+    public long getBackendRequestNanoTime() {
+        return backendRequestNanoTime;
+    }
+
+    public void setBackendRequestNanoTime(long backendRequestNanoTime) {
+        this.backendRequestNanoTime = backendRequestNanoTime;
+    }
+
+    public long getBackendResponseNanoTime() {
+        return backendResponseNanoTime;
+    }
+
+    public void setBackendResponseNanoTime(long backendResponseNanoTime) {
+        this.backendResponseNanoTime = backendResponseNanoTime;
+    }
+
+    /**
+     * Clears all the attributes, so that the DTO can be reused for another event.
+     */
+    public void reset() {
+        userAgent = hostName = method = clientIp = protocol = null;
+        apiName = context = version = creator = endpoint = resourcePath = uriTemplate = null;
+        consumerKey = applicationName = applicationId = applicationOwner = userId = subscriber = null;
+        gatewayIp = gatewayDomain = null;
+        isThrottled = throttledReason = throttledPolicy = subscriptionPolicy = null;
+        isRequestDataExist = false;
+        requestTime = requestCount = requestSize = null;
+        isResponseDataExist = false;
+        responseTime = serviceTime = backendTime = backendLatency = securityLatency = throttlingLatency = null;
+        requestMediationLatency = responseMediationLatency = otherLatency = responseCount = cacheHit = null;
+        responseSize = responseCode = null;
+        isFaultDataExist = false;
+        errorCode = errorMessage = faultCount = null;
+        isThrottleDataExist = false;
+        throttledTime = throttledCount = null;
+        requestNanoTime = backendRequestNanoTime = backendResponseNanoTime = 0;
+    }
 }
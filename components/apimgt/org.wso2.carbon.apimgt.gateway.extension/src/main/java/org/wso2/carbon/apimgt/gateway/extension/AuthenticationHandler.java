@@ -128,7 +128,7 @@ public class AuthenticationHandler implements MessagingHandler {
 
             handleAuthFailure(messageContext, e);
         } finally {
-            carbonMessage.setProperty(APIMgtGatewayConstants.SECURITY_LATENCY,
+            carbonMessage.setProperty(GatewayConstants.SECURITY_LATENCY,
                     TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
             context.stop();
 
@@ -65,9 +65,7 @@ public class StatisticsHandler implements MessagingHandler {
     @Override
     public void invokeAtSourceRequestReceiving(CarbonMessage carbonMessage) {
         log.debug("invokeAtSourceRequestReceiving");
-        log.info("Stat handler invoked");
-        boolean enabled = ServiceReferenceHolder.getInstance().getAnalyticsConfiguration().isEnabled();
-        if (enabled) {
+        if (ServiceReferenceHolder.getInstance().getPublisher() != null) {
             AnalyticsEventStreamDTO dto = AnalyticsUtil.processRequestData(carbonMessage);
             carbonMessage.setProperty(GatewayConstants.EVENT_DTO_PROPERTY_NAME, dto);
         }
@@ -86,11 +84,13 @@ public class StatisticsHandler implements MessagingHandler {
     @Override
     public void invokeAtTargetRequestSending(CarbonMessage carbonMessage) {
         log.debug("invokeAtTargetRequestSending");
+        AnalyticsUtil.processBackendRequest(carbonMessage);
     }
 
     @Override
     public void invokeAtTargetResponseReceiving(CarbonMessage carbonMessage) {
         log.debug("invokeAtTargetResponseReceiving");
+        AnalyticsUtil.processBackendResponse(carbonMessage);
     }
 
     @Override
@@ -106,25 +106,11 @@ public class StatisticsHandler implements MessagingHandler {
     @Override
     public void invokeAtSourceResponseSending(CarbonMessage carbonMessage) {
         log.debug("invokeAtSourceResponseSending");
-        boolean enabled = ServiceReferenceHolder.getInstance().getAnalyticsConfiguration().isEnabled();
-        if (enabled) {
+        EventPublisher publisher = ServiceReferenceHolder.getInstance().getPublisher();
+        if (publisher != null) {
             AnalyticsEventStreamDTO dto = AnalyticsUtil.processResponseData(carbonMessage);
-            carbonMessage.setProperty(GatewayConstants.EVENT_DTO_PROPERTY_NAME, dto);
-
-            EventPublisher publisher = ServiceReferenceHolder.getInstance().getPublisher();
-            if (publisher == null) {
-                String publisherClass = ServiceReferenceHolder.getInstance().getAnalyticsConfiguration()
-                        .getEventPublisher();
-                try {
-                    publisher = (EventPublisher) Class.forName(publisherClass).newInstance();
-                } catch (InstantiationException | IllegalAccessException | ClassNotFoundException e) {
-                    log.error("error occurred while initializing event publisher", e);
-                    log.warn("Skipping event publishing..");
-                    return;
-                }
-                ServiceReferenceHolder.getInstance().setPublisher(publisher);
-            }
-            publisher.init();
+            // The publisher reuses the DTO once published, so the message must not refer to it any more
+            carbonMessage.removeProperty(GatewayConstants.EVENT_DTO_PROPERTY_NAME);
             publisher.publishEvent(dto);
         }
     }
@@ -20,21 +20,30 @@ package org.wso2.carbon.apimgt.gateway.extension;
 import org.osgi.service.component.annotations.Component;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.wso2.carbon.apimgt.gateway.GatewayConstants;
+import org.wso2.carbon.apimgt.gateway.internal.ServiceReferenceHolder;
+import org.wso2.carbon.apimgt.gateway.resource.ResourceRouter;
+import org.wso2.carbon.apimgt.gateway.throttling.BlockingConditionSnapshot;
+import org.wso2.carbon.apimgt.gateway.throttling.EndpointLimiter;
+import org.wso2.carbon.apimgt.gateway.throttling.KeyTemplate;
+import org.wso2.carbon.apimgt.gateway.throttling.LocalThrottleEngine;
+import org.wso2.carbon.apimgt.gateway.throttling.RequestThrottleKeys;
 import org.wso2.carbon.apimgt.gateway.throttling.ThrottleConditionEvaluator;
 import org.wso2.carbon.apimgt.gateway.throttling.ThrottleDataHolder;
+import org.wso2.carbon.apimgt.gateway.throttling.ThrottleDecisionStore;
+import org.wso2.carbon.apimgt.gateway.throttling.ThrottleKey;
+import org.wso2.carbon.apimgt.gateway.throttling.conditions.ConditionGroup;
+import org.wso2.carbon.apimgt.gateway.throttling.conditions.RequestAttributes;
 import org.wso2.carbon.apimgt.gateway.throttling.constants.APIThrottleConstants;
 import org.wso2.carbon.apimgt.gateway.throttling.dto.AuthenticationContextDTO;
-import org.wso2.carbon.apimgt.gateway.throttling.dto.ConditionGroupDTO;
 import org.wso2.carbon.apimgt.gateway.throttling.dto.VerbInfoDTO;
-import org.wso2.carbon.apimgt.gateway.throttling.temp.ThrottleDataPublisher;
+import org.wso2.carbon.apimgt.gateway.throttling.publisher.ThrottleDataPublisher;
+import org.wso2.carbon.apimgt.gateway.throttling.utils.GatewayUtils;
 import org.wso2.carbon.apimgt.gateway.throttling.utils.StringUtils;
 import org.wso2.carbon.messaging.CarbonCallback;
 import org.wso2.carbon.messaging.CarbonMessage;
 import org.wso2.carbon.messaging.handler.MessagingHandler;
 
-import java.util.List;
-import java.util.Map;
-
 /**
  * Messaging Handler implementation to log transport header in specified points
  */
@@ -91,10 +100,18 @@ public class ThrottleHandler implements MessagingHandler {
     @Override
     public void invokeAtSourceRequestReceiving(CarbonMessage carbonMessage) {
 
+        // Resolve the resource of the request, unless it was resolved before the request reached this handler
+        if (carbonMessage.getProperty(APIThrottleConstants.VERB_INFO_DTO) == null) {
+            ResourceRouter.getInstance().route(carbonMessage);
+        }
         //Handle incoming requests and call throttling method to perform throttling.
         long executionStartTime = System.currentTimeMillis();
         try {
-            doThrottle(carbonMessage);
+            // TODO: get authcontext from carbonmessage
+            AuthenticationContextDTO authenticationContext = AuthenticationContextDTO.getInstance();
+            if (doThrottle(carbonMessage, authenticationContext)) {
+                acquireEndpoint(carbonMessage, authenticationContext);
+            }
         } finally {
             carbonMessage.setProperty(APIThrottleConstants.THROTTLING_LATENCY, System.currentTimeMillis() -
                     executionStartTime);
@@ -112,10 +129,14 @@ public class ThrottleHandler implements MessagingHandler {
 
     @Override
     public void invokeAtTargetRequestSending(CarbonMessage carbonMessage) {
+        if (carbonMessage.getProperty(APIThrottleConstants.ENDPOINT_LIMIT) != null) {
+            carbonMessage.setProperty(APIThrottleConstants.ENDPOINT_REQUEST_NANO_TIME, System.nanoTime());
+        }
     }
 
     @Override
     public void invokeAtTargetResponseReceiving(CarbonMessage carbonMessage) {
+        releaseEndpoint(carbonMessage, isEndpointFailure(carbonMessage));
     }
 
     @Override
@@ -128,6 +149,26 @@ public class ThrottleHandler implements MessagingHandler {
 
     @Override
     public void invokeAtSourceResponseSending(CarbonMessage carbonMessage) {
+        // Release the endpoint if no response was received from it
+        releaseEndpoint(carbonMessage, true);
+
+        // Account the response payload against the bandwidth policies of the request
+        RequestThrottleKeys keys = (RequestThrottleKeys) carbonMessage.getProperty(
+                APIThrottleConstants.REQUEST_THROTTLE_KEYS);
+        if (keys == null) {
+            return;
+        }
+        carbonMessage.removeProperty(APIThrottleConstants.REQUEST_THROTTLE_KEYS);
+        long bytes = GatewayUtils.getContentLength(carbonMessage);
+        if (bytes <= 0) {
+            return;
+        }
+        LocalThrottleEngine localThrottleEngine = ThrottleDataHolder.getInstance().getLocalThrottleEngine();
+        if (localThrottleEngine.isEnabled()) {
+            localThrottleEngine.onResponse(keys, bytes);
+        } else if (throttleDataPublisher != null) {
+            throttleDataPublisher.publishResponseEvent(keys, bytes);
+        }
     }
 
     @Override
@@ -155,16 +196,17 @@ public class ThrottleHandler implements MessagingHandler {
      */
     private boolean doRoleBasedAccessThrottlingWithCEP(CarbonMessage carbonMsg, AuthenticationContextDTO authCtx) {
 
-        //Throttle Keys
+        //Throttle Keys are reused by the thread to avoid building new strings for every request
+        ThrottleKey.Keys throttleKeys = ThrottleKey.forCurrentThread();
         //applicationLevelThrottleKey = {applicationId}:{authorizedUser}
-        String applicationLevelThrottleKey;
+        ThrottleKey applicationLevelThrottleKey;
         //subscriptionLevelThrottleKey = {applicationId}:{apiContext}:{apiVersion}
-        String subscriptionLevelThrottleKey;
+        ThrottleKey subscriptionLevelThrottleKey;
         // resourceLevelThrottleKey = {apiContext}/{apiVersion}{resourceUri}:{httpMethod}
         // if policy is user level then authorized user will append at end
-        String resourceLevelThrottleKey;
+        ThrottleKey resourceLevelThrottleKey;
         //apiLevelThrottleKey key = {apiContext}:{apiVersion}
-        String apiLevelThrottleKey;
+        ThrottleKey apiLevelThrottleKey;
 
         //Throttle Tiers
         String applicationLevelTier;
@@ -186,10 +228,6 @@ public class ThrottleHandler implements MessagingHandler {
         boolean isBlockedRequest = false;
         boolean apiLevelThrottledTriggered = false;
         boolean policyLevelUserTriggered = false;
-        String ipLevelBlockingKey = "";
-        String appLevelBlockingKey = "";
-        String apiLevelBlockingKey = "";
-        String userLevelBlockingKey = "";
         boolean stopOnQuotaReach = true;
 
         String apiContext = (String) carbonMsg.getProperty("REST_API_CONTEXT");
@@ -200,147 +238,157 @@ public class ThrottleHandler implements MessagingHandler {
         String subscriberTenantDomain = "";
         // TODO: get tenant from carbon message
         String apiTenantDomain = "carbon.super";
-        ConditionGroupDTO[] conditionGroupDTOs;
         String applicationId = authContext.getApplicationId();
         authorizedUser = authContext.getUsername();
 
         //Do blocking if there are blocking conditions present
-        if (ThrottleDataHolder.getInstance().isBlockingConditionsPresent()) {
-            ipLevelBlockingKey = apiTenantDomain + ":" + getClientIp(carbonMsg);
-            apiLevelBlockingKey = apiContext;
-            userLevelBlockingKey = authorizedUser;
-            appLevelBlockingKey = authContext.getSubscriber() + ":" + authContext.getApplicationName();
-
-            isBlockedRequest = ThrottleDataHolder.getInstance().isRequestBlocked(
-                    apiLevelBlockingKey, appLevelBlockingKey, userLevelBlockingKey, ipLevelBlockingKey);
-
-            if (isBlockedRequest) {
-                String msg = "Request blocked as it violates defined blocking conditions, for API: " + apiContext +
-                        " ,application:" + appLevelBlockingKey + " ,user:" + authorizedUser;
+        BlockingConditionSnapshot blockingConditions = ThrottleDataHolder.getInstance().getBlockingConditions();
+        if (!blockingConditions.isEmpty()) {
+            RequestAttributes attributes = RequestAttributes.forRequest(carbonMsg, authContext);
+            try {
+                isBlockedRequest = blockingConditions.isBlocked(apiContext, authContext.getSubscriber(),
+                        authContext.getApplicationName(), authorizedUser, apiTenantDomain, attributes.getClientIp());
+            } finally {
+                attributes.clear();
+            }
+        }
+
+        if (isBlockedRequest) {
+            String msg = "Request blocked as it violates defined blocking conditions, for API: " + apiContext +
+                    " ,application:" + authContext.getSubscriber() + ":" + authContext.getApplicationName() +
+                    " ,user:" + authorizedUser;
+            if (log.isDebugEnabled()) {
+                log.debug(msg);
+            }
+            carbonMsg.setProperty(APIThrottleConstants.BLOCKED_REASON, msg);
+            carbonMsg.setProperty(APIThrottleConstants.THROTTLED_OUT_REASON, APIThrottleConstants.REQUEST_BLOCKED);
+            isThrottled = true;
+        } else {
+            subscriberTenantDomain = authContext.getSubscriberTenantDomain();
+            applicationLevelThrottleKey = throttleKeys.getApplicationKey().reset()
+                    .append(applicationId).append(':').append(authorizedUser);
+            apiLevelThrottleKey = throttleKeys.getApiKey().reset()
+                    .append(apiContext).append(':').append(apiVersion);
+            stopOnQuotaReach = authContext.isStopOnQuotaReach();
+            //If request is not blocked then only we perform throttling.
+            VerbInfoDTO verbInfoDTO = (VerbInfoDTO) carbonMsg.getProperty(APIThrottleConstants.VERB_INFO_DTO);
+
+            //If Resource information is not present we wont proceed with throttling
+            if (verbInfoDTO == null) {
+                log.warn("Error while getting throttling information for resource and http verb");
+                return false;
+            }
+
+            LocalThrottleEngine localThrottleEngine = ThrottleDataHolder.getInstance().getLocalThrottleEngine();
+            applicationLevelTier = authContext.getApplicationTier();
+            subscriptionLevelTier = authContext.getTier();
+            resourceLevelThrottleKey = throttleKeys.getResourceKey().reset().append(verbInfoDTO.getRequestKey());
+            apiLevelTier = authContext.getApiTier();
+            resourceLevelTier = verbInfoDTO.getThrottling();
+            //If API level throttle policy is present then it will apply and no resource level policy will apply
+            if (!StringUtils.isEmpty(apiLevelTier) && !APIThrottleConstants.UNLIMITED_TIER.equalsIgnoreCase
+                    (apiLevelTier)) {
+                resourceLevelThrottleKey.set(apiLevelThrottleKey);
+                apiLevelThrottledTriggered = true;
+            }
+
+            //If verbInfo is present then only we will do resource level throttling
+            if (APIThrottleConstants.UNLIMITED_TIER.equalsIgnoreCase(verbInfoDTO.getThrottling()) &&
+                    !apiLevelThrottledTriggered) {
+                //If unlimited tier throttling will not apply at resource level and pass it
                 if (log.isDebugEnabled()) {
-                    log.debug(msg);
+                    log.debug("Resource level throttling set as unlimited and request will pass resource level");
                 }
-                carbonMsg.setProperty(APIThrottleConstants.BLOCKED_REASON, msg);
-                carbonMsg.setProperty(APIThrottleConstants.THROTTLED_OUT_REASON, APIThrottleConstants.REQUEST_BLOCKED);
-                isThrottled = true;
             } else {
-                subscriberTenantDomain = authContext.getSubscriberTenantDomain();
-                applicationLevelThrottleKey = applicationId + ":" + authorizedUser;
-                apiLevelThrottleKey = apiContext + ":" + apiVersion;
-                stopOnQuotaReach = authContext.isStopOnQuotaReach();
-                //If request is not blocked then only we perform throttling.
-                VerbInfoDTO verbInfoDTO = (VerbInfoDTO) carbonMsg.getProperty(APIThrottleConstants.VERB_INFO_DTO);
-
-                //If Resource information is not present we wont proceed with throttling
-                if (verbInfoDTO == null) {
-                    log.warn("Error while getting throttling information for resource and http verb");
-                    return false;
+                if (APIThrottleConstants.API_POLICY_USER_LEVEL.equalsIgnoreCase(verbInfoDTO.getApplicableLevel())) {
+                    resourceLevelThrottleKey.append('_').append(authorizedUser);
+                    policyLevelUserTriggered = true;
                 }
+                //If tier is not unlimited only throttling will apply.
+                ConditionGroup[] conditionGroups = verbInfoDTO.getCompiledConditionGroups();
+                ConditionGroup defaultConditionGroup = verbInfoDTO.getDefaultConditionGroup();
 
-                applicationLevelTier = authContext.getApplicationTier();
-                subscriptionLevelTier = authContext.getTier();
-                resourceLevelThrottleKey = verbInfoDTO.getRequestKey();
-                apiLevelTier = authContext.getApiTier();
-                resourceLevelTier = verbInfoDTO.getThrottling();
-                //If API level throttle policy is present then it will apply and no resource level policy will apply
-                if (!StringUtils.isEmpty(apiLevelTier) && !APIThrottleConstants.UNLIMITED_TIER.equalsIgnoreCase
-                        (apiLevelTier)) {
-                    resourceLevelThrottleKey = apiLevelThrottleKey;
-                    apiLevelThrottledTriggered = true;
-                }
+                if (conditionGroups.length > 0 || defaultConditionGroup != null) {
 
-                //If verbInfo is present then only we will do resource level throttling
-                if (APIThrottleConstants.UNLIMITED_TIER.equalsIgnoreCase(verbInfoDTO.getThrottling()) &&
-                        !apiLevelThrottledTriggered) {
-                    //If unlimited tier throttling will not apply at resource level and pass it
-                    if (log.isDebugEnabled()) {
-                        log.debug("Resource level throttling set as unlimited and request will pass resource level");
-                    }
-                } else {
-                    if (APIThrottleConstants.API_POLICY_USER_LEVEL.equalsIgnoreCase(verbInfoDTO.getApplicableLevel())) {
-                        resourceLevelThrottleKey = resourceLevelThrottleKey + "_" + authorizedUser;
-                        policyLevelUserTriggered = true;
-                    }
-                    //If tier is not unlimited only throttling will apply.
-                    conditionGroupDTOs = verbInfoDTO.getConditionGroups();
-
-                    if (conditionGroupDTOs.length > 0) {
-
-                        // Checking Applicability of Conditions is a relatively expensive operation. So we are
-                        // going to check it only if the API/Resource is throttled out.
-                        if (ThrottleDataHolder.getInstance().isAPIThrottled(resourceLevelThrottleKey)) {
-
-                            if (log.isDebugEnabled()) {
-                                log.debug("Evaluating Conditional Groups");
-                            }
-                            //Then we will apply resource level throttling
-                            List<ConditionGroupDTO> applicableConditions = ThrottleConditionEvaluator.getInstance()
-                                    .getApplicableConditions(carbonMsg, authContext, conditionGroupDTOs);
-                            for (ConditionGroupDTO conditionGroup : applicableConditions) {
-                                String combinedResourceLevelThrottleKey = resourceLevelThrottleKey +
-                                        conditionGroup.getConditionGroupId();
+                    // Checking Applicability of Conditions is a relatively expensive operation. So we are
+                    // going to check it only if the API/Resource is throttled out.
+                    if (ThrottleDataHolder.getInstance().isAPIThrottled(resourceLevelThrottleKey)) {
 
-                                if (log.isDebugEnabled()) {
-                                    log.debug("Checking condition : " + combinedResourceLevelThrottleKey);
-                                }
-
-                                if (ThrottleDataHolder.getInstance().isThrottled
-                                        (combinedResourceLevelThrottleKey)) {
-                                    if (!apiLevelThrottledTriggered) {
-                                        isResourceLevelThrottled = isThrottled = true;
-                                    } else {
-                                        isApiLevelThrottled = isThrottled = true;
-                                    }
-                                    long timestamp = ThrottleDataHolder.getInstance()
-                                            .getThrottleNextAccessTimestamp(combinedResourceLevelThrottleKey);
-                                    carbonMsg.setProperty(APIThrottleConstants.THROTTLED_NEXT_ACCESS_TIMESTAMP,
-                                            timestamp);
-                                    break;
-                                }
+                        if (log.isDebugEnabled()) {
+                            log.debug("Evaluating Conditional Groups");
+                        }
+                        //Then we will apply resource level throttling
+                        long timestamp = getConditionalNextAccessTimestamp(carbonMsg, authContext,
+                                resourceLevelThrottleKey, conditionGroups, defaultConditionGroup,
+                                throttleKeys.getConditionKey());
+                        if (timestamp != ThrottleDecisionStore.NOT_THROTTLED) {
+                            if (!apiLevelThrottledTriggered) {
+                                isResourceLevelThrottled = isThrottled = true;
+                            } else {
+                                isApiLevelThrottled = isThrottled = true;
                             }
+                            carbonMsg.setProperty(APIThrottleConstants.THROTTLED_NEXT_ACCESS_TIMESTAMP,
+                                    timestamp);
                         }
-
-                    } else {
-                        log.warn("Unable to find throttling information for resource and http verb. Throttling "
-                                + "will not apply");
                     }
+
+                } else {
+                    log.warn("Unable to find throttling information for resource and http verb. Throttling "
+                            + "will not apply");
                 }
+            }
 
-                if (!isApiLevelThrottled) {
-
-                    //Here check resource level throttled. If throttled then call handler throttled and pass.
-                    //Else go for subscription level and application level throttling
-                    //if resource level not throttled then move to subscription level
-                    if (!isResourceLevelThrottled) {
-                        //Subscription Level Throttling
-                        subscriptionLevelThrottleKey = authContext.getApplicationId() + ":" + apiContext + ":"
-                                + apiVersion;
-                        isSubscriptionLevelThrottled = ThrottleDataHolder.getInstance().isThrottled
-                                (subscriptionLevelThrottleKey);
-                        if (!isSubscriptionLevelThrottled && authContext.getSpikeArrestLimit() > 0) {
-                            isSubscriptionLevelSpikeThrottled = isSubscriptionLevelSpike(carbonMsg,
-                                    subscriptionLevelThrottleKey);
-                        }
-                        //If subscription level not throttled then move to application level
-                        if (!isSubscriptionLevelThrottled && !isSubscriptionLevelSpikeThrottled) {
-                            //Application Level Throttling
-                            isApplicationLevelThrottled = ThrottleDataHolder.getInstance().
-                                    isThrottled(applicationLevelThrottleKey);
-
-                            //if application level not throttled means it does not throttled at any level.
-                            if (!isApplicationLevelThrottled) {
-                                boolean keyTemplatesAvailable = ThrottleDataHolder.getInstance()
-                                        .isKeyTemplatesPresent();
-                                if (!keyTemplatesAvailable || !validateCustomPolicy(authorizedUser,
-                                        resourceLevelThrottleKey, apiContext, apiVersion, subscriberTenantDomain,
-                                        apiTenantDomain, applicationId, ThrottleDataHolder.getInstance()
-                                                .getKeyTemplateMap(), carbonMsg)) {
-                                    //Pass message context and continue to avoid performance issue.
-                                    //Did not throttled at any level. So let message go and publish event.
-                                    //publish event to Global Policy Server
-                                    if (isHardLimitThrottled(carbonMsg, authContext, apiContext, apiVersion)) {
-                                        isThrottled = true;
+            if (!isApiLevelThrottled) {
+
+                //Here check resource level throttled. If throttled then call handler throttled and pass.
+                //Else go for subscription level and application level throttling
+                //if resource level not throttled then move to subscription level
+                if (!isResourceLevelThrottled) {
+                    //Subscription Level Throttling
+                    subscriptionLevelThrottleKey = throttleKeys.getSubscriptionKey().reset()
+                            .append(applicationId).append(':').append(apiContext).append(':').append(apiVersion);
+                    long subscriptionNextAccessTimestamp = ThrottleDataHolder.getInstance()
+                            .getThrottleNextAccessTimestamp(subscriptionLevelThrottleKey);
+                    isSubscriptionLevelThrottled =
+                            subscriptionNextAccessTimestamp != ThrottleDecisionStore.NOT_THROTTLED;
+                    if (!isSubscriptionLevelThrottled && authContext.getSpikeArrestLimit() > 0) {
+                        isSubscriptionLevelSpikeThrottled = isSubscriptionLevelSpike(carbonMsg, authContext,
+                                subscriptionLevelThrottleKey);
+                    }
+                    //If subscription level not throttled then move to application level
+                    if (!isSubscriptionLevelThrottled && !isSubscriptionLevelSpikeThrottled) {
+                        //Application Level Throttling
+                        long applicationNextAccessTimestamp = ThrottleDataHolder.getInstance().
+                                getThrottleNextAccessTimestamp(applicationLevelThrottleKey);
+                        isApplicationLevelThrottled =
+                                applicationNextAccessTimestamp != ThrottleDecisionStore.NOT_THROTTLED;
+
+                        //if application level not throttled means it does not throttled at any level.
+                        if (!isApplicationLevelThrottled) {
+                            boolean keyTemplatesAvailable = ThrottleDataHolder.getInstance()
+                                    .isKeyTemplatesPresent();
+                            if (!keyTemplatesAvailable || !validateCustomPolicy(authorizedUser,
+                                    resourceLevelThrottleKey, apiContext, apiVersion, subscriberTenantDomain,
+                                    apiTenantDomain, applicationId, ThrottleDataHolder.getInstance()
+                                            .getKeyTemplates(), carbonMsg)) {
+                                //Pass message context and continue to avoid performance issue.
+                                //Did not throttled at any level. So let message go and publish event.
+                                //publish event to Global Policy Server
+                                if (isHardLimitThrottled(carbonMsg, authContext, apiLevelThrottleKey)) {
+                                    isThrottled = true;
 
+                                } else {
+                                    ConditionGroup defaultConditionGroup = verbInfoDTO.getDefaultConditionGroup();
+                                    String defaultConditionGroupId = defaultConditionGroup != null ?
+                                            defaultConditionGroup.getConditionGroupId() : null;
+                                    String resourceTier = apiLevelThrottledTriggered ? apiLevelTier :
+                                            resourceLevelTier;
+                                    boolean localThrottling = localThrottleEngine.isEnabled();
+                                    if (localThrottling) {
+                                        localThrottleEngine.onRequest(applicationLevelThrottleKey,
+                                                applicationLevelTier, subscriptionLevelThrottleKey,
+                                                subscriptionLevelTier, resourceLevelThrottleKey, resourceTier,
+                                                defaultConditionGroupId, GatewayUtils.getContentLength(carbonMsg));
                                     } else {
                                         throttleDataPublisher.publishNonThrottledEvent(
                                                 applicationLevelThrottleKey, applicationLevelTier,
@@ -350,97 +398,273 @@ public class ThrottleHandler implements MessagingHandler {
                                                 authorizedUser, apiContext, apiVersion, subscriberTenantDomain,
                                                 apiTenantDomain, applicationId, carbonMsg, authContext);
                                     }
-                                } else {
-                                    if (log.isDebugEnabled()) {
-                                        log.debug("Request throttled at custom throttling");
+                                    // The keys are only kept for requests subject to a bandwidth policy
+                                    if (ServiceReferenceHolder.getInstance().getThrottlingConfiguration()
+                                            .isResponseBandwidthEnabled() && localThrottleEngine.isBandwidthLimited(
+                                            applicationLevelTier, subscriptionLevelTier, resourceTier)) {
+                                        carbonMsg.setProperty(APIThrottleConstants.REQUEST_THROTTLE_KEYS,
+                                                new RequestThrottleKeys(applicationLevelThrottleKey,
+                                                        applicationLevelTier, apiLevelThrottleKey, apiLevelTier,
+                                                        subscriptionLevelThrottleKey, subscriptionLevelTier,
+                                                        resourceLevelThrottleKey, resourceTier,
+                                                        defaultConditionGroupId, authorizedUser, apiContext,
+                                                        apiVersion, subscriberTenantDomain, apiTenantDomain,
+                                                        applicationId));
                                     }
-                                    carbonMsg.setProperty(APIThrottleConstants.THROTTLED_OUT_REASON,
-                                            APIThrottleConstants.CUSTOM_POLICY_LIMIT_EXCEED);
-                                    isThrottled = true;
-
                                 }
-
                             } else {
                                 if (log.isDebugEnabled()) {
-                                    log.debug("Request throttled at application level for throttle key" +
-                                            applicationLevelThrottleKey);
+                                    log.debug("Request throttled at custom throttling");
                                 }
                                 carbonMsg.setProperty(APIThrottleConstants.THROTTLED_OUT_REASON,
-                                        APIThrottleConstants.APPLICATION_LIMIT_EXCEEDED);
-                                long timestamp = ThrottleDataHolder.getInstance().getThrottleNextAccessTimestamp
-                                        (applicationLevelThrottleKey);
-                                carbonMsg.setProperty(APIThrottleConstants.THROTTLED_NEXT_ACCESS_TIMESTAMP, timestamp);
+                                        APIThrottleConstants.CUSTOM_POLICY_LIMIT_EXCEED);
                                 isThrottled = true;
+
                             }
+
                         } else {
-                            if (!stopOnQuotaReach) {
-                                // This means that we are allowing the requests to continue even after the throttling
-                                // limit has reached.
-                                if (carbonMsg.getProperty(APIThrottleConstants.API_USAGE_THROTTLE_OUT_PROPERTY_KEY)
-                                        == null) {
-                                    carbonMsg.setProperty(APIThrottleConstants.API_USAGE_THROTTLE_OUT_PROPERTY_KEY,
-                                            Boolean
-                                                    .TRUE);
-                                }
-                                isThrottled = false;
-                                if (log.isDebugEnabled()) {
-                                    log.debug("Request throttled at subscription level for throttle key" +
-                                            subscriptionLevelThrottleKey + ". But subscription policy " +
-                                            subscriptionLevelTier + " allows to continue to serve requests");
-                                }
-                            } else {
-                                if (log.isDebugEnabled()) {
-                                    log.debug("Request throttled at subscription level for throttle key" +
-                                            subscriptionLevelThrottleKey);
-                                }
-                                if (!isSubscriptionLevelSpikeThrottled) {
-                                    long timestamp = ThrottleDataHolder.getInstance().getThrottleNextAccessTimestamp
-                                            (subscriptionLevelThrottleKey);
-                                    carbonMsg.setProperty(APIThrottleConstants.THROTTLED_NEXT_ACCESS_TIMESTAMP,
-                                            timestamp);
-                                    carbonMsg.setProperty(APIThrottleConstants.THROTTLED_OUT_REASON,
-                                            APIThrottleConstants
-                                                    .API_LIMIT_EXCEEDED);
-                                    carbonMsg.setProperty(APIThrottleConstants.THROTTLED_OUT_REASON,
-                                            APIThrottleConstants.SUBSCRIPTION_LIMIT_EXCEEDED);
-                                }
-                                isThrottled = true;
+                            if (log.isDebugEnabled()) {
+                                log.debug("Request throttled at application level for throttle key" +
+                                        applicationLevelThrottleKey);
                             }
+                            carbonMsg.setProperty(APIThrottleConstants.THROTTLED_OUT_REASON,
+                                    APIThrottleConstants.APPLICATION_LIMIT_EXCEEDED);
+                            carbonMsg.setProperty(APIThrottleConstants.THROTTLED_NEXT_ACCESS_TIMESTAMP,
+                                    applicationNextAccessTimestamp);
+                            isThrottled = true;
                         }
                     } else {
-                        if (log.isDebugEnabled()) {
-                            log.debug("Request throttled at resource level for throttle key" +
-                                    verbInfoDTO.getRequestKey());
+                        if (!stopOnQuotaReach) {
+                            // This means that we are allowing the requests to continue even after the throttling
+                            // limit has reached.
+                            if (carbonMsg.getProperty(APIThrottleConstants.API_USAGE_THROTTLE_OUT_PROPERTY_KEY)
+                                    == null) {
+                                carbonMsg.setProperty(APIThrottleConstants.API_USAGE_THROTTLE_OUT_PROPERTY_KEY,
+                                        Boolean
+                                                .TRUE);
+                            }
+                            isThrottled = false;
+                            if (log.isDebugEnabled()) {
+                                log.debug("Request throttled at subscription level for throttle key" +
+                                        subscriptionLevelThrottleKey + ". But subscription policy " +
+                                        subscriptionLevelTier + " allows to continue to serve requests");
+                            }
+                        } else {
+                            if (log.isDebugEnabled()) {
+                                log.debug("Request throttled at subscription level for throttle key" +
+                                        subscriptionLevelThrottleKey);
+                            }
+                            if (!isSubscriptionLevelSpikeThrottled) {
+                                carbonMsg.setProperty(APIThrottleConstants.THROTTLED_NEXT_ACCESS_TIMESTAMP,
+                                        subscriptionNextAccessTimestamp);
+                                carbonMsg.setProperty(APIThrottleConstants.THROTTLED_OUT_REASON,
+                                        APIThrottleConstants
+                                                .API_LIMIT_EXCEEDED);
+                                carbonMsg.setProperty(APIThrottleConstants.THROTTLED_OUT_REASON,
+                                        APIThrottleConstants.SUBSCRIPTION_LIMIT_EXCEEDED);
+                            }
+                            isThrottled = true;
                         }
-                        //is throttled and resource level throttling
-                        carbonMsg.setProperty(APIThrottleConstants.THROTTLED_OUT_REASON,
-                                APIThrottleConstants.RESOURCE_LIMIT_EXCEEDED);
                     }
                 } else {
                     if (log.isDebugEnabled()) {
-                        log.debug("Request throttled at api level for throttle key" + apiLevelThrottleKey);
-                        if (policyLevelUserTriggered) {
-                            log.debug("Request has throttled out in the user level for the throttle key" +
-                                    apiLevelThrottleKey);
-                        }
+                        log.debug("Request throttled at resource level for throttle key" +
+                                verbInfoDTO.getRequestKey());
                     }
+                    //is throttled and resource level throttling
                     carbonMsg.setProperty(APIThrottleConstants.THROTTLED_OUT_REASON,
-                            APIThrottleConstants.API_LIMIT_EXCEEDED);
+                            APIThrottleConstants.RESOURCE_LIMIT_EXCEEDED);
                 }
+            } else {
+                if (log.isDebugEnabled()) {
+                    log.debug("Request throttled at api level for throttle key" + apiLevelThrottleKey);
+                    if (policyLevelUserTriggered) {
+                        log.debug("Request has throttled out in the user level for the throttle key" +
+                                apiLevelThrottleKey);
+                    }
+                }
+                carbonMsg.setProperty(APIThrottleConstants.THROTTLED_OUT_REASON,
+                        APIThrottleConstants.API_LIMIT_EXCEEDED);
             }
-
         }
 
         //if we need to publish throttled level or some other information we can do it here. Just before return.
         return isThrottled;
     }
 
-    private boolean isHardLimitThrottled(CarbonMessage carbonMsg, AuthenticationContextDTO authContext, String
-            apiContext, String apiVersion) {
-        //// TODO: Implement Hardlimit
+    /**
+     * Checks the throttle keys of the condition groups applicable for the request, in order. If no condition group
+     * other than the default group applies, the default group is checked.
+     *
+     * @return next access timestamp of the first throttled condition group, or
+     * {@link ThrottleDecisionStore#NOT_THROTTLED} if none is throttled
+     */
+    private long getConditionalNextAccessTimestamp(CarbonMessage carbonMsg, AuthenticationContextDTO authContext,
+                                                   ThrottleKey resourceLevelThrottleKey,
+                                                   ConditionGroup[] conditionGroups,
+                                                   ConditionGroup defaultConditionGroup, ThrottleKey conditionKey) {
+        ThrottleConditionEvaluator evaluator = ThrottleConditionEvaluator.getInstance();
+        RequestAttributes attributes = RequestAttributes.forRequest(carbonMsg, authContext);
+        try {
+            boolean conditionApplicable = false;
+            for (ConditionGroup conditionGroup : conditionGroups) {
+                if (evaluator.isConditionGroupApplicable(attributes, conditionGroup)) {
+                    conditionApplicable = true;
+                    long timestamp = getConditionNextAccessTimestamp(resourceLevelThrottleKey, conditionGroup,
+                            conditionKey);
+                    if (timestamp != ThrottleDecisionStore.NOT_THROTTLED) {
+                        return timestamp;
+                    }
+                }
+            }
+            // If no matching ConditionGroups are present, apply the default group.
+            if (!conditionApplicable && defaultConditionGroup != null) {
+                return getConditionNextAccessTimestamp(resourceLevelThrottleKey, defaultConditionGroup,
+                        conditionKey);
+            }
+            return ThrottleDecisionStore.NOT_THROTTLED;
+        } finally {
+            attributes.clear();
+        }
+    }
+
+    private long getConditionNextAccessTimestamp(ThrottleKey resourceLevelThrottleKey, ConditionGroup conditionGroup,
+                                                 ThrottleKey conditionKey) {
+        ThrottleKey combinedResourceLevelThrottleKey = conditionKey.set(resourceLevelThrottleKey)
+                .append(conditionGroup.getConditionGroupId());
+        if (log.isDebugEnabled()) {
+            log.debug("Checking condition : " + combinedResourceLevelThrottleKey);
+        }
+        return ThrottleDataHolder.getInstance().getThrottleNextAccessTimestamp(combinedResourceLevelThrottleKey);
+    }
+
+    /**
+     * Checks the hard limit of the API, which protects its production or sandbox backend. The limit is the maximum
+     * TPS of the endpoint the request is sent to, as loaded by the {@link EndpointLimiter}, and is enforced locally
+     * for the API, with each gateway node allowing its share of the limit.
+     *
+     * @return true if the hard limit is exceeded
+     */
+    private boolean isHardLimitThrottled(CarbonMessage carbonMsg, AuthenticationContextDTO authContext,
+                                         CharSequence apiLevelThrottleKey) {
+        String endpointId = resolveEndpointId(carbonMsg, authContext);
+        if (endpointId == null) {
+            return false;
+        }
+        EndpointLimiter.EndpointLimit endpointLimit = ThrottleDataHolder.getInstance().getEndpointLimiter()
+                .getEndpointLimit(endpointId);
+        long maxTps = endpointLimit != null ? endpointLimit.getMaxTps() : 0;
+        boolean production = !APIThrottleConstants.API_KEY_TYPE_SANDBOX.equals(authContext.getKeyType());
+        if (maxTps <= 0 || ThrottleDataHolder.getInstance().getHardLimitThrottler()
+                .tryAcquire(apiLevelThrottleKey, production, (int) Math.min(maxTps, Integer.MAX_VALUE))) {
+            return false;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Request throttled at hard limit of " + maxTps + " TPS for API " + apiLevelThrottleKey);
+        }
+        carbonMsg.setProperty(APIThrottleConstants.THROTTLED_OUT_REASON, APIThrottleConstants.HARD_LIMIT_EXCEEDED);
+        return true;
+    }
+
+    /**
+     * Admits the request to the endpoint selected for it, if the endpoint has a limit. Requests over the maximum TPS
+     * or the concurrency limit of the endpoint are throttled out without being sent.
+     * <p>
+     * Unless an endpoint was selected before the request reached this handler, the production or sandbox endpoint
+     * of the routed resource is selected by the key type of the request.
+     *
+     * @return true if the request is admitted
+     */
+    private boolean acquireEndpoint(CarbonMessage carbonMsg, AuthenticationContextDTO authContext) {
+        String endpointId = resolveEndpointId(carbonMsg, authContext);
+        if (endpointId == null) {
+            return true;
+        }
+        EndpointLimiter endpointLimiter = ThrottleDataHolder.getInstance().getEndpointLimiter();
+        EndpointLimiter.EndpointLimit endpointLimit = endpointLimiter.getEndpointLimit(endpointId);
+        if (endpointLimit == null) {
+            return true;
+        }
+        if (endpointLimiter.tryAcquire(endpointLimit)) {
+            carbonMsg.setProperty(APIThrottleConstants.ENDPOINT_LIMIT, endpointLimit);
+            return true;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Request throttled at the limit of endpoint " + endpointId);
+        }
+        carbonMsg.setProperty(APIThrottleConstants.THROTTLED_OUT_REASON,
+                APIThrottleConstants.ENDPOINT_LIMIT_EXCEEDED);
+        handleThrottleOut(carbonMsg);
         return false;
     }
 
+    /**
+     * Returns the endpoint the request is sent to. Unless an endpoint was selected before the request reached this
+     * handler, the endpoint of the routed resource is selected and set on the message.
+     *
+     * @return ID of the endpoint, or null if it is not known
+     */
+    private String resolveEndpointId(CarbonMessage carbonMsg, AuthenticationContextDTO authContext) {
+        Object endpointId = carbonMsg.getProperty(APIThrottleConstants.ENDPOINT_ID);
+        if (endpointId == null) {
+            endpointId = getResourceEndpointId(carbonMsg, authContext);
+            if (endpointId != null) {
+                carbonMsg.setProperty(APIThrottleConstants.ENDPOINT_ID, endpointId);
+            }
+        }
+        return endpointId instanceof String ? (String) endpointId : null;
+    }
+
+    /**
+     * @param authContext authentication context the request was throttled with, whose key type selects the
+     *                    production or sandbox endpoint
+     * @return ID of the endpoint of the routed resource, or null if there is none
+     */
+    private String getResourceEndpointId(CarbonMessage carbonMsg, AuthenticationContextDTO authContext) {
+        Object verbInfo = carbonMsg.getProperty(APIThrottleConstants.VERB_INFO_DTO);
+        if (!(verbInfo instanceof VerbInfoDTO)) {
+            return null;
+        }
+        if (APIThrottleConstants.API_KEY_TYPE_SANDBOX.equals(authContext.getKeyType())) {
+            return ((VerbInfoDTO) verbInfo).getSandboxEndpointId();
+        }
+        return ((VerbInfoDTO) verbInfo).getProductionEndpointId();
+    }
+
+    /**
+     * Completes a request admitted to an endpoint. The property holding the endpoint limit is removed, so a request
+     * is released once even though this is called on both the backend and the client response.
+     *
+     * @param failed true if the endpoint is considered to have failed the request
+     */
+    private void releaseEndpoint(CarbonMessage carbonMsg, boolean failed) {
+        Object endpointLimit = carbonMsg.getProperty(APIThrottleConstants.ENDPOINT_LIMIT);
+        if (endpointLimit == null) {
+            return;
+        }
+        carbonMsg.removeProperty(APIThrottleConstants.ENDPOINT_LIMIT);
+        Object requestNanoTime = carbonMsg.getProperty(APIThrottleConstants.ENDPOINT_REQUEST_NANO_TIME);
+        // A request which was never sent does not say anything about the latency of the endpoint
+        long latency = requestNanoTime instanceof Long ? System.nanoTime() - (Long) requestNanoTime : -1;
+        ThrottleDataHolder.getInstance().getEndpointLimiter().release((EndpointLimiter.EndpointLimit) endpointLimit,
+                latency, failed);
+    }
+
+    private boolean isEndpointFailure(CarbonMessage carbonMsg) {
+        Object statusCode = carbonMsg.getProperty(GatewayConstants.HTTP_STATUS_CODE);
+        int status = 0;
+        if (statusCode instanceof Number) {
+            status = ((Number) statusCode).intValue();
+        } else if (statusCode instanceof String) {
+            try {
+                status = Integer.parseInt((String) statusCode);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return status >= 500;
+    }
+
     /**
      * This method will handle responses. Usually we do not perform throttling for responses going back to clients.
      * However if we consider bandwidth scenarios we may need to consider handle response and response patch as well
@@ -458,14 +682,12 @@ public class ThrottleHandler implements MessagingHandler {
     /**
      * Do Throttle method will initialize throttle flow.
      *
-     * @param carbonMessage message context object which contains message details.
+     * @param carbonMessage         message context object which contains message details.
+     * @param authenticationContext authentication context of the request
      * @return return true if message flow need to continue(message not throttled) and pass requests to next
      * handler in chain. Else return false to notify throttled message.
      */
-    private boolean doThrottle(CarbonMessage carbonMessage) {
-
-        // TODO: get authcontext from carbonmessage
-        AuthenticationContextDTO authenticationContext = AuthenticationContextDTO.getInstance();
+    private boolean doThrottle(CarbonMessage carbonMessage, AuthenticationContextDTO authenticationContext) {
 
         boolean isThrottled = false;
 
@@ -511,61 +733,92 @@ public class ThrottleHandler implements MessagingHandler {
         return policyKeyResource;
     }
 
-    private String getClientIp(CarbonMessage carbonMsg) {
-        // // TODO: fetch from CarbonMessage
-        return "10.100.5.192";
-    }
-
-
     /**
-     * This method will check if coming request is hitting subscription level spikes.
+     * This method will check if coming request is hitting subscription level spikes. Bursts are controlled locally
+     * with a token bucket per subscription, sized by the spike arrest limit and unit of the subscription policy.
      *
      * @param carbonMessage carbon message context which contains message data
+     * @param authContext   authentication context which contains the spike arrest limit and unit
      * @param throttleKey   subscription level throttle key.
      * @return true if message is throttled else false
      */
-    public boolean isSubscriptionLevelSpike(CarbonMessage carbonMessage, String throttleKey) {
-        // TODO: Implement spike arrest or use the synapse spike arrest
-        return false;
+    public boolean isSubscriptionLevelSpike(CarbonMessage carbonMessage, AuthenticationContextDTO authContext,
+                                            CharSequence throttleKey) {
+        long spikeArrestWindowUnitTime = isMinuteUnit(authContext.getSpikeArrestUnit()) ? 60000 : 1000;
+        if (ThrottleDataHolder.getInstance().getSpikeArrestLimiter().tryAcquire(throttleKey,
+                authContext.getSpikeArrestLimit(), spikeArrestWindowUnitTime)) {
+            return false;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Request throttled at subscription level spike arrest for throttle key" + throttleKey);
+        }
+        carbonMessage.setProperty(APIThrottleConstants.THROTTLED_OUT_REASON,
+                APIThrottleConstants.SUBSCRIPTON_BURST_LIMIT_EXCEEDED);
+        return true;
+    }
+
+    private static boolean isMinuteUnit(String spikeArrestUnit) {
+        return spikeArrestUnit != null && spikeArrestUnit.regionMatches(true, 0, APIThrottleConstants.MIN, 0,
+                APIThrottleConstants.MIN.length());
     }
 
     /**
-     * Validate custom policy is handle by this method. This method call is an expensive operation
-     * and should not enabled by default. If we enabled this policy then all APIs available in system
-     * will have to go through this check.
+     * Validate custom policy is handle by this method. Key templates are compiled when they are received, and only
+     * the templates for which the global policy engine has sent throttled keys are rendered, so requests pay for
+     * custom policies only while one of them is throttling.
      *
-     * @return
+     * @return true if the request is throttled by a custom policy
      */
-    public boolean validateCustomPolicy(String userID, String resourceKey, String apiContext, String apiVersion,
+    public boolean validateCustomPolicy(String userID, CharSequence resourceKey, String apiContext, String apiVersion,
                                         String appTenant, String apiTenant, String appId,
-                                        Map<String, String> keyTemplateMap,
-                                        CarbonMessage messageContext) {
-        if (keyTemplateMap != null && keyTemplateMap.size() > 0) {
-            for (String key : keyTemplateMap.keySet()) {
-                key = key.replaceAll("\\$resourceKey", resourceKey);
-                key = key.replaceAll("\\$userId", userID);
-                key = key.replaceAll("\\$apiContext", apiContext);
-                key = key.replaceAll("\\$apiVersion", apiVersion);
-                key = key.replaceAll("\\$appTenant", appTenant);
-                key = key.replaceAll("\\$apiTenant", apiTenant);
-                key = key.replaceAll("\\$appId", appId);
-                if (ThrottleDataHolder.getInstance().isThrottled(key)) {
-                    long timestamp = ThrottleDataHolder.getInstance().getThrottleNextAccessTimestamp(key);
-                    messageContext.setProperty(APIThrottleConstants.THROTTLED_NEXT_ACCESS_TIMESTAMP, timestamp);
-                    return true;
-                }
+                                        KeyTemplate[] keyTemplates, CarbonMessage messageContext) {
+        if (keyTemplates == null || keyTemplates.length == 0) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        int availableVariables = availableVariableMask(resourceKey, userID, apiContext, apiVersion, appTenant,
+                apiTenant, appId);
+        ThrottleKey customKey = ThrottleKey.forCurrentThread().getCustomKey();
+        for (KeyTemplate keyTemplate : keyTemplates) {
+            int variables = keyTemplate.getVariableMask();
+            if (!keyTemplate.isThrottleable(now) || (variables & availableVariables) != variables) {
+                continue;
+            }
+            keyTemplate.render(customKey, resourceKey, userID, apiContext, apiVersion, appTenant, apiTenant, appId);
+            long timestamp = ThrottleDataHolder.getInstance().getThrottleNextAccessTimestamp(customKey);
+            if (timestamp != ThrottleDecisionStore.NOT_THROTTLED) {
+                messageContext.setProperty(APIThrottleConstants.THROTTLED_NEXT_ACCESS_TIMESTAMP, timestamp);
+                return true;
             }
         }
         return false;
     }
 
+    private static int availableVariableMask(CharSequence resourceKey, String userID, String apiContext,
+                                             String apiVersion, String appTenant, String apiTenant, String appId) {
+        int mask = 0;
+        mask |= resourceKey != null ? KeyTemplate.Variable.RESOURCE_KEY.getMask() : 0;
+        mask |= userID != null ? KeyTemplate.Variable.USER_ID.getMask() : 0;
+        mask |= apiContext != null ? KeyTemplate.Variable.API_CONTEXT.getMask() : 0;
+        mask |= apiVersion != null ? KeyTemplate.Variable.API_VERSION.getMask() : 0;
+        mask |= appTenant != null ? KeyTemplate.Variable.APP_TENANT.getMask() : 0;
+        mask |= apiTenant != null ? KeyTemplate.Variable.API_TENANT.getMask() : 0;
+        mask |= appId != null ? KeyTemplate.Variable.APP_ID.getMask() : 0;
+        return mask;
+    }
+
     /**
      * This method will initialize data publisher and this data publisher will be used to push events to traffic manager
      */
     private static synchronized void initDataPublisher() {
 
         if (throttleDataPublisher == null) {
-            throttleDataPublisher = new ThrottleDataPublisher();
+            ServiceReferenceHolder serviceReferenceHolder = ServiceReferenceHolder.getInstance();
+            if (serviceReferenceHolder.getThrottleDataPublisher() == null) {
+                serviceReferenceHolder.setThrottleDataPublisher(
+                        ThrottleDataPublisher.create(serviceReferenceHolder.getThrottlingConfiguration()));
+            }
+            throttleDataPublisher = serviceReferenceHolder.getThrottleDataPublisher();
         }
     }
 
@@ -588,6 +841,13 @@ public class ThrottleHandler implements MessagingHandler {
             errorDescription = "API not accepting requests";
             // It it's a hard limit exceeding, we tell it as service not being available.
             httpErrorCode = APIThrottleConstants.SC_SERVICE_UNAVAILABLE;
+        } else if (APIThrottleConstants.ENDPOINT_LIMIT_EXCEEDED.equals(
+                messageContext.getProperty(APIThrottleConstants.THROTTLED_OUT_REASON))) {
+            errorCode = APIThrottleConstants.ENDPOINT_LIMIT_EXCEEDED_ERROR_CODE;
+            errorMessage = "Endpoint Limit Reached";
+            errorDescription = "Endpoint not accepting requests";
+            // The backend is protected rather than the caller being over a quota
+            httpErrorCode = APIThrottleConstants.SC_SERVICE_UNAVAILABLE;
         } else if (APIThrottleConstants.REQUEST_BLOCKED.equals(
                 messageContext.getProperty(APIThrottleConstants.THROTTLED_OUT_REASON))) {
             errorCode = APIThrottleConstants.BLOCKED_ERROR_CODE;
@@ -23,6 +23,18 @@ import org.osgi.service.component.annotations.ReferencePolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wso2.carbon.apimgt.gateway.analytics.AnalyticsConfiguration;
+import org.wso2.carbon.apimgt.gateway.analytics.AnalyticsUtil;
+import org.wso2.carbon.apimgt.gateway.analytics.EventPublisher;
+import org.wso2.carbon.apimgt.gateway.resource.ResourceConfiguration;
+import org.wso2.carbon.apimgt.gateway.resource.ResourceRouter;
+import org.wso2.carbon.apimgt.gateway.security.KeyValidationConfiguration;
+import org.wso2.carbon.apimgt.gateway.security.TokenInfoCache;
+import org.wso2.carbon.apimgt.gateway.security.TokenIntrospectionClient;
+import org.wso2.carbon.apimgt.gateway.security.handlers.KeyValidationHandlerFactory;
+import org.wso2.carbon.apimgt.gateway.subscription.APISubscriptionDataHolder;
+import org.wso2.carbon.apimgt.gateway.subscription.SubscriptionConfiguration;
+import org.wso2.carbon.apimgt.gateway.throttling.ThrottleDataHolder;
+import org.wso2.carbon.apimgt.gateway.throttling.ThrottlingConfiguration;
 import org.wso2.carbon.kernel.configprovider.CarbonConfigurationException;
 import org.wso2.carbon.kernel.configprovider.ConfigProvider;
 
@@ -57,6 +69,69 @@ public class ConfigurationActivator {
         log.info("Setting default analytics configurations");
         log.debug("Analytics enabled = " + analyticsConfiguration.isEnabled());
         ServiceReferenceHolder.getInstance().setAnalyticsConfiguration(analyticsConfiguration);
+        if (analyticsConfiguration.isEnabled() && ServiceReferenceHolder.getInstance().getPublisher() == null) {
+            ServiceReferenceHolder.getInstance().setPublisher(AnalyticsUtil.createPublisher(analyticsConfiguration));
+        }
+
+        ThrottlingConfiguration throttlingConfiguration = null;
+        try {
+            throttlingConfiguration = configProvider.getConfigurationObject(ThrottlingConfiguration.class);
+        } catch (CarbonConfigurationException e) {
+            log.error("error getting config : ThrottlingConfiguration", e);
+        }
+        if (throttlingConfiguration == null) {
+            throttlingConfiguration = new ThrottlingConfiguration();
+            log.info("Setting default throttling configurations");
+        }
+        ServiceReferenceHolder.getInstance().setThrottlingConfiguration(throttlingConfiguration);
+        ThrottleDataHolder.getInstance().init(throttlingConfiguration);
+
+        SubscriptionConfiguration subscriptionConfiguration = null;
+        try {
+            subscriptionConfiguration = configProvider.getConfigurationObject(SubscriptionConfiguration.class);
+        } catch (CarbonConfigurationException e) {
+            log.error("error getting config : SubscriptionConfiguration", e);
+        }
+        if (subscriptionConfiguration == null) {
+            subscriptionConfiguration = new SubscriptionConfiguration();
+            log.info("Setting default subscription configurations");
+        }
+        ServiceReferenceHolder.getInstance().setSubscriptionConfiguration(subscriptionConfiguration);
+        APISubscriptionDataHolder.getInstance().init(subscriptionConfiguration);
+        if (subscriptionConfiguration.isPreloadEnabled()) {
+            APISubscriptionDataHolder.getInstance().preloadSubscriptions(subscriptionConfiguration
+                    .getPreloadPageSize());
+        }
+
+        ResourceConfiguration resourceConfiguration = null;
+        try {
+            resourceConfiguration = configProvider.getConfigurationObject(ResourceConfiguration.class);
+        } catch (CarbonConfigurationException e) {
+            log.error("error getting config : ResourceConfiguration", e);
+        }
+        if (resourceConfiguration == null) {
+            resourceConfiguration = new ResourceConfiguration();
+            log.info("Setting default resource configurations");
+        }
+        ServiceReferenceHolder.getInstance().setResourceConfiguration(resourceConfiguration);
+        ResourceRouter.getInstance().init(resourceConfiguration);
+
+        KeyValidationConfiguration keyValidationConfiguration = null;
+        try {
+            keyValidationConfiguration = configProvider.getConfigurationObject(KeyValidationConfiguration.class);
+        } catch (CarbonConfigurationException e) {
+            log.error("error getting config : KeyValidationConfiguration", e);
+        }
+        if (keyValidationConfiguration == null) {
+            keyValidationConfiguration = new KeyValidationConfiguration();
+            log.info("Setting default key validation configurations");
+        }
+        ServiceReferenceHolder.getInstance().setKeyValidationConfiguration(keyValidationConfiguration);
+        TokenInfoCache.getInstance().init(keyValidationConfiguration);
+        ServiceReferenceHolder.getInstance().setTokenIntrospectionClient(
+                new TokenIntrospectionClient(keyValidationConfiguration));
+        ServiceReferenceHolder.getInstance().setKeyValidationHandler(
+                KeyValidationHandlerFactory.create(keyValidationConfiguration));
     }
 
     /**
@@ -67,5 +142,13 @@ public class ConfigurationActivator {
     protected void unregisterConfigProvider(ConfigProvider configProvider) {
         ServiceReferenceHolder.getInstance().setConfigProvider(null);
         ServiceReferenceHolder.getInstance().setAnalyticsConfiguration(null);
+        EventPublisher publisher = ServiceReferenceHolder.getInstance().getPublisher();
+        if (publisher != null) {
+            ServiceReferenceHolder.getInstance().setPublisher(null);
+            publisher.shutdown();
+        }
+        APISubscriptionDataHolder.getInstance().shutdown();
+        APISubscriptionDataHolder.getInstance().stopSubscriptionEventApplier();
+        ServiceReferenceHolder.getInstance().setTokenIntrospectionClient(null);
     }
 }
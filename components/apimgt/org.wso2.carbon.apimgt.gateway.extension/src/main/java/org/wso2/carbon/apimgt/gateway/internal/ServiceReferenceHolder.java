@@ -20,6 +20,14 @@ package org.wso2.carbon.apimgt.gateway.internal;
 
 import org.wso2.carbon.apimgt.gateway.analytics.AnalyticsConfiguration;
 import org.wso2.carbon.apimgt.gateway.analytics.EventPublisher;
+import org.wso2.carbon.apimgt.gateway.resource.ResourceConfiguration;
+import org.wso2.carbon.apimgt.gateway.security.KeyValidationConfiguration;
+import org.wso2.carbon.apimgt.gateway.security.TokenIntrospectionClient;
+import org.wso2.carbon.apimgt.gateway.security.handlers.KeyValidationHandler;
+import org.wso2.carbon.apimgt.gateway.security.handlers.KeyValidationHandlerFactory;
+import org.wso2.carbon.apimgt.gateway.subscription.SubscriptionConfiguration;
+import org.wso2.carbon.apimgt.gateway.throttling.ThrottlingConfiguration;
+import org.wso2.carbon.apimgt.gateway.throttling.publisher.ThrottleDataPublisher;
 import org.wso2.carbon.kernel.configprovider.ConfigProvider;
 
 
@@ -31,6 +39,13 @@ public class ServiceReferenceHolder {
     private ConfigProvider configProvider;
     private EventPublisher publisher;
     private AnalyticsConfiguration analyticsConfiguration;
+    private ThrottlingConfiguration throttlingConfiguration = new ThrottlingConfiguration();
+    private ThrottleDataPublisher throttleDataPublisher;
+    private SubscriptionConfiguration subscriptionConfiguration = new SubscriptionConfiguration();
+    private KeyValidationConfiguration keyValidationConfiguration = new KeyValidationConfiguration();
+    private ResourceConfiguration resourceConfiguration = new ResourceConfiguration();
+    private TokenIntrospectionClient tokenIntrospectionClient;
+    private KeyValidationHandler keyValidationHandler;
 
     private ServiceReferenceHolder() {
 
@@ -63,4 +78,83 @@ public class ServiceReferenceHolder {
     public void setAnalyticsConfiguration(AnalyticsConfiguration analyticsConfiguration) {
         this.analyticsConfiguration = analyticsConfiguration;
     }
+
+    public ThrottlingConfiguration getThrottlingConfiguration() {
+        return throttlingConfiguration;
+    }
+
+    public void setThrottlingConfiguration(ThrottlingConfiguration throttlingConfiguration) {
+        this.throttlingConfiguration = throttlingConfiguration;
+    }
+
+    public ThrottleDataPublisher getThrottleDataPublisher() {
+        return throttleDataPublisher;
+    }
+
+    public void setThrottleDataPublisher(ThrottleDataPublisher throttleDataPublisher) {
+        this.throttleDataPublisher = throttleDataPublisher;
+    }
+
+    public SubscriptionConfiguration getSubscriptionConfiguration() {
+        return subscriptionConfiguration;
+    }
+
+    public void setSubscriptionConfiguration(SubscriptionConfiguration subscriptionConfiguration) {
+        this.subscriptionConfiguration = subscriptionConfiguration;
+    }
+
+    public KeyValidationConfiguration getKeyValidationConfiguration() {
+        return keyValidationConfiguration;
+    }
+
+    public void setKeyValidationConfiguration(KeyValidationConfiguration keyValidationConfiguration) {
+        this.keyValidationConfiguration = keyValidationConfiguration;
+    }
+
+    public ResourceConfiguration getResourceConfiguration() {
+        return resourceConfiguration;
+    }
+
+    public void setResourceConfiguration(ResourceConfiguration resourceConfiguration) {
+        this.resourceConfiguration = resourceConfiguration;
+    }
+
+    /**
+     * @return shared token introspection client, created with the current key validation configuration if it has
+     * not been set
+     */
+    public synchronized TokenIntrospectionClient getTokenIntrospectionClient() {
+        if (tokenIntrospectionClient == null) {
+            tokenIntrospectionClient = new TokenIntrospectionClient(keyValidationConfiguration);
+        }
+        return tokenIntrospectionClient;
+    }
+
+    /**
+     * Replaces the shared token introspection client. The previous client is shut down; calls it already accepted
+     * are completed.
+     *
+     * @param tokenIntrospectionClient token introspection client, or null to shut down the current client
+     */
+    public synchronized void setTokenIntrospectionClient(TokenIntrospectionClient tokenIntrospectionClient) {
+        TokenIntrospectionClient previous = this.tokenIntrospectionClient;
+        this.tokenIntrospectionClient = tokenIntrospectionClient;
+        if (previous != null && previous != tokenIntrospectionClient) {
+            previous.shutdown();
+        }
+    }
+
+    /**
+     * @return key validation handler selected by the current key validation configuration
+     */
+    public synchronized KeyValidationHandler getKeyValidationHandler() {
+        if (keyValidationHandler == null) {
+            keyValidationHandler = KeyValidationHandlerFactory.create(keyValidationConfiguration);
+        }
+        return keyValidationHandler;
+    }
+
+    public synchronized void setKeyValidationHandler(KeyValidationHandler keyValidationHandler) {
+        this.keyValidationHandler = keyValidationHandler;
+    }
 }
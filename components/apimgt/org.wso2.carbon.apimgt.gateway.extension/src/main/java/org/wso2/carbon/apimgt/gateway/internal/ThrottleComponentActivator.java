@@ -25,7 +25,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wso2.carbon.apimgt.gateway.jms.JmsThrottleReceiver;
 import org.wso2.carbon.apimgt.gateway.jms.ThrottleJMSListner;
+import org.wso2.carbon.apimgt.gateway.throttling.ThrottleDataHolder;
 import org.wso2.carbon.apimgt.gateway.throttling.dto.JMSConfigDTO;
+import org.wso2.carbon.apimgt.gateway.throttling.publisher.ThrottleDataPublisher;
 
 
 /**
@@ -66,6 +68,12 @@ public class ThrottleComponentActivator {
         if (log.isDebugEnabled()) {
             log.debug("Deactivating component");
         }
+        ThrottleDataHolder.getInstance().shutdown();
+        ThrottleDataPublisher throttleDataPublisher = ServiceReferenceHolder.getInstance().getThrottleDataPublisher();
+        if (throttleDataPublisher != null) {
+            throttleDataPublisher.shutdown();
+            ServiceReferenceHolder.getInstance().setThrottleDataPublisher(null);
+        }
     }
 
 }
@@ -22,8 +22,12 @@ import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.wso2.carbon.apimgt.gateway.jms.APISubscriptionReceiver;
+import org.wso2.carbon.apimgt.gateway.APIMConfigurations;
+import org.wso2.carbon.apimgt.gateway.GatewayConstants;
+import org.wso2.carbon.apimgt.gateway.jms.APISubscriptionMessageJMSListener;
 import org.wso2.carbon.apimgt.gateway.jms.JmsReceiver;
+import org.wso2.carbon.apimgt.gateway.jms.JmsThrottleReceiver;
+import org.wso2.carbon.apimgt.gateway.throttling.dto.JMSConfigDTO;
 
 /**
  * Start up component to listen JMS topic and retrieving API config
@@ -41,7 +45,14 @@ public class TopicSubscriberActivator {
         JmsReceiver jms = new JmsReceiver();
         jms.start();
 
-        APISubscriptionReceiver apiSubscriptionReceiver = new APISubscriptionReceiver();
-        apiSubscriptionReceiver.start();
+        APIMConfigurations config = new APIMConfigurations();
+        JMSConfigDTO subscriptionJmsDto = new JMSConfigDTO(config.getUsername(), config.getPassword(),
+                GatewayConstants.SUBSCRIPTION_TOPIC_NAME);
+        subscriptionJmsDto.setClientId(config.getCarbonClientId());
+        subscriptionJmsDto.setVirtualHostName(config.getCarbonVirtualHostName());
+        subscriptionJmsDto.setDefaultHostname(config.getTopicServerHost());
+        subscriptionJmsDto.setDefaultPort(config.getTopicServerPort());
+        subscriptionJmsDto.setMessageListenerl(new APISubscriptionMessageJMSListener());
+        new JmsThrottleReceiver().registerSubscriber(subscriptionJmsDto);
     }
 }
@@ -18,12 +18,23 @@
 package org.wso2.carbon.apimgt.gateway.jms;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wso2.andes.client.AMQConnectionFactory;
 import org.wso2.andes.url.URLSyntaxException;
+import org.wso2.carbon.apimgt.core.dto.EndpointDTO;
+import org.wso2.carbon.apimgt.core.models.Endpoint;
+import org.wso2.carbon.apimgt.core.models.policy.Policy;
+import org.wso2.carbon.apimgt.core.util.APIMgtConstants;
 import org.wso2.carbon.apimgt.gateway.APIMConfigurations;
 import org.wso2.carbon.apimgt.gateway.internal.ServiceReferenceHolder;
+import org.wso2.carbon.apimgt.gateway.resource.ResourceRouter;
+import org.wso2.carbon.apimgt.gateway.throttling.EndpointLimiter;
+import org.wso2.carbon.apimgt.gateway.throttling.LocalThrottleEngine;
+import org.wso2.carbon.apimgt.gateway.throttling.ThrottleDataHolder;
+import org.wso2.carbon.apimgt.gateway.throttling.dto.ThrottlePolicyDTO;
 import org.wso2.carbon.kernel.configprovider.CarbonConfigurationException;
 
 import java.io.File;
@@ -47,6 +58,11 @@ import javax.naming.NamingException;
  */
 public class APITopicSubscriber {
     private static final Logger log = LoggerFactory.getLogger(APITopicSubscriber.class);
+    private static final Gson gson = new Gson();
+    private static final String EVENT_TYPE = "eventType";
+    private static final String ENDPOINT_EVENT_PREFIX = "ENDPOINT_";
+    private static final String POLICY_EVENT_PREFIX = "POLICY_";
+    private static final String API_EVENT_PREFIX = "API_";
     private TopicConnection topicConnection;
     private TopicSession topicSession;
     private APIMConfigurations config = null;
@@ -63,8 +79,6 @@ public class APITopicSubscriber {
             config = new APIMConfigurations();
             log.info("Setting default configurations");
         }
-
-        config = new APIMConfigurations();
     }
     /**
      * Subscribe to the topic
@@ -102,8 +116,17 @@ public class APITopicSubscriber {
             if (log.isDebugEnabled()) {
                 log.debug("Got API config from topic subscriber = " + msg);
             }
-            GatewayConfigDTO dto = new Gson().fromJson(msg, GatewayConfigDTO.class);
-            deployApiConfig(dto);
+            JsonObject jsonMsg = gson.fromJson(msg, JsonObject.class);
+            JsonElement eventType = jsonMsg.get(EVENT_TYPE);
+            if (eventType != null && eventType.getAsString().startsWith(ENDPOINT_EVENT_PREFIX)) {
+                deployEndpoint(gson.fromJson(jsonMsg, EndpointDTO.class));
+            } else if (eventType != null && eventType.getAsString().startsWith(POLICY_EVENT_PREFIX)) {
+                deployPolicy(eventType.getAsString(), jsonMsg);
+            } else if (eventType != null && eventType.getAsString().startsWith(API_EVENT_PREFIX)) {
+                deployAPI(eventType.getAsString(), jsonMsg);
+            } else {
+                deployApiConfig(gson.fromJson(jsonMsg, GatewayConfigDTO.class));
+            }
         }
     }
 
@@ -159,6 +182,92 @@ public class APITopicSubscriber {
         String path = System.getProperty("carbon.home") + File.separator + "samples" + File.separator + fileName;
         saveApi(path, configDTO.config);
         log.info("Deployed API config in " + path);
+        ResourceRouter.getInstance().deployAPI(configDTO.context, configDTO.version);
+    }
+
+    /**
+     * Applies an API change to the routing of requests, removing the resources of a deleted API and reloading the
+     * resources of any other changed API
+     *
+     * @param eventType type of the API event
+     * @param apiEvent  API event, carrying the summary of the API
+     */
+    private void deployAPI(String eventType, JsonObject apiEvent) {
+        JsonElement apiJson = apiEvent.get("apiSummary");
+        if (apiJson == null || !apiJson.isJsonObject() || !apiJson.getAsJsonObject().has("context")
+                || !apiJson.getAsJsonObject().has("version")) {
+            log.warn("Dropping API event without an API : " + eventType);
+            return;
+        }
+        String context = apiJson.getAsJsonObject().get("context").getAsString();
+        String version = apiJson.getAsJsonObject().get("version").getAsString();
+        if (APIMgtConstants.GatewayEventTypes.API_DELETE.equals(eventType)) {
+            ResourceRouter.getInstance().undeployAPI(context, version);
+        } else {
+            ResourceRouter.getInstance().deployAPI(context, version);
+        }
+    }
+
+    /**
+     * Applies an endpoint change to the limits of the endpoint, so that a new maximum TPS is enforced without a
+     * restart
+     *
+     * @param endpointDTO endpoint event
+     */
+    private void deployEndpoint(EndpointDTO endpointDTO) {
+        Endpoint endpoint = endpointDTO.getEndpoint();
+        if (endpoint == null || endpoint.getId() == null) {
+            log.warn("Dropping endpoint event without an endpoint : " + endpointDTO.getEventType());
+            return;
+        }
+        EndpointLimiter endpointLimiter = ThrottleDataHolder.getInstance().getEndpointLimiter();
+        if (APIMgtConstants.GatewayEventTypes.ENDPOINT_DELETE.equals(endpointDTO.getEventType())) {
+            endpointLimiter.removeEndpoint(endpoint.getId());
+            log.info("Removed limits of endpoint " + endpoint.getId());
+        } else {
+            endpointLimiter.updateEndpoint(endpoint.getId(), endpoint.getMaxTps());
+            log.info("Updated limits of endpoint " + endpoint.getId() + " with max TPS " + endpoint.getMaxTps());
+        }
+    }
+
+    /**
+     * Applies a policy change to local throttling, so that a new or changed quota is enforced without a restart
+     *
+     * @param eventType   type of the policy event
+     * @param policyEvent policy event, carrying the level of the policy and the policy with its default quota
+     */
+    private void deployPolicy(String eventType, JsonObject policyEvent) {
+        JsonElement policyLevel = policyEvent.get("policyLevel");
+        JsonElement policyJson = policyEvent.get("policy");
+        if (policyLevel == null || policyJson == null || !policyJson.isJsonObject()
+                || !policyJson.getAsJsonObject().has("policyName")) {
+            log.warn("Dropping policy event without a policy : " + eventType);
+            return;
+        }
+        // The limit of the default quota carries the same fields as the policy model of the policies API
+        JsonElement quotaJson = policyJson.getAsJsonObject().get("defaultQuotaPolicy");
+        ThrottlePolicyDTO policyDTO;
+        if (quotaJson != null && quotaJson.isJsonObject() && quotaJson.getAsJsonObject().has("limit")) {
+            policyDTO = gson.fromJson(quotaJson.getAsJsonObject().get("limit"), ThrottlePolicyDTO.class);
+            JsonElement quotaType = quotaJson.getAsJsonObject().get("type");
+            policyDTO.setQuotaType(quotaType != null ? quotaType.getAsString() : null);
+        } else {
+            policyDTO = new ThrottlePolicyDTO();
+        }
+        policyDTO.setPolicyName(policyJson.getAsJsonObject().get("policyName").getAsString());
+        policyDTO.setPolicyLevel(policyLevel.getAsString());
+        Policy policy = policyDTO.toPolicy();
+        if (policy == null) {
+            log.warn("Dropping policy event of unknown policy level : " + policyLevel.getAsString());
+            return;
+        }
+        LocalThrottleEngine localThrottleEngine = ThrottleDataHolder.getInstance().getLocalThrottleEngine();
+        if (APIMgtConstants.GatewayEventTypes.POLICY_DELETE.equals(eventType)) {
+            localThrottleEngine.undeployPolicy(policy);
+            log.info("Undeployed policy " + policy.getPolicyName() + " from local throttling");
+        } else if (localThrottleEngine.deployPolicy(policy)) {
+            log.info("Deployed policy " + policy.getPolicyName() + " for local throttling");
+        }
     }
 
     /**
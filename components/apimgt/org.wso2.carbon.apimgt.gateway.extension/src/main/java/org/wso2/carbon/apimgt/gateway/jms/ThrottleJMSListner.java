@@ -20,39 +20,34 @@ package org.wso2.carbon.apimgt.gateway.jms;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.wso2.carbon.apimgt.gateway.throttling.KeyTemplate;
 import org.wso2.carbon.apimgt.gateway.throttling.ThrottleDataHolder;
+import org.wso2.carbon.apimgt.gateway.throttling.ThrottleDecision;
+import org.wso2.carbon.apimgt.gateway.throttling.ThrottleDecisionCodec;
+import org.wso2.carbon.apimgt.gateway.throttling.ThrottleException;
 import org.wso2.carbon.apimgt.gateway.throttling.constants.APIThrottleConstants;
 
 import java.util.Date;
-import java.util.Enumeration;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.List;
 
+import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.MapMessage;
 import javax.jms.Message;
 import javax.jms.MessageListener;
 
 /**
- * This class is used to subscribe to a jms topic and update the throttle maps
+ * This class is used to subscribe to a jms topic and update the throttle maps.
+ * <p>
+ * Throttle decisions are received either one per {@link MapMessage}, or in batches as the body of a
+ * {@link BytesMessage} encoded by {@link ThrottleDecisionCodec}. Decisions are handed over to the
+ * {@link org.wso2.carbon.apimgt.gateway.throttling.ThrottleDecisionApplier}, which applies them to the throttle data
+ * holder from its own thread.
  */
 public class ThrottleJMSListner implements MessageListener {
 
     private static final Logger log = LoggerFactory.getLogger(ThrottleJMSListner.class);
 
-    // These patterns will be used to determine for which type of keys the throttling condition has occurred.
-    private Pattern apiPattern = Pattern.compile("/.*/(.*):\\1_(condition_(\\d*)|default)");
-    private static final int API_PATTERN_GROUPS = 3;
-    private static final int API_PATTERN_CONDITION_INDEX = 2;
-
-    private Pattern resourcePattern = Pattern.compile("/.*/(.*)/\\1(.*)?:[A-Z]{0,5}_(condition_(\\d*)|default)");
-    public static final int RESOURCE_PATTERN_GROUPS = 4;
-    public static final int RESOURCE_PATTERN_CONDITION_INDEX = 3;
-
-    private boolean isSubscribed = false;
-
     @Override
     public void onMessage(Message message) {
 
@@ -63,42 +58,36 @@ public class ThrottleJMSListner implements MessageListener {
         try {
             if (message != null) {
 
-                if (message instanceof MapMessage) {
+                if (message instanceof BytesMessage) {
+                    handleThrottleUpdateBatch((BytesMessage) message);
+                } else if (message instanceof MapMessage) {
                     MapMessage mapMessage = (MapMessage) message;
-                    Map<String, Object> map = new HashMap<String, Object>();
-                    Enumeration enumeration = mapMessage.getMapNames();
-                    while (enumeration.hasMoreElements()) {
-                        String key = (String) enumeration.nextElement();
-                        map.put(key, mapMessage.getObject(key));
-                    }
 
-                    if (log.isDebugEnabled()) {
-                        log.debug("JMS message map :" + map);
-                    }
-
-                    if (map.get(APIThrottleConstants.THROTTLE_KEY) != null) {
+                    if (mapMessage.itemExists(APIThrottleConstants.THROTTLE_KEY)) {
                         /**
                          * This message contains throttle data in map which contains Keys
                          * throttleKey - Key of particular throttling level
                          * isThrottled - Whether message has throttled or not
                          * expiryTimeStamp - When the throttling time window will expires
+                         * apiKey, resourceKey, conditionId - API or resource level key and condition of the
+                         * throttle key, if sent by the global policy engine
                          */
-                        handleThrottleUpdateMessage(map);
-                    } else if (map.get(APIThrottleConstants.BLOCKING_CONDITION_KEY) != null) {
+                        handleThrottleUpdateMessage(mapMessage);
+                    } else if (mapMessage.itemExists(APIThrottleConstants.BLOCKING_CONDITION_KEY)) {
                         /**
                          * This message contains blocking condition data
                          * blockingCondition - Blocking condition type
                          * conditionValue - blocking condition value
                          * state - State whether blocking condition is enabled or not
                          */
-                        handleBlockingMessage(map);
-                    } else if (map.get(APIThrottleConstants.POLICY_TEMPLATE_KEY) != null) {
+                        handleBlockingMessage(mapMessage);
+                    } else if (mapMessage.itemExists(APIThrottleConstants.POLICY_TEMPLATE_KEY)) {
                         /**
                          * This message contains key template data
                          * keyTemplateValue - Value of key template
                          * keyTemplateState - whether key template active or not
                          */
-                        handleKeyTemplateMessage(map);
+                        handleKeyTemplateMessage(mapMessage);
                     }
 
                 } else {
@@ -109,61 +98,61 @@ public class ThrottleJMSListner implements MessageListener {
             }
         } catch (JMSException e) {
             log.error("JMSException occurred when processing the received message ", e);
+        } catch (ThrottleException e) {
+            log.error("Dropping malformed throttle decision batch", e);
+        }
+    }
+
+    private void handleThrottleUpdateBatch(BytesMessage message) throws JMSException, ThrottleException {
+        byte[] batch = new byte[(int) message.getBodyLength()];
+        message.readBytes(batch);
+        List<ThrottleDecision> decisions = ThrottleDecisionCodec.decode(batch);
+        if (log.isDebugEnabled()) {
+            log.debug("Received a batch of " + decisions.size() + " throttle decisions");
+        }
+        for (ThrottleDecision decision : decisions) {
+            ThrottleDataHolder.getInstance().getThrottleDecisionApplier().submit(decision);
         }
     }
 
-    private void handleThrottleUpdateMessage(Map<String, Object> map) {
+    private void handleThrottleUpdateMessage(MapMessage message) throws JMSException {
 
-        String throttleKey = map.get(APIThrottleConstants.THROTTLE_KEY).toString();
-        String throttleState = map.get(APIThrottleConstants.IS_THROTTLED).toString();
-        Long timeStamp = Long.parseLong(map.get(APIThrottleConstants.EXPIRY_TIMESTAMP).toString());
+        String throttleKey = message.getString(APIThrottleConstants.THROTTLE_KEY);
+        boolean throttled = APIThrottleConstants.TRUE.equalsIgnoreCase(
+                message.getString(APIThrottleConstants.IS_THROTTLED));
+        long timeStamp = message.getLong(APIThrottleConstants.EXPIRY_TIMESTAMP);
 
         if (log.isDebugEnabled()) {
             log.debug("Received Key -  throttleKey : " + throttleKey + " , " +
-                    "isThrottled :" + throttleState + " , expiryTime : " + new Date(timeStamp).toString());
+                    "isThrottled :" + throttled + " , expiryTime : " + new Date(timeStamp).toString());
         }
 
-        if (APIThrottleConstants.TRUE.equalsIgnoreCase(throttleState)) {
-            ThrottleDataHolder.getInstance().addThrottleData(throttleKey, timeStamp);
-
-            String extractedKey = extractAPIorResourceKey(throttleKey);
-            if (extractedKey != null) {
-                if (!ThrottleDataHolder.getInstance().isAPIThrottled(extractedKey)) {
-                    ThrottleDataHolder.getInstance().addThrottledAPIKey(extractedKey, timeStamp);
-                    if (log.isDebugEnabled()) {
-                        log.debug("Adding throttling key : " + extractedKey);
-                    }
-                }
-
-            }
+        ThrottleDecision decision;
+        if (message.itemExists(APIThrottleConstants.THROTTLE_API_KEY)
+                || message.itemExists(APIThrottleConstants.THROTTLE_RESOURCE_KEY)) {
+            decision = new ThrottleDecision(throttleKey, throttled, timeStamp,
+                    message.getString(APIThrottleConstants.THROTTLE_API_KEY),
+                    message.getString(APIThrottleConstants.THROTTLE_RESOURCE_KEY),
+                    message.getString(APIThrottleConstants.THROTTLE_CONDITION_ID));
         } else {
-            ThrottleDataHolder.getInstance().
-                    removeThrottleData(throttleKey);
-            String extractedKey = extractAPIorResourceKey(throttleKey);
-            if (extractedKey != null) {
-                if (log.isDebugEnabled()) {
-                    log.debug("Removing throttling key : " + extractedKey);
-                }
-                ThrottleDataHolder.getInstance().removeThrottledAPIKey(extractedKey);
-            }
+            decision = ThrottleDecision.withoutKeys(throttleKey, throttled, timeStamp);
         }
+        ThrottleDataHolder.getInstance().getThrottleDecisionApplier().submit(decision);
     }
 
     // Synchronized due to blocking data contains or not can updated by multiple threads.
     // Will not be a performance issue as this will not happen more frequently
-    private synchronized void handleBlockingMessage(Map<String, Object> map) {
+    private synchronized void handleBlockingMessage(MapMessage message) throws JMSException {
+        String condition = message.getString(APIThrottleConstants.BLOCKING_CONDITION_KEY);
+        String conditionValue = message.getString(APIThrottleConstants.BLOCKING_CONDITION_VALUE);
+        String conditionState = message.getString(APIThrottleConstants.BLOCKING_CONDITION_STATE);
+
         if (log.isDebugEnabled()) {
-            log.debug("Received Key -  blockingCondition : " + map.get(APIThrottleConstants.BLOCKING_CONDITION_KEY)
-                    .toString()
-                    + " , " + "conditionValue :" + map.get(APIThrottleConstants.BLOCKING_CONDITION_VALUE).toString()
-                    + " , " +
-                    "tenantDomain : " + map.get(APIThrottleConstants.BLOCKING_CONDITION_DOMAIN));
+            log.debug("Received Key -  blockingCondition : " + condition + " , " + "conditionValue :"
+                    + conditionValue + " , " + "tenantDomain : "
+                    + message.getString(APIThrottleConstants.BLOCKING_CONDITION_DOMAIN));
         }
 
-        String condition = map.get(APIThrottleConstants.BLOCKING_CONDITION_KEY).toString();
-        String conditionValue = map.get(APIThrottleConstants.BLOCKING_CONDITION_VALUE).toString();
-        String conditionState = map.get(APIThrottleConstants.BLOCKING_CONDITION_STATE).toString();
-
         if (APIThrottleConstants.BLOCKING_CONDITIONS_APPLICATION.equals(condition)) {
             if (APIThrottleConstants.TRUE.equals(conditionState)) {
                 ThrottleDataHolder.getInstance().addApplicationBlockingCondition(conditionValue, conditionValue);
@@ -191,35 +180,15 @@ public class ThrottleJMSListner implements MessageListener {
         }
     }
 
-    private String extractAPIorResourceKey(String throttleKey) {
-        Matcher m = resourcePattern.matcher(throttleKey);
-        if (m.matches()) {
-            if (m.groupCount() == RESOURCE_PATTERN_GROUPS) {
-                String condition = m.group(RESOURCE_PATTERN_CONDITION_INDEX);
-                String resourceKey = throttleKey.substring(0, throttleKey.indexOf("_" + condition));
-                return resourceKey;
-            }
-        } else {
-            m = apiPattern.matcher(throttleKey);
-            if (m.matches()) {
-                if (m.groupCount() == API_PATTERN_GROUPS) {
-                    String condition = m.group(API_PATTERN_CONDITION_INDEX);
-                    String resourceKey = throttleKey.substring(0, throttleKey.indexOf("_" + condition));
-                    return resourceKey;
-                }
-            }
-        }
-        return null;
-    }
-
-    private synchronized void handleKeyTemplateMessage(Map<String, Object> map) {
-        if (!log.isDebugEnabled()) {
-            log.debug("Received Key -  KeyTemplate : " + map.get(APIThrottleConstants.POLICY_TEMPLATE_KEY).toString());
+    private synchronized void handleKeyTemplateMessage(MapMessage message) throws JMSException {
+        String keyTemplateValue = message.getString(APIThrottleConstants.POLICY_TEMPLATE_KEY);
+        String keyTemplateState = message.getString(APIThrottleConstants.TEMPLATE_KEY_STATE);
+        if (log.isDebugEnabled()) {
+            log.debug("Received Key -  KeyTemplate : " + keyTemplateValue);
         }
-        String keyTemplateValue = map.get(APIThrottleConstants.POLICY_TEMPLATE_KEY).toString();
-        String keyTemplateState = map.get(APIThrottleConstants.TEMPLATE_KEY_STATE).toString();
         if (APIThrottleConstants.ADD.equals(keyTemplateState)) {
-            ThrottleDataHolder.getInstance().addKeyTemplate(keyTemplateValue, keyTemplateValue);
+            // Compile the template here so that requests only have to render it
+            ThrottleDataHolder.getInstance().addKeyTemplate(keyTemplateValue, KeyTemplate.compile(keyTemplateValue));
         } else {
             ThrottleDataHolder.getInstance().removeKeyTemplate(keyTemplateValue);
         }
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.resource;
+
+import org.wso2.carbon.kernel.annotations.Configuration;
+import org.wso2.carbon.kernel.annotations.Element;
+
+/**
+ * This class is used to keep the resource routing related configurations of the gateway
+ */
+@Configuration(namespace = "wso2.carbon.apim.resource", description = "APIM Gateway Resource Configurations")
+public class ResourceConfiguration {
+
+    @Element(description = "whether the resources of the APIs deployed in the gateway are loaded when the gateway "
+            + "starts. Otherwise only the resources of APIs deployed afterwards are routed")
+    private boolean preloadEnabled = true;
+    @Element(description = "comma separated labels of the gateway, used to find the APIs deployed in the gateway")
+    private String gatewayLabels = "Default";
+    @Element(description = "lifecycle status of the APIs deployed in the gateway")
+    private String apiStatus = "PUBLISHED";
+
+    public boolean isPreloadEnabled() {
+        return preloadEnabled;
+    }
+
+    public void setPreloadEnabled(boolean preloadEnabled) {
+        this.preloadEnabled = preloadEnabled;
+    }
+
+    public String getGatewayLabels() {
+        return gatewayLabels;
+    }
+
+    public void setGatewayLabels(String gatewayLabels) {
+        this.gatewayLabels = gatewayLabels;
+    }
+
+    public String getApiStatus() {
+        return apiStatus;
+    }
+
+    public void setApiStatus(String apiStatus) {
+        this.apiStatus = apiStatus;
+    }
+}
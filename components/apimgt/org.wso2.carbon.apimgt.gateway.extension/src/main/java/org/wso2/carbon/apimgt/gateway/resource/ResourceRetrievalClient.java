@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.resource;
+
+import feign.Feign;
+import feign.Param;
+import feign.RequestLine;
+import feign.gson.GsonDecoder;
+import feign.gson.GsonEncoder;
+
+/**
+ * Http client retrieving the APIs deployed in the gateway and their resources from API Manager core.
+ */
+public final class ResourceRetrievalClient {
+
+    private static final String DEFAULT_APIM_CORE_BASE_URL = "https://localhost:9292";
+
+    private ResourceRetrievalService resourceRetrievalService = null;
+
+    public ResourceRetrievalClient(String apimCoreBaseUrl) {
+        resourceRetrievalService = Feign.builder()
+                .encoder(new GsonEncoder())
+                .decoder(new GsonDecoder())
+                .target(ResourceRetrievalService.class, apimCoreBaseUrl);
+    }
+
+    public ResourceRetrievalClient() {
+        this(DEFAULT_APIM_CORE_BASE_URL);
+    }
+
+    private interface ResourceRetrievalService {
+        @RequestLine("GET /apis?labels={labels}&status={status}")
+        APIListDTO getAPIs(@Param("labels") String labels, @Param("status") String status);
+
+        @RequestLine("GET /resources?apiContext={apiContext}&apiVersion={apiVersion}")
+        ResourceListDTO getResources(@Param("apiContext") String apiContext, @Param("apiVersion") String apiVersion);
+    }
+
+    /**
+     * @param labels comma separated labels of the gateway
+     * @param status lifecycle status of the APIs
+     * @return APIs with the given status deployed in gateways with any of the given labels
+     */
+    APIListDTO loadAPIs(String labels, String status) {
+        return resourceRetrievalService.getAPIs(labels, status);
+    }
+
+    /**
+     * @param apiContext context of the API
+     * @param apiVersion version of the API
+     * @return resources of the API
+     */
+    ResourceListDTO loadResourcesOfApi(String apiContext, String apiVersion) {
+        return resourceRetrievalService.getResources(apiContext, apiVersion);
+    }
+}
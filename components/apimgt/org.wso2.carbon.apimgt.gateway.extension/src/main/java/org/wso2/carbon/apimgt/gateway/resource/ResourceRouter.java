@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.resource;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.apimgt.gateway.GatewayConstants;
+import org.wso2.carbon.apimgt.gateway.throttling.constants.APIThrottleConstants;
+import org.wso2.carbon.messaging.CarbonMessage;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routes requests to the resources of the APIs deployed in the gateway, setting the {@code VerbInfoDTO} of the
+ * matched resource on the message.
+ * <p>
+ * Requests are matched against an immutable {@link ResourceTrie} without locking. When an API is deployed its
+ * resources are retrieved from API Manager core and the trie is rebuilt on the resource router thread, then swapped
+ * in. An undeployed API is removed and the trie is rebuilt the same way. Deployments queued while the router thread is
+ * busy are applied together with a single rebuild.
+ */
+public class ResourceRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(ResourceRouter.class);
+    private static final char DELIMITER = '@';
+    private static ResourceRouter instance = new ResourceRouter();
+
+    private final ResourceRetrievalClient resourceRetrievalClient;
+    // Only accessed by the router thread. key: /API_CONTEXT@API_VERSION
+    private final Map<String, DeployedAPI> deployedAPIs = new LinkedHashMap<>();
+    private final ThreadPoolExecutor routerExecutor;
+    private volatile ResourceTrie resourceTrie = ResourceTrie.EMPTY;
+
+    private ResourceRouter() {
+        this(new ResourceRetrievalClient());
+    }
+
+    ResourceRouter(ResourceRetrievalClient resourceRetrievalClient) {
+        this.resourceRetrievalClient = resourceRetrievalClient;
+        // Not the shared task scheduler, since loading resources blocks on API Manager core
+        this.routerExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("apim-resource-router-%d").setDaemon(true).build());
+    }
+
+    public static ResourceRouter getInstance() {
+        return instance;
+    }
+
+    /**
+     * Applies the given configuration, loading the resources of all deployed APIs if preloading is enabled.
+     *
+     * @param configuration resource configuration
+     */
+    public void init(ResourceConfiguration configuration) {
+        if (configuration.isPreloadEnabled()) {
+            routerExecutor.execute(() -> loadAPIs(configuration.getGatewayLabels(), configuration.getApiStatus()));
+        }
+    }
+
+    /**
+     * Loads the resources of a deployed API in the background. Requests to the API are routed once its resources
+     * are loaded.
+     *
+     * @param apiContext context of the API
+     * @param apiVersion version of the API
+     */
+    public void deployAPI(String apiContext, String apiVersion) {
+        routerExecutor.execute(() -> {
+            try {
+                loadAPI(apiContext, apiVersion);
+            } catch (RuntimeException e) {
+                log.error("Error while loading resources of API " + apiContext + ":" + apiVersion, e);
+            }
+            rebuildIfIdle();
+        });
+    }
+
+    /**
+     * Stops routing requests to an API in the background, once it is deleted or undeployed from the gateway.
+     *
+     * @param apiContext context of the API
+     * @param apiVersion version of the API
+     */
+    public void undeployAPI(String apiContext, String apiVersion) {
+        routerExecutor.execute(() -> {
+            if (deployedAPIs.remove(getKey(apiContext, apiVersion)) != null) {
+                log.info("Removed resources of API " + apiContext + ":" + apiVersion);
+            }
+            // Rebuilt even if the API was not deployed, since an earlier deployment may have left the rebuild to this
+            rebuildIfIdle();
+        });
+    }
+
+    /**
+     * Resolves the resource of a request and sets its {@code VerbInfoDTO}, API context and API version on the
+     * message.
+     *
+     * @param carbonMessage request
+     * @return whether a resource matched the request
+     */
+    public boolean route(CarbonMessage carbonMessage) {
+        Object path = carbonMessage.getProperty(GatewayConstants.REST_FULL_REQUEST_PATH);
+        Object httpVerb = carbonMessage.getProperty(GatewayConstants.HTTP_METHOD);
+        if (!(path instanceof String) || !(httpVerb instanceof String)) {
+            return false;
+        }
+        ResourceTrie.Resource resource = resourceTrie.match((String) path, (String) httpVerb);
+        if (resource == null) {
+            if (log.isDebugEnabled()) {
+                log.debug("No resource found for " + httpVerb + " " + path);
+            }
+            return false;
+        }
+        carbonMessage.setProperty(APIThrottleConstants.VERB_INFO_DTO, resource.getVerbInfo((String) httpVerb));
+        carbonMessage.setProperty(GatewayConstants.REST_API_CONTEXT, resource.getApiContext());
+        carbonMessage.setProperty(GatewayConstants.REST_API_VERSION, resource.getApiVersion());
+        return true;
+    }
+
+    /**
+     * @return trie of the resources currently routed
+     */
+    public ResourceTrie getResourceTrie() {
+        return resourceTrie;
+    }
+
+    private void loadAPIs(String labels, String status) {
+        try {
+            List<APIInfoDTO> apis = resourceRetrievalClient.loadAPIs(labels, status).getApis();
+            for (APIInfoDTO api : apis) {
+                loadAPI(api.getContext(), api.getVersion());
+            }
+        } catch (RuntimeException e) {
+            log.error("Error while loading resources of the APIs deployed in gateways " + labels, e);
+        }
+        rebuildIfIdle();
+    }
+
+    private void loadAPI(String apiContext, String apiVersion) {
+        List<UriTemplateDTO> resources = resourceRetrievalClient.loadResourcesOfApi(apiContext, apiVersion)
+                .getResources();
+        deployedAPIs.put(getKey(apiContext, apiVersion), new DeployedAPI(apiContext, apiVersion, resources));
+        if (log.isDebugEnabled()) {
+            log.debug("Loaded " + resources.size() + " resources of API " + apiContext + ":" + apiVersion);
+        }
+    }
+
+    private static String getKey(String apiContext, String apiVersion) {
+        return (apiContext.startsWith("/") ? apiContext : "/" + apiContext) + DELIMITER + apiVersion;
+    }
+
+    /**
+     * Rebuilds the trie unless another deployment is queued, in which case that deployment rebuilds it.
+     */
+    private void rebuildIfIdle() {
+        if (!routerExecutor.getQueue().isEmpty()) {
+            return;
+        }
+        long startTime = System.nanoTime();
+        ResourceTrie.Builder builder = new ResourceTrie.Builder();
+        for (DeployedAPI api : deployedAPIs.values()) {
+            for (UriTemplateDTO resource : api.resources) {
+                if (resource.getHttpVerb() != null) {
+                    builder.add(api.apiContext, api.apiVersion, resource);
+                }
+            }
+        }
+        ResourceTrie trie = builder.build();
+        resourceTrie = trie;
+        log.info("Routing " + trie.size() + " resources of " + deployedAPIs.size() + " APIs. Built in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + " ms");
+    }
+
+    private static final class DeployedAPI {
+
+        private final String apiContext;
+        private final String apiVersion;
+        private final List<UriTemplateDTO> resources;
+
+        private DeployedAPI(String apiContext, String apiVersion, List<UriTemplateDTO> resources) {
+            this.apiContext = apiContext;
+            this.apiVersion = apiVersion;
+            this.resources = resources;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.resource;
+
+import org.wso2.carbon.apimgt.gateway.throttling.dto.VerbInfoDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable radix trie of the resources of the APIs deployed in the gateway, matching request paths without regular
+ * expressions.
+ * <p>
+ * The full template of a resource is {@code /{context}/{version}{uriTemplate}}. Static parts of the templates are
+ * stored as compressed prefixes, so a request path is matched in a single walk over its characters. A path parameter
+ * such as {@code {petId}} matches one or more characters other than {@code /}, and a template ending with {@code /*}
+ * matches its base path and any path below it. Static characters take precedence over path parameters, which take
+ * precedence over {@code /*} templates; the walk backtracks only when a more specific branch does not lead to a
+ * resource of the requested HTTP verb. Query strings and trailing slashes of request paths are ignored.
+ * <p>
+ * Tries are built with a {@link Builder} and are safe to share between threads once built.
+ */
+public final class ResourceTrie {
+
+    public static final ResourceTrie EMPTY = new Builder().build();
+
+    private static final String WILDCARD_SUFFIX = "/*";
+
+    private final Node root;
+    private final int resourceCount;
+
+    private ResourceTrie(Node root, int resourceCount) {
+        this.root = root;
+        this.resourceCount = resourceCount;
+    }
+
+    /**
+     * @return number of resources in the trie, counting each HTTP verb of a template once
+     */
+    public int size() {
+        return resourceCount;
+    }
+
+    /**
+     * Finds the resource matching a request.
+     *
+     * @param path     request path, including the API context and version. May include a query string
+     * @param httpVerb HTTP verb of the request
+     * @return matching resource, which has a {@link VerbInfoDTO} for the given verb, or null if no resource matches
+     */
+    public Resource match(String path, String httpVerb) {
+        if (path == null || httpVerb == null) {
+            return null;
+        }
+        int end = path.indexOf('?');
+        if (end < 0) {
+            end = path.length();
+        }
+        while (end > 1 && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        return match(root, path, 0, end, httpVerb);
+    }
+
+    private static Resource match(Node node, String path, int position, int end, String httpVerb) {
+        char[] prefix = node.prefix;
+        if (end - position < prefix.length) {
+            return null;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (path.charAt(position + i) != prefix[i]) {
+                return null;
+            }
+        }
+        position += prefix.length;
+        if (position == end) {
+            if (node.resource != null && node.resource.getVerbInfo(httpVerb) != null) {
+                return node.resource;
+            }
+        } else {
+            char next = path.charAt(position);
+            char[] indices = node.indices;
+            for (int i = 0; i < indices.length; i++) {
+                if (indices[i] == next) {
+                    Resource resource = match(node.children[i], path, position, end, httpVerb);
+                    if (resource != null) {
+                        return resource;
+                    }
+                    break;
+                }
+            }
+            if (node.parameter != null && next != '/') {
+                int segmentEnd = path.indexOf('/', position);
+                if (segmentEnd < 0 || segmentEnd > end) {
+                    segmentEnd = end;
+                }
+                // Parameters usually span the whole segment, so the longest match is tried first
+                for (int parameterEnd = segmentEnd; parameterEnd > position; parameterEnd--) {
+                    Resource resource = match(node.parameter, path, parameterEnd, end, httpVerb);
+                    if (resource != null) {
+                        return resource;
+                    }
+                }
+            }
+        }
+        if (node.wildcard != null && (position == end || path.charAt(position) == '/')
+                && node.wildcard.getVerbInfo(httpVerb) != null) {
+            return node.wildcard;
+        }
+        return null;
+    }
+
+    /**
+     * Resource of an API, holding the resolved {@link VerbInfoDTO} of each HTTP verb of its URI template. The
+     * {@link VerbInfoDTO}s are built once with the trie and must not be modified.
+     */
+    public static final class Resource {
+
+        private final String apiContext;
+        private final String apiVersion;
+        private final String uriTemplate;
+        private final String[] httpVerbs;
+        private final VerbInfoDTO[] verbInfos;
+
+        private Resource(String apiContext, String apiVersion, String uriTemplate, Map<String, VerbInfoDTO> verbs) {
+            this.apiContext = apiContext;
+            this.apiVersion = apiVersion;
+            this.uriTemplate = uriTemplate;
+            this.httpVerbs = verbs.keySet().toArray(new String[verbs.size()]);
+            this.verbInfos = verbs.values().toArray(new VerbInfoDTO[verbs.size()]);
+        }
+
+        public String getApiContext() {
+            return apiContext;
+        }
+
+        public String getApiVersion() {
+            return apiVersion;
+        }
+
+        public String getUriTemplate() {
+            return uriTemplate;
+        }
+
+        /**
+         * @param httpVerb HTTP verb of the request
+         * @return resource information of the given verb, or null if the resource does not accept the verb
+         */
+        public VerbInfoDTO getVerbInfo(String httpVerb) {
+            for (int i = 0; i < httpVerbs.length; i++) {
+                if (httpVerbs[i].equals(httpVerb)) {
+                    return verbInfos[i];
+                }
+            }
+            for (int i = 0; i < httpVerbs.length; i++) {
+                if (httpVerbs[i].equalsIgnoreCase(httpVerb)) {
+                    return verbInfos[i];
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Node of a built trie. The prefix is matched when the node is entered. Static children are selected by the
+     * first character of their prefix.
+     */
+    private static final class Node {
+
+        private final char[] prefix;
+        private final char[] indices;
+        private final Node[] children;
+        private final Node parameter;
+        private final Resource resource;
+        private final Resource wildcard;
+
+        private Node(char[] prefix, char[] indices, Node[] children, Node parameter, Resource resource,
+                     Resource wildcard) {
+            this.prefix = prefix;
+            this.indices = indices;
+            this.children = children;
+            this.parameter = parameter;
+            this.resource = resource;
+            this.wildcard = wildcard;
+        }
+    }
+
+    /**
+     * Collects resources and builds a trie. Builders are not thread safe.
+     */
+    public static final class Builder {
+
+        // Held by the builder, since the outer class builds EMPTY before its own constants are initialized
+        private static final char[] NO_CHARS = new char[0];
+        private static final Node[] NO_NODES = new Node[0];
+
+        private final BuilderNode root = new BuilderNode();
+        private int resourceCount;
+
+        /**
+         * Adds a resource of an API. Resources of the same template with different HTTP verbs share a
+         * {@link Resource}. A later resource with the same template and verb replaces an earlier one.
+         *
+         * @param apiContext  context of the API
+         * @param apiVersion  version of the API
+         * @param uriTemplate resource of the API
+         * @return this builder
+         */
+        public Builder add(String apiContext, String apiVersion, UriTemplateDTO uriTemplate) {
+            String template = uriTemplate.getUriTemplate() != null ? uriTemplate.getUriTemplate() : "/";
+            int queryStart = template.indexOf('?');
+            if (queryStart >= 0) {
+                template = template.substring(0, queryStart);
+            }
+            String context = apiContext.startsWith("/") ? apiContext : "/" + apiContext;
+            String path = context + "/" + apiVersion + (template.startsWith("/") ? "" : "/") + template;
+            boolean wildcard = path.endsWith(WILDCARD_SUFFIX);
+            if (wildcard) {
+                path = path.substring(0, path.length() - WILDCARD_SUFFIX.length());
+            }
+            int end = path.length();
+            while (end > 1 && path.charAt(end - 1) == '/') {
+                end--;
+            }
+
+            BuilderNode node = root;
+            for (int i = 0; i < end; i++) {
+                char c = path.charAt(i);
+                int parameterEnd = c == '{' ? path.indexOf('}', i) : -1;
+                if (parameterEnd > i && parameterEnd < end) {
+                    if (node.parameter == null) {
+                        node.parameter = new BuilderNode();
+                    }
+                    node = node.parameter;
+                    i = parameterEnd;
+                } else {
+                    node = node.children.computeIfAbsent(c, key -> new BuilderNode());
+                }
+            }
+
+            String httpVerb = uriTemplate.getHttpVerb().toUpperCase(Locale.ENGLISH);
+            VerbInfoDTO verbInfo = new VerbInfoDTO();
+            verbInfo.setHttpVerb(httpVerb);
+            verbInfo.setAuthType(uriTemplate.getAuthType());
+            verbInfo.setThrottling(uriTemplate.getPolicy());
+            verbInfo.setProductionEndpointId(uriTemplate.getProductionEndpoint());
+            verbInfo.setSandboxEndpointId(uriTemplate.getSandboxEndpoint());
+            // Resource level throttle key, {apiContext}/{apiVersion}{resourceUri}:{httpMethod}
+            verbInfo.setRequestKey(apiContext + "/" + apiVersion + uriTemplate.getUriTemplate() + ":" + httpVerb);
+
+            BuilderResource resource = wildcard ? node.wildcard : node.resource;
+            if (resource == null) {
+                resource = new BuilderResource(apiContext, apiVersion, uriTemplate.getUriTemplate());
+                if (wildcard) {
+                    node.wildcard = resource;
+                } else {
+                    node.resource = resource;
+                }
+            }
+            if (resource.verbs.put(httpVerb, verbInfo) == null) {
+                resourceCount++;
+            }
+            return this;
+        }
+
+        /**
+         * @return trie of the resources added so far
+         */
+        public ResourceTrie build() {
+            return new ResourceTrie(compile(root, new StringBuilder()), resourceCount);
+        }
+
+        private static Node compile(BuilderNode node, StringBuilder prefix) {
+            // Chains of nodes with a single static child are merged into the prefix of a single node
+            while (node.children.size() == 1 && node.parameter == null && node.resource == null
+                    && node.wildcard == null) {
+                Map.Entry<Character, BuilderNode> child = node.children.firstEntry();
+                prefix.append(child.getKey().charValue());
+                node = child.getValue();
+            }
+            char[] indices = NO_CHARS;
+            Node[] children = NO_NODES;
+            if (!node.children.isEmpty()) {
+                indices = new char[node.children.size()];
+                List<Node> compiled = new ArrayList<>(node.children.size());
+                int i = 0;
+                for (Map.Entry<Character, BuilderNode> child : node.children.entrySet()) {
+                    indices[i++] = child.getKey();
+                    compiled.add(compile(child.getValue(), new StringBuilder().append(child.getKey().charValue())));
+                }
+                children = compiled.toArray(new Node[compiled.size()]);
+            }
+            Node parameter = node.parameter != null ? compile(node.parameter, new StringBuilder()) : null;
+            return new Node(prefix.toString().toCharArray(), indices, children, parameter,
+                    node.resource != null ? node.resource.build() : null,
+                    node.wildcard != null ? node.wildcard.build() : null);
+        }
+    }
+
+    private static final class BuilderNode {
+
+        private final TreeMap<Character, BuilderNode> children = new TreeMap<>();
+        private BuilderNode parameter;
+        private BuilderResource resource;
+        private BuilderResource wildcard;
+    }
+
+    private static final class BuilderResource {
+
+        private final String apiContext;
+        private final String apiVersion;
+        private final String uriTemplate;
+        private final Map<String, VerbInfoDTO> verbs = new TreeMap<>();
+
+        private BuilderResource(String apiContext, String apiVersion, String uriTemplate) {
+            this.apiContext = apiContext;
+            this.apiVersion = apiVersion;
+            this.uriTemplate = uriTemplate;
+        }
+
+        private Resource build() {
+            return new Resource(apiContext, apiVersion, uriTemplate, verbs);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.resource;
+
+/**
+ * Model for a resource of an API, as returned by the resources API of API Manager core
+ */
+public class UriTemplateDTO {
+
+    private String uriTemplate;
+    private String httpVerb;
+    private String authType;
+    private String policy;
+    private String productionEndpoint;
+    private String sandboxEndpoint;
+
+    public String getUriTemplate() {
+        return uriTemplate;
+    }
+
+    public void setUriTemplate(String uriTemplate) {
+        this.uriTemplate = uriTemplate;
+    }
+
+    public String getHttpVerb() {
+        return httpVerb;
+    }
+
+    public void setHttpVerb(String httpVerb) {
+        this.httpVerb = httpVerb;
+    }
+
+    public String getAuthType() {
+        return authType;
+    }
+
+    public void setAuthType(String authType) {
+        this.authType = authType;
+    }
+
+    public String getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(String policy) {
+        this.policy = policy;
+    }
+
+    public String getProductionEndpoint() {
+        return productionEndpoint;
+    }
+
+    public void setProductionEndpoint(String productionEndpoint) {
+        this.productionEndpoint = productionEndpoint;
+    }
+
+    public String getSandboxEndpoint() {
+        return sandboxEndpoint;
+    }
+
+    public void setSandboxEndpoint(String sandboxEndpoint) {
+        this.sandboxEndpoint = sandboxEndpoint;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.apimgt.gateway.exception.APIKeyMgtException;
+import org.wso2.carbon.apimgt.gateway.utils.KeyManagerConstants;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * RSA public keys used to verify the signatures of JWT access tokens, loaded once from a key store. Keys are
+ * identified by the alias of their certificate, which is matched against the key id (kid) of a token.
+ */
+public class JWTKeySet {
+
+    private static final Logger log = LoggerFactory.getLogger(JWTKeySet.class);
+
+    private final Map<String, RSAPublicKey> keys;
+
+    /**
+     * @param keys RSA public keys by their key id
+     */
+    public JWTKeySet(Map<String, RSAPublicKey> keys) {
+        this.keys = Collections.unmodifiableMap(keys);
+    }
+
+    /**
+     * Loads the RSA public keys of all certificates in a key store.
+     *
+     * @param keyStorePath     path of the key store. The trust store of the server is used if empty
+     * @param keyStorePassword password of the key store. The trust store password of the server is used if empty
+     * @return key set
+     * @throws APIKeyMgtException if the key store could not be read
+     */
+    public static JWTKeySet load(String keyStorePath, String keyStorePassword) throws APIKeyMgtException {
+        String path = keyStorePath;
+        String password = keyStorePassword;
+        if (path == null || path.isEmpty()) {
+            path = System.getProperty("javax.net.ssl.trustStore");
+            if (password == null || password.isEmpty()) {
+                password = System.getProperty("javax.net.ssl.trustStorePassword");
+            }
+        }
+        if (path == null || path.isEmpty()) {
+            throw new APIKeyMgtException(KeyManagerConstants.KeyValidationStatus.API_AUTH_GENERAL_ERROR,
+                    "No trust store is configured to verify JWT access tokens");
+        }
+        Map<String, RSAPublicKey> keys = new HashMap<>();
+        try (InputStream inputStream = new FileInputStream(path)) {
+            KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+            keyStore.load(inputStream, password != null ? password.toCharArray() : null);
+            Enumeration<String> aliases = keyStore.aliases();
+            while (aliases.hasMoreElements()) {
+                String alias = aliases.nextElement();
+                Certificate certificate = keyStore.getCertificate(alias);
+                PublicKey publicKey = certificate != null ? certificate.getPublicKey() : null;
+                if (publicKey instanceof RSAPublicKey) {
+                    keys.put(alias, (RSAPublicKey) publicKey);
+                }
+            }
+        } catch (IOException | GeneralSecurityException e) {
+            throw new APIKeyMgtException("Error while loading JWT verification keys from " + path, e);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Loaded " + keys.size() + " JWT verification keys from " + path);
+        }
+        return new JWTKeySet(keys);
+    }
+
+    /**
+     * @param keyId key id of a token
+     * @return key with the given id, or null if there is no such key
+     */
+    public RSAPublicKey getKey(String keyId) {
+        RSAPublicKey key = keys.get(keyId);
+        // Aliases of JKS key stores are lower case
+        return key != null ? key : keys.get(keyId.toLowerCase(Locale.ENGLISH));
+    }
+
+    public Collection<RSAPublicKey> getKeys() {
+        return keys.values();
+    }
+}
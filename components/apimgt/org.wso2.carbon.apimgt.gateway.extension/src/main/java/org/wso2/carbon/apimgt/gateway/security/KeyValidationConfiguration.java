@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.security;
+
+import org.wso2.carbon.kernel.annotations.Configuration;
+import org.wso2.carbon.kernel.annotations.Element;
+
+/**
+ * This class is used to keep the access token validation related configurations of the gateway
+ */
+@Configuration(namespace = "wso2.carbon.apim.keyvalidation", description = "APIM Gateway Key Validation Configurations")
+public class KeyValidationConfiguration {
+
+    @Element(description = "class name of the key validation handler. "
+            + "org.wso2.carbon.apimgt.gateway.security.handlers.JWTKeyValidationHandler validates self-contained JWT "
+            + "access tokens locally, without calling the key manager")
+    private String keyValidationHandler =
+            "org.wso2.carbon.apimgt.gateway.security.handlers.DefaultKeyValidationHandler";
+    @Element(description = "enable caching of token introspection results")
+    private boolean tokenCacheEnabled = true;
+    @Element(description = "maximum number of access tokens kept in the token cache")
+    private int tokenCacheCapacity = 10000;
+    @Element(description = "maximum time in seconds a valid token is cached. Tokens are never cached beyond their "
+            + "expiry time")
+    private long tokenCacheExpiry = 900;
+    @Element(description = "time in seconds an invalid token is cached")
+    private long invalidTokenCacheExpiry = 30;
+    @Element(description = "token introspection endpoint of the key manager. Overridden by the introspectEndpoint "
+            + "system property")
+    private String introspectEndpoint = "http://localhost:9763/oauth2/introspect";
+    @Element(description = "maximum number of concurrent connections to the introspection endpoint")
+    private int introspectMaxConnections = 20;
+    @Element(description = "time in milliseconds to wait for a connection to the introspection endpoint")
+    private int introspectConnectTimeout = 2000;
+    @Element(description = "time in milliseconds to wait for a response from the introspection endpoint")
+    private int introspectReadTimeout = 5000;
+    @Element(description = "maximum number of times a failed introspection call is retried")
+    private int introspectMaxRetries = 2;
+    @Element(description = "ratio of retries to introspection calls allowed. Retries exceeding the budget are not "
+            + "attempted")
+    private double introspectRetryBudgetRatio = 0.1;
+    @Element(description = "number of consecutive failed introspection calls after which calls are rejected "
+            + "without contacting the endpoint")
+    private int circuitBreakerFailureThreshold = 5;
+    @Element(description = "time in milliseconds introspection calls are rejected before the endpoint is tried again")
+    private long circuitBreakerOpenTime = 10000;
+    @Element(description = "key store holding the certificates of the key managers signing JWT access tokens. The "
+            + "trust store of the server is used if not set")
+    private String jwtTrustStorePath = "";
+    @Element(description = "password of the JWT trust store")
+    private String jwtTrustStorePassword = "";
+    @Element(description = "expected issuer of JWT access tokens. Any issuer is accepted if not set")
+    private String jwtIssuer = "";
+    @Element(description = "allowed clock skew in seconds when checking the expiry and not before times of JWT "
+            + "access tokens")
+    private long jwtClockSkew = 60;
+
+    public String getKeyValidationHandler() {
+        return keyValidationHandler;
+    }
+
+    public void setKeyValidationHandler(String keyValidationHandler) {
+        this.keyValidationHandler = keyValidationHandler;
+    }
+
+    public boolean isTokenCacheEnabled() {
+        return tokenCacheEnabled;
+    }
+
+    public void setTokenCacheEnabled(boolean tokenCacheEnabled) {
+        this.tokenCacheEnabled = tokenCacheEnabled;
+    }
+
+    public int getTokenCacheCapacity() {
+        return tokenCacheCapacity;
+    }
+
+    public void setTokenCacheCapacity(int tokenCacheCapacity) {
+        this.tokenCacheCapacity = tokenCacheCapacity;
+    }
+
+    public long getTokenCacheExpiry() {
+        return tokenCacheExpiry;
+    }
+
+    public void setTokenCacheExpiry(long tokenCacheExpiry) {
+        this.tokenCacheExpiry = tokenCacheExpiry;
+    }
+
+    public long getInvalidTokenCacheExpiry() {
+        return invalidTokenCacheExpiry;
+    }
+
+    public void setInvalidTokenCacheExpiry(long invalidTokenCacheExpiry) {
+        this.invalidTokenCacheExpiry = invalidTokenCacheExpiry;
+    }
+
+    public String getIntrospectEndpoint() {
+        return introspectEndpoint;
+    }
+
+    public void setIntrospectEndpoint(String introspectEndpoint) {
+        this.introspectEndpoint = introspectEndpoint;
+    }
+
+    public int getIntrospectMaxConnections() {
+        return introspectMaxConnections;
+    }
+
+    public void setIntrospectMaxConnections(int introspectMaxConnections) {
+        this.introspectMaxConnections = introspectMaxConnections;
+    }
+
+    public int getIntrospectConnectTimeout() {
+        return introspectConnectTimeout;
+    }
+
+    public void setIntrospectConnectTimeout(int introspectConnectTimeout) {
+        this.introspectConnectTimeout = introspectConnectTimeout;
+    }
+
+    public int getIntrospectReadTimeout() {
+        return introspectReadTimeout;
+    }
+
+    public void setIntrospectReadTimeout(int introspectReadTimeout) {
+        this.introspectReadTimeout = introspectReadTimeout;
+    }
+
+    public int getIntrospectMaxRetries() {
+        return introspectMaxRetries;
+    }
+
+    public void setIntrospectMaxRetries(int introspectMaxRetries) {
+        this.introspectMaxRetries = introspectMaxRetries;
+    }
+
+    public double getIntrospectRetryBudgetRatio() {
+        return introspectRetryBudgetRatio;
+    }
+
+    public void setIntrospectRetryBudgetRatio(double introspectRetryBudgetRatio) {
+        this.introspectRetryBudgetRatio = introspectRetryBudgetRatio;
+    }
+
+    public int getCircuitBreakerFailureThreshold() {
+        return circuitBreakerFailureThreshold;
+    }
+
+    public void setCircuitBreakerFailureThreshold(int circuitBreakerFailureThreshold) {
+        this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+    }
+
+    public long getCircuitBreakerOpenTime() {
+        return circuitBreakerOpenTime;
+    }
+
+    public void setCircuitBreakerOpenTime(long circuitBreakerOpenTime) {
+        this.circuitBreakerOpenTime = circuitBreakerOpenTime;
+    }
+
+    public String getJwtTrustStorePath() {
+        return jwtTrustStorePath;
+    }
+
+    public void setJwtTrustStorePath(String jwtTrustStorePath) {
+        this.jwtTrustStorePath = jwtTrustStorePath;
+    }
+
+    public String getJwtTrustStorePassword() {
+        return jwtTrustStorePassword;
+    }
+
+    public void setJwtTrustStorePassword(String jwtTrustStorePassword) {
+        this.jwtTrustStorePassword = jwtTrustStorePassword;
+    }
+
+    public String getJwtIssuer() {
+        return jwtIssuer;
+    }
+
+    public void setJwtIssuer(String jwtIssuer) {
+        this.jwtIssuer = jwtIssuer;
+    }
+
+    public long getJwtClockSkew() {
+        return jwtClockSkew;
+    }
+
+    public void setJwtClockSkew(long jwtClockSkew) {
+        this.jwtClockSkew = jwtClockSkew;
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.security;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.apimgt.gateway.exception.APIKeyMgtException;
+import org.wso2.carbon.apimgt.gateway.internal.ServiceReferenceHolder;
+import org.wso2.carbon.apimgt.gateway.models.AccessTokenInfo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caches the validation results of access tokens, so that a token is introspected once instead of on every request.
+ * <p>
+ * Tokens are keyed by their SHA-256 hash. A valid token is cached for the configured expiry, but never beyond the
+ * expiry time of the token itself. Invalid tokens are cached for a short time, so that repeated requests with the
+ * same invalid token do not reach the key manager. Concurrent requests with a token which is not cached wait for a
+ * single validation. Cached results are shared between requests and must not be modified.
+ */
+public class TokenInfoCache {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenInfoCache.class);
+    private static final TokenInfoCache instance = new TokenInfoCache();
+
+    private volatile Cache<String, Entry> cache;
+    // Asynchronous validations in progress, joined by concurrent requests with the same token
+    private final Map<String, CompletableFuture<AccessTokenInfo>> pendingValidations = new ConcurrentHashMap<>();
+    private volatile boolean enabled;
+    private volatile long expiryMillis;
+    private volatile long invalidTokenExpiryMillis;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong invalidTokenHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revocations = new AtomicLong();
+
+    private TokenInfoCache() {
+        init(ServiceReferenceHolder.getInstance().getKeyValidationConfiguration());
+    }
+
+    public static TokenInfoCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Applies the given configuration. Tokens cached so far are discarded.
+     *
+     * @param configuration key validation configuration
+     */
+    public synchronized void init(KeyValidationConfiguration configuration) {
+        enabled = configuration.isTokenCacheEnabled();
+        expiryMillis = TimeUnit.SECONDS.toMillis(configuration.getTokenCacheExpiry());
+        invalidTokenExpiryMillis = TimeUnit.SECONDS.toMillis(configuration.getInvalidTokenCacheExpiry());
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(configuration.getTokenCacheCapacity())
+                .expireAfterWrite(Math.max(expiryMillis, invalidTokenExpiryMillis), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Returns the cached validation result of a token, validating the token with the given validator if it is not
+     * cached.
+     *
+     * @param accessToken access token
+     * @param validator   validates the token when it is not cached. Failures are not cached.
+     * @return validation result of the token
+     * @throws APIKeyMgtException if the token could not be validated
+     */
+    public AccessTokenInfo getTokenInfo(String accessToken, Callable<AccessTokenInfo> validator)
+            throws APIKeyMgtException {
+        if (!enabled) {
+            return call(validator);
+        }
+        String key = hash(accessToken);
+        Cache<String, Entry> currentCache = cache;
+        Entry entry = currentCache.getIfPresent(key);
+        long now = System.currentTimeMillis();
+        if (entry != null) {
+            if (entry.expiryTime > now) {
+                recordHit(entry.tokenInfo);
+                return entry.tokenInfo;
+            }
+            currentCache.asMap().remove(key, entry);
+        }
+        // Set when this request validated the token, as opposed to waiting for a concurrent validation
+        boolean[] validated = new boolean[1];
+        try {
+            entry = currentCache.get(key, () -> {
+                validated[0] = true;
+                misses.incrementAndGet();
+                AccessTokenInfo tokenInfo = validator.call();
+                return new Entry(tokenInfo, getExpiryTime(tokenInfo, System.currentTimeMillis()));
+            });
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof APIKeyMgtException) {
+                throw (APIKeyMgtException) cause;
+            }
+            throw new APIKeyMgtException("Error while validating access token", cause);
+        }
+        if (!validated[0]) {
+            recordHit(entry.tokenInfo);
+        }
+        return entry.tokenInfo;
+    }
+
+    /**
+     * Returns the cached validation result of a token, validating the token asynchronously with the given validator
+     * if it is not cached.
+     *
+     * @param accessToken access token
+     * @param validator   starts the validation of the token when it is not cached. Failures are not cached.
+     * @return future completed with the validation result of the token
+     */
+    public CompletableFuture<AccessTokenInfo> getTokenInfoAsync(
+            String accessToken, Supplier<CompletableFuture<AccessTokenInfo>> validator) {
+        if (!enabled) {
+            return validator.get();
+        }
+        String key = hash(accessToken);
+        Cache<String, Entry> currentCache = cache;
+        Entry entry = currentCache.getIfPresent(key);
+        if (entry != null) {
+            if (entry.expiryTime > System.currentTimeMillis()) {
+                recordHit(entry.tokenInfo);
+                return CompletableFuture.completedFuture(entry.tokenInfo);
+            }
+            currentCache.asMap().remove(key, entry);
+        }
+        CompletableFuture<AccessTokenInfo> validation = new CompletableFuture<>();
+        CompletableFuture<AccessTokenInfo> pending = pendingValidations.putIfAbsent(key, validation);
+        if (pending != null) {
+            return pending.thenApply(tokenInfo -> {
+                recordHit(tokenInfo);
+                return tokenInfo;
+            });
+        }
+        misses.incrementAndGet();
+        CompletableFuture<AccessTokenInfo> result;
+        try {
+            result = validator.get();
+        } catch (RuntimeException e) {
+            result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+        }
+        result.whenComplete((tokenInfo, e) -> {
+            if (e == null) {
+                // Cached before the pending validation is removed, so that later requests find the result
+                currentCache.put(key, new Entry(tokenInfo, getExpiryTime(tokenInfo, System.currentTimeMillis())));
+            }
+            pendingValidations.remove(key, validation);
+            if (e == null) {
+                validation.complete(tokenInfo);
+            } else {
+                validation.completeExceptionally(e instanceof CompletionException && e.getCause() != null
+                        ? e.getCause() : e);
+            }
+        });
+        return validation;
+    }
+
+    /**
+     * Removes a token from the cache, so that it is validated again on its next use. Called when a token is revoked.
+     *
+     * @param accessToken access token
+     */
+    public void revoke(String accessToken) {
+        cache.invalidate(hash(accessToken));
+        revocations.incrementAndGet();
+        if (log.isDebugEnabled()) {
+            log.debug("Removed revoked access token from the token cache");
+        }
+    }
+
+    /**
+     * Removes all tokens from the cache.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return number of requests served from the cache with a valid token
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of requests served from the cache with an invalid token
+     */
+    public long getInvalidTokenHitCount() {
+        return invalidTokenHits.get();
+    }
+
+    /**
+     * @return number of tokens validated because they were not cached
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getRevocationCount() {
+        return revocations.get();
+    }
+
+    /**
+     * @return ratio of the requests served from the cache, or 1 if there was no request
+     */
+    public double getHitRatio() {
+        long cacheHits = hits.get() + invalidTokenHits.get();
+        long requests = cacheHits + misses.get();
+        return requests == 0 ? 1.0 : (double) cacheHits / requests;
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    private void recordHit(AccessTokenInfo tokenInfo) {
+        (tokenInfo.isTokenValid() ? hits : invalidTokenHits).incrementAndGet();
+    }
+
+    private long getExpiryTime(AccessTokenInfo tokenInfo, long now) {
+        if (!tokenInfo.isTokenValid()) {
+            return now + invalidTokenExpiryMillis;
+        }
+        // Validity period holds the expiry time of the token in milliseconds
+        long tokenExpiryTime = tokenInfo.getValidityPeriod();
+        long expiryTime = now + expiryMillis;
+        return tokenExpiryTime > 0 && tokenExpiryTime < expiryTime ? tokenExpiryTime : expiryTime;
+    }
+
+    private static AccessTokenInfo call(Callable<AccessTokenInfo> validator) throws APIKeyMgtException {
+        try {
+            return validator.call();
+        } catch (APIKeyMgtException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new APIKeyMgtException("Error while validating access token", e);
+        }
+    }
+
+    private static String hash(String accessToken) {
+        return Hashing.sha256().hashString(accessToken, StandardCharsets.UTF_8).toString();
+    }
+
+    private static final class Entry {
+        private final AccessTokenInfo tokenInfo;
+        private final long expiryTime;
+
+        private Entry(AccessTokenInfo tokenInfo, long expiryTime) {
+            this.tokenInfo = tokenInfo;
+            this.expiryTime = expiryTime;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.security;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.apimgt.gateway.exception.APIKeyMgtException;
+import org.wso2.carbon.apimgt.gateway.models.AccessTokenInfo;
+import org.wso2.carbon.apimgt.gateway.utils.CircuitBreaker;
+import org.wso2.carbon.apimgt.gateway.utils.KeyManagerConstants;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client of the token introspection endpoint of the key manager, shared by all key validation handlers.
+ * <p>
+ * Connections are kept alive and reused between calls; responses are always read fully and the connection is never
+ * disconnected, so that it goes back to the keep-alive cache of the JDK. The number of concurrent connections to the
+ * endpoint is limited. Calls failing with an I/O error or a server error are retried, as long as retries stay within
+ * a budget relative to the number of calls, so that retries do not multiply the load on a struggling key manager.
+ * When the endpoint keeps failing, a circuit breaker rejects calls without contacting it for a while.
+ */
+public class TokenIntrospectionClient {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenIntrospectionClient.class);
+    private static final int PENDING_CALLS_PER_CONNECTION = 100;
+
+    private final URL endpoint;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final int maxRetries;
+    private final Semaphore connections;
+    private final RetryBudget retryBudget;
+    private final CircuitBreaker circuitBreaker;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong failedCalls = new AtomicLong();
+
+    public TokenIntrospectionClient(KeyValidationConfiguration configuration) {
+        String introspectEndpoint = System.getProperty("introspectEndpoint", configuration.getIntrospectEndpoint());
+        try {
+            endpoint = new URL(introspectEndpoint);
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Invalid token introspection endpoint : " + introspectEndpoint, e);
+        }
+        int maxConnections = Math.max(1, configuration.getIntrospectMaxConnections());
+        connectTimeout = configuration.getIntrospectConnectTimeout();
+        readTimeout = configuration.getIntrospectReadTimeout();
+        maxRetries = configuration.getIntrospectMaxRetries();
+        connections = new Semaphore(maxConnections);
+        retryBudget = new RetryBudget(configuration.getIntrospectRetryBudgetRatio());
+        circuitBreaker = new CircuitBreaker(introspectEndpoint, configuration.getCircuitBreakerFailureThreshold(),
+                configuration.getCircuitBreakerOpenTime());
+        executor = new ThreadPoolExecutor(maxConnections, maxConnections, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maxConnections * PENDING_CALLS_PER_CONNECTION),
+                new ThreadFactoryBuilder().setNameFormat("apim-token-introspection-%d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Introspects an access token in the calling thread.
+     *
+     * @param accessToken access token
+     * @return token details returned by the key manager
+     * @throws APIKeyMgtException if the token could not be introspected
+     */
+    public AccessTokenInfo introspect(String accessToken) throws APIKeyMgtException {
+        if (!circuitBreaker.tryAcquire()) {
+            throw new APIKeyMgtException(KeyManagerConstants.KeyValidationStatus.API_AUTH_GENERAL_ERROR,
+                    "Token introspection endpoint " + endpoint + " is unavailable");
+        }
+        calls.incrementAndGet();
+        retryBudget.deposit();
+        int attempt = 0;
+        while (true) {
+            try {
+                AccessTokenInfo tokenInfo = call(accessToken);
+                circuitBreaker.onSuccess();
+                return tokenInfo;
+            } catch (IOException e) {
+                if (attempt < maxRetries && retryBudget.tryWithdraw()) {
+                    attempt++;
+                    retries.incrementAndGet();
+                    if (log.isDebugEnabled()) {
+                        log.debug("Retrying token introspection call after failure : " + e.getMessage());
+                    }
+                    continue;
+                }
+                circuitBreaker.onFailure();
+                failedCalls.incrementAndGet();
+                String msg = "Error while connecting to token introspect endpoint.";
+                log.error(msg, e);
+                throw new APIKeyMgtException(msg, e);
+            } catch (APIKeyMgtException | RuntimeException e) {
+                // The endpoint responded, so it is available even though the call did not succeed
+                circuitBreaker.onSuccess();
+                failedCalls.incrementAndGet();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Introspects an access token without blocking the calling thread.
+     *
+     * @param accessToken access token
+     * @return future completed with the token details, or with an {@link APIKeyMgtException} if the token could not
+     * be introspected
+     */
+    public CompletableFuture<AccessTokenInfo> introspectAsync(String accessToken) {
+        CompletableFuture<AccessTokenInfo> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(introspect(accessToken));
+                } catch (APIKeyMgtException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            failedCalls.incrementAndGet();
+            future.completeExceptionally(new APIKeyMgtException(
+                    KeyManagerConstants.KeyValidationStatus.API_AUTH_GENERAL_ERROR,
+                    "Too many pending token introspection calls", e));
+        }
+        return future;
+    }
+
+    /**
+     * @return number of introspection calls made, excluding retries and calls rejected by the circuit breaker
+     */
+    public long getCallCount() {
+        return calls.get();
+    }
+
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    public long getFailedCallCount() {
+        return failedCalls.get();
+    }
+
+    /**
+     * @return number of calls rejected without contacting the endpoint because it kept failing
+     */
+    public long getRejectedCallCount() {
+        return circuitBreaker.getRejectedCallCount();
+    }
+
+    public boolean isCircuitOpen() {
+        return circuitBreaker.isOpen();
+    }
+
+    /**
+     * Stops accepting asynchronous calls. Pending calls are completed.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private AccessTokenInfo call(String accessToken) throws IOException, APIKeyMgtException {
+        try {
+            if (!connections.tryAcquire(connectTimeout, TimeUnit.MILLISECONDS)) {
+                throw new IOException("Timed out waiting for a connection to " + endpoint);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a connection to " + endpoint, e);
+        }
+        try {
+            byte[] body = ("token=" + URLEncoder.encode(accessToken, "UTF-8")).getBytes(StandardCharsets.UTF_8);
+            HttpURLConnection urlConn = (HttpURLConnection) endpoint.openConnection();
+            urlConn.setConnectTimeout(connectTimeout);
+            urlConn.setReadTimeout(readTimeout);
+            urlConn.setDoOutput(true);
+            urlConn.setRequestMethod("POST");
+            urlConn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+            urlConn.setRequestProperty("Accept", "application/json");
+            urlConn.setFixedLengthStreamingMode(body.length);
+            try (OutputStream out = urlConn.getOutputStream()) {
+                out.write(body);
+            }
+            int status = urlConn.getResponseCode();
+            byte[] response;
+            // Reading the whole response and closing the stream, rather than disconnecting, keeps the connection
+            // open for the next call
+            try (InputStream in = status < HttpURLConnection.HTTP_BAD_REQUEST ? urlConn.getInputStream()
+                    : urlConn.getErrorStream()) {
+                response = in == null ? new byte[0] : IOUtils.toByteArray(in);
+            }
+            if (status >= HttpURLConnection.HTTP_INTERNAL_ERROR) {
+                throw new IOException("Token introspect endpoint returned status " + status);
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new APIKeyMgtException(KeyManagerConstants.KeyValidationStatus.API_AUTH_GENERAL_ERROR,
+                        "Token introspect endpoint returned status " + status);
+            }
+            return toAccessTokenInfo(new String(response, StandardCharsets.UTF_8), accessToken);
+        } finally {
+            connections.release();
+        }
+    }
+
+    /**
+     * Builds the token details from an introspection response.
+     *
+     * @param response    introspection response
+     * @param accessToken introspected access token
+     * @return token details
+     * @throws APIKeyMgtException if the response is invalid
+     */
+    static AccessTokenInfo toAccessTokenInfo(String response, String accessToken) throws APIKeyMgtException {
+        AccessTokenInfo tokenInfo = new AccessTokenInfo();
+        try {
+            JsonObject jObj = new JsonParser().parse(response).getAsJsonObject();
+            boolean active = jObj.getAsJsonPrimitive("active").getAsBoolean();
+            if (!active) {
+                tokenInfo.setTokenValid(false);
+                tokenInfo.setErrorcode(KeyManagerConstants.KeyValidationStatus.API_AUTH_INVALID_CREDENTIALS);
+                if (log.isDebugEnabled()) {
+                    log.debug("Invalid OAuth Token.");
+                }
+                return tokenInfo;
+            }
+            String consumerKey = jObj.getAsJsonPrimitive(KeyManagerConstants.OAUTH_CLIENT_ID).getAsString();
+            String endUser = jObj.getAsJsonPrimitive(KeyManagerConstants.USERNAME).getAsString();
+            long exp = jObj.getAsJsonPrimitive(KeyManagerConstants.OAUTH2_TOKEN_EXP_TIME).getAsLong();
+            long issuedTime = jObj.getAsJsonPrimitive(KeyManagerConstants.OAUTH2_TOKEN_ISSUED_TIME).getAsLong();
+            JsonElement scopes = jObj.get(KeyManagerConstants.OAUTH_CLIENT_SCOPE);
+            if (scopes != null && !scopes.isJsonNull()) {
+                tokenInfo.setScopes(scopes.getAsString().split("\\s+"));
+            }
+            tokenInfo.setTokenValid(true);
+            tokenInfo.setAccessToken(accessToken);
+            tokenInfo.setConsumerKey(consumerKey);
+            tokenInfo.setEndUserName(endUser);
+            tokenInfo.setIssuedTime(issuedTime);
+
+            // Convert Expiry Time to milliseconds.
+            if (exp == Long.MAX_VALUE) {
+                tokenInfo.setValidityPeriod(Long.MAX_VALUE);
+            } else {
+                tokenInfo.setValidityPeriod(exp * 1000);
+            }
+            return tokenInfo;
+        } catch (JsonParseException | IllegalStateException | NullPointerException | ClassCastException e) {
+            String msg = "Error while processing the response returned from token introspect endpoint.";
+            log.error(msg, e);
+            throw new APIKeyMgtException(msg, e);
+        }
+    }
+
+    /**
+     * Allows retries up to a ratio of the calls made. Each call deposits a fraction of a retry, and each retry
+     * withdraws a whole one. The balance is capped, so that a long quiet period does not allow a burst of retries.
+     */
+    private static final class RetryBudget {
+
+        private static final long SCALE = 1000;
+        private static final long MAX_BALANCE = 10 * SCALE;
+
+        private final long deposit;
+        private final AtomicLong balance = new AtomicLong(MAX_BALANCE);
+
+        private RetryBudget(double ratio) {
+            deposit = (long) (Math.max(0, ratio) * SCALE);
+        }
+
+        private void deposit() {
+            if (deposit > 0 && balance.get() < MAX_BALANCE) {
+                balance.getAndUpdate(current -> Math.min(MAX_BALANCE, current + deposit));
+            }
+        }
+
+        private boolean tryWithdraw() {
+            long current;
+            do {
+                current = balance.get();
+                if (current < SCALE) {
+                    return false;
+                }
+            } while (!balance.compareAndSet(current, current - SCALE));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.security.handlers;
+
+import org.wso2.carbon.apimgt.gateway.exception.APIKeyMgtException;
+import org.wso2.carbon.apimgt.gateway.models.APIKeyValidationInfoDTO;
+import org.wso2.carbon.apimgt.gateway.models.AccessTokenInfo;
+import org.wso2.carbon.apimgt.gateway.models.TokenValidationContext;
+import org.wso2.carbon.apimgt.gateway.utils.KeyManagerConstants;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Base class of the key validation handlers, populating the validation context from the details of a token
+ */
+public abstract class AbstractKeyValidationHandler implements KeyValidationHandler {
+
+    @Override
+    public boolean validateScopes(TokenValidationContext tokenValidationContext) throws APIKeyMgtException {
+        return false;
+    }
+
+    @Override
+    public boolean generateConsumerToken(TokenValidationContext tokenValidationContext) throws APIKeyMgtException {
+        return false;
+    }
+
+    protected void setValuesForOAuth2ValidationContext(TokenValidationContext validationContext,
+                                                       AccessTokenInfo tokenInfo) {
+        // Setting TokenInfo in validationContext. Methods down in the chain can use TokenInfo.
+        validationContext.setTokenInfo(tokenInfo);
+
+        APIKeyValidationInfoDTO apiKeyValidationInfoDTO = new APIKeyValidationInfoDTO();
+
+        if (!tokenInfo.isTokenValid()) {
+            apiKeyValidationInfoDTO.setAuthorized(false);
+            if (tokenInfo.getErrorcode() > 0) {
+                apiKeyValidationInfoDTO.setValidationStatus(tokenInfo.getErrorcode());
+            } else {
+                apiKeyValidationInfoDTO.setValidationStatus(KeyManagerConstants
+                        .KeyValidationStatus.API_AUTH_GENERAL_ERROR);
+            }
+        }
+
+        apiKeyValidationInfoDTO.setAuthorized(tokenInfo.isTokenValid());
+        apiKeyValidationInfoDTO.setEndUserName(tokenInfo.getEndUserName());
+        apiKeyValidationInfoDTO.setConsumerKey(tokenInfo.getConsumerKey());
+        apiKeyValidationInfoDTO.setIssuedTime(tokenInfo.getIssuedTime());
+        apiKeyValidationInfoDTO.setValidityPeriod(tokenInfo.getValidityPeriod());
+
+        Set<String> scopeSet = new HashSet<String>(Arrays.asList(tokenInfo.getScopes()));
+        apiKeyValidationInfoDTO.setScopes(scopeSet);
+
+        validationContext.setValidationInfoDTO(apiKeyValidationInfoDTO);
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.security.handlers;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.apimgt.gateway.exception.APIKeyMgtException;
+import org.wso2.carbon.apimgt.gateway.internal.ServiceReferenceHolder;
+import org.wso2.carbon.apimgt.gateway.models.AccessTokenInfo;
+import org.wso2.carbon.apimgt.gateway.models.TokenValidationContext;
+import org.wso2.carbon.apimgt.gateway.security.JWTKeySet;
+import org.wso2.carbon.apimgt.gateway.security.KeyValidationConfiguration;
+import org.wso2.carbon.apimgt.gateway.security.TokenInfoCache;
+import org.wso2.carbon.apimgt.gateway.utils.KeyManagerConstants;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Key validation handler which validates self-contained JWT access tokens locally, without calling the key manager.
+ * <p>
+ * The RSA signature of a token is verified against the keys in the configured trust store, and the expiry, not
+ * before and issuer claims of the token are checked. Scopes are taken from the scope claim. Validation results are
+ * cached by the hash of the whole token, so a token is verified once until it expires.
+ */
+public class JWTKeyValidationHandler extends AbstractKeyValidationHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(JWTKeyValidationHandler.class);
+
+    private static final Map<String, String> SIGNATURE_ALGORITHMS;
+
+    static {
+        Map<String, String> algorithms = new HashMap<>();
+        algorithms.put("RS256", "SHA256withRSA");
+        algorithms.put("RS384", "SHA384withRSA");
+        algorithms.put("RS512", "SHA512withRSA");
+        SIGNATURE_ALGORITHMS = Collections.unmodifiableMap(algorithms);
+    }
+
+    private static final String CLAIM_EXPIRY_TIME = "exp";
+    private static final String CLAIM_NOT_BEFORE = "nbf";
+    private static final String CLAIM_ISSUED_TIME = "iat";
+    private static final String CLAIM_ISSUER = "iss";
+    private static final String CLAIM_SUBJECT = "sub";
+    private static final String CLAIM_AUTHORIZED_PARTY = "azp";
+
+    private final KeyValidationConfiguration configuration;
+    private volatile JWTKeySet keySet;
+
+    public JWTKeyValidationHandler() {
+        this(ServiceReferenceHolder.getInstance().getKeyValidationConfiguration());
+    }
+
+    public JWTKeyValidationHandler(KeyValidationConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    JWTKeyValidationHandler(KeyValidationConfiguration configuration, JWTKeySet keySet) {
+        this.configuration = configuration;
+        this.keySet = keySet;
+    }
+
+    @Override
+    public boolean validateToken(TokenValidationContext tokenValidationContext) throws APIKeyMgtException {
+        String accessToken = tokenValidationContext.getAccessToken();
+        AccessTokenInfo tokenInfo = TokenInfoCache.getInstance().getTokenInfo(accessToken,
+                () -> verifyToken(accessToken));
+        setValuesForOAuth2ValidationContext(tokenValidationContext, tokenInfo);
+        return tokenInfo.isTokenValid();
+    }
+
+    /**
+     * Verifies a JWT access token.
+     *
+     * @param accessToken JWT access token
+     * @return details of the token. The token is invalid if it is malformed, its signature does not match any
+     * trusted key, or its claims do not allow it to be used now.
+     * @throws APIKeyMgtException if the trusted keys could not be loaded
+     */
+    AccessTokenInfo verifyToken(String accessToken) throws APIKeyMgtException {
+        return verifyToken(accessToken, System.currentTimeMillis() / 1000);
+    }
+
+    AccessTokenInfo verifyToken(String accessToken, long now) throws APIKeyMgtException {
+        int headerEnd = accessToken.indexOf('.');
+        int payloadEnd = headerEnd < 0 ? -1 : accessToken.indexOf('.', headerEnd + 1);
+        if (payloadEnd < 0 || accessToken.indexOf('.', payloadEnd + 1) >= 0) {
+            return invalidToken("Access token is not a signed JWT");
+        }
+        JsonObject claims;
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            JsonObject header = parseJson(decoder.decode(accessToken.substring(0, headerEnd)));
+            String algorithm = SIGNATURE_ALGORITHMS.get(getString(header, "alg"));
+            if (algorithm == null) {
+                return invalidToken("Unsupported JWT signature algorithm : " + getString(header, "alg"));
+            }
+            byte[] signature = decoder.decode(accessToken.substring(payloadEnd + 1));
+            byte[] signedContent = accessToken.substring(0, payloadEnd).getBytes(StandardCharsets.US_ASCII);
+            if (!verifySignature(algorithm, getString(header, "kid"), signedContent, signature)) {
+                return invalidToken("JWT signature does not match any trusted key");
+            }
+            claims = parseJson(decoder.decode(accessToken.substring(headerEnd + 1, payloadEnd)));
+        } catch (IllegalArgumentException | JsonParseException | IllegalStateException | ClassCastException e) {
+            // IllegalArgumentException is thrown for invalid Base64 content
+            return invalidToken("Malformed JWT : " + e.getMessage());
+        }
+
+        long clockSkew = configuration.getJwtClockSkew();
+        Long expiryTime = getLong(claims, CLAIM_EXPIRY_TIME);
+        if (expiryTime == null || expiryTime + clockSkew < now) {
+            return invalidToken("JWT has expired");
+        }
+        Long notBefore = getLong(claims, CLAIM_NOT_BEFORE);
+        if (notBefore != null && notBefore - clockSkew > now) {
+            return invalidToken("JWT is not valid yet");
+        }
+        String issuer = configuration.getJwtIssuer();
+        if (issuer != null && !issuer.isEmpty() && !issuer.equals(getString(claims, CLAIM_ISSUER))) {
+            return invalidToken("JWT is not issued by " + issuer);
+        }
+
+        AccessTokenInfo tokenInfo = new AccessTokenInfo();
+        tokenInfo.setTokenValid(true);
+        tokenInfo.setAccessToken(accessToken);
+        String consumerKey = getString(claims, KeyManagerConstants.OAUTH_CLIENT_ID);
+        tokenInfo.setConsumerKey(consumerKey != null ? consumerKey : getString(claims, CLAIM_AUTHORIZED_PARTY));
+        tokenInfo.setEndUserName(getString(claims, CLAIM_SUBJECT));
+        Long issuedTime = getLong(claims, CLAIM_ISSUED_TIME);
+        if (issuedTime != null) {
+            tokenInfo.setIssuedTime(issuedTime);
+        }
+        // Convert Expiry Time to milliseconds.
+        tokenInfo.setValidityPeriod(expiryTime * 1000);
+        String scopes = getString(claims, KeyManagerConstants.OAUTH_CLIENT_SCOPE);
+        if (scopes != null && !scopes.isEmpty()) {
+            tokenInfo.setScopes(scopes.split("\\s+"));
+        }
+        return tokenInfo;
+    }
+
+    private boolean verifySignature(String algorithm, String keyId, byte[] signedContent, byte[] signature)
+            throws APIKeyMgtException {
+        JWTKeySet keys = getKeySet();
+        Collection<RSAPublicKey> candidates;
+        if (keyId != null) {
+            RSAPublicKey key = keys.getKey(keyId);
+            candidates = key != null ? Collections.singleton(key) : keys.getKeys();
+        } else {
+            candidates = keys.getKeys();
+        }
+        for (RSAPublicKey key : candidates) {
+            try {
+                Signature verifier = Signature.getInstance(algorithm);
+                verifier.initVerify(key);
+                verifier.update(signedContent);
+                if (verifier.verify(signature)) {
+                    return true;
+                }
+            } catch (GeneralSecurityException e) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Error while verifying JWT signature", e);
+                }
+            }
+        }
+        return false;
+    }
+
+    private JWTKeySet getKeySet() throws APIKeyMgtException {
+        JWTKeySet keys = keySet;
+        if (keys == null) {
+            synchronized (this) {
+                keys = keySet;
+                if (keys == null) {
+                    keys = JWTKeySet.load(configuration.getJwtTrustStorePath(),
+                            configuration.getJwtTrustStorePassword());
+                    keySet = keys;
+                }
+            }
+        }
+        return keys;
+    }
+
+    private static AccessTokenInfo invalidToken(String reason) {
+        if (log.isDebugEnabled()) {
+            log.debug("Invalid OAuth Token. " + reason);
+        }
+        AccessTokenInfo tokenInfo = new AccessTokenInfo();
+        tokenInfo.setTokenValid(false);
+        tokenInfo.setErrorcode(KeyManagerConstants.KeyValidationStatus.API_AUTH_INVALID_CREDENTIALS);
+        return tokenInfo;
+    }
+
+    private static JsonObject parseJson(byte[] content) {
+        return new JsonParser().parse(new String(content, StandardCharsets.UTF_8)).getAsJsonObject();
+    }
+
+    private static String getString(JsonObject object, String name) {
+        JsonElement element = object.get(name);
+        return element != null && element.isJsonPrimitive() ? element.getAsString() : null;
+    }
+
+    private static Long getLong(JsonObject object, String name) {
+        JsonElement element = object.get(name);
+        if (element == null || !element.isJsonPrimitive() || !element.getAsJsonPrimitive().isNumber()) {
+            return null;
+        }
+        return element.getAsLong();
+    }
+}
@@ -21,6 +21,8 @@ package org.wso2.carbon.apimgt.gateway.security.handlers;
 import org.wso2.carbon.apimgt.gateway.exception.APIKeyMgtException;
 import org.wso2.carbon.apimgt.gateway.models.TokenValidationContext;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * This is the interface to implement validating oauth2 token in API request flow
  **/
@@ -34,6 +36,24 @@ public interface KeyValidationHandler {
     boolean validateToken(TokenValidationContext tokenValidationContext)
             throws APIKeyMgtException;
 
+    /**
+     * Validate token by oAuth2TokenValidationMessageContext without blocking the calling thread. The default
+     * implementation validates the token in the calling thread.
+     *
+     * @param tokenValidationContext
+     * @return future completed with the validation result, or with an {@link APIKeyMgtException} if the token could
+     * not be validated
+     */
+    default CompletableFuture<Boolean> validateTokenAsync(TokenValidationContext tokenValidationContext) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        try {
+            future.complete(validateToken(tokenValidationContext));
+        } catch (APIKeyMgtException | RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
     /**
      * Validate Subscriptions  by oAuth2TokenValidationMessageContext
      *
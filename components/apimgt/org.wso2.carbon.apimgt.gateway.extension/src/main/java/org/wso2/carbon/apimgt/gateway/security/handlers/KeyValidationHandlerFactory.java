@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.security.handlers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.apimgt.gateway.security.KeyValidationConfiguration;
+
+/**
+ * Creates the key validation handler selected by the key validation configuration
+ */
+public final class KeyValidationHandlerFactory {
+
+    private static final Logger log = LoggerFactory.getLogger(KeyValidationHandlerFactory.class);
+
+    private KeyValidationHandlerFactory() {
+    }
+
+    /**
+     * @param configuration key validation configuration
+     * @return configured key validation handler, or the default handler if the configured one could not be loaded
+     */
+    public static KeyValidationHandler create(KeyValidationConfiguration configuration) {
+        String handlerClass = configuration.getKeyValidationHandler();
+        try {
+            return (KeyValidationHandler) Class.forName(handlerClass).newInstance();
+        } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | ClassCastException e) {
+            log.error("Error while loading key validation handler : " + handlerClass + ". Tokens will be validated "
+                    + "by the key manager", e);
+            return new DefaultKeyValidationHandler();
+        }
+    }
+}
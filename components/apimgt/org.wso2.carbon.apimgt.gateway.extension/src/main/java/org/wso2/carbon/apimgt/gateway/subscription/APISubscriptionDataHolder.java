@@ -16,36 +16,220 @@
 * under the License.
 */
 
+
 package org.wso2.carbon.apimgt.gateway.subscription;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.wso2.carbon.apimgt.gateway.GatewayConstants;
+import org.wso2.carbon.apimgt.gateway.internal.ServiceReferenceHolder;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * This class holds API Subscription data in each gateway node.
+ * <p>
+ * Subscriptions are cached per API in a concurrent cache bounded by the configured number of APIs, evicting the
+ * least recently used APIs first. The subscriptions of an API are never modified once cached; updates replace them
+ * with an updated copy. Lookups do not lock. When the subscriptions of an API are not cached they are
+ * loaded from API Manager core; concurrent lookups of the same API wait for a single load.
+ * <p>
+ * Cached subscriptions are kept up to date by periodically reading the subscription change log of API Manager core,
+ * from the sequence id of the last change applied. The APIs named by the changes are evicted from the cache and
+ * reloaded when they are next accessed, so applying a change more than once is harmless.
  */
 
 public class APISubscriptionDataHolder {
 
     private static final Logger log = LoggerFactory.getLogger(APISubscriptionDataHolder.class);
-    private static final int MAX_APIS = 50;
     private static final char DELIMITER = '@';
+    private static final long UNKNOWN_SEQUENCE_ID = -1L;
     private static APISubscriptionDataHolder instance = new APISubscriptionDataHolder();
 
-    //key: API_CONTEXT$API_VERSION   value : Map<CONSUMER_KEY, SUBSCRIPTION_DATA_MAP>
-    private Map<String, Map<String, Map<String, String>>> apiSubscriptionMap = Collections.synchronizedMap(
-            new ExtendedLinkedHashMap());
+    private final SubscriptionRetrievalClient subscriptionRetrievalClient;
+    //key: API_CONTEXT@API_VERSION   value : Map<CONSUMER_KEY, SUBSCRIPTION_DATA_MAP>
+    private volatile LoadingCache<String, Map<String, Map<String, String>>> apiSubscriptionCache;
+    // Sequence id of the last subscription change applied to the cache
+    private volatile long changeSequenceId = UNKNOWN_SEQUENCE_ID;
+    private ScheduledExecutorService changeSyncExecutor;
+    private ScheduledFuture<?> changeSync;
+    private int changeSyncBatchSize;
+    private SubscriptionEventApplier subscriptionEventApplier;
+
+    private APISubscriptionDataHolder() {
+        this(new SubscriptionRetrievalClient(), ServiceReferenceHolder.getInstance().getSubscriptionConfiguration()
+                .getCacheCapacity());
+    }
+
+    APISubscriptionDataHolder(SubscriptionRetrievalClient subscriptionRetrievalClient, int capacity) {
+        this.subscriptionRetrievalClient = subscriptionRetrievalClient;
+        this.apiSubscriptionCache = buildCache(capacity);
+    }
 
     public static APISubscriptionDataHolder getInstance() {
         return instance;
     }
 
     /**
+     * Applies the given configuration. Subscriptions cached so far are kept, up to the new capacity.
+     *
+     * @param configuration subscription validation configuration
+     */
+    public synchronized void init(SubscriptionConfiguration configuration) {
+        LoadingCache<String, Map<String, Map<String, String>>> cache = buildCache(configuration.getCacheCapacity());
+        cache.putAll(apiSubscriptionCache.asMap());
+        apiSubscriptionCache = cache;
+        scheduleChangeSync(configuration.getChangeSyncInterval(), configuration.getChangeSyncBatchSize());
+    }
+
+    private void scheduleChangeSync(int interval, int batchSize) {
+        if (changeSync != null) {
+            changeSync.cancel(false);
+            changeSync = null;
+        }
+        if (interval <= 0) {
+            return;
+        }
+        changeSyncBatchSize = batchSize;
+        changeSync = getChangeSyncExecutor().scheduleWithFixedDelay(() -> {
+            try {
+                synchronizeChanges(batchSize);
+            } catch (RuntimeException e) {
+                log.error("Error while synchronizing subscription changes. Synchronization will be retried in "
+                        + interval + " seconds", e);
+            }
+        }, 0, interval, TimeUnit.SECONDS);
+    }
+
+    private synchronized ScheduledExecutorService getChangeSyncExecutor() {
+        if (changeSyncExecutor == null) {
+            // Not the shared task scheduler, since synchronizing and preloading block on API Manager core
+            changeSyncExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("apim-subscription-sync-%d").setDaemon(true).build());
+        }
+        return changeSyncExecutor;
+    }
+
+    /**
+     * Stops synchronizing subscription changes and preloading subscriptions. Cached subscriptions are kept, and
+     * {@link #init(SubscriptionConfiguration)} starts synchronizing again.
+     */
+    public synchronized void shutdown() {
+        if (changeSync != null) {
+            changeSync.cancel(false);
+            changeSync = null;
+        }
+        if (changeSyncExecutor != null) {
+            changeSyncExecutor.shutdownNow();
+            changeSyncExecutor = null;
+        }
+    }
+
+    /**
+     * Applies the subscription changes recorded since the last change applied. The first synchronization only
+     * records the sequence id of the latest change and evicts the APIs cached before it, since changes to those
+     * cannot be tracked. If the change log of API Manager core went back, all cached APIs are evicted.
+     *
+     * @param batchSize maximum number of changes retrieved with a single request
+     */
+    synchronized void synchronizeChanges(int batchSize) {
+        if (changeSequenceId == UNKNOWN_SEQUENCE_ID) {
+            changeSequenceId = subscriptionRetrievalClient.loadLatestSubscriptionChange().getSequenceId();
+            apiSubscriptionCache.invalidateAll();
+            return;
+        }
+        int changeCount;
+        do {
+            SubscriptionChangeListDTO changeList = subscriptionRetrievalClient.loadSubscriptionChanges(
+                    changeSequenceId, batchSize);
+            if (changeList.getSequenceId() < changeSequenceId) {
+                log.warn("Subscription change log was reset from sequence id " + changeSequenceId + " to "
+                        + changeList.getSequenceId() + ". Cached subscriptions of all APIs are evicted");
+                apiSubscriptionCache.invalidateAll();
+                changeSequenceId = changeList.getSequenceId();
+                return;
+            }
+            changeCount = changeList.getChanges() == null ? 0 : changeList.getChanges().size();
+            if (changeCount > 0) {
+                Set<String> apiKeys = new HashSet<>();
+                for (SubscriptionChangeDTO change : changeList.getChanges()) {
+                    apiKeys.add(change.getApiContext() + DELIMITER + change.getApiVersion());
+                }
+                apiSubscriptionCache.invalidateAll(apiKeys);
+                if (log.isDebugEnabled()) {
+                    log.debug("Applied " + changeCount + " subscription changes up to sequence id "
+                            + changeList.getSequenceId() + " to " + apiKeys.size() + " APIs");
+                }
+            }
+            changeSequenceId = changeList.getSequenceId();
+        } while (changeCount >= batchSize);
+    }
+
+    /**
+     * @return sequence id of the last subscription change applied to the cache, -1 if not synchronized yet
+     */
+    public long getChangeSequenceId() {
+        return changeSequenceId;
+    }
+
+    /**
+     * Loads the subscriptions of all APIs into the cache in the background, on the thread which synchronizes
+     * subscription changes. Subscriptions are read page by page and the subscriptions of each API are cached as soon
+     * as they are complete. APIs already cached when their subscriptions are complete are left as they are, since
+     * those were loaded, and kept up to date, independently.
+     *
+     * @param pageSize number of subscriptions retrieved with a single request
+     */
+    public void preloadSubscriptions(int pageSize) {
+        getChangeSyncExecutor().execute(() -> {
+            try {
+                long start = System.currentTimeMillis();
+                synchronized (this) {
+                    if (changeSync != null && changeSequenceId == UNKNOWN_SEQUENCE_ID) {
+                        // Changes made while preloading are applied by the next synchronization
+                        synchronizeChanges(changeSyncBatchSize);
+                    }
+                }
+                long count = loadAllSubscriptions(pageSize);
+                if (log.isDebugEnabled()) {
+                    log.debug("Preloaded " + count + " subscriptions of " + apiSubscriptionCache.size() + " APIs in "
+                            + (System.currentTimeMillis() - start) + " ms");
+                }
+            } catch (RuntimeException e) {
+                log.error("Error while preloading subscriptions. Subscriptions of APIs will be loaded when they are "
+                        + "accessed", e);
+            }
+        });
+    }
+
+    long loadAllSubscriptions(int pageSize) {
+        SubscriptionCollector collector = new SubscriptionCollector();
+        long count = subscriptionRetrievalClient.loadAllSubscriptions(pageSize, collector);
+        collector.complete();
+        return count;
+    }
+
+    /**
+     * Loads the subscriptions of the API if they are not cached.
+     *
      * @param apiContext  API Context
      * @param apiVersion  API Version
      * @param consumerKey Consumer Key of Application
@@ -53,15 +237,18 @@ public class APISubscriptionDataHolder {
      */
     public Map<String, String> getApiSubscriptionPolicyIfAvailable(String apiContext, String apiVersion,
                                                                    String consumerKey) {
-        Map<String, Map<String, String>> subscriptionMap = apiSubscriptionMap.get(apiContext + DELIMITER + apiVersion);
-        if (subscriptionMap != null) {
-            return subscriptionMap.get(consumerKey);
+        String apiKey = apiContext + DELIMITER + apiVersion;
+        try {
+            return apiSubscriptionCache.get(apiKey).get(consumerKey);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            log.error("Error while loading subscriptions of API " + apiContext + ':' + apiVersion, e.getCause());
+            return null;
         }
-        return null;
     }
 
     /**
-     * Add new subscription to Subscription Map
+     * Add new subscription to Subscription Map. If the subscriptions of the API are not cached, the subscription is
+     * included when they are loaded.
      *
      * @param apiContext       API Context
      * @param apiVersion       API Version
@@ -70,23 +257,8 @@ public class APISubscriptionDataHolder {
      */
     public void addApiSubscriptionToMap(String apiContext, String apiVersion, String consumerKey,
                                         Map<String, String> subscriptionData) {
-        String apiKey = apiContext + DELIMITER + apiVersion;
-        synchronized (apiKey.intern()) {
-            if (apiSubscriptionMap.get(apiKey) == null) {
-                Map<String, Map<String, String>> subscriptionsOfApi = new HashMap<>();
-                subscriptionsOfApi.put(consumerKey, subscriptionData);
-                apiSubscriptionMap.put(apiKey, subscriptionsOfApi);
-            } else {
-                apiSubscriptionMap.get(apiKey).put(consumerKey, subscriptionData);
-            }
-            if (log.isDebugEnabled()) {
-                log.debug("Subscription entry added to Subscription Map. API: " + apiContext + ':' + apiVersion +
-                        " Consumer Key: " + consumerKey + " Subscription Policy: " + subscriptionData);
-            }
-            //todo: remove this line
-            log.info("Subscription entry added to Subscription Map. API: " + apiContext + ':' + apiVersion +
-                    " Consumer Key: " + consumerKey + " Subscription Policy: " + subscriptionData);
-        }
+        applySubscriptionEvents(apiContext + DELIMITER + apiVersion, Collections.singletonList(
+                new SubscriptionEvent(apiContext, apiVersion, consumerKey, subscriptionData, 0)));
     }
 
     /**
@@ -97,34 +269,148 @@ public class APISubscriptionDataHolder {
      * @param consumerKey Consumer Key of Application
      */
     public void removeApiSubscriptionFromMap(String apiContext, String apiVersion, String consumerKey) {
-        String apiKey = apiContext + DELIMITER + apiVersion;
-        synchronized (apiKey.intern()) {
-            Map<String, Map<String, String>> subscriptionsOfApi = apiSubscriptionMap.get(apiKey);
-            if (subscriptionsOfApi != null) {
-                subscriptionsOfApi.remove(consumerKey);
+        applySubscriptionEvents(apiContext + DELIMITER + apiVersion, Collections.singletonList(
+                new SubscriptionEvent(apiContext, apiVersion, consumerKey, null, 0)));
+    }
+
+    /**
+     * Applies subscription events of an API by replacing its cached subscriptions with an updated copy, so lookups
+     * see either none or all of the events. If the subscriptions of the API are not cached, the events are included
+     * when they are loaded.
+     *
+     * @param apiKey API context and version, delimited by '@'
+     * @param events subscription events of the API, in the order received
+     */
+    void applySubscriptionEvents(String apiKey, Collection<SubscriptionEvent> events) {
+        ConcurrentMap<String, Map<String, Map<String, String>>> cachedApis = apiSubscriptionCache.asMap();
+        Map<String, Map<String, String>> subscriptionsOfApi;
+        Map<String, Map<String, String>> updatedSubscriptionsOfApi;
+        do {
+            subscriptionsOfApi = cachedApis.get(apiKey);
+            if (subscriptionsOfApi == null) {
+                return;
             }
-            if (log.isDebugEnabled()) {
-                log.debug("Subscription entry removed from Subscription Map. API: " + apiContext + ':' + apiVersion +
-                        " Consumer Key: " + consumerKey);
+            updatedSubscriptionsOfApi = new HashMap<>(subscriptionsOfApi);
+            for (SubscriptionEvent event : events) {
+                if (event.isRemoved()) {
+                    updatedSubscriptionsOfApi.remove(event.getConsumerKey());
+                } else {
+                    updatedSubscriptionsOfApi.put(event.getConsumerKey(), event.getSubscriptionData());
+                }
             }
-            //todo: remove this line
-            log.info("Subscription entry removed from Subscription Map. API: " + apiContext + ':' + apiVersion +
-                    " Consumer Key: " + consumerKey);
+        } while (!cachedApis.replace(apiKey, subscriptionsOfApi,
+                Collections.unmodifiableMap(updatedSubscriptionsOfApi)));
+        if (log.isDebugEnabled()) {
+            log.debug("Applied " + events.size() + " subscription events to Subscription Map of API " + apiKey);
         }
     }
 
-    private static class ExtendedLinkedHashMap extends LinkedHashMap<String, Map<String, Map<String, String>>> {
+    /**
+     * @return applier of the subscription events received from the subscription topic, started on first use
+     */
+    public synchronized SubscriptionEventApplier getSubscriptionEventApplier() {
+        if (subscriptionEventApplier == null) {
+            SubscriptionConfiguration configuration = ServiceReferenceHolder.getInstance()
+                    .getSubscriptionConfiguration();
+            subscriptionEventApplier = new SubscriptionEventApplier(this, configuration.getEventQueueCapacity(),
+                    configuration.getEventBatchSize());
+            subscriptionEventApplier.start();
+        }
+        return subscriptionEventApplier;
+    }
 
-        private static final long serialVersionUID = 6103479545023548050L;
+    /**
+     * Stops the applier of the subscription events, if it was started. A new applier is started on next use.
+     */
+    public synchronized void stopSubscriptionEventApplier() {
+        if (subscriptionEventApplier != null) {
+            subscriptionEventApplier.stop();
+            subscriptionEventApplier = null;
+        }
+    }
 
-        ExtendedLinkedHashMap() {
-            super(APISubscriptionDataHolder.MAX_APIS + 1, 1.0F, false);
+    /**
+     * @return number of APIs whose subscriptions are cached
+     */
+    public long getCachedApiCount() {
+        return apiSubscriptionCache.size();
+    }
+
+    /**
+     * @return hit, miss, load and eviction counts of the subscription cache
+     */
+    public CacheStats getCacheStats() {
+        return apiSubscriptionCache.stats();
+    }
+
+    private LoadingCache<String, Map<String, Map<String, String>>> buildCache(int capacity) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(capacity)
+                .recordStats()
+                .build(new CacheLoader<String, Map<String, Map<String, String>>>() {
+                    @Override
+                    public Map<String, Map<String, String>> load(String apiKey) {
+                        int delimiter = apiKey.lastIndexOf(DELIMITER);
+                        return loadSubscriptionsOfApi(apiKey.substring(0, delimiter),
+                                apiKey.substring(delimiter + 1));
+                    }
+                });
+    }
+
+    private Map<String, Map<String, String>> loadSubscriptionsOfApi(String apiContext, String apiVersion) {
+        SubscriptionListDTO subscriptionList = subscriptionRetrievalClient.loadSubscriptionsOfApi(apiContext,
+                apiVersion);
+        Map<String, Map<String, String>> subscriptionsOfApi = new HashMap<>();
+        if (subscriptionList != null && subscriptionList.getSubscriptions() != null) {
+            for (SubscriptionDTO subscription : subscriptionList.getSubscriptions()) {
+                subscriptionsOfApi.put(subscription.getConsumerKey(), toSubscriptionData(subscription));
+            }
         }
+        if (log.isDebugEnabled()) {
+            log.debug("Loaded " + subscriptionsOfApi.size() + " subscriptions of API " + apiContext + ':'
+                    + apiVersion);
+        }
+        return Collections.unmodifiableMap(subscriptionsOfApi);
+    }
+
+    private static Map<String, String> toSubscriptionData(SubscriptionDTO subscription) {
+        // Same entries as the subscription messages received from the subscription topic
+        Map<String, String> subscriptionData = new HashMap<>();
+        subscriptionData.put(GatewayConstants.SUBSCRIPTION_POLICY, subscription.getSubscriptionPolicy());
+        subscriptionData.put(GatewayConstants.API_CONTEXT, subscription.getApiContext());
+        subscriptionData.put(GatewayConstants.API_VERSION, subscription.getApiVersion());
+        subscriptionData.put(GatewayConstants.API_PROVIDER, subscription.getApiProvider());
+        subscriptionData.put(GatewayConstants.APPLICATION_NAME, subscription.getApplicationName());
+        subscriptionData.put(GatewayConstants.APPLICATION_OWNER, subscription.getApplicationOwner());
+        subscriptionData.put(GatewayConstants.CONSUMER_KEY, subscription.getConsumerKey());
+        subscriptionData.put(GatewayConstants.KEY_ENV_TYPE, subscription.getKeyEnvType());
+        return subscriptionData;
+    }
+
+    /**
+     * Groups the subscriptions of each API. Subscriptions are received ordered by API, so the subscriptions of an API
+     * are complete when the first subscription of the next API is received.
+     */
+    private class SubscriptionCollector implements Consumer<SubscriptionDTO> {
+
+        private String apiKey;
+        private Map<String, Map<String, String>> subscriptionsOfApi;
 
-        // This method is called just after a new entry has been added
         @Override
-        public boolean removeEldestEntry(Map.Entry eldest) {
-            return size() > MAX_APIS;
+        public void accept(SubscriptionDTO subscription) {
+            String subscriptionApiKey = subscription.getApiContext() + DELIMITER + subscription.getApiVersion();
+            if (!subscriptionApiKey.equals(apiKey)) {
+                complete();
+                apiKey = subscriptionApiKey;
+                subscriptionsOfApi = new HashMap<>();
+            }
+            subscriptionsOfApi.put(subscription.getConsumerKey(), toSubscriptionData(subscription));
+        }
+
+        void complete() {
+            if (apiKey != null) {
+                apiSubscriptionCache.asMap().putIfAbsent(apiKey, Collections.unmodifiableMap(subscriptionsOfApi));
+            }
         }
     }
 }
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.subscription;
+
+import org.wso2.carbon.kernel.annotations.Configuration;
+import org.wso2.carbon.kernel.annotations.Element;
+
+/**
+ * This class is used to keep the subscription validation related configurations of the gateway
+ */
+@Configuration(namespace = "wso2.carbon.apim.subscription",
+        description = "APIM Gateway Subscription Validation Configurations")
+public class SubscriptionConfiguration {
+
+    @Element(description = "maximum number of APIs whose subscriptions are cached by the gateway")
+    private int cacheCapacity = 2000;
+    @Element(description = "whether the subscriptions of all APIs are loaded into the cache when the gateway starts, "
+            + "instead of when each API is first accessed")
+    private boolean preloadEnabled = false;
+    @Element(description = "number of subscriptions retrieved with a single request while preloading subscriptions")
+    private int preloadPageSize = 1000;
+    @Element(description = "interval in seconds between two synchronizations of the cached subscriptions with the "
+            + "subscription changes recorded by API Manager core. 0 disables the synchronization")
+    private int changeSyncInterval = 30;
+    @Element(description = "maximum number of subscription changes retrieved with a single request")
+    private int changeSyncBatchSize = 500;
+    @Element(description = "maximum number of subscription events received from the subscription topic waiting to "
+            + "be applied. Receiving further events waits while the queue is full")
+    private int eventQueueCapacity = 10000;
+    @Element(description = "maximum number of subscription events applied at once")
+    private int eventBatchSize = 500;
+
+    public int getCacheCapacity() {
+        return cacheCapacity;
+    }
+
+    public void setCacheCapacity(int cacheCapacity) {
+        this.cacheCapacity = cacheCapacity;
+    }
+
+    public boolean isPreloadEnabled() {
+        return preloadEnabled;
+    }
+
+    public void setPreloadEnabled(boolean preloadEnabled) {
+        this.preloadEnabled = preloadEnabled;
+    }
+
+    public int getPreloadPageSize() {
+        return preloadPageSize;
+    }
+
+    public void setPreloadPageSize(int preloadPageSize) {
+        this.preloadPageSize = preloadPageSize;
+    }
+
+    public int getChangeSyncInterval() {
+        return changeSyncInterval;
+    }
+
+    public void setChangeSyncInterval(int changeSyncInterval) {
+        this.changeSyncInterval = changeSyncInterval;
+    }
+
+    public int getChangeSyncBatchSize() {
+        return changeSyncBatchSize;
+    }
+
+    public void setChangeSyncBatchSize(int changeSyncBatchSize) {
+        this.changeSyncBatchSize = changeSyncBatchSize;
+    }
+
+    public int getEventQueueCapacity() {
+        return eventQueueCapacity;
+    }
+
+    public void setEventQueueCapacity(int eventQueueCapacity) {
+        this.eventQueueCapacity = eventQueueCapacity;
+    }
+
+    public int getEventBatchSize() {
+        return eventBatchSize;
+    }
+
+    public void setEventBatchSize(int eventBatchSize) {
+        this.eventBatchSize = eventBatchSize;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.subscription;
+
+import java.util.Map;
+
+/**
+ * A subscription added to or removed from an API, as received from the subscription topic
+ */
+public final class SubscriptionEvent {
+
+    private final String apiContext;
+    private final String apiVersion;
+    private final String consumerKey;
+    private final Map<String, String> subscriptionData;
+    private final long publishedTime;
+
+    /**
+     * @param apiContext       API context
+     * @param apiVersion       API version
+     * @param consumerKey      consumer key of the application
+     * @param subscriptionData subscription data of an added subscription, null if the subscription is removed
+     * @param publishedTime    time at which the event was published, 0 if unknown
+     */
+    public SubscriptionEvent(String apiContext, String apiVersion, String consumerKey,
+                             Map<String, String> subscriptionData, long publishedTime) {
+        this.apiContext = apiContext;
+        this.apiVersion = apiVersion;
+        this.consumerKey = consumerKey;
+        this.subscriptionData = subscriptionData;
+        this.publishedTime = publishedTime;
+    }
+
+    public String getApiContext() {
+        return apiContext;
+    }
+
+    public String getApiVersion() {
+        return apiVersion;
+    }
+
+    public String getConsumerKey() {
+        return consumerKey;
+    }
+
+    /**
+     * @return subscription data of an added subscription, null if the subscription is removed
+     */
+    public Map<String, String> getSubscriptionData() {
+        return subscriptionData;
+    }
+
+    public boolean isRemoved() {
+        return subscriptionData == null;
+    }
+
+    public long getPublishedTime() {
+        return publishedTime;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.subscription;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Applies subscription events received from the subscription topic to the subscription cache in a background
+ * thread. Events are queued as they are received and applied in batches of the events queued meanwhile, so a burst
+ * of events does not hold up the JMS session delivering them. Within a batch only the last event of each
+ * subscription is applied, and the subscriptions of each API are updated at once.
+ */
+public class SubscriptionEventApplier {
+
+    private static final Logger log = LoggerFactory.getLogger(SubscriptionEventApplier.class);
+    private static final char DELIMITER = '@';
+
+    private final APISubscriptionDataHolder dataHolder;
+    private final BlockingQueue<SubscriptionEvent> queue;
+    private final int batchSize;
+    private final AtomicLong receivedEventCount = new AtomicLong();
+    private final AtomicLong appliedEventCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private volatile int lastBatchSize;
+    private volatile int maxBatchSize;
+    private volatile long lagMillis;
+    private Thread applier;
+
+    /**
+     * @param dataHolder    subscription data holder the events are applied to
+     * @param queueCapacity maximum number of events waiting to be applied
+     * @param batchSize     maximum number of events applied at once
+     */
+    public SubscriptionEventApplier(APISubscriptionDataHolder dataHolder, int queueCapacity, int batchSize) {
+        this.dataHolder = dataHolder;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Starts the thread applying the queued events.
+     */
+    public synchronized void start() {
+        if (applier == null) {
+            applier = new Thread(this::applyEvents, "apim-subscription-event-applier");
+            applier.setDaemon(true);
+            applier.start();
+        }
+    }
+
+    /**
+     * Stops the thread applying the queued events. Events still queued are not applied.
+     */
+    public synchronized void stop() {
+        if (applier != null) {
+            applier.interrupt();
+            applier = null;
+        }
+    }
+
+    /**
+     * Queues an event to be applied. When the queue is full this waits for space instead of dropping the event, so
+     * that the JMS session delivering the events slows down until the events queued so far are applied.
+     *
+     * @param event subscription event
+     * @throws InterruptedException if interrupted while waiting for space in the queue
+     */
+    public void submit(SubscriptionEvent event) throws InterruptedException {
+        queue.put(event);
+        receivedEventCount.incrementAndGet();
+    }
+
+    private void applyEvents() {
+        List<SubscriptionEvent> batch = new ArrayList<>(batchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            try {
+                applyBatch(batch);
+            } catch (RuntimeException e) {
+                log.error("Error while applying a batch of " + batch.size() + " subscription events", e);
+            }
+            batch.clear();
+        }
+    }
+
+    void applyBatch(List<SubscriptionEvent> batch) {
+        // key: API_CONTEXT@API_VERSION   value : last event of each consumer key, in the order received
+        Map<String, Map<String, SubscriptionEvent>> eventsOfApis = new LinkedHashMap<>();
+        long oldestPublishedTime = Long.MAX_VALUE;
+        for (SubscriptionEvent event : batch) {
+            String apiKey = event.getApiContext() + DELIMITER + event.getApiVersion();
+            eventsOfApis.computeIfAbsent(apiKey, key -> new LinkedHashMap<>()).put(event.getConsumerKey(), event);
+            if (event.getPublishedTime() > 0 && event.getPublishedTime() < oldestPublishedTime) {
+                oldestPublishedTime = event.getPublishedTime();
+            }
+        }
+        int applied = 0;
+        for (Map.Entry<String, Map<String, SubscriptionEvent>> eventsOfApi : eventsOfApis.entrySet()) {
+            dataHolder.applySubscriptionEvents(eventsOfApi.getKey(), eventsOfApi.getValue().values());
+            applied += eventsOfApi.getValue().size();
+        }
+        appliedEventCount.addAndGet(applied);
+        batchCount.incrementAndGet();
+        lastBatchSize = batch.size();
+        if (batch.size() > maxBatchSize) {
+            maxBatchSize = batch.size();
+        }
+        if (oldestPublishedTime != Long.MAX_VALUE) {
+            lagMillis = System.currentTimeMillis() - oldestPublishedTime;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Applied " + applied + " of " + batch.size() + " subscription events to "
+                    + eventsOfApis.size() + " APIs. Lag: " + lagMillis + " ms");
+        }
+    }
+
+    /**
+     * @return number of events waiting to be applied
+     */
+    public int getPendingEventCount() {
+        return queue.size();
+    }
+
+    /**
+     * @return number of events received
+     */
+    public long getReceivedEventCount() {
+        return receivedEventCount.get();
+    }
+
+    /**
+     * @return number of events applied. Events superseded by a later event of the same subscription in the same
+     * batch are not applied.
+     */
+    public long getAppliedEventCount() {
+        return appliedEventCount.get();
+    }
+
+    /**
+     * @return number of batches applied
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * @return number of events in the last batch applied
+     */
+    public int getLastBatchSize() {
+        return lastBatchSize;
+    }
+
+    /**
+     * @return largest number of events applied in a single batch
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * @return time in milliseconds between publishing the oldest event of the last batch and applying the batch
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+}
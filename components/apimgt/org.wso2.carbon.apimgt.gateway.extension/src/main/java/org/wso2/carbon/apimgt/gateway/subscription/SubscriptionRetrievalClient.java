@@ -20,18 +20,37 @@
 
 package org.wso2.carbon.apimgt.gateway.subscription;
 
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import feign.Feign;
+import feign.FeignException;
+import feign.Headers;
 import feign.Param;
 import feign.RequestLine;
+import feign.Response;
 import feign.gson.GsonDecoder;
 import feign.gson.GsonEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Http client util for subscription validation.
  */
 public final class SubscriptionRetrievalClient {
 
+    private static final Logger log = LoggerFactory.getLogger(SubscriptionRetrievalClient.class);
     private static final String DEFAULT_APIM_CORE_BASE_URL = "https://localhost:9292";
+    private static final String CURSOR_HEADER = "X-Cursor";
+    private static final Gson gson = new Gson();
 
     private SubscriptionRetrievalService subscriptionRetrievalService = null;
 
@@ -52,6 +71,20 @@ public final class SubscriptionRetrievalClient {
 
         @RequestLine("GET /subscriptions?context={context}&version={version}")
         SubscriptionListDTO getSubscriptions(@Param("context") String context, @Param("version") String version);
+
+        @RequestLine("GET /subscriptions?limit={limit}")
+        @Headers("Accept: application/x-ndjson")
+        Response getSubscriptionPage(@Param("limit") int limit);
+
+        @RequestLine("GET /subscriptions?limit={limit}&cursor={cursor}")
+        @Headers("Accept: application/x-ndjson")
+        Response getSubscriptionPage(@Param("limit") int limit, @Param("cursor") String cursor);
+
+        @RequestLine("GET /subscriptions/changes")
+        SubscriptionChangeListDTO getSubscriptionChanges();
+
+        @RequestLine("GET /subscriptions/changes?since={since}&limit={limit}")
+        SubscriptionChangeListDTO getSubscriptionChanges(@Param("since") long since, @Param("limit") int limit);
     }
 
     SubscriptionListDTO loadSubscriptions(int limit) {
@@ -62,4 +95,79 @@ public final class SubscriptionRetrievalClient {
         return subscriptionRetrievalService.getSubscriptions(apiContext, apiVersion);
     }
 
+    /**
+     * @return an empty change list carrying the sequence id of the latest subscription change
+     */
+    SubscriptionChangeListDTO loadLatestSubscriptionChange() {
+        return subscriptionRetrievalService.getSubscriptionChanges();
+    }
+
+    /**
+     * @param sequenceId sequence id of the last change already applied
+     * @param limit      maximum number of changes to retrieve
+     * @return subscription changes recorded after the given sequence id, in order
+     */
+    SubscriptionChangeListDTO loadSubscriptionChanges(long sequenceId, int limit) {
+        return subscriptionRetrievalService.getSubscriptionChanges(sequenceId, limit);
+    }
+
+    /**
+     * Retrieves the subscriptions of all APIs page by page, ordered by API. Pages are read as newline delimited
+     * JSON and each subscription is handed to the consumer as soon as it is read, so neither the whole snapshot nor
+     * a whole page is held in memory.
+     *
+     * @param pageSize             maximum number of subscriptions retrieved with a single request
+     * @param subscriptionConsumer consumer of the retrieved subscriptions
+     * @return number of subscriptions retrieved
+     */
+    long loadAllSubscriptions(int pageSize, Consumer<SubscriptionDTO> subscriptionConsumer) {
+        long count = 0;
+        int pages = 0;
+        String cursor = null;
+        do {
+            try (Response response = cursor == null ? subscriptionRetrievalService.getSubscriptionPage(pageSize) :
+                    subscriptionRetrievalService.getSubscriptionPage(pageSize, cursor)) {
+                if (response.status() != 200) {
+                    throw FeignException.errorStatus("loadAllSubscriptions", response);
+                }
+                count += readSubscriptions(response, subscriptionConsumer);
+                cursor = getHeader(response, CURSOR_HEADER);
+                pages++;
+            }
+        } while (cursor != null);
+        if (log.isDebugEnabled()) {
+            log.debug("Loaded " + count + " subscriptions in " + pages + " pages");
+        }
+        return count;
+    }
+
+    private static int readSubscriptions(Response response, Consumer<SubscriptionDTO> subscriptionConsumer) {
+        if (response.body() == null) {
+            return 0;
+        }
+        int count = 0;
+        try (JsonReader reader = new JsonReader(new InputStreamReader(response.body().asInputStream(),
+                StandardCharsets.UTF_8))) {
+            // Lenient, to read one top level value after another
+            reader.setLenient(true);
+            while (reader.peek() != JsonToken.END_DOCUMENT) {
+                SubscriptionDTO subscription = gson.fromJson(reader, SubscriptionDTO.class);
+                subscriptionConsumer.accept(subscription);
+                count++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error while reading subscriptions", e);
+        }
+        return count;
+    }
+
+    private static String getHeader(Response response, String name) {
+        for (Map.Entry<String, Collection<String>> header : response.headers().entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty()) {
+                return header.getValue().iterator().next();
+            }
+        }
+        return null;
+    }
+
 }
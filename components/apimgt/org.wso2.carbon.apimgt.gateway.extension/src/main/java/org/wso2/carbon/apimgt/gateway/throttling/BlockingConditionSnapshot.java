@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.apimgt.gateway.throttling.utils.BloomFilter;
+import org.wso2.carbon.apimgt.gateway.throttling.utils.IPAddress;
+import org.wso2.carbon.apimgt.gateway.throttling.utils.IPPrefixTrie;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of the blocking conditions of the gateway, replaced as a whole whenever the conditions change.
+ * <p>
+ * API, application, user and single IP conditions are kept in exact sets, fronted by a single Bloom filter. A request
+ * which is not blocked is usually rejected by the filter, with hashes computed from the request attributes without
+ * building the blocking keys. IP conditions given as CIDR blocks are kept in a prefix trie per tenant.
+ * <p>
+ * IP conditions have the form {tenantDomain}:{ip} or {tenantDomain}:{ip}/{prefixLength}, and application conditions
+ * the form {subscriber}:{applicationName}.
+ */
+public final class BlockingConditionSnapshot {
+
+    private static final Logger log = LoggerFactory.getLogger(BlockingConditionSnapshot.class);
+
+    // Seeds keeping equal values of different condition types apart in the filter
+    private static final int API_SEED = 0x3c6ef372;
+    private static final int APPLICATION_SEED = 0x9e3779b9;
+    private static final int USER_SEED = 0xbb67ae85;
+    private static final int IP_SEED = 0xa54ff53a;
+
+    public static final BlockingConditionSnapshot EMPTY = new BlockingConditionSnapshot(0, new HashSet<>(),
+            new HashSet<>(), new HashSet<>(), new HashSet<>());
+
+    private final long version;
+    private final BloomFilter filter;
+    private final Set<String> apis;
+    private final Set<String> applications;
+    private final Set<String> users;
+    private final Map<String, Set<IPAddress>> ips = new HashMap<>();
+    private final Map<String, IPPrefixTrie> ipBlocks = new HashMap<>();
+    private final boolean empty;
+
+    /**
+     * @param version      version of the snapshot, increasing with every change of the conditions
+     * @param apis         blocked API contexts
+     * @param applications blocked applications
+     * @param users        blocked users
+     * @param ips          blocked IP addresses and CIDR blocks
+     */
+    public BlockingConditionSnapshot(long version, Collection<String> apis, Collection<String> applications,
+                                     Collection<String> users, Collection<String> ips) {
+        this.version = version;
+        this.apis = new HashSet<>(apis);
+        this.applications = new HashSet<>(applications);
+        this.users = new HashSet<>(users);
+        this.filter = new BloomFilter(apis.size() + applications.size() + users.size() + ips.size());
+        for (String api : apis) {
+            filter.add(API_SEED ^ api.hashCode());
+        }
+        for (String application : applications) {
+            filter.add(APPLICATION_SEED ^ application.hashCode());
+        }
+        for (String user : users) {
+            filter.add(USER_SEED ^ user.hashCode());
+        }
+        for (String ip : ips) {
+            addIPCondition(ip);
+        }
+        empty = apis.isEmpty() && applications.isEmpty() && users.isEmpty() && ips.isEmpty();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return true if there is no blocking condition
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * Checks whether a request matches any of the blocking conditions.
+     *
+     * @param apiContext      context of the API
+     * @param subscriber      subscriber of the application
+     * @param applicationName name of the application
+     * @param user            authorized user
+     * @param tenantDomain    tenant domain of the API
+     * @param clientIp        client IP of the request, may be invalid if unknown
+     * @return true if the request is blocked
+     */
+    public boolean isBlocked(CharSequence apiContext, CharSequence subscriber, CharSequence applicationName,
+                             CharSequence user, String tenantDomain, IPAddress clientIp) {
+        return isAPIBlocked(apiContext) || isApplicationBlocked(subscriber, applicationName) || isUserBlocked(user)
+                || isIPBlocked(tenantDomain, clientIp);
+    }
+
+    public boolean isAPIBlocked(CharSequence apiContext) {
+        return apiContext != null && filter.mightContain(API_SEED ^ hash(apiContext))
+                && apis.contains(ThrottleKey.lookupKey(apiContext));
+    }
+
+    public boolean isApplicationBlocked(CharSequence subscriber, CharSequence applicationName) {
+        if (subscriber == null || applicationName == null) {
+            return false;
+        }
+        // Hash of {subscriber}:{applicationName}, so that the key is only built when the filter matches
+        int hash = (hash(subscriber) * 31 + ':') * pow31(applicationName.length()) + hash(applicationName);
+        if (!filter.mightContain(APPLICATION_SEED ^ hash)) {
+            return false;
+        }
+        ThrottleKey applicationKey = ThrottleKey.forCurrentThread().getAppBlockingKey().reset().append(subscriber)
+                .append(':').append(applicationName);
+        return applications.contains(applicationKey);
+    }
+
+    public boolean isUserBlocked(CharSequence user) {
+        return user != null && filter.mightContain(USER_SEED ^ hash(user))
+                && users.contains(ThrottleKey.lookupKey(user));
+    }
+
+    public boolean isIPBlocked(String tenantDomain, IPAddress clientIp) {
+        if (tenantDomain == null || clientIp == null || !clientIp.isValid()) {
+            return false;
+        }
+        if (filter.mightContain(IP_SEED ^ (tenantDomain.hashCode() * 31 + clientIp.hashCode()))) {
+            Set<IPAddress> tenantIps = ips.get(tenantDomain);
+            if (tenantIps != null && tenantIps.contains(clientIp)) {
+                return true;
+            }
+        }
+        if (ipBlocks.isEmpty()) {
+            return false;
+        }
+        IPPrefixTrie trie = ipBlocks.get(tenantDomain);
+        return trie != null && trie.contains(clientIp);
+    }
+
+    private void addIPCondition(String condition) {
+        int separator = condition.indexOf(':');
+        int slash = condition.lastIndexOf('/');
+        IPAddress address = new IPAddress();
+        if (separator <= 0 || !address.set(condition, separator + 1, slash > separator ? slash : condition.length())) {
+            log.warn("Ignoring invalid IP blocking condition : " + condition);
+            return;
+        }
+        String tenantDomain = condition.substring(0, separator);
+        if (slash > separator) {
+            int prefixLength;
+            try {
+                prefixLength = Integer.parseInt(condition.substring(slash + 1).trim());
+            } catch (NumberFormatException e) {
+                prefixLength = -1;
+            }
+            if (prefixLength < 0 || prefixLength > (address.isIPv4() ? 32 : 128)) {
+                log.warn("Ignoring IP blocking condition with invalid prefix length : " + condition);
+                return;
+            }
+            ipBlocks.computeIfAbsent(tenantDomain, tenant -> new IPPrefixTrie()).add(address, prefixLength);
+        } else {
+            ips.computeIfAbsent(tenantDomain, tenant -> new HashSet<>()).add(address);
+            filter.add(IP_SEED ^ (tenantDomain.hashCode() * 31 + address.hashCode()));
+        }
+    }
+
+    /**
+     * @return same hash as {@link String#hashCode()}, which {@link ThrottleKey} also uses
+     */
+    private static int hash(CharSequence value) {
+        if (value instanceof String || value instanceof ThrottleKey) {
+            return value.hashCode();
+        }
+        int hash = 0;
+        for (int i = 0; i < value.length(); i++) {
+            hash = 31 * hash + value.charAt(i);
+        }
+        return hash;
+    }
+
+    private static int pow31(int exponent) {
+        int result = 1;
+        int base = 31;
+        while (exponent > 0) {
+            if ((exponent & 1) != 0) {
+                result *= base;
+            }
+            base *= base;
+            exponent >>= 1;
+        }
+        return result;
+    }
+}
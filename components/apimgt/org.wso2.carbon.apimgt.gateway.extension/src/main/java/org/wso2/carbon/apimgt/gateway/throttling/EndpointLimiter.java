@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.apimgt.gateway.throttling.dto.EndpointInfoDTO;
+import org.wso2.carbon.apimgt.gateway.throttling.dto.EndpointListDTO;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Protects backend endpoints on this node. Each endpoint known to the gateway has a limit, keyed by endpoint ID,
+ * which enforces the maximum TPS of the endpoint and optionally an adaptive concurrency limit. Requests over either
+ * limit are rejected before they are sent, rather than waiting for a connection to the endpoint.
+ * <p>
+ * The maximum TPS is divided by the number of gateway nodes and counted per second like the hard limits of APIs,
+ * see {@link HardLimitThrottler}. The concurrency limit follows additive increase, multiplicative decrease: it
+ * grows by one when a request completes within the latency threshold while the limit is at least half used, and
+ * is multiplied by the backoff ratio when a request is slower or fails, at most once per latency threshold.
+ */
+public class EndpointLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(EndpointLimiter.class);
+
+    private final Map<String, EndpointLimit> limits = new ConcurrentHashMap<>();
+    private final AtomicLong rejectedRequests = new AtomicLong();
+    private volatile int nodeCount = 1;
+    private volatile boolean enabled = true;
+    private volatile boolean adaptiveConcurrencyEnabled;
+    private volatile int initialConcurrency = 20;
+    private volatile int minConcurrency = 1;
+    private volatile int maxConcurrency = 1000;
+    private volatile long latencyThresholdNanos = TimeUnit.SECONDS.toNanos(1);
+    private volatile double backoffRatio = 0.9;
+
+    /**
+     * Applies the given throttling configuration. The concurrency limits of known endpoints are kept, within the
+     * new bounds. If endpoint limiting is disabled the known endpoints are dropped.
+     *
+     * @param configuration throttling configuration
+     */
+    public void init(ThrottlingConfiguration configuration) {
+        enabled = configuration.isEndpointLimitingEnabled();
+        if (!enabled) {
+            limits.clear();
+        }
+        nodeCount = Math.max(configuration.getGatewayNodeCount(), 1);
+        minConcurrency = Math.max(configuration.getEndpointMinConcurrency(), 1);
+        maxConcurrency = Math.max(configuration.getEndpointMaxConcurrency(), minConcurrency);
+        initialConcurrency = Math.min(Math.max(configuration.getEndpointInitialConcurrency(), minConcurrency),
+                maxConcurrency);
+        latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getEndpointLatencyThreshold());
+        double ratio = configuration.getEndpointBackoffRatio();
+        backoffRatio = ratio > 0 && ratio < 1 ? ratio : 0.9;
+        adaptiveConcurrencyEnabled = configuration.isAdaptiveConcurrencyEnabled();
+        for (EndpointLimit limit : limits.values()) {
+            int concurrency = limit.concurrencyLimit.get();
+            limit.concurrencyLimit.set(Math.min(Math.max(concurrency, minConcurrency), maxConcurrency));
+        }
+    }
+
+    /**
+     * Adds the limits of the endpoints defined in API Manager core, so that they are enforced from the first request.
+     * Endpoints changed afterwards are updated from the endpoint events of the publisher topic.
+     *
+     * @param endpointRetrievalClient client of the endpoints API of API Manager core
+     * @return number of endpoints loaded
+     */
+    public int loadEndpoints(EndpointRetrievalClient endpointRetrievalClient) {
+        EndpointListDTO endpointList = endpointRetrievalClient.loadEndpoints();
+        if (endpointList == null) {
+            return 0;
+        }
+        int loaded = 0;
+        for (EndpointInfoDTO endpoint : endpointList.getList()) {
+            if (endpoint.getId() != null) {
+                updateEndpoint(endpoint.getId(), endpoint.getMaxTps());
+                loaded++;
+            }
+        }
+        log.info("Loaded limits of " + loaded + " endpoints");
+        return loaded;
+    }
+
+    /**
+     * Adds or updates the limit of an endpoint. The state of an existing limit is kept.
+     *
+     * @param endpointId endpoint ID
+     * @param maxTps     cluster wide maximum number of requests per second, or null or 0 for no limit. Ignored if
+     *                   endpoint limiting is disabled
+     */
+    public void updateEndpoint(String endpointId, Long maxTps) {
+        if (!enabled) {
+            return;
+        }
+        long tps = maxTps != null && maxTps > 0 ? maxTps : 0;
+        limits.computeIfAbsent(endpointId, k -> new EndpointLimit(initialConcurrency)).maxTps = tps;
+    }
+
+    /**
+     * @return true if requests are limited by the limits of their endpoints
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param endpointId endpoint ID
+     */
+    public void removeEndpoint(String endpointId) {
+        limits.remove(endpointId);
+    }
+
+    /**
+     * @param endpointId endpoint ID
+     * @return limit of the endpoint, or null if the endpoint has no limit
+     */
+    public EndpointLimit getEndpointLimit(String endpointId) {
+        return limits.get(endpointId);
+    }
+
+    /**
+     * Admits a request to an endpoint. A request which is admitted should be completed with
+     * {@link #release(EndpointLimit, long, boolean)}.
+     *
+     * @param limit limit of the endpoint
+     * @return true if the request is admitted, false if it is over the limit of the endpoint
+     */
+    public boolean tryAcquire(EndpointLimit limit) {
+        return tryAcquire(limit, System.currentTimeMillis());
+    }
+
+    boolean tryAcquire(EndpointLimit limit, long nowMillis) {
+        // Take the concurrency slot first, since it can be given back if the TPS limit is reached while a
+        // request counted within the current second cannot
+        if (limit.tryAcquireConcurrency(adaptiveConcurrencyEnabled)) {
+            if (limit.tryAcquireTps(nodeCount, nowMillis / 1000)) {
+                return true;
+            }
+            limit.inFlight.decrementAndGet();
+        }
+        rejectedRequests.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Completes a request admitted by {@link #tryAcquire(EndpointLimit)} and adapts the concurrency limit of the
+     * endpoint.
+     *
+     * @param limit        limit of the endpoint
+     * @param latencyNanos latency of the endpoint for the request, or a negative value if unknown
+     * @param failed       true if the endpoint failed the request
+     */
+    public void release(EndpointLimit limit, long latencyNanos, boolean failed) {
+        release(limit, latencyNanos, failed, System.nanoTime());
+    }
+
+    void release(EndpointLimit limit, long latencyNanos, boolean failed, long nowNanos) {
+        int inFlight = limit.inFlight.getAndDecrement();
+        if (!adaptiveConcurrencyEnabled || latencyNanos < 0) {
+            return;
+        }
+        if (failed || latencyNanos > latencyThresholdNanos) {
+            limit.decrease(backoffRatio, minConcurrency, latencyThresholdNanos, nowNanos);
+        } else {
+            limit.increase(inFlight, maxConcurrency);
+        }
+    }
+
+    /**
+     * @param endpointId endpoint ID
+     * @return current concurrency limit of the endpoint, or 0 if the endpoint has no limit
+     */
+    public int getConcurrencyLimit(String endpointId) {
+        EndpointLimit limit = limits.get(endpointId);
+        return limit != null ? limit.concurrencyLimit.get() : 0;
+    }
+
+    /**
+     * @return number of requests rejected so far
+     */
+    public long getRejectedRequestCount() {
+        return rejectedRequests.get();
+    }
+
+    /**
+     * Limit of a single endpoint.
+     */
+    public static final class EndpointLimit {
+
+        private volatile long maxTps;
+        private final PerSecondCounter tpsCounter = new PerSecondCounter();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger concurrencyLimit;
+        private final AtomicLong lastDecreaseNanos = new AtomicLong(System.nanoTime());
+
+        private EndpointLimit(int concurrencyLimit) {
+            this.concurrencyLimit = new AtomicInteger(concurrencyLimit);
+        }
+
+        /**
+         * @return cluster wide maximum number of requests per second, or 0 for no limit
+         */
+        public long getMaxTps() {
+            return maxTps;
+        }
+
+        private boolean tryAcquireTps(int nodeCount, long second) {
+            long tps = maxTps;
+            if (tps <= 0) {
+                return true;
+            }
+            // Round up so that every node allows at least one request per second
+            return tpsCounter.tryAcquire((tps + nodeCount - 1) / nodeCount, second);
+        }
+
+        private boolean tryAcquireConcurrency(boolean adaptive) {
+            if (!adaptive) {
+                inFlight.incrementAndGet();
+                return true;
+            }
+            while (true) {
+                int current = inFlight.get();
+                if (current >= concurrencyLimit.get()) {
+                    return false;
+                }
+                if (inFlight.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void increase(int inFlight, int maxConcurrency) {
+            int current = concurrencyLimit.get();
+            // Only grow a limit which is being used, so that it does not drift up while the endpoint is idle
+            if (current < maxConcurrency && inFlight * 2 >= current) {
+                concurrencyLimit.compareAndSet(current, current + 1);
+            }
+        }
+
+        private void decrease(double backoffRatio, int minConcurrency, long intervalNanos, long now) {
+            long last = lastDecreaseNanos.get();
+            // A burst of slow responses to requests sent under the same limit should back off only once
+            if (now - last < intervalNanos || !lastDecreaseNanos.compareAndSet(last, now)) {
+                return;
+            }
+            int current = concurrencyLimit.get();
+            concurrencyLimit.compareAndSet(current, Math.max((int) (current * backoffRatio), minConcurrency));
+        }
+    }
+}
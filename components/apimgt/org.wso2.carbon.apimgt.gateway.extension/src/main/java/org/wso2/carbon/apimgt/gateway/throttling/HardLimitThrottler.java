@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Enforces the hard limits (maximum TPS toward the production and sandbox backends) of APIs on this node.
+ * <p>
+ * A cluster wide limit is divided by the number of gateway nodes, so that each node allows its share without
+ * coordination. Each API and key type has a {@link PerSecondCounter}, so a request does not allocate.
+ * The number of counters is bounded by the number of APIs deployed.
+ */
+public class HardLimitThrottler {
+
+    private final Map<String, PerSecondCounter> productionCounters = new ConcurrentHashMap<>();
+    private final Map<String, PerSecondCounter> sandboxCounters = new ConcurrentHashMap<>();
+    private final AtomicLong rejectedRequests = new AtomicLong();
+    private volatile int nodeCount = 1;
+
+    /**
+     * @param nodeCount number of gateway nodes sharing the hard limits
+     */
+    public void setNodeCount(int nodeCount) {
+        this.nodeCount = Math.max(nodeCount, 1);
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Counts a request toward the hard limit of an API.
+     *
+     * @param apiKey     API throttle key, either a {@link String} or a {@link ThrottleKey}
+     * @param production true for the production backend, false for the sandbox backend
+     * @param maxTps     cluster wide maximum number of requests per second
+     * @return true if the request is allowed, false if the hard limit of this node is reached
+     */
+    public boolean tryAcquire(CharSequence apiKey, boolean production, int maxTps) {
+        if (maxTps <= 0) {
+            return true;
+        }
+        Map<String, PerSecondCounter> counters = production ? productionCounters : sandboxCounters;
+        PerSecondCounter counter = counters.get(ThrottleKey.lookupKey(apiKey));
+        if (counter == null) {
+            counter = counters.computeIfAbsent(apiKey.toString(), k -> new PerSecondCounter());
+        }
+        // Round up so that every node allows at least one request per second
+        long nodeLimit = (maxTps + nodeCount - 1) / nodeCount;
+        if (counter.tryAcquire(nodeLimit, System.currentTimeMillis() / 1000)) {
+            return true;
+        }
+        rejectedRequests.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * @return number of requests rejected so far
+     */
+    public long getRejectedRequestCount() {
+        return rejectedRequests.get();
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Key template of a custom throttle policy, compiled into a list of literal and variable segments so that the
+ * throttle key of a request can be rendered in a single pass.
+ * <p>
+ * A template such as {@code $userId:$apiContext} is rendered by replacing each variable with its value for the
+ * request. The global policy engine only sends throttle decisions for keys which have exceeded the policy, so a
+ * template is worth rendering only while the throttle data holds a key matching it (see {@link #matches(String)}
+ * and {@link #isThrottleable(long)}).
+ */
+public final class KeyTemplate {
+
+    /**
+     * Variables which can be used in a key template.
+     */
+    public enum Variable {
+        RESOURCE_KEY("$resourceKey"),
+        USER_ID("$userId"),
+        API_CONTEXT("$apiContext"),
+        API_VERSION("$apiVersion"),
+        APP_TENANT("$appTenant"),
+        API_TENANT("$apiTenant"),
+        APP_ID("$appId");
+
+        private final String name;
+        private final int mask;
+
+        Variable(String name) {
+            this.name = name;
+            this.mask = 1 << ordinal();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getMask() {
+            return mask;
+        }
+    }
+
+    private static final Variable[] VARIABLES = Variable.values();
+
+    private final String template;
+    // Each segment is either a literal String or a Variable
+    private final Object[] segments;
+    private final int variableMask;
+    private volatile long throttledUntil;
+
+    private KeyTemplate(String template, Object[] segments, int variableMask) {
+        this.template = template;
+        this.segments = segments;
+        this.variableMask = variableMask;
+    }
+
+    /**
+     * Compiles the given key template. Any '$' which does not start a known variable is kept as a literal.
+     *
+     * @param template key template received from the global policy engine
+     * @return compiled key template
+     */
+    public static KeyTemplate compile(String template) {
+        List<Object> segments = new ArrayList<>();
+        int variableMask = 0;
+        int literalStart = 0;
+        int index = template.indexOf('$');
+        while (index >= 0) {
+            Variable variable = variableAt(template, index);
+            if (variable != null) {
+                if (index > literalStart) {
+                    segments.add(template.substring(literalStart, index));
+                }
+                segments.add(variable);
+                variableMask |= variable.getMask();
+                literalStart = index + variable.getName().length();
+                index = template.indexOf('$', literalStart);
+            } else {
+                index = template.indexOf('$', index + 1);
+            }
+        }
+        if (literalStart < template.length()) {
+            segments.add(template.substring(literalStart));
+        }
+        return new KeyTemplate(template, segments.toArray(), variableMask);
+    }
+
+    private static Variable variableAt(String template, int index) {
+        Variable match = null;
+        for (Variable variable : VARIABLES) {
+            if (template.startsWith(variable.getName(), index)
+                    && (match == null || variable.getName().length() > match.getName().length())) {
+                match = variable;
+            }
+        }
+        return match;
+    }
+
+    /**
+     * Renders the throttle key of a request into the given key. Values of variables which are not used by the
+     * template are ignored and may be null.
+     *
+     * @return the given key
+     */
+    public ThrottleKey render(ThrottleKey key, CharSequence resourceKey, String userId, String apiContext,
+                              String apiVersion, String appTenant, String apiTenant, String appId) {
+        key.reset();
+        for (Object segment : segments) {
+            if (segment instanceof String) {
+                key.append((String) segment);
+                continue;
+            }
+            switch ((Variable) segment) {
+                case RESOURCE_KEY:
+                    key.append(resourceKey);
+                    break;
+                case USER_ID:
+                    key.append(userId);
+                    break;
+                case API_CONTEXT:
+                    key.append(apiContext);
+                    break;
+                case API_VERSION:
+                    key.append(apiVersion);
+                    break;
+                case APP_TENANT:
+                    key.append(appTenant);
+                    break;
+                case API_TENANT:
+                    key.append(apiTenant);
+                    break;
+                case APP_ID:
+                    key.append(appId);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Checks whether the given throttle key could have been rendered from this template, i.e. whether the literal
+     * segments of the template appear in the key in order. Used when throttle decisions are received, so it is not
+     * on the request path.
+     *
+     * @param throttleKey throttle key received from the global policy engine
+     * @return true if the key may belong to this template
+     */
+    public boolean matches(String throttleKey) {
+        int position = 0;
+        int last = segments.length - 1;
+        for (int i = 0; i <= last; i++) {
+            if (!(segments[i] instanceof String)) {
+                continue;
+            }
+            String literal = (String) segments[i];
+            if (i == 0) {
+                if (!throttleKey.startsWith(literal)) {
+                    return false;
+                }
+                position = literal.length();
+            } else if (i == last) {
+                return throttleKey.length() - literal.length() >= position && throttleKey.endsWith(literal);
+            } else {
+                int index = throttleKey.indexOf(literal, position);
+                if (index < 0) {
+                    return false;
+                }
+                position = index + literal.length();
+            }
+        }
+        // Template ends with a variable, or has no variables at all
+        return variableMask != 0 || position == throttleKey.length();
+    }
+
+    /**
+     * Records that a key rendered from this template is throttled until the given time.
+     *
+     * @param nextAccessTimestamp timestamp at which the key can be accessed again
+     */
+    public synchronized void markThrottled(long nextAccessTimestamp) {
+        if (nextAccessTimestamp > throttledUntil) {
+            throttledUntil = nextAccessTimestamp;
+        }
+    }
+
+    /**
+     * @param now current time in milliseconds
+     * @return true if a key rendered from this template may be throttled at the given time
+     */
+    public boolean isThrottleable(long now) {
+        return throttledUntil >= now;
+    }
+
+    /**
+     * @return timestamp until which a key rendered from this template may be throttled, 0 if no key has been
+     * throttled
+     */
+    public long getThrottledUntil() {
+        return throttledUntil;
+    }
+
+    /**
+     * @return bit mask of the {@link Variable}s used by this template
+     */
+    public int getVariableMask() {
+        return variableMask;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+}
@@ -0,0 +1,434 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.apimgt.core.models.policy.APIPolicy;
+import org.wso2.carbon.apimgt.core.models.policy.ApplicationPolicy;
+import org.wso2.carbon.apimgt.core.models.policy.BandwidthLimit;
+import org.wso2.carbon.apimgt.core.models.policy.Limit;
+import org.wso2.carbon.apimgt.core.models.policy.Policy;
+import org.wso2.carbon.apimgt.core.models.policy.RequestCountLimit;
+import org.wso2.carbon.apimgt.core.models.policy.SubscriptionPolicy;
+import org.wso2.carbon.apimgt.core.util.APIMgtConstants;
+import org.wso2.carbon.apimgt.gateway.throttling.dto.ThrottlePolicyDTO;
+import org.wso2.carbon.apimgt.gateway.throttling.dto.ThrottlePolicyListDTO;
+import org.wso2.carbon.apimgt.gateway.utils.TaskScheduler;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes throttle decisions inside the gateway, without a global policy engine.
+ * <p>
+ * Allowed requests are counted per throttle key with a sliding window counter, using the same keys as the throttle
+ * decisions received from the global policy engine. When the quota of the application, subscription, API or
+ * resource policy of a key is used up, the decision is written to {@link ThrottleDataHolder} through the same methods
+ * the global policy engine updates use, so the throttle handler does not distinguish between the two.
+ * <p>
+ * Bandwidth policies count the payload sizes of requests, given by their Content-Length headers, and of their
+ * responses once they are sent, see {@link #onResponse(RequestThrottleKeys, long)}.
+ * <p>
+ * Only the default quota of API and resource policies is evaluated locally. Quotas of conditional groups still
+ * require the global policy engine.
+ */
+public class LocalThrottleEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalThrottleEngine.class);
+    private static final long EVICTION_INTERVAL_MILLIS = 30000L;
+    private static final String[] POLICY_LEVELS = {APIMgtConstants.ThrottlePolicyConstants.APPLICATION_LEVEL,
+            APIMgtConstants.ThrottlePolicyConstants.SUBSCRIPTION_LEVEL,
+            APIMgtConstants.ThrottlePolicyConstants.API_LEVEL};
+
+    private final ThrottleDataHolder throttleDataHolder;
+    private final Map<String, Quota> applicationQuotas = new ConcurrentHashMap<>();
+    private final Map<String, Quota> subscriptionQuotas = new ConcurrentHashMap<>();
+    private final Map<String, Quota> apiQuotas = new ConcurrentHashMap<>();
+    private final Map<String, SlidingWindowCounter> counters = new ConcurrentHashMap<>();
+    private final ThreadLocal<ThrottleKey> conditionKeys = ThreadLocal.withInitial(ThrottleKey::new);
+    private volatile ThrottlingMode mode = ThrottlingMode.GLOBAL;
+    private volatile int nodeCount = 1;
+    private ScheduledFuture<?> evictor;
+
+    public LocalThrottleEngine(ThrottleDataHolder throttleDataHolder) {
+        this.throttleDataHolder = throttleDataHolder;
+    }
+
+    /**
+     * @param mode      throttling mode. Requests are only counted in the local modes.
+     * @param nodeCount number of gateway nodes sharing the limits in {@link ThrottlingMode#LOCAL_APPROXIMATE} mode
+     */
+    public synchronized void setMode(ThrottlingMode mode, int nodeCount) {
+        this.mode = mode;
+        this.nodeCount = Math.max(1, nodeCount);
+        if (isEnabled() && evictor == null) {
+            evictor = TaskScheduler.scheduleWithFixedDelay("local-throttle-counter-eviction", this::evictIdleCounters,
+                    EVICTION_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        } else if (!isEnabled()) {
+            shutdown();
+        }
+    }
+
+    public ThrottlingMode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return true if throttle decisions are made locally
+     */
+    public boolean isEnabled() {
+        return mode != ThrottlingMode.GLOBAL;
+    }
+
+    /**
+     * Deploys the application, subscription and API policies defined in API Manager core, so that their quotas are
+     * enforced from the first request. Policies changed afterwards are deployed from the policy events of the
+     * publisher topic.
+     *
+     * @param policyRetrievalClient client of the policies API of API Manager core
+     * @return number of policies whose quota is enforced locally
+     */
+    public int loadPolicies(PolicyRetrievalClient policyRetrievalClient) {
+        int deployed = 0;
+        for (String policyLevel : POLICY_LEVELS) {
+            ThrottlePolicyListDTO policyList = policyRetrievalClient.loadPolicies(policyLevel);
+            if (policyList == null) {
+                continue;
+            }
+            for (ThrottlePolicyDTO policyDTO : policyList.getList()) {
+                policyDTO.setPolicyLevel(policyLevel);
+                Policy policy = policyDTO.toPolicy();
+                if (policy != null && deployPolicy(policy)) {
+                    deployed++;
+                }
+            }
+        }
+        log.info("Loaded " + deployed + " throttle policies");
+        return deployed;
+    }
+
+    /**
+     * Deploys an application, subscription or API policy. A policy with the same name replaces the previous one;
+     * requests already counted are kept.
+     *
+     * @param policy throttle policy
+     * @return true if the quota of the policy is enforced locally
+     */
+    public boolean deployPolicy(Policy policy) {
+        Map<String, Quota> quotas = getQuotas(policy);
+        if (quotas == null) {
+            log.warn("Policy " + policy.getPolicyName() + " of type " + policy.getClass().getSimpleName()
+                    + " cannot be evaluated locally");
+            return false;
+        }
+        Quota quota = Quota.of(policy);
+        if (quota == null) {
+            quotas.remove(policy.getPolicyName());
+            log.warn("Quota of policy " + policy.getPolicyName() + " cannot be evaluated locally. Requests will not be "
+                    + "throttled by this policy");
+            return false;
+        }
+        quotas.put(policy.getPolicyName(), quota);
+        if (log.isDebugEnabled()) {
+            log.debug("Deployed policy " + policy.getPolicyName() + " for local throttling");
+        }
+        return true;
+    }
+
+    public void undeployPolicy(Policy policy) {
+        Map<String, Quota> quotas = getQuotas(policy);
+        if (quotas != null) {
+            quotas.remove(policy.getPolicyName());
+        }
+    }
+
+    /**
+     * Counts a request which was allowed by the throttle handler. Throttle keys are reused by the calling thread and
+     * are only copied when a key is seen for the first time.
+     *
+     * @param applicationKey          application level throttle key
+     * @param applicationTier         application policy
+     * @param subscriptionKey         subscription level throttle key
+     * @param subscriptionTier        subscription policy
+     * @param resourceKey             API or resource level throttle key
+     * @param resourceTier            API or resource policy
+     * @param defaultConditionGroupId id of the default condition group of the API or resource policy, null if the
+     *                                resource is not throttled
+     * @param bytes                   size of the request payload
+     */
+    public void onRequest(CharSequence applicationKey, String applicationTier, CharSequence subscriptionKey,
+                          String subscriptionTier, CharSequence resourceKey, String resourceTier,
+                          String defaultConditionGroupId, long bytes) {
+        if (!isEnabled()) {
+            return;
+        }
+        account(applicationKey, applicationTier, subscriptionKey, subscriptionTier, resourceKey, resourceTier,
+                defaultConditionGroupId, 1, bytes);
+    }
+
+    /**
+     * Counts the payload of the response to a request allowed by the throttle handler against the bandwidth
+     * policies of the request. Request count policies are not affected.
+     *
+     * @param keys  throttle keys and policies of the request
+     * @param bytes size of the response payload
+     */
+    public void onResponse(RequestThrottleKeys keys, long bytes) {
+        if (!isEnabled() || bytes <= 0) {
+            return;
+        }
+        account(keys.getApplicationKey(), keys.getApplicationTier(), keys.getSubscriptionKey(),
+                keys.getSubscriptionTier(), keys.getResourceKey(), keys.getResourceTier(),
+                keys.getDefaultConditionGroupId(), 0, bytes);
+    }
+
+    /**
+     * Checks the deployed policies, whether or not throttle decisions are made locally, so that the payload sizes of
+     * responses are only captured for requests which are subject to a bandwidth policy.
+     *
+     * @return true if any of the given policies limits bandwidth, in which case response payloads need to be
+     * counted with {@link #onResponse(RequestThrottleKeys, long)} or published to the global policy engine
+     */
+    public boolean isBandwidthLimited(String applicationTier, String subscriptionTier, String resourceTier) {
+        return isBandwidthQuota(applicationQuotas, applicationTier)
+                || isBandwidthQuota(subscriptionQuotas, subscriptionTier) || isBandwidthQuota(apiQuotas, resourceTier);
+    }
+
+    private void account(CharSequence applicationKey, String applicationTier, CharSequence subscriptionKey,
+                         String subscriptionTier, CharSequence resourceKey, String resourceTier,
+                         String defaultConditionGroupId, long requests, long bytes) {
+        long now = System.currentTimeMillis();
+        long nextAccessTimestamp = count(applicationKey, applicationQuotas, applicationTier, requests, bytes, now);
+        if (nextAccessTimestamp != ThrottleDecisionStore.NOT_THROTTLED) {
+            throttleDataHolder.addThrottleData(applicationKey.toString(), nextAccessTimestamp);
+        }
+        nextAccessTimestamp = count(subscriptionKey, subscriptionQuotas, subscriptionTier, requests, bytes, now);
+        if (nextAccessTimestamp != ThrottleDecisionStore.NOT_THROTTLED) {
+            throttleDataHolder.addThrottleData(subscriptionKey.toString(), nextAccessTimestamp);
+        }
+        if (defaultConditionGroupId != null) {
+            ThrottleKey conditionKey = conditionKeys.get().reset().append(resourceKey).append(defaultConditionGroupId);
+            nextAccessTimestamp = count(conditionKey, apiQuotas, resourceTier, requests, bytes, now);
+            if (nextAccessTimestamp != ThrottleDecisionStore.NOT_THROTTLED) {
+                // The throttle handler only evaluates conditions of throttled APIs and resources
+                throttleDataHolder.addThrottledAPIKey(resourceKey.toString(), nextAccessTimestamp);
+                throttleDataHolder.addThrottleData(conditionKey.toString(), nextAccessTimestamp);
+            }
+        }
+    }
+
+    private static boolean isBandwidthQuota(Map<String, Quota> quotas, String tier) {
+        Quota quota = tier != null ? quotas.get(tier) : null;
+        return quota != null && quota.bandwidth;
+    }
+
+    /**
+     * @return number of throttle keys currently counted
+     */
+    public int getCounterCount() {
+        return counters.size();
+    }
+
+    public synchronized void shutdown() {
+        if (evictor != null) {
+            evictor.cancel(false);
+            evictor = null;
+        }
+        counters.clear();
+    }
+
+    /**
+     * Counts requests, or bytes for a bandwidth policy, against the quota of the given policy.
+     *
+     * @return timestamp until which the key is throttled if this request used up the quota,
+     * {@link ThrottleDecisionStore#NOT_THROTTLED} otherwise
+     */
+    private long count(CharSequence key, Map<String, Quota> quotas, String tier, long requests, long bytes,
+                       long now) {
+        if (key == null || tier == null) {
+            return ThrottleDecisionStore.NOT_THROTTLED;
+        }
+        Quota quota = quotas.get(tier);
+        if (quota == null || (quota.bandwidth ? bytes : requests) == 0) {
+            return ThrottleDecisionStore.NOT_THROTTLED;
+        }
+        SlidingWindowCounter counter = counters.get(ThrottleKey.lookupKey(key));
+        if (counter == null) {
+            counter = counters.computeIfAbsent(key.toString(), k -> new SlidingWindowCounter());
+        }
+        long limit = mode == ThrottlingMode.LOCAL_APPROXIMATE ? (quota.limit + nodeCount - 1) / nodeCount :
+                quota.limit;
+        return counter.add(quota.bandwidth ? bytes : requests, limit, quota.windowMillis, now);
+    }
+
+    private Map<String, Quota> getQuotas(Policy policy) {
+        if (policy instanceof ApplicationPolicy) {
+            return applicationQuotas;
+        } else if (policy instanceof SubscriptionPolicy) {
+            return subscriptionQuotas;
+        } else if (policy instanceof APIPolicy) {
+            return apiQuotas;
+        }
+        return null;
+    }
+
+    /**
+     * Removes the counters which did not count any request during the last two windows.
+     */
+    void evictIdleCounters() {
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+        for (Iterator<SlidingWindowCounter> iterator = counters.values().iterator(); iterator.hasNext(); ) {
+            if (iterator.next().isIdle(now)) {
+                iterator.remove();
+                evicted++;
+            }
+        }
+        if (evicted > 0 && log.isDebugEnabled()) {
+            log.debug("Evicted " + evicted + " idle local throttle counters");
+        }
+    }
+
+    /**
+     * Converts the time unit of a policy limit to milliseconds.
+     *
+     * @return milliseconds of one time unit, or -1 if the unit is unknown
+     */
+    static long toMillis(String timeUnit) {
+        if (timeUnit == null) {
+            return -1;
+        }
+        switch (timeUnit.toLowerCase(Locale.ENGLISH)) {
+            case "s":
+            case "sec":
+            case "second":
+            case "seconds":
+                return 1000L;
+            case "min":
+            case "minute":
+            case "minutes":
+                return 60000L;
+            case "h":
+            case "hour":
+            case "hours":
+                return 3600000L;
+            case "day":
+            case "days":
+                return 86400000L;
+            case "week":
+            case "weeks":
+                return 7 * 86400000L;
+            case "month":
+            case "months":
+                return 30 * 86400000L;
+            case "year":
+            case "years":
+                return 365 * 86400000L;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Quota of a policy: number of requests, or bytes for bandwidth policies, allowed in a window.
+     */
+    private static final class Quota {
+        private final long limit;
+        private final long windowMillis;
+        private final boolean bandwidth;
+
+        private Quota(long limit, long windowMillis, boolean bandwidth) {
+            this.limit = limit;
+            this.windowMillis = windowMillis;
+            this.bandwidth = bandwidth;
+        }
+
+        private static Quota of(Policy policy) {
+            if (policy.getDefaultQuotaPolicy() == null || policy.getDefaultQuotaPolicy().getLimit() == null) {
+                return null;
+            }
+            Limit limit = policy.getDefaultQuotaPolicy().getLimit();
+            long windowMillis = limit.getUnitTime() * toMillis(limit.getTimeUnit());
+            if (windowMillis <= 0) {
+                return null;
+            }
+            if (limit instanceof RequestCountLimit) {
+                return new Quota(((RequestCountLimit) limit).getRequestCount(), windowMillis, false);
+            } else if (limit instanceof BandwidthLimit) {
+                return new Quota(((BandwidthLimit) limit).getStandardDataAmount(), windowMillis, true);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Approximates the count of a sliding window from the counts of the current and the previous fixed windows,
+     * weighting the previous window by the part of it still covered by the sliding window.
+     */
+    static final class SlidingWindowCounter {
+        private long windowStart;
+        private long windowMillis;
+        private long current;
+        private long previous;
+        private long throttledUntil;
+
+        /**
+         * @return timestamp until which the key is throttled if the limit is reached by this addition,
+         * {@link ThrottleDecisionStore#NOT_THROTTLED} otherwise
+         */
+        synchronized long add(long amount, long limit, long windowMillis, long now) {
+            if (this.windowMillis != windowMillis) {
+                // New counter, or the policy of the key changed
+                this.windowMillis = windowMillis;
+                windowStart = now - now % windowMillis;
+                current = previous = 0;
+            } else if (now >= windowStart + windowMillis) {
+                long windows = (now - windowStart) / windowMillis;
+                previous = windows == 1 ? current : 0;
+                current = 0;
+                windowStart += windows * windowMillis;
+            }
+            current += amount;
+            long elapsed = now - windowStart;
+            double estimate = previous * (double) (windowMillis - elapsed) / windowMillis + current;
+            if (estimate < limit || throttledUntil > now) {
+                // Below the limit, or already reported as throttled
+                return ThrottleDecisionStore.NOT_THROTTLED;
+            }
+            long windowEnd = windowStart + windowMillis;
+            if (current >= limit || previous == 0) {
+                throttledUntil = windowEnd;
+            } else {
+                // The estimate falls below the limit as the previous window slides out
+                throttledUntil = windowStart + (long) (windowMillis * (1 - (double) (limit - current) / previous));
+                throttledUntil = Math.max(now + 1, Math.min(throttledUntil, windowEnd));
+            }
+            return throttledUntil;
+        }
+
+        synchronized boolean isIdle(long now) {
+            return now >= windowStart + 2 * windowMillis;
+        }
+    }
+}
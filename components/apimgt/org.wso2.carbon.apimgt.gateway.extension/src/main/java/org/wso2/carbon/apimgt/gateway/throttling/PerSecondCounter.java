@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Number of requests allowed within the current second, used by the hard limits of APIs and the maximum TPS of
+ * endpoints. The second and the count are kept in a single long (the second in the upper half and the count in the
+ * lower half) and updated with compare-and-set, so counting a request does not allocate.
+ * <p>
+ * A request which read the clock before the counter moved on to the next second counts against the newer second.
+ */
+final class PerSecondCounter {
+
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+    private final AtomicLong counter = new AtomicLong();
+
+    /**
+     * Counts a request within the given second.
+     *
+     * @param limit  maximum number of requests within a second
+     * @param second current time in seconds
+     * @return true if the request is allowed, false if the limit of the second is reached
+     */
+    boolean tryAcquire(long limit, long second) {
+        while (true) {
+            long current = counter.get();
+            long next;
+            if ((current >>> 32) < second) {
+                next = (second << 32) | 1;
+            } else if ((current & COUNT_MASK) >= limit) {
+                return false;
+            } else {
+                next = current + 1;
+            }
+            if (counter.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+}
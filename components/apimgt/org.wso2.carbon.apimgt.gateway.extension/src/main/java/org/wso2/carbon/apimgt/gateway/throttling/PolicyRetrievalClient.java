@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import feign.Feign;
+import feign.Param;
+import feign.RequestLine;
+import feign.gson.GsonDecoder;
+import feign.gson.GsonEncoder;
+import org.wso2.carbon.apimgt.gateway.throttling.dto.ThrottlePolicyListDTO;
+
+/**
+ * Http client retrieving the throttle policies enforced by local throttling from API Manager core.
+ */
+public final class PolicyRetrievalClient {
+
+    private static final String DEFAULT_APIM_CORE_BASE_URL = "https://localhost:9292";
+
+    private PolicyRetrievalService policyRetrievalService = null;
+
+    public PolicyRetrievalClient(String apimCoreBaseUrl) {
+        policyRetrievalService = Feign.builder()
+                .encoder(new GsonEncoder())
+                .decoder(new GsonDecoder())
+                .target(PolicyRetrievalService.class, apimCoreBaseUrl);
+    }
+
+    public PolicyRetrievalClient() {
+        this(DEFAULT_APIM_CORE_BASE_URL);
+    }
+
+    private interface PolicyRetrievalService {
+        @RequestLine("GET /policies?policyLevel={policyLevel}")
+        ThrottlePolicyListDTO getPolicies(@Param("policyLevel") String policyLevel);
+    }
+
+    /**
+     * @param policyLevel level of the policies, one of api, application or subscription
+     * @return policies of the given level
+     */
+    ThrottlePolicyListDTO loadPolicies(String policyLevel) {
+        return policyRetrievalService.getPolicies(policyLevel);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+/**
+ * Throttle keys and policies of a request allowed by the throttle handler, kept on the message so that the payload
+ * of the response can be accounted against the bandwidth policies of the same keys. The throttle keys of the handler
+ * are reused by its thread, so each key is copied into a {@link ThrottleKey} of its exact length, which keeps the
+ * hash code computed for the request.
+ */
+public final class RequestThrottleKeys {
+
+    private final ThrottleKey applicationKey;
+    private final String applicationTier;
+    private final ThrottleKey apiKey;
+    private final String apiTier;
+    private final ThrottleKey subscriptionKey;
+    private final String subscriptionTier;
+    private final ThrottleKey resourceKey;
+    private final String resourceTier;
+    private final String defaultConditionGroupId;
+    private final String userId;
+    private final String apiContext;
+    private final String apiVersion;
+    private final String appTenant;
+    private final String apiTenant;
+    private final String appId;
+
+    public RequestThrottleKeys(ThrottleKey applicationKey, String applicationTier, ThrottleKey apiKey,
+                               String apiTier, ThrottleKey subscriptionKey, String subscriptionTier,
+                               ThrottleKey resourceKey, String resourceTier, String defaultConditionGroupId,
+                               String userId, String apiContext, String apiVersion, String appTenant,
+                               String apiTenant, String appId) {
+        this.applicationKey = copy(applicationKey);
+        this.applicationTier = applicationTier;
+        this.apiKey = copy(apiKey);
+        this.apiTier = apiTier;
+        this.subscriptionKey = copy(subscriptionKey);
+        this.subscriptionTier = subscriptionTier;
+        this.resourceKey = copy(resourceKey);
+        this.resourceTier = resourceTier;
+        this.defaultConditionGroupId = defaultConditionGroupId;
+        this.userId = userId;
+        this.apiContext = apiContext;
+        this.apiVersion = apiVersion;
+        this.appTenant = appTenant;
+        this.apiTenant = apiTenant;
+        this.appId = appId;
+    }
+
+    public ThrottleKey getApplicationKey() {
+        return applicationKey;
+    }
+
+    public String getApplicationTier() {
+        return applicationTier;
+    }
+
+    public ThrottleKey getApiKey() {
+        return apiKey;
+    }
+
+    public String getApiTier() {
+        return apiTier;
+    }
+
+    public ThrottleKey getSubscriptionKey() {
+        return subscriptionKey;
+    }
+
+    public String getSubscriptionTier() {
+        return subscriptionTier;
+    }
+
+    /**
+     * @return API or resource level throttle key
+     */
+    public ThrottleKey getResourceKey() {
+        return resourceKey;
+    }
+
+    /**
+     * @return API or resource policy
+     */
+    public String getResourceTier() {
+        return resourceTier;
+    }
+
+    /**
+     * @return id of the default condition group of the API or resource policy, null if the resource is not throttled
+     */
+    public String getDefaultConditionGroupId() {
+        return defaultConditionGroupId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getApiContext() {
+        return apiContext;
+    }
+
+    public String getApiVersion() {
+        return apiVersion;
+    }
+
+    public String getAppTenant() {
+        return appTenant;
+    }
+
+    public String getApiTenant() {
+        return apiTenant;
+    }
+
+    public String getAppId() {
+        return appId;
+    }
+
+    private static ThrottleKey copy(ThrottleKey key) {
+        return key != null ? new ThrottleKey(key.length()).set(key) : null;
+    }
+}
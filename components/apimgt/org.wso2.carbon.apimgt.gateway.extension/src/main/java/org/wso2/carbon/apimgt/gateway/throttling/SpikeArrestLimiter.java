@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.apimgt.gateway.utils.TaskScheduler;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local burst control for subscriptions. Each subscription throttle key has a token bucket which holds up to the
+ * spike arrest limit and is refilled evenly over the spike arrest unit, so requests are rejected in the gateway as
+ * soon as a burst exceeds the limit instead of after a round trip to the traffic manager.
+ * <p>
+ * A bucket is kept in a single long as the time at which it would be full again (the theoretical arrival time of
+ * the generic cell rate algorithm), and is updated with compare-and-set without locking. A bucket which is full is
+ * the same as a missing bucket, so such buckets are evicted in the background.
+ */
+public class SpikeArrestLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(SpikeArrestLimiter.class);
+    private static final long EVICTION_INTERVAL_MILLIS = 30000L;
+
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong evictedBuckets = new AtomicLong();
+    private final AtomicLong rejectedRequests = new AtomicLong();
+    private ScheduledFuture<?> evictor;
+
+    public SpikeArrestLimiter() {
+        evictor = TaskScheduler.scheduleWithFixedDelay("spike-arrest-eviction", this::evictIdleBuckets,
+                EVICTION_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Takes a token from the bucket of the given key.
+     *
+     * @param key        subscription throttle key, either a {@link String} or a {@link ThrottleKey}
+     * @param limit      maximum number of requests allowed within the unit time
+     * @param unitMillis unit time in milliseconds
+     * @return true if the request is allowed, false if the burst limit is exceeded
+     */
+    public boolean tryAcquire(CharSequence key, int limit, long unitMillis) {
+        if (limit <= 0 || unitMillis <= 0) {
+            return true;
+        }
+        long now = System.nanoTime();
+        AtomicLong bucket = buckets.get(ThrottleKey.lookupKey(key));
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(key.toString(), k -> new AtomicLong(now));
+        }
+        long unitNanos = TimeUnit.MILLISECONDS.toNanos(unitMillis);
+        long emissionInterval = Math.max(unitNanos / limit, 1L);
+        long burstTolerance = unitNanos - emissionInterval;
+        while (true) {
+            long fullAt = bucket.get();
+            long from = fullAt - now > 0 ? fullAt : now;
+            if (from - now > burstTolerance) {
+                rejectedRequests.incrementAndGet();
+                return false;
+            }
+            if (bucket.compareAndSet(fullAt, from + emissionInterval)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return number of buckets currently held
+     */
+    public int getBucketCount() {
+        return buckets.size();
+    }
+
+    /**
+     * @return number of idle buckets evicted so far
+     */
+    public long getEvictedBucketCount() {
+        return evictedBuckets.get();
+    }
+
+    /**
+     * @return number of requests rejected so far
+     */
+    public long getRejectedRequestCount() {
+        return rejectedRequests.get();
+    }
+
+    public void shutdown() {
+        if (evictor != null) {
+            evictor.cancel(false);
+            evictor = null;
+        }
+    }
+
+    /**
+     * Removes the buckets which are full. A request racing with the removal may take its token from the removed
+     * bucket, in which case the next request starts with a full bucket; this lets through at most one extra request.
+     */
+    void evictIdleBuckets() {
+        long now = System.nanoTime();
+        long evicted = 0;
+        for (Iterator<AtomicLong> iterator = buckets.values().iterator(); iterator.hasNext(); ) {
+            if (iterator.next().get() - now <= 0) {
+                iterator.remove();
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            evictedBuckets.addAndGet(evicted);
+            if (log.isDebugEnabled()) {
+                log.debug("Evicted " + evicted + " idle spike arrest buckets");
+            }
+        }
+    }
+}
@@ -20,19 +20,33 @@
 
 package org.wso2.carbon.apimgt.gateway.throttling;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.apimgt.gateway.throttling.conditions.Condition;
+import org.wso2.carbon.apimgt.gateway.throttling.conditions.ConditionGroup;
+import org.wso2.carbon.apimgt.gateway.throttling.conditions.DateRangeCondition;
+import org.wso2.carbon.apimgt.gateway.throttling.conditions.HTTPVerbCondition;
+import org.wso2.carbon.apimgt.gateway.throttling.conditions.HeaderCondition;
+import org.wso2.carbon.apimgt.gateway.throttling.conditions.IPRangeCondition;
+import org.wso2.carbon.apimgt.gateway.throttling.conditions.IPSpecificCondition;
+import org.wso2.carbon.apimgt.gateway.throttling.conditions.InvalidCondition;
+import org.wso2.carbon.apimgt.gateway.throttling.conditions.JWTClaimCondition;
+import org.wso2.carbon.apimgt.gateway.throttling.conditions.QueryParameterCondition;
+import org.wso2.carbon.apimgt.gateway.throttling.conditions.RequestAttributes;
 import org.wso2.carbon.apimgt.gateway.throttling.constants.APIThrottleConstants;
-import org.wso2.carbon.apimgt.gateway.throttling.dto.AuthenticationContextDTO;
 import org.wso2.carbon.apimgt.gateway.throttling.dto.ConditionDTO;
 import org.wso2.carbon.apimgt.gateway.throttling.dto.ConditionGroupDTO;
-import org.wso2.carbon.apimgt.gateway.throttling.utils.GatewayUtils;
-import org.wso2.carbon.messaging.CarbonMessage;
-
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
-import java.util.regex.Matcher;
+import org.wso2.carbon.apimgt.gateway.throttling.utils.IPAddress;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * This class is used by {@code ThrottleHandler} to determine Applicability of Throttling Conditions.
@@ -42,9 +56,15 @@ import java.util.regex.Pattern;
  * header is  Mozilla. Decision Engine keeps a track of which attributes are present in the request and which keys
  * have been throttled out. In order to see if those keys are applicable for the request, GW too should run some
  * checks by going through the attributes used for those conditions. What this class does is performing those checks.
+ * <p>
+ * Condition groups are compiled once when the policy is deployed, with regular expressions and IP addresses parsed
+ * up front, so that evaluating them for a request does not allocate. Dates are compiled to epoch millisecond bounds
+ * and HTTP methods to a bit mask.
  */
 public class ThrottleConditionEvaluator {
 
+    private static final Logger log = LoggerFactory.getLogger(ThrottleConditionEvaluator.class);
+
     private ThrottleConditionEvaluator() {
 
     }
@@ -58,153 +78,168 @@ public class ThrottleConditionEvaluator {
     }
 
     /**
-     * When called, provides a list of Applicable Condition Groups for the current request.
+     * Checks whether a condition group applies to the current request. When multiple conditions have been
+     * specified, all the conditions should occur.
      *
-     * @param carbonMessage        Message Context of the incoming request.
-     * @param authenticationContext AuthenticationContext populated by {@code APIAuthenticationHandler}
-     * @param inputConditionGroups  All Condition Groups Attached with the resource/API being invoked.
-     * @return List of ConditionGroups applicable for the current request.
+     * @param attributes     attributes of the current request
+     * @param conditionGroup compiled condition group
+     * @return true if the condition group applies to the request
      */
-    public List<ConditionGroupDTO> getApplicableConditions(CarbonMessage carbonMessage,
-                                                           AuthenticationContextDTO authenticationContext,
-                                                           ConditionGroupDTO[] inputConditionGroups) {
-
-        ArrayList<ConditionGroupDTO> matchingConditions = new ArrayList<>(inputConditionGroups.length);
-        ConditionGroupDTO defaultGroup = null;
-
-        for (ConditionGroupDTO conditionGroup : inputConditionGroups) {
-            if (APIThrottleConstants.THROTTLE_POLICY_DEFAULT.equals(conditionGroup.getConditionGroupId())) {
-                defaultGroup = conditionGroup;
-            } else if (isConditionGroupApplicable(carbonMessage, authenticationContext, conditionGroup)) {
-                matchingConditions.add(conditionGroup);
-            }
-        }
-
-        // If no matching ConditionGroups are present, apply the default group.
-        if (matchingConditions.isEmpty()) {
-            matchingConditions.add(defaultGroup);
-        }
-
-        return matchingConditions;
+    public boolean isConditionGroupApplicable(RequestAttributes attributes, ConditionGroup conditionGroup) {
+        return conditionGroup.isApplicable(attributes);
     }
 
-    private boolean isConditionGroupApplicable(CarbonMessage carbonMessage, AuthenticationContextDTO
-            authenticationContext, ConditionGroupDTO conditionGroup) {
-
-        ConditionDTO[] conditions = conditionGroup.getConditions();
-
-        boolean evaluationState = true;
-
-        if (conditions.length == 0) {
-            evaluationState = false;
-        }
-
-        // When multiple conditions have been specified, all the conditions should occur.
-        for (ConditionDTO condition : conditions) {
-            evaluationState = evaluationState & isConditionApplicable(carbonMessage, authenticationContext, condition);
-
-            // If one of the conditions are false, rest will evaluate to false. So no need to check the rest.
-            if (!evaluationState) {
-                return false;
-            }
+    /**
+     * Compiles a condition group. Conditions which cannot be compiled are logged and never match.
+     *
+     * @param conditionGroupDTO condition group attached with the resource/API
+     * @return compiled condition group
+     */
+    public ConditionGroup compileConditionGroup(ConditionGroupDTO conditionGroupDTO) {
+        ConditionDTO[] conditionDTOs = conditionGroupDTO.getConditions();
+        Condition[] conditions = new Condition[conditionDTOs.length];
+        for (int i = 0; i < conditionDTOs.length; i++) {
+            conditions[i] = compileCondition(conditionGroupDTO.getConditionGroupId(), conditionDTOs[i]);
         }
-        return evaluationState;
+        return new ConditionGroup(conditionGroupDTO.getConditionGroupId(), conditions);
     }
 
-    private boolean isConditionApplicable(CarbonMessage carbonMessage, AuthenticationContextDTO
-            authenticationContext, ConditionDTO condition) {
-
-        boolean state = false;
-        switch (condition.getConditionType()) {
+    private Condition compileCondition(String conditionGroupId, ConditionDTO condition) {
+        boolean inverted = condition.isInverted();
+        String type = condition.getConditionType();
+        if (type == null) {
+            log.error("Condition type is not specified in condition group " + conditionGroupId);
+            return new InvalidCondition(inverted);
+        }
+        switch (type) {
             case APIThrottleConstants.IP_RANGE_TYPE: {
-                state = isWithinIP(carbonMessage, condition);
-                break;
+                // For an IP Range Condition, starting IP is set as a the name, ending IP as the value.
+                IPAddress startIp = parseIp(conditionGroupId, condition.getConditionName());
+                IPAddress endIp = parseIp(conditionGroupId, condition.getConditionValue());
+                if (startIp == null || endIp == null) {
+                    return new InvalidCondition(inverted);
+                }
+                return new IPRangeCondition(startIp, endIp, inverted);
             }
             case APIThrottleConstants.IP_SPECIFIC_TYPE: {
-                state = isMatchingIP(carbonMessage, condition);
-                break;
+                IPAddress ip = parseIp(conditionGroupId, condition.getConditionValue());
+                return ip != null ? new IPSpecificCondition(ip, inverted) : new InvalidCondition(inverted);
             }
             case APIThrottleConstants.QUERY_PARAMETER_TYPE: {
-                state = isQueryParamPresent(carbonMessage, condition);
-                break;
+                if (condition.getConditionName() == null || condition.getConditionValue() == null) {
+                    log.error("Query parameter name or value is not specified in condition group "
+                            + conditionGroupId);
+                    return new InvalidCondition(inverted);
+                }
+                return new QueryParameterCondition(condition.getConditionName(), condition.getConditionValue(),
+                        inverted);
             }
             case APIThrottleConstants.JWT_CLAIMS_TYPE: {
-                state = isJWTClaimPresent(authenticationContext, condition);
-                break;
+                Pattern pattern = compilePattern(conditionGroupId, condition.getConditionValue());
+                return pattern != null ? new JWTClaimCondition(condition.getConditionName(), pattern, inverted)
+                        : new InvalidCondition(inverted);
             }
             case APIThrottleConstants.HEADER_TYPE: {
-                state = isHeaderPresent(carbonMessage, condition);
-                break;
+                Pattern pattern = compilePattern(conditionGroupId, condition.getConditionValue());
+                return pattern != null ? new HeaderCondition(condition.getConditionName(), pattern, inverted)
+                        : new InvalidCondition(inverted);
+            }
+            case APIThrottleConstants.DATE_SPECIFIC_TYPE: {
+                // A specific date covers the whole day, or a single millisecond if a time is given
+                long[] bounds = parseDate(conditionGroupId, condition.getConditionValue());
+                return bounds != null ? new DateRangeCondition(bounds[0], bounds[1], inverted)
+                        : new InvalidCondition(inverted);
+            }
+            case APIThrottleConstants.DATE_RANGE_TYPE: {
+                // For a Date Range Condition, starting date is set as the name, ending date as the value.
+                long[] start = parseDate(conditionGroupId, condition.getConditionName());
+                long[] end = parseDate(conditionGroupId, condition.getConditionValue());
+                if (start == null || end == null) {
+                    return new InvalidCondition(inverted);
+                }
+                return new DateRangeCondition(start[0], end[1], inverted);
+            }
+            case APIThrottleConstants.HTTP_VERB_TYPE: {
+                int verbMask = parseVerbs(conditionGroupId, condition.getConditionValue());
+                return verbMask != 0 ? new HTTPVerbCondition(verbMask, inverted) : new InvalidCondition(inverted);
             }
             default: {
-                state = false;
+                log.error("Unknown condition type " + type + " in condition group " + conditionGroupId);
+                return new InvalidCondition(inverted);
             }
         }
-
-        if (condition.isInverted()) {
-            state = !state;
-        }
-
-        return state;
     }
 
-    private boolean isHeaderPresent(CarbonMessage messageContext, ConditionDTO condition) {
-        TreeMap<String, String> transportHeaderMap = (TreeMap<String, String>) messageContext
-                .getProperty(APIThrottleConstants.TRANSPORT_HEADERS);
-        if (transportHeaderMap != null) {
-            String value = transportHeaderMap.get(condition.getConditionName());
-            if (value == null) {
-                return false;
-            }
-            Pattern pattern = Pattern.compile(condition.getConditionValue());
-            Matcher matcher = pattern.matcher(value);
-            return matcher.find();
+    private Pattern compilePattern(String conditionGroupId, String regex) {
+        if (regex == null) {
+            log.error("Condition value is not specified in condition group " + conditionGroupId);
+            return null;
         }
-        return false;
-    }
-
-    private boolean isJWTClaimPresent(AuthenticationContextDTO authenticationContext, ConditionDTO condition) {
-        Map assertions = GatewayUtils.getJWTClaims(authenticationContext);
-
-        Object value = assertions.get(condition.getConditionName());
-        if (value == null) {
-            return false;
-        } else if (value instanceof String) {
-            String valueString = (String) value;
-            return valueString.matches(condition.getConditionValue());
-        } else {
-            return false;
+        try {
+            return Pattern.compile(regex);
+        } catch (PatternSyntaxException e) {
+            log.error("Invalid regular expression " + regex + " in condition group " + conditionGroupId, e);
+            return null;
         }
     }
 
-    private boolean isQueryParamPresent(CarbonMessage messageContext, ConditionDTO condition) {
-
-        Map<String, String> queryParamMap = GatewayUtils.getQueryParams(messageContext);
-
-        String value = queryParamMap.get(condition.getConditionName());
-
-        if (value == null) {
-            return false;
+    private IPAddress parseIp(String conditionGroupId, String ip) {
+        IPAddress address = IPAddress.parse(ip);
+        if (address == null) {
+            log.error("Invalid IP address " + ip + " in condition group " + conditionGroupId);
         }
-        return value.equals(condition.getConditionValue());
+        return address;
     }
 
-    private boolean isMatchingIP(CarbonMessage messageContext, ConditionDTO condition) {
-        String currentIpString = GatewayUtils.getIp(messageContext);
-        return currentIpString.equals(condition.getConditionValue());
+    /**
+     * Parses an ISO-8601 date, date-time or epoch millisecond value. Values without an offset are taken as UTC.
+     *
+     * @return inclusive start and exclusive end of the period denoted by the value, or null if it is invalid
+     */
+    private long[] parseDate(String conditionGroupId, String date) {
+        if (date == null || date.trim().isEmpty()) {
+            log.error("Date is not specified in condition group " + conditionGroupId);
+            return null;
+        }
+        String value = date.trim();
+        try {
+            if (value.chars().allMatch(Character::isDigit)) {
+                long millis = Long.parseLong(value);
+                return new long[]{millis, millis + 1};
+            }
+            if (value.indexOf('T') < 0 && value.indexOf(' ') < 0) {
+                LocalDate day = LocalDate.parse(value);
+                return new long[]{day.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli(),
+                        day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli()};
+            }
+            value = value.replace(' ', 'T');
+            long millis;
+            try {
+                millis = OffsetDateTime.parse(value).toInstant().toEpochMilli();
+            } catch (DateTimeParseException e) {
+                millis = LocalDateTime.parse(value).toInstant(ZoneOffset.UTC).toEpochMilli();
+            }
+            return new long[]{millis, millis + 1};
+        } catch (DateTimeException | NumberFormatException e) {
+            log.error("Invalid date " + date + " in condition group " + conditionGroupId, e);
+            return null;
+        }
     }
 
-    private boolean isWithinIP(CarbonMessage messageContext, ConditionDTO condition) {
-        // For an IP Range Condition, starting IP is set as a the name, ending IP as the value.
-        long startIp = GatewayUtils.ipToLong(condition.getConditionName());
-        long endIp = GatewayUtils.ipToLong(condition.getConditionValue());
-
-        String currentIpString = GatewayUtils.getIp(messageContext);
-        if (!currentIpString.isEmpty()) {
-            long currentIp = GatewayUtils.ipToLong(currentIpString);
-
-            return startIp <= currentIp && endIp >= currentIp;
+    private int parseVerbs(String conditionGroupId, String verbs) {
+        if (verbs == null) {
+            log.error("HTTP method is not specified in condition group " + conditionGroupId);
+            return 0;
+        }
+        int verbMask = 0;
+        for (String verb : verbs.split(",", -1)) {
+            int mask = HTTPVerbCondition.getVerbMask(verb.trim().toUpperCase(Locale.ENGLISH));
+            if (mask == 0) {
+                log.error("Invalid HTTP method " + verb + " in condition group " + conditionGroupId);
+                return 0;
+            }
+            verbMask |= mask;
         }
-        return false;
+        return verbMask;
     }
 }
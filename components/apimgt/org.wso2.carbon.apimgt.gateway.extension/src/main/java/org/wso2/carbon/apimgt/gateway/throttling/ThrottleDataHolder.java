@@ -20,7 +20,10 @@ package org.wso2.carbon.apimgt.gateway.throttling;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.wso2.carbon.apimgt.gateway.internal.ServiceReferenceHolder;
+import org.wso2.carbon.apimgt.gateway.throttling.utils.ClientAddressResolver;
 
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -36,171 +39,303 @@ public class ThrottleDataHolder {
     private Map<String, String> blockedApplicationConditionsMap = new ConcurrentHashMap<String, String>();
     private Map<String, String> blockedUserConditionsMap = new ConcurrentHashMap<String, String>();
     private Map<String, String> blockedIpConditionsMap = new ConcurrentHashMap<String, String>();
-    private Map<String, String> keyTemplateMap = new ConcurrentHashMap<String, String>();
-    private Map<String, Long> throttleDataMap = new ConcurrentHashMap<String, Long>();
-    private Map<String, Long> throttledAPIKeysMap = new ConcurrentHashMap<String, Long>();
-    private boolean isBlockingConditionsPresent = false;
+    private Map<String, KeyTemplate> keyTemplateMap = new ConcurrentHashMap<String, KeyTemplate>();
+    // Snapshot of the key templates iterated by the request path, replaced whenever templates change
+    private volatile KeyTemplate[] keyTemplates = new KeyTemplate[0];
+    private ThrottleDecisionStore throttleDataStore;
+    private ThrottleDecisionStore throttledAPIKeysStore;
+    private SpikeArrestLimiter spikeArrestLimiter = new SpikeArrestLimiter();
+    private HardLimitThrottler hardLimitThrottler = new HardLimitThrottler();
+    private EndpointLimiter endpointLimiter = new EndpointLimiter();
+    private LocalThrottleEngine localThrottleEngine = new LocalThrottleEngine(this);
+    private ThrottleDecisionApplier throttleDecisionApplier;
+    // Snapshot of the blocking conditions evaluated by the request path, replaced whenever conditions change
+    private volatile BlockingConditionSnapshot blockingConditions = BlockingConditionSnapshot.EMPTY;
     private boolean isKeyTemplatesPresent = false;
+    private volatile ClientAddressResolver clientAddressResolver;
 
     private static final ThrottleDataHolder instance = new ThrottleDataHolder();
 
+    private ThrottleDataHolder() {
+        ThrottlingConfiguration configuration = ServiceReferenceHolder.getInstance().getThrottlingConfiguration();
+        throttleDataStore = new ThrottleDecisionStore("throttleData", configuration.getThrottleDataCapacity());
+        throttledAPIKeysStore = new ThrottleDecisionStore("throttledAPIKeys",
+                configuration.getThrottledAPIKeysCapacity());
+        hardLimitThrottler.setNodeCount(configuration.getGatewayNodeCount());
+        endpointLimiter.init(configuration);
+        throttleDecisionApplier = new ThrottleDecisionApplier(this, configuration.getThrottleDecisionQueueCapacity(),
+                configuration.getThrottleDecisionWindow());
+        throttleDecisionApplier.start();
+        clientAddressResolver = new ClientAddressResolver(configuration.getTrustedProxies(),
+                configuration.isTrustUnknownRemoteAddress());
+    }
+
     public static ThrottleDataHolder getInstance() {
         return instance;
     }
 
+    /**
+     * Applies the given throttling configuration to the throttle data held by this node.
+     *
+     * @param configuration throttling configuration
+     */
+    public void init(ThrottlingConfiguration configuration) {
+        throttleDataStore.setCapacity(configuration.getThrottleDataCapacity());
+        throttledAPIKeysStore.setCapacity(configuration.getThrottledAPIKeysCapacity());
+        hardLimitThrottler.setNodeCount(configuration.getGatewayNodeCount());
+        endpointLimiter.init(configuration);
+        ThrottlingMode mode = ThrottlingMode.GLOBAL;
+        try {
+            mode = ThrottlingMode.valueOf(configuration.getThrottlingMode().toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            log.error("Invalid throttling mode : " + configuration.getThrottlingMode() + ". Throttle decisions will "
+                    + "be made by the global policy engine");
+        }
+        if (mode != ThrottlingMode.GLOBAL && !loadLocalThrottlePolicies()) {
+            log.error("No throttle policies could be loaded for " + mode + " throttling. Throttle decisions will be "
+                    + "made by the global policy engine");
+            mode = ThrottlingMode.GLOBAL;
+        }
+        localThrottleEngine.setMode(mode, configuration.getGatewayNodeCount());
+        if (mode == ThrottlingMode.GLOBAL && configuration.isResponseBandwidthEnabled()) {
+            loadBandwidthPolicies();
+        }
+        if (endpointLimiter.isEnabled()) {
+            loadEndpointLimits();
+        }
+        throttleDecisionApplier.setWindowMillis(configuration.getThrottleDecisionWindow());
+        clientAddressResolver = new ClientAddressResolver(configuration.getTrustedProxies(),
+                configuration.isTrustUnknownRemoteAddress());
+    }
+
+    /**
+     * Loads the limits of the endpoints from API Manager core in the background, so that activating the gateway does
+     * not wait for API Manager core. Endpoints which cannot be loaded are limited once an endpoint event is received
+     * for them.
+     */
+    private void loadEndpointLimits() {
+        Thread loader = new Thread(() -> {
+            try {
+                endpointLimiter.loadEndpoints(new EndpointRetrievalClient());
+            } catch (RuntimeException e) {
+                log.error("Error while loading endpoint limits from API Manager core", e);
+            }
+        }, "apim-endpoint-limit-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Loads the throttle policies from API Manager core in the background, so that the throttle handler knows which
+     * policies limit bandwidth and captures the payload sizes of responses only for those. Policies which cannot be
+     * loaded are known once a policy event is received for them.
+     */
+    private void loadBandwidthPolicies() {
+        Thread loader = new Thread(() -> {
+            try {
+                localThrottleEngine.loadPolicies(new PolicyRetrievalClient());
+            } catch (RuntimeException e) {
+                log.error("Error while loading throttle policies from API Manager core", e);
+            }
+        }, "apim-throttle-policy-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Loads the throttle policies enforced by local throttling from API Manager core.
+     *
+     * @return true if any policy can be enforced locally
+     */
+    private boolean loadLocalThrottlePolicies() {
+        try {
+            return localThrottleEngine.loadPolicies(new PolicyRetrievalClient()) > 0;
+        } catch (RuntimeException e) {
+            log.error("Error while loading throttle policies from API Manager core", e);
+            return false;
+        }
+    }
+
     public void addThrottleData(String key, Long value) {
-        throttleDataMap.put(key, value);
+        throttleDataStore.put(key, value);
+        markKeyTemplatesThrottled(key, value);
     }
 
     public void addThrottleDataFromMap(Map<String, Long> data) {
-        throttleDataMap.putAll(data);
+        throttleDataStore.putAll(data);
+        for (Map.Entry<String, Long> entry : data.entrySet()) {
+            markKeyTemplatesThrottled(entry.getKey(), entry.getValue());
+        }
     }
 
     public void addThrottledAPIKey(String key, Long value) {
-        throttledAPIKeysMap.put(key, value);
+        throttledAPIKeysStore.put(key, value);
     }
 
     public void removeThrottledAPIKey(String key) {
-        throttledAPIKeysMap.remove(key);
-    }
-
-    public boolean isAPIThrottled(String apiKey) {
-        boolean isThrottled = this.throttledAPIKeysMap.containsKey(apiKey);
-        if (isThrottled) {
-            long currentTime = System.currentTimeMillis();
-            long timestamp = this.throttledAPIKeysMap.get(apiKey);
-            if (timestamp >= currentTime) {
-                return isThrottled;
-            } else {
-                this.throttledAPIKeysMap.remove(apiKey);
-                return false;
-            }
-        } else {
-            return isThrottled;
-        }
+        throttledAPIKeysStore.remove(key);
+    }
+
+    /**
+     * @param apiKey API or resource level throttle key, either a {@link String} or a {@link ThrottleKey}
+     * @return true if the API or resource is throttled
+     */
+    public boolean isAPIThrottled(CharSequence apiKey) {
+        return throttledAPIKeysStore.nextAccessTimestamp(apiKey) != ThrottleDecisionStore.NOT_THROTTLED;
     }
 
     public void removeThrottleData(String key) {
-        throttleDataMap.remove(key);
+        throttleDataStore.remove(key);
     }
 
     public void addAPIBlockingCondition(String name, String value) {
-        isBlockingConditionsPresent = true;
         blockedAPIConditionsMap.put(name, value);
+        updateBlockingConditions();
     }
 
     public void addApplicationBlockingCondition(String name, String value) {
-        isBlockingConditionsPresent = true;
         blockedApplicationConditionsMap.put(name, value);
+        updateBlockingConditions();
     }
 
 
     public void addUserBlockingCondition(String name, String value) {
-        isBlockingConditionsPresent = true;
         blockedUserConditionsMap.put(name, value);
+        updateBlockingConditions();
     }
 
     public void addIplockingCondition(String name, String value) {
-        isBlockingConditionsPresent = true;
         blockedIpConditionsMap.put(name, value);
+        updateBlockingConditions();
     }
 
     public void addUserBlockingConditionsFromMap(Map<String, String> data) {
         if (data.size() > 0) {
             blockedUserConditionsMap.putAll(data);
-            isBlockingConditionsPresent = true;
+            updateBlockingConditions();
         }
     }
 
     public void addIplockingConditionsFromMap(Map<String, String> data) {
         if (data.size() > 0) {
             blockedIpConditionsMap.putAll(data);
-            isBlockingConditionsPresent = true;
+            updateBlockingConditions();
         }
     }
 
     public void addAPIBlockingConditionsFromMap(Map<String, String> data) {
         if (data.size() > 0) {
             blockedAPIConditionsMap.putAll(data);
-            isBlockingConditionsPresent = true;
+            updateBlockingConditions();
         }
     }
 
     public void addApplicationBlockingConditionsFromMap(Map<String, String> data) {
         if (data.size() > 0) {
             blockedApplicationConditionsMap.putAll(data);
-            isBlockingConditionsPresent = true;
+            updateBlockingConditions();
         }
     }
 
     public void removeAPIBlockingCondition(String name) {
         blockedAPIConditionsMap.remove(name);
-        if (isAnyBlockedMapContainsData()) {
-            isBlockingConditionsPresent = true;
-        } else {
-            isBlockingConditionsPresent = false;
-        }
+        updateBlockingConditions();
     }
 
     public void removeApplicationBlockingCondition(String name) {
         blockedApplicationConditionsMap.remove(name);
-        if (isAnyBlockedMapContainsData()) {
-            isBlockingConditionsPresent = true;
-        } else {
-            isBlockingConditionsPresent = false;
-        }
+        updateBlockingConditions();
     }
 
 
     public void removeUserBlockingCondition(String name) {
         blockedUserConditionsMap.remove(name);
-        if (isAnyBlockedMapContainsData()) {
-            isBlockingConditionsPresent = true;
-        } else {
-            isBlockingConditionsPresent = false;
-        }
+        updateBlockingConditions();
     }
 
     public void removeIpBlockingCondition(String name) {
         blockedIpConditionsMap.remove(name);
-        if (isAnyBlockedMapContainsData()) {
-            isBlockingConditionsPresent = true;
-        } else {
-            isBlockingConditionsPresent = false;
+        updateBlockingConditions();
+    }
+
+    /**
+     * @return current snapshot of the blocking conditions, evaluated by the request path
+     */
+    public BlockingConditionSnapshot getBlockingConditions() {
+        return blockingConditions;
+    }
+
+    /**
+     * Replaces the blocking condition snapshot with one built from the current conditions.
+     */
+    private synchronized void updateBlockingConditions() {
+        blockingConditions = new BlockingConditionSnapshot(blockingConditions.getVersion() + 1,
+                blockedAPIConditionsMap.keySet(), blockedApplicationConditionsMap.keySet(),
+                blockedUserConditionsMap.keySet(), blockedIpConditionsMap.keySet());
+        if (log.isDebugEnabled()) {
+            log.debug("Updated blocking conditions to version " + blockingConditions.getVersion());
         }
     }
 
     public void addKeyTemplate(String key, String value) {
-        keyTemplateMap.put(key, value);
-        isKeyTemplatesPresent = true;
+        addKeyTemplate(key, KeyTemplate.compile(value));
+    }
+
+    /**
+     * Adds a compiled key template. Throttle data already received for keys matching the template is taken into
+     * account, so the template is evaluated while any of those keys is throttled. A template which replaces the same
+     * template keeps its throttled state, including decisions no longer held by the throttle data.
+     *
+     * @param key      key template as received from the global policy engine
+     * @param template compiled key template
+     */
+    public synchronized void addKeyTemplate(String key, KeyTemplate template) {
+        KeyTemplate previous = keyTemplateMap.put(key, template);
+        if (previous != null && previous.getTemplate().equals(template.getTemplate())) {
+            template.markThrottled(previous.getThrottledUntil());
+        }
+        updateKeyTemplates();
+        // Scanned after the template is published so that throttle data added concurrently is not missed
+        throttleDataStore.forEach((throttleKey, nextAccessTimestamp) -> {
+            if (template.matches(throttleKey)) {
+                template.markThrottled(nextAccessTimestamp);
+            }
+        });
     }
 
     public void addKeyTemplateFromMap(Map<String, String> data) {
-        if (data.size() > 0) {
-            keyTemplateMap.putAll(data);
-            isKeyTemplatesPresent = true;
+        for (Map.Entry<String, String> entry : data.entrySet()) {
+            addKeyTemplate(entry.getKey(), entry.getValue());
         }
     }
 
-    public void removeKeyTemplate(String name) {
+    public synchronized void removeKeyTemplate(String name) {
         keyTemplateMap.remove(name);
-        if (keyTemplateMap.size() > 0) {
-            isKeyTemplatesPresent = true;
-        } else {
-            isKeyTemplatesPresent = false;
-        }
+        updateKeyTemplates();
     }
 
-    public Map<String, String> getKeyTemplateMap() {
+    public Map<String, KeyTemplate> getKeyTemplateMap() {
         return keyTemplateMap;
     }
 
-    public boolean isRequestBlocked(String apiBlockingKey, String applicationBlockingKey, String userBlockingKey,
-                                    String ipBlockingKey) {
-        return (blockedAPIConditionsMap.containsKey(apiBlockingKey) ||
-                blockedApplicationConditionsMap.containsKey(applicationBlockingKey) ||
-                blockedUserConditionsMap.containsKey(userBlockingKey) ||
-                blockedIpConditionsMap.containsKey(ipBlockingKey));
+    /**
+     * @return compiled key templates. The returned array must not be modified.
+     */
+    public KeyTemplate[] getKeyTemplates() {
+        return keyTemplates;
+    }
+
+    private void updateKeyTemplates() {
+        keyTemplates = keyTemplateMap.values().toArray(new KeyTemplate[keyTemplateMap.size()]);
+        isKeyTemplatesPresent = keyTemplates.length > 0;
+    }
+
+    private void markKeyTemplatesThrottled(String key, long nextAccessTimestamp) {
+        for (KeyTemplate template : keyTemplates) {
+            if (template.matches(key)) {
+                template.markThrottled(nextAccessTimestamp);
+            }
+        }
     }
 
     /**
@@ -208,50 +343,81 @@ public class ThrottleDataHolder {
      * subscriber with all latest updates from global policy engine. This method will perfoem only local map
      * lookup and return results.
      *
-     * @param key String unique key of throttle event.
+     * @param key unique key of throttle event, either a {@link String} or a {@link ThrottleKey}.
      * @return Return true if event throttled(means key is available in throttle data map).
      * false if key is not there in throttle map(that means its not throttled).
      */
-    public boolean isThrottled(String key) {
-        boolean isThrottled = this.throttleDataMap.containsKey(key);
-        if (isThrottled) {
-            long currentTime = System.currentTimeMillis();
-            long timestamp = this.throttleDataMap.get(key);
-            if (timestamp >= currentTime) {
-                return isThrottled;
-            } else {
-                this.throttleDataMap.remove(key);
-                return false;
-            }
-        } else {
-            return isThrottled;
-        }
+    public boolean isThrottled(CharSequence key) {
+        return throttleDataStore.nextAccessTimestamp(key) != ThrottleDecisionStore.NOT_THROTTLED;
     }
 
     /**
-     * This method used to get the next access timestamp of a given key
+     * This method used to get the next access timestamp of a given key. As this is a single lookup, callers which
+     * need the timestamp of a throttled key should use this method instead of calling
+     * {@link #isThrottled(CharSequence)} first.
      *
-     * @param key String unique key of throttle event.
-     * @return throttle next access timestamp
+     * @param key unique key of throttle event, either a {@link String} or a {@link ThrottleKey}.
+     * @return throttle next access timestamp, or {@link ThrottleDecisionStore#NOT_THROTTLED} if the key is not
+     * throttled
      */
-    public long getThrottleNextAccessTimestamp(String key) {
-        return this.throttleDataMap.get(key);
+    public long getThrottleNextAccessTimestamp(CharSequence key) {
+        return throttleDataStore.nextAccessTimestamp(key);
     }
 
-    public boolean isBlockingConditionsPresent() {
-        return isBlockingConditionsPresent;
+    public ThrottleDecisionStore getThrottleDataStore() {
+        return throttleDataStore;
     }
 
-    public void setBlockingConditionsPresent(boolean blockingConditionsPresent) {
-        isBlockingConditionsPresent = blockingConditionsPresent;
+    public ThrottleDecisionStore getThrottledAPIKeysStore() {
+        return throttledAPIKeysStore;
     }
 
-    private boolean isAnyBlockedMapContainsData() {
-        if (blockedAPIConditionsMap.size() > 0 || blockedIpConditionsMap.size() > 0
-                || blockedApplicationConditionsMap.size() > 0 || blockedUserConditionsMap.size() > 0) {
-            return true;
-        }
-        return false;
+    public SpikeArrestLimiter getSpikeArrestLimiter() {
+        return spikeArrestLimiter;
+    }
+
+    public HardLimitThrottler getHardLimitThrottler() {
+        return hardLimitThrottler;
+    }
+
+    /**
+     * @return limiter of the requests sent to backend endpoints
+     */
+    public EndpointLimiter getEndpointLimiter() {
+        return endpointLimiter;
+    }
+
+    public LocalThrottleEngine getLocalThrottleEngine() {
+        return localThrottleEngine;
+    }
+
+    /**
+     * @return applier of the throttle decisions received from the global policy engine
+     */
+    public ThrottleDecisionApplier getThrottleDecisionApplier() {
+        return throttleDecisionApplier;
+    }
+
+    /**
+     * @return resolver of the client addresses of requests
+     */
+    public ClientAddressResolver getClientAddressResolver() {
+        return clientAddressResolver;
+    }
+
+    /**
+     * Stops the background tasks maintaining the throttle data of this node.
+     */
+    public void shutdown() {
+        throttleDataStore.shutdown();
+        throttledAPIKeysStore.shutdown();
+        spikeArrestLimiter.shutdown();
+        localThrottleEngine.shutdown();
+        throttleDecisionApplier.stop();
+    }
+
+    public boolean isBlockingConditionsPresent() {
+        return !blockingConditions.isEmpty();
     }
 
     public boolean isKeyTemplatesPresent() {
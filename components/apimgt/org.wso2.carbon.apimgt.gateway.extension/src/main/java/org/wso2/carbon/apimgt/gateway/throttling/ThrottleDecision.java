@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+/**
+ * A throttle decision of the global policy engine for one throttle key. Decisions carry the API or resource level
+ * key the throttle key belongs to, so the gateway does not have to work it out from the throttle key.
+ */
+public final class ThrottleDecision {
+
+    private final String throttleKey;
+    private final boolean throttled;
+    private final long expiryTimestamp;
+    private final String apiKey;
+    private final String resourceKey;
+    private final String conditionId;
+    private final boolean keysResolved;
+
+    /**
+     * Creates a decision carrying its API or resource level key. Neither is set for decisions which do not belong
+     * to an API, such as application level decisions.
+     *
+     * @param throttleKey     throttle key
+     * @param throttled       whether the throttle key is throttled
+     * @param expiryTimestamp timestamp at which the throttle key can be accessed again
+     * @param apiKey          API level key the throttle key belongs to, if any
+     * @param resourceKey     resource level key the throttle key belongs to, if any
+     * @param conditionId     id of the throttle condition, if any
+     */
+    public ThrottleDecision(String throttleKey, boolean throttled, long expiryTimestamp, String apiKey,
+                            String resourceKey, String conditionId) {
+        this(throttleKey, throttled, expiryTimestamp, apiKey, resourceKey, conditionId, true);
+    }
+
+    private ThrottleDecision(String throttleKey, boolean throttled, long expiryTimestamp, String apiKey,
+                             String resourceKey, String conditionId, boolean keysResolved) {
+        this.throttleKey = throttleKey;
+        this.throttled = throttled;
+        this.expiryTimestamp = expiryTimestamp;
+        this.apiKey = apiKey;
+        this.resourceKey = resourceKey;
+        this.conditionId = conditionId;
+        this.keysResolved = keysResolved;
+    }
+
+    /**
+     * Creates a decision received in the legacy format, which carries only the throttle key. The API or resource
+     * level key is extracted from the throttle key when the decision is applied.
+     *
+     * @param throttleKey     throttle key
+     * @param throttled       whether the throttle key is throttled
+     * @param expiryTimestamp timestamp at which the throttle key can be accessed again
+     * @return throttle decision
+     */
+    public static ThrottleDecision withoutKeys(String throttleKey, boolean throttled, long expiryTimestamp) {
+        return new ThrottleDecision(throttleKey, throttled, expiryTimestamp, null, null, null, false);
+    }
+
+    public String getThrottleKey() {
+        return throttleKey;
+    }
+
+    public boolean isThrottled() {
+        return throttled;
+    }
+
+    public long getExpiryTimestamp() {
+        return expiryTimestamp;
+    }
+
+    public String getApiKey() {
+        return apiKey;
+    }
+
+    public String getResourceKey() {
+        return resourceKey;
+    }
+
+    public String getConditionId() {
+        return conditionId;
+    }
+
+    /**
+     * @return false if the decision was received in the legacy format, without its API and resource level keys
+     */
+    public boolean isKeysResolved() {
+        return keysResolved;
+    }
+
+    @Override
+    public String toString() {
+        return "ThrottleDecision{throttleKey=" + throttleKey + ", throttled=" + throttled + ", expiryTimestamp="
+                + expiryTimestamp + ", apiKey=" + apiKey + ", resourceKey=" + resourceKey + ", conditionId="
+                + conditionId + '}';
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Applies the throttle decisions received from the global policy engine to the {@link ThrottleDataHolder} from a
+ * single background thread.
+ * <p>
+ * Decisions are queued without blocking the JMS session delivering them. The applier collects the decisions
+ * arriving within a short window after the first one and applies only the last decision of each throttle key, so
+ * a throttle key flapping during a throttling storm is applied once per window. Decisions are dropped and counted
+ * when the queue is full; a dropped decision is superseded by the next decision of the same key or by its expiry.
+ */
+public class ThrottleDecisionApplier {
+
+    private static final Logger log = LoggerFactory.getLogger(ThrottleDecisionApplier.class);
+
+    // These patterns are used to determine the API or resource key of decisions received in the legacy format.
+    private static final Pattern API_PATTERN = Pattern.compile("/.*/(.*):\\1_(condition_(\\d*)|default)");
+    private static final int API_PATTERN_GROUPS = 3;
+    private static final int API_PATTERN_CONDITION_INDEX = 2;
+    private static final Pattern RESOURCE_PATTERN = Pattern.compile(
+            "/.*/(.*)/\\1(.*)?:[A-Z]{0,5}_(condition_(\\d*)|default)");
+    private static final int RESOURCE_PATTERN_GROUPS = 4;
+    private static final int RESOURCE_PATTERN_CONDITION_INDEX = 3;
+
+    private final ThrottleDataHolder dataHolder;
+    private final BlockingQueue<ThrottleDecision> queue;
+    private final Map<String, ThrottleDecision> window = new LinkedHashMap<>();
+    private final AtomicLong receivedDecisions = new AtomicLong();
+    private final AtomicLong appliedDecisions = new AtomicLong();
+    private final AtomicLong droppedDecisions = new AtomicLong();
+    private volatile long windowMillis;
+    private Thread applier;
+
+    /**
+     * @param dataHolder    throttle data holder the decisions are applied to
+     * @param queueCapacity maximum number of decisions waiting to be applied
+     * @param windowMillis  time in milliseconds during which decisions are collected before they are applied
+     */
+    public ThrottleDecisionApplier(ThrottleDataHolder dataHolder, int queueCapacity, long windowMillis) {
+        this.dataHolder = dataHolder;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Starts the thread applying the queued decisions.
+     */
+    public synchronized void start() {
+        if (applier == null) {
+            applier = new Thread(this::applyDecisions, "apim-throttle-decision-applier");
+            applier.setDaemon(true);
+            applier.start();
+        }
+    }
+
+    /**
+     * Stops the thread applying the queued decisions. Decisions still queued are not applied.
+     */
+    public synchronized void stop() {
+        if (applier != null) {
+            applier.interrupt();
+            applier = null;
+        }
+    }
+
+    public void setWindowMillis(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Queues a decision to be applied. This method never blocks.
+     *
+     * @param decision throttle decision
+     * @return false if the decision was dropped because the queue is full
+     */
+    public boolean submit(ThrottleDecision decision) {
+        receivedDecisions.incrementAndGet();
+        if (queue.offer(decision)) {
+            return true;
+        }
+        if (droppedDecisions.getAndIncrement() == 0) {
+            log.warn("Throttle decision queue is full. Throttle decisions are dropped until the queued decisions "
+                    + "are applied");
+        }
+        return false;
+    }
+
+    private void applyDecisions() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                collectWindow();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            try {
+                applyWindow();
+            } catch (RuntimeException e) {
+                log.error("Error while applying " + window.size() + " throttle decisions", e);
+            } finally {
+                window.clear();
+            }
+        }
+    }
+
+    /**
+     * Waits for a decision and collects the decisions received within the window following it, keeping the last
+     * decision of each throttle key.
+     */
+    private void collectWindow() throws InterruptedException {
+        ThrottleDecision decision = queue.take();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        do {
+            // Removed first so that the key keeps the position of its last decision
+            window.remove(decision.getThrottleKey());
+            window.put(decision.getThrottleKey(), decision);
+            long remaining = deadline - System.nanoTime();
+            decision = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+        } while (decision != null);
+    }
+
+    private void applyWindow() {
+        for (ThrottleDecision decision : window.values()) {
+            apply(decision);
+        }
+        appliedDecisions.addAndGet(window.size());
+        if (log.isDebugEnabled()) {
+            log.debug("Applied " + window.size() + " throttle decisions");
+        }
+    }
+
+    void apply(ThrottleDecision decision) {
+        String throttleKey = decision.getThrottleKey();
+        String extractedKey;
+        if (decision.isKeysResolved()) {
+            extractedKey = decision.getResourceKey() != null ? decision.getResourceKey() : decision.getApiKey();
+        } else {
+            extractedKey = extractAPIorResourceKey(throttleKey);
+        }
+        if (decision.isThrottled()) {
+            dataHolder.addThrottleData(throttleKey, decision.getExpiryTimestamp());
+            if (extractedKey != null && !dataHolder.isAPIThrottled(extractedKey)) {
+                dataHolder.addThrottledAPIKey(extractedKey, decision.getExpiryTimestamp());
+                if (log.isDebugEnabled()) {
+                    log.debug("Adding throttling key : " + extractedKey);
+                }
+            }
+        } else {
+            dataHolder.removeThrottleData(throttleKey);
+            if (extractedKey != null) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Removing throttling key : " + extractedKey);
+                }
+                dataHolder.removeThrottledAPIKey(extractedKey);
+            }
+        }
+    }
+
+    static String extractAPIorResourceKey(String throttleKey) {
+        Matcher m = RESOURCE_PATTERN.matcher(throttleKey);
+        if (m.matches()) {
+            if (m.groupCount() == RESOURCE_PATTERN_GROUPS) {
+                String condition = m.group(RESOURCE_PATTERN_CONDITION_INDEX);
+                return throttleKey.substring(0, throttleKey.indexOf("_" + condition));
+            }
+        } else {
+            m = API_PATTERN.matcher(throttleKey);
+            if (m.matches() && m.groupCount() == API_PATTERN_GROUPS) {
+                String condition = m.group(API_PATTERN_CONDITION_INDEX);
+                return throttleKey.substring(0, throttleKey.indexOf("_" + condition));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return number of decisions waiting to be applied
+     */
+    public int getPendingDecisionCount() {
+        return queue.size();
+    }
+
+    /**
+     * @return number of decisions received
+     */
+    public long getReceivedDecisionCount() {
+        return receivedDecisions.get();
+    }
+
+    /**
+     * @return number of decisions applied. Decisions superseded within a window are not applied.
+     */
+    public long getAppliedDecisionCount() {
+        return appliedDecisions.get();
+    }
+
+    /**
+     * @return number of decisions dropped because the queue was full
+     */
+    public long getDroppedDecisionCount() {
+        return droppedDecisions.get();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary format of a batch of throttle decisions, sent by the global policy engine as the body of a single
+ * {@code BytesMessage}.
+ * <pre>
+ * batch    := version:byte count:int decision{count}
+ * decision := flags:byte expiryTimestamp:long throttleKey:utf [apiKey:utf] [resourceKey:utf] [conditionId:utf]
+ * </pre>
+ * Strings are written in modified UTF-8 as by {@link DataOutputStream#writeUTF(String)}. The flags tell whether the
+ * decision is throttled and which of the optional keys follow.
+ */
+public final class ThrottleDecisionCodec {
+
+    public static final byte VERSION = 1;
+
+    private static final int THROTTLED = 1;
+    private static final int HAS_API_KEY = 1 << 1;
+    private static final int HAS_RESOURCE_KEY = 1 << 2;
+    private static final int HAS_CONDITION_ID = 1 << 3;
+    private static final int FLAGS = THROTTLED | HAS_API_KEY | HAS_RESOURCE_KEY | HAS_CONDITION_ID;
+
+    private ThrottleDecisionCodec() {
+    }
+
+    /**
+     * @param decisions throttle decisions
+     * @return encoded batch of the decisions
+     */
+    public static byte[] encode(List<ThrottleDecision> decisions) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + decisions.size() * 64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeInt(decisions.size());
+            for (ThrottleDecision decision : decisions) {
+                int flags = (decision.isThrottled() ? THROTTLED : 0)
+                        | (decision.getApiKey() != null ? HAS_API_KEY : 0)
+                        | (decision.getResourceKey() != null ? HAS_RESOURCE_KEY : 0)
+                        | (decision.getConditionId() != null ? HAS_CONDITION_ID : 0);
+                out.writeByte(flags);
+                out.writeLong(decision.getExpiryTimestamp());
+                out.writeUTF(decision.getThrottleKey());
+                if (decision.getApiKey() != null) {
+                    out.writeUTF(decision.getApiKey());
+                }
+                if (decision.getResourceKey() != null) {
+                    out.writeUTF(decision.getResourceKey());
+                }
+                if (decision.getConditionId() != null) {
+                    out.writeUTF(decision.getConditionId());
+                }
+            }
+        } catch (IOException e) {
+            // Not thrown when writing to a byte array
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param batch encoded batch of throttle decisions
+     * @return decoded throttle decisions, in the order they were encoded
+     * @throws ThrottleException if the batch is malformed or of an unsupported version. No decision is returned
+     *                           from such a batch.
+     */
+    public static List<ThrottleDecision> decode(byte[] batch) throws ThrottleException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(batch))) {
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new ThrottleException("Unsupported throttle decision batch version : " + version, null);
+            }
+            int count = in.readInt();
+            if (count < 0) {
+                throw new ThrottleException("Invalid throttle decision count : " + count, null);
+            }
+            // Not sized by the count, which is not trusted until the decisions are read
+            List<ThrottleDecision> decisions = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                int flags = in.readByte();
+                if ((flags & ~FLAGS) != 0) {
+                    throw new ThrottleException("Invalid throttle decision flags : " + flags, null);
+                }
+                long expiryTimestamp = in.readLong();
+                String throttleKey = in.readUTF();
+                String apiKey = (flags & HAS_API_KEY) != 0 ? in.readUTF() : null;
+                String resourceKey = (flags & HAS_RESOURCE_KEY) != 0 ? in.readUTF() : null;
+                String conditionId = (flags & HAS_CONDITION_ID) != 0 ? in.readUTF() : null;
+                decisions.add(new ThrottleDecision(throttleKey, (flags & THROTTLED) != 0, expiryTimestamp, apiKey,
+                        resourceKey, conditionId));
+            }
+            if (in.available() > 0) {
+                throw new ThrottleException("Unexpected " + in.available() + " bytes after " + count
+                        + " throttle decisions", null);
+            }
+            return decisions;
+        } catch (IOException e) {
+            throw new ThrottleException("Malformed throttle decision batch", e);
+        }
+    }
+}
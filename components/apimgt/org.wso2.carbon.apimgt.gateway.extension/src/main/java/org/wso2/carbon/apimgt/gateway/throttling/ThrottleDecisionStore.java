@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.apimgt.gateway.utils.TaskScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Holds throttle decisions received from the global policy engine. Each entry maps a throttle key to the timestamp
+ * at which the key can be accessed again.
+ * <p>
+ * Lookups are a single non-blocking hash probe and never modify the store. Expired keys are evicted in bulk by a
+ * background task walking a timing wheel, so keys which are never requested again do not stay in memory. The number
+ * of keys is bounded by a configurable capacity; when the store is full the keys which are closest to expiry are
+ * evicted first.
+ */
+public class ThrottleDecisionStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ThrottleDecisionStore.class);
+
+    /**
+     * Value returned by {@link #nextAccessTimestamp(CharSequence)} when the key is not throttled.
+     */
+    public static final long NOT_THROTTLED = 0L;
+
+    private static final long TICK_MILLIS = 1000L;
+    // Must be a power of two. A key expiring further than a full revolution is revisited once per revolution.
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private final String name;
+    private final Map<String, Long> decisions = new ConcurrentHashMap<>();
+    private final List<ConcurrentLinkedQueue<String>> wheel = new ArrayList<>(WHEEL_SIZE);
+    private final AtomicLong expiredKeyEvictions = new AtomicLong();
+    private final AtomicLong capacityEvictions = new AtomicLong();
+    private volatile int capacity;
+    private long lastSweptTick;
+    private ScheduledFuture<?> sweeper;
+
+    /**
+     * @param name     name of the store, used in logs
+     * @param capacity maximum number of keys the store holds
+     */
+    public ThrottleDecisionStore(String name, int capacity) {
+        this.name = name;
+        this.capacity = capacity;
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel.add(new ConcurrentLinkedQueue<>());
+        }
+        lastSweptTick = System.currentTimeMillis() / TICK_MILLIS;
+        sweeper = TaskScheduler.scheduleWithFixedDelay(name + "-expiry", this::evictExpiredKeys, TICK_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the timestamp at which the given key can be accessed again. This is a single lookup in the store.
+     *
+     * @param key throttle key, either a {@link String} or a {@link ThrottleKey}
+     * @return next access timestamp if the key is currently throttled, {@link #NOT_THROTTLED} otherwise
+     */
+    public long nextAccessTimestamp(CharSequence key) {
+        Long timestamp = decisions.get(ThrottleKey.lookupKey(key));
+        if (timestamp == null) {
+            return NOT_THROTTLED;
+        }
+        long nextAccessTimestamp = timestamp;
+        return nextAccessTimestamp >= System.currentTimeMillis() ? nextAccessTimestamp : NOT_THROTTLED;
+    }
+
+    /**
+     * Adds or updates a throttle decision.
+     *
+     * @param key                 throttle key
+     * @param nextAccessTimestamp timestamp at which the key can be accessed again
+     */
+    public void put(String key, long nextAccessTimestamp) {
+        Long previous = decisions.put(key, nextAccessTimestamp);
+        if (previous == null || slotOf(previous) != slotOf(nextAccessTimestamp)) {
+            wheel.get(slotOf(nextAccessTimestamp)).offer(key);
+        }
+        if (previous == null && decisions.size() > capacity) {
+            evictToCapacity();
+        }
+    }
+
+    public void putAll(Map<String, Long> data) {
+        for (Map.Entry<String, Long> entry : data.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public void remove(String key) {
+        Long previous = decisions.remove(key);
+        if (previous != null) {
+            removeFromWheel(key, slotOf(previous));
+        }
+    }
+
+    /**
+     * Performs the given action for each throttle decision in the store, including expired decisions which have not
+     * been evicted yet.
+     *
+     * @param action action to perform with the throttle key and its next access timestamp
+     */
+    public void forEach(BiConsumer<String, Long> action) {
+        decisions.forEach(action);
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+        if (decisions.size() > capacity) {
+            evictToCapacity();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of keys currently held by the store, including expired keys not yet evicted
+     */
+    public int getLiveKeyCount() {
+        return decisions.size();
+    }
+
+    /**
+     * @return number of entries held by the wheel slots, for tests
+     */
+    int getWheelEntryCount() {
+        int count = 0;
+        for (ConcurrentLinkedQueue<String> keys : wheel) {
+            count += keys.size();
+        }
+        return count;
+    }
+
+    /**
+     * @return number of keys evicted after their throttle decision expired
+     */
+    public long getExpiredKeyEvictionCount() {
+        return expiredKeyEvictions.get();
+    }
+
+    /**
+     * @return number of keys evicted before expiry because the store was full
+     */
+    public long getCapacityEvictionCount() {
+        return capacityEvictions.get();
+    }
+
+    /**
+     * Stops the background eviction of expired keys.
+     */
+    public void shutdown() {
+        if (sweeper != null) {
+            sweeper.cancel(false);
+            sweeper = null;
+        }
+    }
+
+    /**
+     * Sweeps every wheel slot whose tick has fully elapsed since the last run and evicts the keys which have expired.
+     * Keys expiring in a later revolution of the wheel are put back into their slot.
+     */
+    void evictExpiredKeys() {
+        evictExpiredKeys(System.currentTimeMillis());
+    }
+
+    synchronized void evictExpiredKeys(long now) {
+        long lastElapsedTick = now / TICK_MILLIS - 1;
+        long firstTick = Math.max(lastSweptTick + 1, lastElapsedTick - WHEEL_MASK);
+        long evicted = 0;
+        List<String> retained = new ArrayList<>();
+        for (long tick = firstTick; tick <= lastElapsedTick; tick++) {
+            int slot = (int) (tick & WHEEL_MASK);
+            ConcurrentLinkedQueue<String> keys = wheel.get(slot);
+            String key;
+            while ((key = keys.poll()) != null) {
+                Long timestamp = decisions.get(key);
+                if (timestamp == null || slotOf(timestamp) != slot) {
+                    // Removed, or updated with an expiry tracked by another slot.
+                    continue;
+                }
+                if (timestamp >= now) {
+                    retained.add(key);
+                } else if (decisions.remove(key, timestamp)) {
+                    evicted++;
+                } else {
+                    retainIfUpdatedInSlot(key, slot, retained);
+                }
+            }
+            keys.addAll(retained);
+            retained.clear();
+        }
+        lastSweptTick = lastElapsedTick;
+        if (evicted > 0) {
+            expiredKeyEvictions.addAndGet(evicted);
+            if (log.isDebugEnabled()) {
+                log.debug("Evicted " + evicted + " expired keys from throttle decision store " + name);
+            }
+        }
+    }
+
+    /**
+     * Evicts keys starting from the wheel slot closest to expiry until the store is within its capacity.
+     */
+    private synchronized void evictToCapacity() {
+        int slot = (int) ((System.currentTimeMillis() / TICK_MILLIS) & WHEEL_MASK);
+        long evicted = 0;
+        List<String> retained = new ArrayList<>();
+        for (int i = 0; i < WHEEL_SIZE && decisions.size() > capacity; i++, slot = (slot + 1) & WHEEL_MASK) {
+            ConcurrentLinkedQueue<String> keys = wheel.get(slot);
+            String key;
+            while (decisions.size() > capacity && (key = keys.poll()) != null) {
+                Long timestamp = decisions.get(key);
+                if (timestamp == null || slotOf(timestamp) != slot) {
+                    continue;
+                }
+                if (decisions.remove(key, timestamp)) {
+                    evicted++;
+                } else {
+                    retainIfUpdatedInSlot(key, slot, retained);
+                }
+            }
+            keys.addAll(retained);
+            retained.clear();
+        }
+        if (capacityEvictions.getAndAdd(evicted) == 0) {
+            log.warn("Throttle decision store " + name + " reached its capacity of " + capacity + ". Keys closest "
+                    + "to expiry will be evicted before they expire");
+        } else if (log.isDebugEnabled()) {
+            log.debug("Evicted " + evicted + " keys from throttle decision store " + name + " to keep it within "
+                    + "capacity");
+        }
+    }
+
+    /**
+     * Retains a key polled from the given slot which could not be evicted because it was updated concurrently. An
+     * update moving the key to another slot offers it to that slot, but an update within the same slot does not, so
+     * the key must be put back or it would never be evicted.
+     */
+    private void retainIfUpdatedInSlot(String key, int slot, List<String> retained) {
+        Long timestamp = decisions.get(key);
+        if (timestamp != null && slotOf(timestamp) == slot) {
+            retained.add(key);
+        }
+    }
+
+    /**
+     * Drops the wheel entry of a removed key, so that a later put of the key does not leave it in two slots. A put
+     * racing with the removal may have offered the key to the same slot again, in which case it is kept there.
+     */
+    private synchronized void removeFromWheel(String key, int slot) {
+        ConcurrentLinkedQueue<String> keys = wheel.get(slot);
+        keys.remove(key);
+        Long timestamp = decisions.get(key);
+        if (timestamp != null && slotOf(timestamp) == slot && !keys.contains(key)) {
+            keys.offer(key);
+        }
+    }
+
+    private static int slotOf(long timestamp) {
+        return (int) ((timestamp / TICK_MILLIS) & WHEEL_MASK);
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import java.util.Arrays;
+
+/**
+ * Mutable throttle key which can be composed and looked up in the throttle data without allocating a new
+ * {@link String} for every request.
+ * <p>
+ * The hash code of a key is computed while it is composed and is the same as the hash code of the equivalent
+ * {@link String}, and a key is equal to any {@link CharSequence} holding the same characters. A key can therefore be
+ * used directly to look up maps keyed by {@link String}. Call {@link #toString()} only when the key has to be kept,
+ * since the instance itself is reused by the thread which owns it (see {@link #forCurrentThread()}).
+ */
+public final class ThrottleKey implements CharSequence {
+
+    private static final int INITIAL_CAPACITY = 128;
+    private static final ThreadLocal<Keys> threadKeys = ThreadLocal.withInitial(Keys::new);
+
+    private char[] chars;
+    private int length;
+    private int hash;
+
+    public ThrottleKey() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public ThrottleKey(int initialCapacity) {
+        chars = new char[initialCapacity];
+    }
+
+    /**
+     * Returns the reusable throttle keys of the current thread. The keys must not be passed to other threads or
+     * kept after the request being processed completes.
+     *
+     * @return throttle keys of the current thread
+     */
+    public static Keys forCurrentThread() {
+        return threadKeys.get();
+    }
+
+    /**
+     * Returns a value with which a map or set keyed by {@link String}s can be queried for the given key. Maps compare
+     * the queried value with their keys by calling its equals method, which only matches a String when the value is
+     * a String or a {@link ThrottleKey}. Any other {@link CharSequence} is converted to a String.
+     *
+     * @param key throttle key
+     * @return the key itself if it is a String or a ThrottleKey, its String form otherwise
+     */
+    public static Object lookupKey(CharSequence key) {
+        return key instanceof String || key instanceof ThrottleKey ? key : String.valueOf(key);
+    }
+
+    /**
+     * Clears the key so that a new key can be composed.
+     *
+     * @return this key
+     */
+    public ThrottleKey reset() {
+        length = 0;
+        hash = 0;
+        return this;
+    }
+
+    /**
+     * Appends the given characters to the key. A null value is appended as "null", same as string concatenation.
+     *
+     * @param value characters to append
+     * @return this key
+     */
+    public ThrottleKey append(CharSequence value) {
+        if (value == null) {
+            return append("null");
+        }
+        int valueLength = value.length();
+        ensureCapacity(length + valueLength);
+        int h = hash;
+        for (int i = 0; i < valueLength; i++) {
+            char c = value.charAt(i);
+            chars[length++] = c;
+            h = 31 * h + c;
+        }
+        hash = h;
+        return this;
+    }
+
+    public ThrottleKey append(char c) {
+        ensureCapacity(length + 1);
+        chars[length++] = c;
+        hash = 31 * hash + c;
+        return this;
+    }
+
+    /**
+     * Replaces the content of this key with the content of the given key.
+     *
+     * @param key key to copy
+     * @return this key
+     */
+    public ThrottleKey set(ThrottleKey key) {
+        ensureCapacity(key.length);
+        System.arraycopy(key.chars, 0, chars, 0, key.length);
+        length = key.length;
+        hash = key.hash;
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index : " + index + ", length : " + length);
+        }
+        return chars[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * A key is equal to any {@link CharSequence} with the same characters. Note that the reverse does not hold for
+     * {@link String#equals(Object)}, so maps must always be queried with the key as the argument, see
+     * {@link #lookupKey(CharSequence)}.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CharSequence)) {
+            return false;
+        }
+        CharSequence other = (CharSequence) o;
+        if (other.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (chars[i] != other.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(capacity, chars.length * 2));
+        }
+    }
+
+    /**
+     * Reusable throttle keys used by a single thread to throttle a request.
+     */
+    public static final class Keys {
+
+        private final ThrottleKey applicationKey = new ThrottleKey();
+        private final ThrottleKey subscriptionKey = new ThrottleKey();
+        private final ThrottleKey apiKey = new ThrottleKey();
+        private final ThrottleKey resourceKey = new ThrottleKey();
+        private final ThrottleKey conditionKey = new ThrottleKey();
+        private final ThrottleKey customKey = new ThrottleKey();
+        private final ThrottleKey ipBlockingKey = new ThrottleKey();
+        private final ThrottleKey appBlockingKey = new ThrottleKey();
+
+        private Keys() {
+        }
+
+        /**
+         * @return key of the form {applicationId}:{authorizedUser}
+         */
+        public ThrottleKey getApplicationKey() {
+            return applicationKey;
+        }
+
+        /**
+         * @return key of the form {applicationId}:{apiContext}:{apiVersion}
+         */
+        public ThrottleKey getSubscriptionKey() {
+            return subscriptionKey;
+        }
+
+        /**
+         * @return key of the form {apiContext}:{apiVersion}
+         */
+        public ThrottleKey getApiKey() {
+            return apiKey;
+        }
+
+        /**
+         * @return resource or API level key, optionally followed by _{authorizedUser}
+         */
+        public ThrottleKey getResourceKey() {
+            return resourceKey;
+        }
+
+        /**
+         * @return resource level key followed by a condition group id
+         */
+        public ThrottleKey getConditionKey() {
+            return conditionKey;
+        }
+
+        /**
+         * @return key rendered from a custom policy key template
+         */
+        public ThrottleKey getCustomKey() {
+            return customKey;
+        }
+
+        /**
+         * @return key of the form {apiTenantDomain}:{clientIp}
+         */
+        public ThrottleKey getIpBlockingKey() {
+            return ipBlockingKey;
+        }
+
+        /**
+         * @return key of the form {subscriber}:{applicationName}
+         */
+        public ThrottleKey getAppBlockingKey() {
+            return appBlockingKey;
+        }
+    }
+}
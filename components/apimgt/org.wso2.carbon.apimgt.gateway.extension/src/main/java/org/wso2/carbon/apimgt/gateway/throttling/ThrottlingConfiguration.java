@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import org.wso2.carbon.kernel.annotations.Configuration;
+import org.wso2.carbon.kernel.annotations.Element;
+
+/**
+ * This class is used to keep the throttling related configurations of the gateway
+ */
+@Configuration(namespace = "wso2.carbon.apim.throttling", description = "APIM Gateway Throttling Configurations")
+public class ThrottlingConfiguration {
+
+    @Element(description = "maximum number of throttle keys kept in the throttle data store")
+    private int throttleDataCapacity = 100000;
+    @Element(description = "maximum number of throttled API and resource keys kept in the throttle data store")
+    private int throttledAPIKeysCapacity = 10000;
+    @Element(description = "number of gateway nodes sharing the hard limits of APIs. Each node enforces an equal "
+            + "share of the limit")
+    private int gatewayNodeCount = 1;
+    @Element(description = "where throttle decisions are made. GLOBAL: by the global policy engine, LOCAL: by this "
+            + "node against the full limits, LOCAL_APPROXIMATE: by each node against its share of the limits")
+    private String throttlingMode = ThrottlingMode.GLOBAL.name();
+    @Element(description = "class name of the sink receiving the throttle events published by the gateway")
+    private String throttleEventSink =
+            "org.wso2.carbon.apimgt.gateway.throttling.publisher.LoggingThrottleEventSink";
+    @Element(description = "number of throttle events buffered between two flushes. Events are dropped when the "
+            + "buffer is full")
+    private int throttleEventBufferSize = 8192;
+    @Element(description = "maximum number of aggregated throttle events sent to the sink at once")
+    private int throttleEventBatchSize = 500;
+    @Element(description = "interval in milliseconds between two flushes of the throttle event buffer")
+    private long throttleEventFlushInterval = 1000;
+    @Element(description = "maximum number of throttle decisions received from the global policy engine waiting to "
+            + "be applied. Decisions are dropped when the queue is full")
+    private int throttleDecisionQueueCapacity = 100000;
+    @Element(description = "time in milliseconds during which throttle decisions are collected before they are "
+            + "applied. Only the last decision of each throttle key within this window is applied")
+    private long throttleDecisionWindow = 50;
+    @Element(description = "whether response payload sizes, given by their Content-Length headers, are counted "
+            + "against bandwidth policies in addition to request payload sizes")
+    private boolean responseBandwidthEnabled = true;
+    @Element(description = "whether requests are limited by the maximum TPS of their endpoints. The hard limits of "
+            + "APIs are taken from the maximum TPS of their endpoints, so they are not enforced when disabled")
+    private boolean endpointLimitingEnabled = true;
+    @Element(description = "whether the concurrency of requests to each endpoint is limited, the limit adapting to "
+            + "the latency of the endpoint")
+    private boolean adaptiveConcurrencyEnabled = false;
+    @Element(description = "initial concurrency limit of an endpoint")
+    private int endpointInitialConcurrency = 20;
+    @Element(description = "lower bound of the concurrency limit of an endpoint")
+    private int endpointMinConcurrency = 1;
+    @Element(description = "upper bound of the concurrency limit of an endpoint")
+    private int endpointMaxConcurrency = 1000;
+    @Element(description = "endpoint latency in milliseconds above which the concurrency limit of the endpoint is "
+            + "reduced")
+    private long endpointLatencyThreshold = 1000;
+    @Element(description = "ratio by which the concurrency limit of an endpoint is multiplied when it is reduced")
+    private double endpointBackoffRatio = 0.9;
+    @Element(description = "comma separated addresses or CIDR blocks of the proxies trusted to report the client "
+            + "address of a request in the X-Forwarded-For header")
+    private String trustedProxies = "10.0.0.0/8,172.16.0.0/12,192.168.0.0/16,169.254.0.0/16,127.0.0.0/8,::1,fc00::/7";
+    @Element(description = "whether the rightmost X-Forwarded-For entry is used as the client address of a request "
+            + "whose remote address is not known. Enable only if every request comes through a proxy.")
+    private boolean trustUnknownRemoteAddress = false;
+
+    public int getThrottleDataCapacity() {
+        return throttleDataCapacity;
+    }
+
+    public void setThrottleDataCapacity(int throttleDataCapacity) {
+        this.throttleDataCapacity = throttleDataCapacity;
+    }
+
+    public int getThrottledAPIKeysCapacity() {
+        return throttledAPIKeysCapacity;
+    }
+
+    public void setThrottledAPIKeysCapacity(int throttledAPIKeysCapacity) {
+        this.throttledAPIKeysCapacity = throttledAPIKeysCapacity;
+    }
+
+    public int getGatewayNodeCount() {
+        return gatewayNodeCount;
+    }
+
+    public void setGatewayNodeCount(int gatewayNodeCount) {
+        this.gatewayNodeCount = gatewayNodeCount;
+    }
+
+    public String getThrottlingMode() {
+        return throttlingMode;
+    }
+
+    public void setThrottlingMode(String throttlingMode) {
+        this.throttlingMode = throttlingMode;
+    }
+
+    public String getThrottleEventSink() {
+        return throttleEventSink;
+    }
+
+    public void setThrottleEventSink(String throttleEventSink) {
+        this.throttleEventSink = throttleEventSink;
+    }
+
+    public int getThrottleEventBufferSize() {
+        return throttleEventBufferSize;
+    }
+
+    public void setThrottleEventBufferSize(int throttleEventBufferSize) {
+        this.throttleEventBufferSize = throttleEventBufferSize;
+    }
+
+    public int getThrottleEventBatchSize() {
+        return throttleEventBatchSize;
+    }
+
+    public void setThrottleEventBatchSize(int throttleEventBatchSize) {
+        this.throttleEventBatchSize = throttleEventBatchSize;
+    }
+
+    public long getThrottleEventFlushInterval() {
+        return throttleEventFlushInterval;
+    }
+
+    public void setThrottleEventFlushInterval(long throttleEventFlushInterval) {
+        this.throttleEventFlushInterval = throttleEventFlushInterval;
+    }
+
+    public int getThrottleDecisionQueueCapacity() {
+        return throttleDecisionQueueCapacity;
+    }
+
+    public void setThrottleDecisionQueueCapacity(int throttleDecisionQueueCapacity) {
+        this.throttleDecisionQueueCapacity = throttleDecisionQueueCapacity;
+    }
+
+    public long getThrottleDecisionWindow() {
+        return throttleDecisionWindow;
+    }
+
+    public void setThrottleDecisionWindow(long throttleDecisionWindow) {
+        this.throttleDecisionWindow = throttleDecisionWindow;
+    }
+
+    public String getTrustedProxies() {
+        return trustedProxies;
+    }
+
+    public void setTrustedProxies(String trustedProxies) {
+        this.trustedProxies = trustedProxies;
+    }
+
+    public boolean isTrustUnknownRemoteAddress() {
+        return trustUnknownRemoteAddress;
+    }
+
+    public void setTrustUnknownRemoteAddress(boolean trustUnknownRemoteAddress) {
+        this.trustUnknownRemoteAddress = trustUnknownRemoteAddress;
+    }
+
+    public boolean isResponseBandwidthEnabled() {
+        return responseBandwidthEnabled;
+    }
+
+    public void setResponseBandwidthEnabled(boolean responseBandwidthEnabled) {
+        this.responseBandwidthEnabled = responseBandwidthEnabled;
+    }
+
+    public boolean isEndpointLimitingEnabled() {
+        return endpointLimitingEnabled;
+    }
+
+    public void setEndpointLimitingEnabled(boolean endpointLimitingEnabled) {
+        this.endpointLimitingEnabled = endpointLimitingEnabled;
+    }
+
+    public boolean isAdaptiveConcurrencyEnabled() {
+        return adaptiveConcurrencyEnabled;
+    }
+
+    public void setAdaptiveConcurrencyEnabled(boolean adaptiveConcurrencyEnabled) {
+        this.adaptiveConcurrencyEnabled = adaptiveConcurrencyEnabled;
+    }
+
+    public int getEndpointInitialConcurrency() {
+        return endpointInitialConcurrency;
+    }
+
+    public void setEndpointInitialConcurrency(int endpointInitialConcurrency) {
+        this.endpointInitialConcurrency = endpointInitialConcurrency;
+    }
+
+    public int getEndpointMinConcurrency() {
+        return endpointMinConcurrency;
+    }
+
+    public void setEndpointMinConcurrency(int endpointMinConcurrency) {
+        this.endpointMinConcurrency = endpointMinConcurrency;
+    }
+
+    public int getEndpointMaxConcurrency() {
+        return endpointMaxConcurrency;
+    }
+
+    public void setEndpointMaxConcurrency(int endpointMaxConcurrency) {
+        this.endpointMaxConcurrency = endpointMaxConcurrency;
+    }
+
+    public long getEndpointLatencyThreshold() {
+        return endpointLatencyThreshold;
+    }
+
+    public void setEndpointLatencyThreshold(long endpointLatencyThreshold) {
+        this.endpointLatencyThreshold = endpointLatencyThreshold;
+    }
+
+    public double getEndpointBackoffRatio() {
+        return endpointBackoffRatio;
+    }
+
+    public void setEndpointBackoffRatio(double endpointBackoffRatio) {
+        this.endpointBackoffRatio = endpointBackoffRatio;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+/**
+ * Where the throttle decisions of the gateway are made.
+ */
+public enum ThrottlingMode {
+
+    /**
+     * Requests are published to the global policy engine, which sends back the throttle decisions.
+     */
+    GLOBAL,
+
+    /**
+     * Requests are counted by the gateway itself against the full limits of the policies. Suitable when a single
+     * gateway node serves the APIs.
+     */
+    LOCAL,
+
+    /**
+     * Requests are counted by each gateway node against an equal share of the limits of the policies, without any
+     * traffic between the nodes. The limits are only approximated when the load is not balanced evenly.
+     */
+    LOCAL_APPROXIMATE
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling.conditions;
+
+/**
+ * Condition of a condition group, compiled from a {@code ConditionDTO} when a policy is deployed. Conditions are
+ * immutable and are evaluated against the {@link RequestAttributes} of a request without allocating.
+ */
+public abstract class Condition {
+
+    private final boolean inverted;
+
+    protected Condition(boolean inverted) {
+        this.inverted = inverted;
+    }
+
+    /**
+     * @param attributes attributes of the current request
+     * @return true if the condition applies to the request, taking inversion into account
+     */
+    public final boolean evaluate(RequestAttributes attributes) {
+        return matches(attributes) != inverted;
+    }
+
+    public boolean isInverted() {
+        return inverted;
+    }
+
+    /**
+     * @param attributes attributes of the current request
+     * @return true if the request matches the condition, ignoring inversion
+     */
+    protected abstract boolean matches(RequestAttributes attributes);
+}
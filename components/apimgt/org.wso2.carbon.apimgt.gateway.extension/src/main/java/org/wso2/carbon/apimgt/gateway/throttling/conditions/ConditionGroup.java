@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling.conditions;
+
+import java.util.Arrays;
+
+/**
+ * Condition group compiled from a {@code ConditionGroupDTO}. A group applies to a request when all of its conditions
+ * apply.
+ */
+public final class ConditionGroup {
+
+    private final String conditionGroupId;
+    private final Condition[] conditions;
+
+    public ConditionGroup(String conditionGroupId, Condition[] conditions) {
+        this.conditionGroupId = conditionGroupId;
+        this.conditions = Arrays.copyOf(conditions, conditions.length);
+    }
+
+    public String getConditionGroupId() {
+        return conditionGroupId;
+    }
+
+    Condition[] getConditions() {
+        return Arrays.copyOf(conditions, conditions.length);
+    }
+
+    /**
+     * @param attributes attributes of the current request
+     * @return true if the group has conditions and all of them apply to the request
+     */
+    public boolean isApplicable(RequestAttributes attributes) {
+        if (conditions.length == 0) {
+            return false;
+        }
+        for (Condition condition : conditions) {
+            if (!condition.evaluate(attributes)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling.conditions;
+
+/**
+ * Applies when the request is received within a time range, given as epoch milliseconds with an inclusive start
+ * and an exclusive end. Both date range and specific date conditions compile to this condition, a specific date
+ * covering the whole day.
+ */
+public final class DateRangeCondition extends Condition {
+
+    private final long startMillis;
+    private final long endMillis;
+
+    public DateRangeCondition(long startMillis, long endMillis, boolean inverted) {
+        super(inverted);
+        this.startMillis = startMillis;
+        this.endMillis = endMillis;
+    }
+
+    @Override
+    protected boolean matches(RequestAttributes attributes) {
+        long requestTime = attributes.getRequestTime();
+        return requestTime >= startMillis && requestTime < endMillis;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling.conditions;
+
+/**
+ * Applies when the HTTP method of the request is one of a set of methods. The set is held as a bit mask, see
+ * {@link #getVerbMask(String)}.
+ */
+public final class HTTPVerbCondition extends Condition {
+
+    private static final int GET = 1;
+    private static final int POST = 1 << 1;
+    private static final int PUT = 1 << 2;
+    private static final int DELETE = 1 << 3;
+    private static final int PATCH = 1 << 4;
+    private static final int HEAD = 1 << 5;
+    private static final int OPTIONS = 1 << 6;
+
+    private final int verbMask;
+
+    public HTTPVerbCondition(int verbMask, boolean inverted) {
+        super(inverted);
+        this.verbMask = verbMask;
+    }
+
+    /**
+     * @param verb HTTP method, in upper case
+     * @return bit of the method, or 0 if the method is not known
+     */
+    public static int getVerbMask(String verb) {
+        if (verb == null) {
+            return 0;
+        }
+        switch (verb) {
+            case "GET":
+                return GET;
+            case "POST":
+                return POST;
+            case "PUT":
+                return PUT;
+            case "DELETE":
+                return DELETE;
+            case "PATCH":
+                return PATCH;
+            case "HEAD":
+                return HEAD;
+            case "OPTIONS":
+                return OPTIONS;
+            default:
+                return 0;
+        }
+    }
+
+    @Override
+    protected boolean matches(RequestAttributes attributes) {
+        return (attributes.getHttpVerbMask() & verbMask) != 0;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling.conditions;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Applies when the value of a transport header contains a match of a regular expression.
+ */
+public final class HeaderCondition extends Condition {
+
+    private final String headerName;
+    private final ThreadLocal<Matcher> matchers;
+
+    public HeaderCondition(String headerName, Pattern pattern, boolean inverted) {
+        super(inverted);
+        this.headerName = headerName;
+        this.matchers = ThreadLocal.withInitial(() -> pattern.matcher(""));
+    }
+
+    @Override
+    protected boolean matches(RequestAttributes attributes) {
+        String value = attributes.getHeader(headerName);
+        if (value == null) {
+            return false;
+        }
+        Matcher matcher = matchers.get().reset(value);
+        boolean found = matcher.find();
+        // Do not keep a reference to the header value
+        matcher.reset("");
+        return found;
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling.conditions;
+
+import org.wso2.carbon.apimgt.gateway.throttling.utils.IPAddress;
+
+/**
+ * Applies when the client IP of the request is within an inclusive range of IPv4 or IPv6 addresses.
+ */
+public final class IPRangeCondition extends Condition {
+
+    private final IPAddress startAddress;
+    private final IPAddress endAddress;
+
+    public IPRangeCondition(IPAddress startAddress, IPAddress endAddress, boolean inverted) {
+        super(inverted);
+        this.startAddress = startAddress;
+        this.endAddress = endAddress;
+    }
+
+    @Override
+    protected boolean matches(RequestAttributes attributes) {
+        return attributes.getClientIp().isWithin(startAddress, endAddress);
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling.conditions;
+
+/**
+ * Applies when a query parameter of the request has the given value.
+ */
+public final class QueryParameterCondition extends Condition {
+
+    private final String parameterName;
+    private final String parameterValue;
+
+    public QueryParameterCondition(String parameterName, String parameterValue, boolean inverted) {
+        super(inverted);
+        this.parameterName = parameterName;
+        this.parameterValue = parameterValue;
+    }
+
+    @Override
+    protected boolean matches(RequestAttributes attributes) {
+        return attributes.isQueryParameter(parameterName, parameterValue);
+    }
+}
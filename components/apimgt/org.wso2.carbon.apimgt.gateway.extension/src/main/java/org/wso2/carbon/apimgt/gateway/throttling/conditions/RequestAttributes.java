@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling.conditions;
+
+import org.wso2.carbon.apimgt.gateway.GatewayConstants;
+import org.wso2.carbon.apimgt.gateway.throttling.ThrottleDataHolder;
+import org.wso2.carbon.apimgt.gateway.throttling.constants.APIThrottleConstants;
+import org.wso2.carbon.apimgt.gateway.throttling.dto.AuthenticationContextDTO;
+import org.wso2.carbon.apimgt.gateway.throttling.utils.GatewayUtils;
+import org.wso2.carbon.apimgt.gateway.throttling.utils.IPAddress;
+import org.wso2.carbon.messaging.CarbonMessage;
+
+import java.util.Map;
+
+/**
+ * Attributes of a request used by throttling conditions. Each attribute is extracted from the message the first
+ * time a condition needs it and is then shared by all conditions evaluated for the request.
+ * <p>
+ * An instance is reused by the thread which owns it, see {@link #forRequest(CarbonMessage, AuthenticationContextDTO)}.
+ */
+public final class RequestAttributes {
+
+    private static final ThreadLocal<RequestAttributes> threadAttributes =
+            ThreadLocal.withInitial(RequestAttributes::new);
+
+    private CarbonMessage carbonMessage;
+    private AuthenticationContextDTO authenticationContext;
+
+    private boolean headersResolved;
+    private Map<String, String> headers;
+    private boolean queryResolved;
+    private String queryString;
+    private int queryStart;
+    private boolean claimsResolved;
+    private Map<String, String> claims;
+    private boolean clientIpResolved;
+    private final IPAddress clientIp = new IPAddress();
+    private long requestTime;
+    private int httpVerbMask = -1;
+
+    private RequestAttributes() {
+    }
+
+    /**
+     * Returns the attributes of the current thread, reset for the given request. {@link #clear()} should be called
+     * once the conditions have been evaluated.
+     *
+     * @param carbonMessage         message of the request
+     * @param authenticationContext authentication context of the request
+     * @return attributes of the request
+     */
+    public static RequestAttributes forRequest(CarbonMessage carbonMessage,
+                                               AuthenticationContextDTO authenticationContext) {
+        RequestAttributes attributes = threadAttributes.get();
+        attributes.clear();
+        attributes.carbonMessage = carbonMessage;
+        attributes.authenticationContext = authenticationContext;
+        return attributes;
+    }
+
+    /**
+     * Same as {@link #forRequest(CarbonMessage, AuthenticationContextDTO)}, with the time of the request fixed
+     * instead of read from the system clock.
+     *
+     * @param requestTime time of the request in epoch milliseconds
+     */
+    static RequestAttributes forRequest(CarbonMessage carbonMessage, AuthenticationContextDTO authenticationContext,
+                                        long requestTime) {
+        RequestAttributes attributes = forRequest(carbonMessage, authenticationContext);
+        attributes.requestTime = requestTime;
+        return attributes;
+    }
+
+    /**
+     * Drops the references held to the request.
+     */
+    public void clear() {
+        carbonMessage = null;
+        authenticationContext = null;
+        headersResolved = false;
+        headers = null;
+        queryResolved = false;
+        queryString = null;
+        claimsResolved = false;
+        claims = null;
+        clientIpResolved = false;
+        clientIp.clear();
+        requestTime = 0;
+        httpVerbMask = -1;
+    }
+
+    /**
+     * @param name header name
+     * @return value of the transport header, or null if the header is not present
+     */
+    @SuppressWarnings("unchecked")
+    public String getHeader(String name) {
+        if (!headersResolved) {
+            headers = (Map<String, String>) carbonMessage.getProperty(APIThrottleConstants.TRANSPORT_HEADERS);
+            headersResolved = true;
+        }
+        return headers != null ? headers.get(name) : null;
+    }
+
+    /**
+     * @param name claim name
+     * @return value of the claim in the caller's JWT, or null if there is no such claim
+     * @see GatewayUtils#getJWTClaims(String)
+     */
+    public String getClaim(String name) {
+        if (!claimsResolved) {
+            if (authenticationContext != null) {
+                claims = GatewayUtils.getJWTClaims(authenticationContext);
+            }
+            claimsResolved = true;
+        }
+        return claims != null ? claims.get(name) : null;
+    }
+
+    /**
+     * Checks whether the query string of the request has a parameter with the given name and value. If the
+     * parameter is repeated the last occurrence is used. The query string is scanned in place.
+     *
+     * @param name  parameter name
+     * @param value expected parameter value
+     * @return true if the parameter has the given value
+     */
+    public boolean isQueryParameter(String name, String value) {
+        if (!queryResolved) {
+            queryString = (String) carbonMessage.getProperty(APIThrottleConstants.REST_URL_POSTFIX);
+            if (queryString != null) {
+                queryStart = queryString.indexOf('?') + 1;
+            }
+            queryResolved = true;
+        }
+        if (queryString == null) {
+            return false;
+        }
+        int valueStart = -1;
+        int valueEnd = -1;
+        int length = queryString.length();
+        int start = queryStart;
+        while (start < length) {
+            int end = queryString.indexOf('&', start);
+            if (end < 0) {
+                end = length;
+            }
+            int nameEnd = start + name.length();
+            if (nameEnd <= end && queryString.startsWith(name, start)) {
+                if (nameEnd == end) {
+                    valueStart = end;
+                    valueEnd = end;
+                } else if (queryString.charAt(nameEnd) == '=') {
+                    valueStart = nameEnd + 1;
+                    valueEnd = end;
+                }
+            }
+            start = end + 1;
+        }
+        return valueStart >= 0 && valueEnd - valueStart == value.length()
+                && queryString.regionMatches(valueStart, value, 0, value.length());
+    }
+
+    /**
+     * @return client IP of the request. The returned address is invalid if the IP could not be determined.
+     */
+    public IPAddress getClientIp() {
+        if (!clientIpResolved) {
+            resolveClientIp();
+            clientIpResolved = true;
+        }
+        return clientIp;
+    }
+
+    private void resolveClientIp() {
+        clientIp.set(ThrottleDataHolder.getInstance().getClientAddressResolver().resolve(carbonMessage));
+    }
+
+    /**
+     * @return time at which the conditions of the request are first evaluated, in epoch milliseconds
+     */
+    public long getRequestTime() {
+        if (requestTime == 0) {
+            requestTime = System.currentTimeMillis();
+        }
+        return requestTime;
+    }
+
+    /**
+     * @return bit of the HTTP method of the request, see {@link HTTPVerbCondition#getVerbMask(String)}
+     */
+    public int getHttpVerbMask() {
+        if (httpVerbMask < 0) {
+            Object verb = carbonMessage.getProperty(GatewayConstants.HTTP_METHOD);
+            httpVerbMask = verb instanceof String ? HTTPVerbCondition.getVerbMask((String) verb) : 0;
+        }
+        return httpVerbMask;
+    }
+}
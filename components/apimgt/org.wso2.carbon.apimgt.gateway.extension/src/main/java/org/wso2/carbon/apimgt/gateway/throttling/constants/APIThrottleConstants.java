@@ -32,6 +32,7 @@ public class APIThrottleConstants {
     public static final int SUBSCRIPTION_BURST_THROTTLE_OUT_ERROR_CODE = 900807;
     public static final int BLOCKED_ERROR_CODE = 900805;
     public static final int CUSTOM_POLICY_THROTTLE_OUT_ERROR_CODE = 900806;
+    public static final int ENDPOINT_LIMIT_EXCEEDED_ERROR_CODE = 900808;
 
     public static final String API_LIMIT_EXCEEDED = "API_LIMIT_EXCEEDED";
     public static final String RESOURCE_LIMIT_EXCEEDED = "RESOURCE_LIMIT_EXCEEDED";
@@ -50,6 +51,11 @@ public class APIThrottleConstants {
     public static final String THROTTLED_NEXT_ACCESS_TIMESTAMP = "NEXT_ACCESS_TIME";
     public static final String THROTTLED_NEXT_ACCESS_TIME = "NEXT_ACCESS_UTC_TIME";
     public static final String HARD_LIMIT_EXCEEDED = "HARD_LIMIT_EXCEEDED";
+    public static final String ENDPOINT_LIMIT_EXCEEDED = "ENDPOINT_LIMIT_EXCEEDED";
+    // Endpoint selected for the request, set by the mediation of the API
+    public static final String ENDPOINT_ID = "ENDPOINT_ID";
+    public static final String ENDPOINT_LIMIT = "ENDPOINT_LIMIT";
+    public static final String ENDPOINT_REQUEST_NANO_TIME = "ENDPOINT_REQUEST_NANO_TIME";
     public static final String SUBSCRIPTON_BURST_LIMIT_EXCEEDED = "SUBSCRIPTION_BURST_LIMIT_EXCEED";
     public static final String REQUEST_BLOCKED = "REQUEST_BLOCKED";
     public static final int SC_TOO_MANY_REQUESTS = 429;
@@ -58,6 +64,9 @@ public class APIThrottleConstants {
     public static final String IS_THROTTLED = "isThrottled";
     public static final String THROTTLE_KEY = "throttleKey";
     public static final String EXPIRY_TIMESTAMP = "expiryTimeStamp";
+    public static final String THROTTLE_API_KEY = "apiKey";
+    public static final String THROTTLE_RESOURCE_KEY = "resourceKey";
+    public static final String THROTTLE_CONDITION_ID = "conditionId";
     public static final String IP = "ip";
     public static final String CONTENT_LENGTH = "Content-Length";
     public static final String MESSAGE_SIZE = "messageSize";
@@ -71,8 +80,10 @@ public class APIThrottleConstants {
 
     public static final String TRANSPORT_HEADERS = "TRANSPORT_HEADERS";
     public static final String REMOTE_ADDR = "REMOTE_ADDR";
+    public static final String CLIENT_IP_ADDRESS = "CLIENT_IP_ADDRESS";
 
     public static final String THROTTLING_LATENCY = "throttling_latency";
+    public static final String REQUEST_THROTTLE_KEYS = "REQUEST_THROTTLE_KEYS";
 
     public static final String REST_API_CONTEXT = "REST_API_CONTEXT";
     public static final String SYNAPSE_REST_API_VERSION = "SYNAPSE_REST_API_VERSION";
@@ -90,6 +101,9 @@ public class APIThrottleConstants {
     public static final String QUERY_PARAMETER_TYPE = "QueryParameterType";
     public static final String JWT_CLAIMS_TYPE = "JWTClaims";
     public static final String HEADER_TYPE = "Header";
+    public static final String DATE_SPECIFIC_TYPE = "DateSpecific";
+    public static final String DATE_RANGE_TYPE = "DateRage";
+    public static final String HTTP_VERB_TYPE = "HTTPVerb";
 
     //governance registry apimgt root location
     public static final String APIMGT_REGISTRY_LOCATION = "/apimgt";
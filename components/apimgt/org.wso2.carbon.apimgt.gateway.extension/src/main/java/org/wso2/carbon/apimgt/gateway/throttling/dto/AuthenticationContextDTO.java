@@ -1,5 +1,7 @@
 package org.wso2.carbon.apimgt.gateway.throttling.dto;
 
+import java.util.Map;
+
 /**
  * Temporary files should be delted once the Authentication handler part is completed
  */
@@ -18,6 +20,8 @@ public class AuthenticationContextDTO {
     private String requestKey;
     private String apiTier;
     private String callerToken;
+    // Claims decoded from the caller token, see GatewayUtils.getJWTClaims
+    private Map<String, String> jwtClaims;
     private String spikeArrestUnit;
     private int spikeArrestLimit;
     private boolean stopOnQuotaReach;
@@ -119,6 +123,18 @@ public class AuthenticationContextDTO {
 
     public void setCallerToken(String callerToken) {
         this.callerToken = callerToken;
+        this.jwtClaims = null;
+    }
+
+    /**
+     * @return claims decoded from the caller token, or null if the token has not been decoded yet
+     */
+    public Map<String, String> getJWTClaims() {
+        return jwtClaims;
+    }
+
+    public void setJWTClaims(Map<String, String> jwtClaims) {
+        this.jwtClaims = jwtClaims;
     }
 
     public String getSpikeArrestUnit() {
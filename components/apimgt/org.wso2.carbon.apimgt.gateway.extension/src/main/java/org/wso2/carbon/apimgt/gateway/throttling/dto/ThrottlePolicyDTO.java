@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling.dto;
+
+import org.wso2.carbon.apimgt.core.models.policy.APIPolicy;
+import org.wso2.carbon.apimgt.core.models.policy.ApplicationPolicy;
+import org.wso2.carbon.apimgt.core.models.policy.BandwidthLimit;
+import org.wso2.carbon.apimgt.core.models.policy.Limit;
+import org.wso2.carbon.apimgt.core.models.policy.Policy;
+import org.wso2.carbon.apimgt.core.models.policy.PolicyConstants;
+import org.wso2.carbon.apimgt.core.models.policy.QuotaPolicy;
+import org.wso2.carbon.apimgt.core.models.policy.RequestCountLimit;
+import org.wso2.carbon.apimgt.core.models.policy.SubscriptionPolicy;
+import org.wso2.carbon.apimgt.core.util.APIMgtConstants;
+
+/**
+ * Model for a throttle policy and its default quota, as returned by the policies API of API Manager core.
+ */
+public class ThrottlePolicyDTO {
+
+    private String policyName;
+    private String policyLevel;
+    private String quotaType;
+    private String timeUnit;
+    private long unitTime;
+    private long requestCount;
+    private long dataAmount;
+    private String dataUnit;
+
+    public String getPolicyName() {
+        return policyName;
+    }
+
+    public void setPolicyName(String policyName) {
+        this.policyName = policyName;
+    }
+
+    public String getPolicyLevel() {
+        return policyLevel;
+    }
+
+    public void setPolicyLevel(String policyLevel) {
+        this.policyLevel = policyLevel;
+    }
+
+    public String getQuotaType() {
+        return quotaType;
+    }
+
+    public void setQuotaType(String quotaType) {
+        this.quotaType = quotaType;
+    }
+
+    public String getTimeUnit() {
+        return timeUnit;
+    }
+
+    public void setTimeUnit(String timeUnit) {
+        this.timeUnit = timeUnit;
+    }
+
+    public long getUnitTime() {
+        return unitTime;
+    }
+
+    public void setUnitTime(long unitTime) {
+        this.unitTime = unitTime;
+    }
+
+    public long getRequestCount() {
+        return requestCount;
+    }
+
+    public void setRequestCount(long requestCount) {
+        this.requestCount = requestCount;
+    }
+
+    public long getDataAmount() {
+        return dataAmount;
+    }
+
+    public void setDataAmount(long dataAmount) {
+        this.dataAmount = dataAmount;
+    }
+
+    public String getDataUnit() {
+        return dataUnit;
+    }
+
+    public void setDataUnit(String dataUnit) {
+        this.dataUnit = dataUnit;
+    }
+
+    /**
+     * Converts this model into the policy of its level, with a request count or bandwidth default quota.
+     *
+     * @return policy, or null if the level of the policy is unknown
+     */
+    public Policy toPolicy() {
+        Policy policy;
+        if (APIMgtConstants.ThrottlePolicyConstants.APPLICATION_LEVEL.equals(policyLevel)) {
+            policy = new ApplicationPolicy(policyName);
+        } else if (APIMgtConstants.ThrottlePolicyConstants.SUBSCRIPTION_LEVEL.equals(policyLevel)) {
+            policy = new SubscriptionPolicy(policyName);
+        } else if (APIMgtConstants.ThrottlePolicyConstants.API_LEVEL.equals(policyLevel)) {
+            policy = new APIPolicy(policyName);
+        } else {
+            return null;
+        }
+        Limit limit;
+        if (PolicyConstants.BANDWIDTH_TYPE.equals(quotaType)) {
+            BandwidthLimit bandwidthLimit = new BandwidthLimit();
+            bandwidthLimit.setDataAmount(dataAmount);
+            bandwidthLimit.setDataUnit(dataUnit);
+            limit = bandwidthLimit;
+        } else if (PolicyConstants.REQUEST_COUNT_TYPE.equals(quotaType)) {
+            RequestCountLimit requestCountLimit = new RequestCountLimit();
+            requestCountLimit.setRequestCount(requestCount);
+            limit = requestCountLimit;
+        } else {
+            return policy;
+        }
+        limit.setTimeUnit(timeUnit);
+        limit.setUnitTime(unitTime);
+        QuotaPolicy quotaPolicy = new QuotaPolicy();
+        quotaPolicy.setType(quotaType);
+        quotaPolicy.setLimit(limit);
+        policy.setDefaultQuotaPolicy(quotaPolicy);
+        return policy;
+    }
+}
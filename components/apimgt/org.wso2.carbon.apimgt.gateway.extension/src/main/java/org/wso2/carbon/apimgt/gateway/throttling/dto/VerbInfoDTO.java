@@ -17,6 +17,8 @@
  */
 package org.wso2.carbon.apimgt.gateway.throttling.dto;
 
+import org.wso2.carbon.apimgt.gateway.throttling.ThrottleConditionEvaluator;
+import org.wso2.carbon.apimgt.gateway.throttling.conditions.ConditionGroup;
 import org.wso2.carbon.apimgt.gateway.throttling.constants.APIThrottleConstants;
 
 import java.util.ArrayList;
@@ -39,8 +41,17 @@ public class VerbInfoDTO {
 
     private String requestKey;
 
+    private String productionEndpointId;
+
+    private String sandboxEndpointId;
+
     private ConditionGroupDTO[] conditionGroups;
 
+    // Condition groups other than the default group, compiled when they are set
+    private ConditionGroup[] compiledConditionGroups = new ConditionGroup[0];
+
+    private ConditionGroup defaultConditionGroup;
+
     public String getThrottling() {
         return throttling;
     }
@@ -77,6 +88,22 @@ public class VerbInfoDTO {
         return !APIThrottleConstants.AUTH_TYPE_NONE.equalsIgnoreCase(authType);
     }
 
+    public String getProductionEndpointId() {
+        return productionEndpointId;
+    }
+
+    public void setProductionEndpointId(String productionEndpointId) {
+        this.productionEndpointId = productionEndpointId;
+    }
+
+    public String getSandboxEndpointId() {
+        return sandboxEndpointId;
+    }
+
+    public void setSandboxEndpointId(String sandboxEndpointId) {
+        this.sandboxEndpointId = sandboxEndpointId;
+    }
+
     public List<String> getThrottlingConditions() {
         return throttlingConditions;
     }
@@ -95,6 +122,33 @@ public class VerbInfoDTO {
 
     public void setConditionGroups(ConditionGroupDTO[] conditionGroups) {
         this.conditionGroups = conditionGroups.clone();
+        List<ConditionGroup> compiled = new ArrayList<>(conditionGroups.length);
+        ConditionGroup defaultGroup = null;
+        for (ConditionGroupDTO conditionGroup : conditionGroups) {
+            ConditionGroup compiledGroup = ThrottleConditionEvaluator.getInstance()
+                    .compileConditionGroup(conditionGroup);
+            if (APIThrottleConstants.THROTTLE_POLICY_DEFAULT.equals(conditionGroup.getConditionGroupId())) {
+                defaultGroup = compiledGroup;
+            } else {
+                compiled.add(compiledGroup);
+            }
+        }
+        this.compiledConditionGroups = compiled.toArray(new ConditionGroup[compiled.size()]);
+        this.defaultConditionGroup = defaultGroup;
+    }
+
+    /**
+     * @return compiled condition groups, excluding the default group. The returned array must not be modified.
+     */
+    public ConditionGroup[] getCompiledConditionGroups() {
+        return compiledConditionGroups;
+    }
+
+    /**
+     * @return compiled default condition group, which applies when no other group applies. May be null.
+     */
+    public ConditionGroup getDefaultConditionGroup() {
+        return defaultConditionGroup;
     }
 
     public ConditionGroupDTO[] getConditionGroups() {
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling.publisher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Throttle event sink which only logs the events, used until the gateway is connected to a traffic manager.
+ */
+public class LoggingThrottleEventSink implements ThrottleEventSink {
+
+    private static final Logger log = LoggerFactory.getLogger(LoggingThrottleEventSink.class);
+
+    @Override
+    public void publish(List<ThrottleEvent> events) {
+        if (log.isDebugEnabled()) {
+            for (ThrottleEvent event : events) {
+                log.debug("Throttle event : " + event);
+            }
+        }
+    }
+}
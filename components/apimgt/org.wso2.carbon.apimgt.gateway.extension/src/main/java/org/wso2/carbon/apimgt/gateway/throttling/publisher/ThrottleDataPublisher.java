@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling.publisher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.apimgt.gateway.throttling.RequestThrottleKeys;
+import org.wso2.carbon.apimgt.gateway.throttling.ThrottleException;
+import org.wso2.carbon.apimgt.gateway.throttling.ThrottleKey;
+import org.wso2.carbon.apimgt.gateway.throttling.ThrottlingConfiguration;
+import org.wso2.carbon.apimgt.gateway.throttling.dto.AuthenticationContextDTO;
+import org.wso2.carbon.apimgt.gateway.throttling.utils.GatewayUtils;
+import org.wso2.carbon.apimgt.gateway.utils.RingBuffer;
+import org.wso2.carbon.apimgt.gateway.utils.TaskScheduler;
+import org.wso2.carbon.messaging.CarbonMessage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the requests allowed by the gateway to the global policy engine.
+ * <p>
+ * Request threads only copy the throttle keys of the request into a bounded lock-free ring buffer and never block.
+ * When the buffer is full the event is dropped and counted. A task of the {@link TaskScheduler} drains the buffer
+ * periodically, aggregates the requests of each throttle key combination into a single event carrying the request
+ * count and payload size of the flush window, and sends the events to a {@link ThrottleEventSink} in batches.
+ * Response payloads are published separately once the responses are sent, and are aggregated into the events of
+ * their requests' keys.
+ */
+public class ThrottleDataPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(ThrottleDataPublisher.class);
+
+    private final ThrottleEventSink sink;
+    private final RingBuffer<Entry> buffer;
+    private final int batchSize;
+    private final ScheduledFuture<?> flusher;
+    private final Map<String, ThrottleEvent> window = new HashMap<>();
+    private final ThrottleKey aggregationKey = new ThrottleKey();
+    private final AtomicLong publishedEvents = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong sentEvents = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private long windowStart = System.currentTimeMillis();
+
+    /**
+     * @param sink                destination of the aggregated events
+     * @param bufferSize          number of requests buffered between two flushes, rounded up to a power of two
+     * @param batchSize           maximum number of events sent to the sink at once
+     * @param flushIntervalMillis interval between two flushes in milliseconds
+     */
+    public ThrottleDataPublisher(ThrottleEventSink sink, int bufferSize, int batchSize, long flushIntervalMillis) {
+        this.sink = sink;
+        this.buffer = new RingBuffer<>(bufferSize, Entry::new);
+        this.batchSize = batchSize;
+        this.flusher = TaskScheduler.scheduleWithFixedDelay("throttle-event-flush", this::flush, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a publisher sending events to the sink selected in the given configuration. Falls back to
+     * {@link LoggingThrottleEventSink} if the configured sink cannot be loaded.
+     *
+     * @param configuration throttling configuration
+     * @return throttle data publisher
+     */
+    public static ThrottleDataPublisher create(ThrottlingConfiguration configuration) {
+        ThrottleEventSink sink;
+        String sinkClass = configuration.getThrottleEventSink();
+        try {
+            sink = (ThrottleEventSink) Class.forName(sinkClass).newInstance();
+        } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | ClassCastException e) {
+            log.error("Error while loading throttle event sink : " + sinkClass + ". Throttle events will only be "
+                    + "logged", e);
+            sink = new LoggingThrottleEventSink();
+        }
+        return new ThrottleDataPublisher(sink, configuration.getThrottleEventBufferSize(),
+                configuration.getThrottleEventBatchSize(), configuration.getThrottleEventFlushInterval());
+    }
+
+    /**
+     * Records a request which was not throttled. This method never blocks; the event is dropped if the buffer is
+     * full. Throttle keys are reused by the calling thread, so they are copied into the buffer.
+     */
+    public void publishNonThrottledEvent(
+            CharSequence applicationLevelThrottleKey, String applicationLevelTier,
+            CharSequence apiLevelThrottleKey, String apiLevelTier,
+            CharSequence subscriptionLevelThrottleKey, String subscriptionLevelTier,
+            CharSequence resourceLevelThrottleKey, String resourceLevelTier,
+            String authorizedUser, String apiContext, String apiVersion, String appTenant, String apiTenant,
+            String appId, CarbonMessage messageContext,
+            AuthenticationContextDTO authenticationContext) {
+
+        long sequence = buffer.tryClaim();
+        if (sequence == RingBuffer.FULL) {
+            if (droppedEvents.getAndIncrement() == 0) {
+                log.warn("Throttle event buffer of " + buffer.capacity() + " events is full. Events will be "
+                        + "dropped until the buffer is flushed");
+            }
+            return;
+        }
+        Entry entry = buffer.get(sequence);
+        try {
+            copy(entry.applicationKey, applicationLevelThrottleKey);
+            copy(entry.apiKey, apiLevelThrottleKey);
+            copy(entry.subscriptionKey, subscriptionLevelThrottleKey);
+            copy(entry.resourceKey, resourceLevelThrottleKey);
+            entry.applicationTier = applicationLevelTier;
+            entry.apiTier = apiLevelTier;
+            entry.subscriptionTier = subscriptionLevelTier;
+            entry.resourceTier = resourceLevelTier;
+            entry.userId = authorizedUser;
+            entry.apiContext = apiContext;
+            entry.apiVersion = apiVersion;
+            entry.appTenant = appTenant;
+            entry.apiTenant = apiTenant;
+            entry.appId = appId;
+            entry.requests = 1;
+            entry.bytes = messageContext != null ? GatewayUtils.getContentLength(messageContext) : 0;
+        } finally {
+            buffer.publish(sequence);
+        }
+        publishedEvents.incrementAndGet();
+    }
+
+    /**
+     * Records the payload of the response to a request which was not throttled, so that it is counted against the
+     * bandwidth policies of the request. The request itself is not counted again. This method never blocks; the
+     * event is dropped if the buffer is full.
+     *
+     * @param keys  throttle keys and policies of the request
+     * @param bytes size of the response payload
+     */
+    public void publishResponseEvent(RequestThrottleKeys keys, long bytes) {
+        long sequence = buffer.tryClaim();
+        if (sequence == RingBuffer.FULL) {
+            if (droppedEvents.getAndIncrement() == 0) {
+                log.warn("Throttle event buffer of " + buffer.capacity() + " events is full. Events will be "
+                        + "dropped until the buffer is flushed");
+            }
+            return;
+        }
+        Entry entry = buffer.get(sequence);
+        try {
+            copy(entry.applicationKey, keys.getApplicationKey());
+            copy(entry.apiKey, keys.getApiKey());
+            copy(entry.subscriptionKey, keys.getSubscriptionKey());
+            copy(entry.resourceKey, keys.getResourceKey());
+            entry.applicationTier = keys.getApplicationTier();
+            entry.apiTier = keys.getApiTier();
+            entry.subscriptionTier = keys.getSubscriptionTier();
+            entry.resourceTier = keys.getResourceTier();
+            entry.userId = keys.getUserId();
+            entry.apiContext = keys.getApiContext();
+            entry.apiVersion = keys.getApiVersion();
+            entry.appTenant = keys.getAppTenant();
+            entry.apiTenant = keys.getApiTenant();
+            entry.appId = keys.getAppId();
+            entry.requests = 0;
+            entry.bytes = bytes;
+        } finally {
+            buffer.publish(sequence);
+        }
+        publishedEvents.incrementAndGet();
+    }
+
+    /**
+     * Drains the buffered requests and sends the aggregated events of the window to the sink. Called periodically by
+     * the {@link TaskScheduler}.
+     */
+    public synchronized void flush() {
+        int capacity = buffer.capacity();
+        // Bounded so that a flush ends even if request threads keep filling the buffer
+        for (int drained = 0; drained < capacity; ) {
+            int count = buffer.drain(this::aggregate, capacity - drained);
+            if (count == 0) {
+                break;
+            }
+            drained += count;
+        }
+        long windowEnd = System.currentTimeMillis();
+        if (!window.isEmpty()) {
+            List<ThrottleEvent> batch = new ArrayList<>(Math.min(batchSize, window.size()));
+            for (ThrottleEvent event : window.values()) {
+                event.setWindow(windowStart, windowEnd);
+                batch.add(event);
+                if (batch.size() == batchSize) {
+                    send(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                send(batch);
+            }
+            window.clear();
+        }
+        windowStart = windowEnd;
+    }
+
+    /**
+     * Stops the periodic flush and sends the events buffered so far.
+     */
+    public void shutdown() {
+        flusher.cancel(false);
+        flush();
+    }
+
+    /**
+     * @return number of requests accepted into the buffer
+     */
+    public long getPublishedEventCount() {
+        return publishedEvents.get();
+    }
+
+    /**
+     * @return number of requests dropped because the buffer was full
+     */
+    public long getDroppedEventCount() {
+        return droppedEvents.get();
+    }
+
+    /**
+     * @return number of aggregated events sent to the sink
+     */
+    public long getSentEventCount() {
+        return sentEvents.get();
+    }
+
+    /**
+     * @return number of batches the sink failed to send
+     */
+    public long getFailedBatchCount() {
+        return failedBatches.get();
+    }
+
+    /**
+     * @return approximate number of requests waiting in the buffer
+     */
+    public int getBufferedEventCount() {
+        return buffer.size();
+    }
+
+    private void aggregate(Entry entry) {
+        aggregationKey.reset().append(entry.resourceKey).append('\n').append(entry.subscriptionKey).append('\n')
+                .append(entry.applicationKey).append('\n').append(entry.apiKey);
+        ThrottleEvent event = window.get(aggregationKey);
+        if (event == null) {
+            event = new ThrottleEvent(toString(entry.applicationKey), entry.applicationTier,
+                    toString(entry.apiKey), entry.apiTier, toString(entry.subscriptionKey), entry.subscriptionTier,
+                    toString(entry.resourceKey), entry.resourceTier, entry.userId, entry.apiContext,
+                    entry.apiVersion, entry.appTenant, entry.apiTenant, entry.appId);
+            window.put(aggregationKey.toString(), event);
+        }
+        event.add(entry.requests, entry.bytes);
+        entry.clear();
+    }
+
+    private void send(List<ThrottleEvent> batch) {
+        try {
+            sink.publish(batch);
+            sentEvents.addAndGet(batch.size());
+        } catch (ThrottleException | RuntimeException e) {
+            failedBatches.incrementAndGet();
+            log.error("Error while sending " + batch.size() + " throttle events", e);
+        }
+    }
+
+    private static void copy(ThrottleKey target, CharSequence source) {
+        target.reset();
+        if (source != null) {
+            target.append(source);
+        }
+    }
+
+    private static String toString(ThrottleKey key) {
+        return key.length() == 0 ? null : key.toString();
+    }
+
+    /**
+     * Buffered request. Entries are pre-allocated by the ring buffer and reused.
+     */
+    private static final class Entry {
+        private final ThrottleKey applicationKey = new ThrottleKey();
+        private final ThrottleKey apiKey = new ThrottleKey();
+        private final ThrottleKey subscriptionKey = new ThrottleKey();
+        private final ThrottleKey resourceKey = new ThrottleKey();
+        private String applicationTier;
+        private String apiTier;
+        private String subscriptionTier;
+        private String resourceTier;
+        private String userId;
+        private String apiContext;
+        private String apiVersion;
+        private String appTenant;
+        private String apiTenant;
+        private String appId;
+        private long requests;
+        private long bytes;
+
+        private void clear() {
+            applicationTier = apiTier = subscriptionTier = resourceTier = null;
+            userId = apiContext = apiVersion = appTenant = apiTenant = appId = null;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling.publisher;
+
+/**
+ * Requests of one throttle key combination which were allowed by the gateway during a flush window. Events are
+ * created by {@link ThrottleDataPublisher} and must not be modified by sinks.
+ */
+public class ThrottleEvent {
+
+    private final String applicationKey;
+    private final String applicationTier;
+    private final String apiKey;
+    private final String apiTier;
+    private final String subscriptionKey;
+    private final String subscriptionTier;
+    private final String resourceKey;
+    private final String resourceTier;
+    private final String userId;
+    private final String apiContext;
+    private final String apiVersion;
+    private final String appTenant;
+    private final String apiTenant;
+    private final String appId;
+    private long count;
+    private long bytes;
+    private long windowStart;
+    private long windowEnd;
+
+    ThrottleEvent(String applicationKey, String applicationTier, String apiKey, String apiTier,
+                  String subscriptionKey, String subscriptionTier, String resourceKey, String resourceTier,
+                  String userId, String apiContext, String apiVersion, String appTenant, String apiTenant,
+                  String appId) {
+        this.applicationKey = applicationKey;
+        this.applicationTier = applicationTier;
+        this.apiKey = apiKey;
+        this.apiTier = apiTier;
+        this.subscriptionKey = subscriptionKey;
+        this.subscriptionTier = subscriptionTier;
+        this.resourceKey = resourceKey;
+        this.resourceTier = resourceTier;
+        this.userId = userId;
+        this.apiContext = apiContext;
+        this.apiVersion = apiVersion;
+        this.appTenant = appTenant;
+        this.apiTenant = apiTenant;
+        this.appId = appId;
+    }
+
+    void add(long requests, long payloadBytes) {
+        count += requests;
+        bytes += payloadBytes;
+    }
+
+    void setWindow(long windowStart, long windowEnd) {
+        this.windowStart = windowStart;
+        this.windowEnd = windowEnd;
+    }
+
+    public String getApplicationKey() {
+        return applicationKey;
+    }
+
+    public String getApplicationTier() {
+        return applicationTier;
+    }
+
+    public String getApiKey() {
+        return apiKey;
+    }
+
+    public String getApiTier() {
+        return apiTier;
+    }
+
+    public String getSubscriptionKey() {
+        return subscriptionKey;
+    }
+
+    public String getSubscriptionTier() {
+        return subscriptionTier;
+    }
+
+    public String getResourceKey() {
+        return resourceKey;
+    }
+
+    public String getResourceTier() {
+        return resourceTier;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getApiContext() {
+        return apiContext;
+    }
+
+    public String getApiVersion() {
+        return apiVersion;
+    }
+
+    public String getAppTenant() {
+        return appTenant;
+    }
+
+    public String getApiTenant() {
+        return apiTenant;
+    }
+
+    public String getAppId() {
+        return appId;
+    }
+
+    /**
+     * @return number of requests in the window
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return total size of the request and response payloads in the window, as given by their Content-Length
+     * headers
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getWindowStart() {
+        return windowStart;
+    }
+
+    public long getWindowEnd() {
+        return windowEnd;
+    }
+
+    @Override
+    public String toString() {
+        return "ThrottleEvent{resourceKey=" + resourceKey + ", subscriptionKey=" + subscriptionKey
+                + ", applicationKey=" + applicationKey + ", count=" + count + ", bytes=" + bytes
+                + ", windowStart=" + windowStart + ", windowEnd=" + windowEnd + '}';
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling.publisher;
+
+import org.wso2.carbon.apimgt.gateway.throttling.ThrottleException;
+
+import java.util.List;
+
+/**
+ * Destination of the throttle events published by the gateway. Sinks are called by one flush of
+ * {@link ThrottleDataPublisher} at a time, never from request threads. Implementations must have a public no-argument
+ * constructor so that they can be selected through the throttling configuration.
+ */
+public interface ThrottleEventSink {
+
+    /**
+     * Sends a batch of aggregated throttle events.
+     *
+     * @param events events of one flush window. The list and the events must not be kept after the call returns.
+     * @throws ThrottleException if the events could not be sent. The batch is discarded.
+     */
+    void publish(List<ThrottleEvent> events) throws ThrottleException;
+}
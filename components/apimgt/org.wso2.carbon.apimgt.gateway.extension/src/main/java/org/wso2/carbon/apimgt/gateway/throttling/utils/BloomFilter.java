@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling.utils;
+
+/**
+ * Bloom filter over 32 bit hashes, answering whether an element may be in a set with three bit probes. Filters are
+ * filled once and then only read, and can be shared between threads once safely published.
+ */
+public final class BloomFilter {
+
+    private static final int BITS_PER_ELEMENT = 16;
+    private static final int PROBES = 3;
+
+    private final long[] bits;
+    private final int mask;
+
+    /**
+     * @param expectedElements number of elements the filter is sized for. With this many elements about 0.5% of
+     *                         absent elements are reported as present.
+     */
+    public BloomFilter(int expectedElements) {
+        long bitCount = Math.max(64L, (long) expectedElements * BITS_PER_ELEMENT);
+        int size = (int) Math.min(1 << 30, Long.highestOneBit(bitCount - 1) << 1);
+        bits = new long[size >>> 6];
+        mask = size - 1;
+    }
+
+    public void add(int hash) {
+        int h1 = mix(hash);
+        int h2 = mix(h1 ^ 0x5bd1e995) | 1;
+        for (int i = 0; i < PROBES; i++) {
+            int index = (h1 + i * h2) & mask;
+            bits[index >>> 6] |= 1L << index;
+        }
+    }
+
+    /**
+     * @return false if the hash was never added, true if it may have been added
+     */
+    public boolean mightContain(int hash) {
+        int h1 = mix(hash);
+        int h2 = mix(h1 ^ 0x5bd1e995) | 1;
+        for (int i = 0; i < PROBES; i++) {
+            int index = (h1 + i * h2) & mask;
+            if ((bits[index >>> 6] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int mix(int h) {
+        // Finalizer of MurmurHash3, spreading the weak low bits of String hashes
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.apimgt.gateway.throttling.constants.APIThrottleConstants;
+import org.wso2.carbon.messaging.CarbonMessage;
+
+import java.util.Map;
+
+/**
+ * Resolves the address of the client of a request, behind any number of trusted proxies.
+ * <p>
+ * The remote address of the connection is the client, unless it is a trusted proxy. In that case the
+ * {@code X-Forwarded-For} chain is walked from right to left, each entry having been appended by the hop after it,
+ * and the first address which is not a trusted proxy is the client. If every hop is trusted the leftmost address is
+ * used, and a malformed entry stops the walk at the last hop that could be trusted to report it. Since the header is
+ * only read when the connection comes from a trusted proxy, clients cannot spoof their address by sending it.
+ * <p>
+ * If the remote address of the connection is unknown the client address is invalid, since the header cannot be
+ * trusted without knowing who sent it. Deployments where every connection comes through a proxy, which the transport
+ * does not report, may trust the rightmost {@code X-Forwarded-For} hop instead, which is the one that proxy appended.
+ * <p>
+ * The resolved address is cached on the message, so the blocking conditions and all IP conditions of a request share
+ * a single resolution.
+ */
+public final class ClientAddressResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(ClientAddressResolver.class);
+
+    private final IPPrefixTrie trustedProxies = new IPPrefixTrie();
+    private final boolean trustUnknownRemoteAddress;
+
+    /**
+     * @param trustedProxies comma separated addresses or CIDR blocks of the trusted proxies, IPv4 or IPv6
+     */
+    public ClientAddressResolver(String trustedProxies) {
+        this(trustedProxies, false);
+    }
+
+    /**
+     * @param trustedProxies            comma separated addresses or CIDR blocks of the trusted proxies, IPv4 or IPv6
+     * @param trustUnknownRemoteAddress whether the rightmost {@code X-Forwarded-For} hop is used as the client address
+     *                                  of a request whose remote address is unknown
+     */
+    public ClientAddressResolver(String trustedProxies, boolean trustUnknownRemoteAddress) {
+        this.trustUnknownRemoteAddress = trustUnknownRemoteAddress;
+        if (trustedProxies == null) {
+            return;
+        }
+        for (String block : trustedProxies.split(",")) {
+            if (!block.trim().isEmpty()) {
+                addTrustedProxy(block.trim());
+            }
+        }
+    }
+
+    /**
+     * Returns the client address of the request, resolving it if it has not been resolved for the message before.
+     *
+     * @param carbonMessage request
+     * @return client address, which must not be modified. It is invalid if the address could not be determined.
+     */
+    public IPAddress resolve(CarbonMessage carbonMessage) {
+        Object cached = carbonMessage.getProperty(APIThrottleConstants.CLIENT_IP_ADDRESS);
+        if (cached instanceof IPAddress) {
+            return (IPAddress) cached;
+        }
+        IPAddress address = new IPAddress();
+        Object remoteAddress = carbonMessage.getProperty(APIThrottleConstants.REMOTE_ADDR);
+        if (remoteAddress instanceof String && address.set((String) remoteAddress)) {
+            if (trustedProxies.contains(address)) {
+                String forwardedFor = getForwardedFor(carbonMessage);
+                if (forwardedFor != null) {
+                    resolveForwardedFor(forwardedFor, address);
+                }
+            }
+        } else if (trustUnknownRemoteAddress) {
+            String forwardedFor = getForwardedFor(carbonMessage);
+            if (forwardedFor != null) {
+                address.set(forwardedFor, forwardedFor.lastIndexOf(',') + 1, forwardedFor.length());
+            }
+        }
+        carbonMessage.setProperty(APIThrottleConstants.CLIENT_IP_ADDRESS, address);
+        return address;
+    }
+
+    /**
+     * @return true if the given address is within any of the trusted proxy blocks
+     */
+    public boolean isTrustedProxy(IPAddress address) {
+        return trustedProxies.contains(address);
+    }
+
+    private void resolveForwardedFor(String forwardedFor, IPAddress address) {
+        IPAddress hop = new IPAddress();
+        int end = forwardedFor.length();
+        while (end > 0) {
+            int start = forwardedFor.lastIndexOf(',', end - 1) + 1;
+            if (!hop.set(forwardedFor, start, end)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Ignoring invalid " + APIThrottleConstants.X_FORWARDED_FOR + " entry : "
+                            + forwardedFor.substring(start, end));
+                }
+                return;
+            }
+            address.set(hop);
+            if (!trustedProxies.contains(hop)) {
+                return;
+            }
+            end = start - 1;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String getForwardedFor(CarbonMessage carbonMessage) {
+        String forwardedFor = carbonMessage.getHeader(APIThrottleConstants.X_FORWARDED_FOR);
+        if (forwardedFor == null) {
+            Object headers = carbonMessage.getProperty(APIThrottleConstants.TRANSPORT_HEADERS);
+            if (headers instanceof Map) {
+                forwardedFor = ((Map<String, String>) headers).get(APIThrottleConstants.X_FORWARDED_FOR);
+            }
+        }
+        return forwardedFor != null && !forwardedFor.isEmpty() ? forwardedFor : null;
+    }
+
+    private void addTrustedProxy(String block) {
+        int slash = block.indexOf('/');
+        IPAddress address = new IPAddress();
+        if (!address.set(block, 0, slash >= 0 ? slash : block.length())) {
+            log.warn("Ignoring invalid trusted proxy : " + block);
+            return;
+        }
+        int maxPrefixLength = address.isIPv4() ? 32 : 128;
+        int prefixLength = maxPrefixLength;
+        if (slash >= 0) {
+            try {
+                prefixLength = Integer.parseInt(block.substring(slash + 1).trim());
+            } catch (NumberFormatException e) {
+                prefixLength = -1;
+            }
+        }
+        if (prefixLength < 0 || prefixLength > maxPrefixLength) {
+            log.warn("Ignoring trusted proxy with invalid prefix length : " + block);
+            return;
+        }
+        trustedProxies.add(address, prefixLength);
+    }
+}
@@ -18,20 +18,23 @@
 */
 package org.wso2.carbon.apimgt.gateway.throttling.utils;
 
-import com.google.gson.JsonParser;
-import com.google.gson.JsonSyntaxException;
-//import org.apache.commons.codec.binary.Base64;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.wso2.carbon.apimgt.gateway.throttling.ThrottleDataHolder;
 import org.wso2.carbon.apimgt.gateway.throttling.constants.APIThrottleConstants;
 import org.wso2.carbon.apimgt.gateway.throttling.dto.AuthenticationContextDTO;
 import org.wso2.carbon.messaging.CarbonMessage;
 
-import java.io.UnsupportedEncodingException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.TreeMap;
-import java.util.regex.Pattern;
 
 /**
  * Contains some util methods used by ThrottleCondition Evaluator
@@ -42,34 +45,14 @@ public class GatewayUtils {
 
 
     /**
-     * Extracts the IP from Message Context.
+     * Extracts the IP of the client from Message Context.
      *
      * @param messageContext Carbon Message Context.
-     * @return IP as a String.
+     * @return IP as a String, or an empty string if the IP could not be determined
+     * @see ClientAddressResolver
      */
     public static String getIp(CarbonMessage messageContext) {
-
-        //Set transport headers of the message
-        TreeMap<String, String> transportHeaderMap = (TreeMap<String, String>) messageContext
-                .getProperty(APIThrottleConstants.TRANSPORT_HEADERS);
-        // Assigning an Empty String so that when doing comparisons, .equals method can be used without explicitly
-        // checking for nullity.
-        String remoteIP = "";
-        //Check whether headers map is null and x forwarded for header is present
-        if (transportHeaderMap != null) {
-            remoteIP = transportHeaderMap.get(APIThrottleConstants.X_FORWARDED_FOR);
-        }
-
-        //Setting IP of the client by looking at x forded for header and  if it's empty get remote address
-        if (remoteIP != null && !remoteIP.isEmpty()) {
-            if (remoteIP.indexOf(",") > -1) {
-                remoteIP = remoteIP.substring(0, remoteIP.indexOf(","));
-            }
-        } else {
-            remoteIP = (String) messageContext.getProperty(APIThrottleConstants.REMOTE_ADDR);
-        }
-
-        return remoteIP;
+        return ThrottleDataHolder.getInstance().getClientAddressResolver().resolve(messageContext).toString();
     }
 
     /**
@@ -104,26 +87,120 @@ public class GatewayUtils {
         return null;
     }
 
-    public static Map getJWTClaims(AuthenticationContextDTO authContext) {
-        String[] jwtTokenArray = authContext.getCallerToken().split(Pattern.quote("."));
-        // decoding JWT
+    /**
+     * Returns the claims of the caller's JWT. The token is decoded the first time its claims are requested and the
+     * claims are kept in the authentication context, so a token is decoded at most once.
+     *
+     * @param authContext authentication context holding the caller token
+     * @return claims of the caller's JWT, see {@link #getJWTClaims(String)}. Empty if there is no caller token or it
+     * could not be decoded
+     */
+    public static Map<String, String> getJWTClaims(AuthenticationContextDTO authContext) {
+        Map<String, String> claims = authContext.getJWTClaims();
+        if (claims == null) {
+            String callerToken = authContext.getCallerToken();
+            claims = callerToken != null ? getJWTClaims(callerToken) : Collections.emptyMap();
+            authContext.setJWTClaims(claims);
+        }
+        return claims;
+    }
+
+    /**
+     * Decodes the claims of a JWT into a flat map. Claims of nested objects are named by joining the names on the
+     * path with a dot, e.g. address.country. Arrays of simple values are joined with a comma; objects and arrays
+     * within arrays are ignored. Numbers and booleans are kept in their JSON form.
+     *
+     * @param jwt JWT
+     * @return unmodifiable map of claim names to values. Empty if the token could not be decoded
+     */
+    public static Map<String, String> getJWTClaims(String jwt) {
+        int payloadStart = jwt.indexOf('.') + 1;
+        int payloadEnd = jwt.indexOf('.', payloadStart);
+        if (payloadStart == 0 || payloadEnd < 0) {
+            log.error("Error while decoding jwt payload : token is not a JWT");
+            return Collections.emptyMap();
+        }
+        Map<String, String> claims = new HashMap<>();
         try {
-            // byte[] jwtByteArray = Base64.decodeBase64(jwtTokenArray[1].getBytes("UTF-8"));
-            // TODO: remove below line and uncomment previous use a with suitable decoder
-            byte[] jwtByteArray = new byte[jwtTokenArray.length];
-            String jwtAssertion = new String(jwtByteArray, "UTF-8");
-            JsonParser parser = new JsonParser();
-            Object object = parser.parse(jwtAssertion);
+            byte[] payload = Base64.getUrlDecoder().decode(jwt.substring(payloadStart, payloadEnd));
+            try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(payload),
+                    StandardCharsets.UTF_8))) {
+                readClaims(reader, "", claims);
+            }
+        } catch (IllegalArgumentException e) {
+            log.error("Error while decoding jwt payload", e);
+            return Collections.emptyMap();
+        } catch (IOException | IllegalStateException e) {
+            log.error("Error while parsing jwt payload", e);
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(claims);
+    }
 
-            if (object instanceof Map) {
-                return (Map) object;
+    private static void readClaims(JsonReader reader, String prefix, Map<String, String> claims)
+            throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = prefix + reader.nextName();
+            switch (reader.peek()) {
+                case BEGIN_OBJECT:
+                    readClaims(reader, name + ".", claims);
+                    break;
+                case BEGIN_ARRAY:
+                    StringBuilder values = new StringBuilder();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        JsonToken token = reader.peek();
+                        if (token == JsonToken.BEGIN_OBJECT || token == JsonToken.BEGIN_ARRAY
+                                || token == JsonToken.NULL) {
+                            reader.skipValue();
+                            continue;
+                        }
+                        if (values.length() > 0) {
+                            values.append(',');
+                        }
+                        values.append(token == JsonToken.BOOLEAN ? String.valueOf(reader.nextBoolean())
+                                : reader.nextString());
+                    }
+                    reader.endArray();
+                    claims.put(name, values.toString());
+                    break;
+                case BOOLEAN:
+                    claims.put(name, String.valueOf(reader.nextBoolean()));
+                    break;
+                case NULL:
+                    reader.nextNull();
+                    break;
+                default:
+                    // Strings and numbers, numbers are returned as they appear in the token
+                    claims.put(name, reader.nextString());
+                    break;
             }
-        } catch (UnsupportedEncodingException e) {
-            log.error("Error while decoding jwt header", e);
-        } catch (JsonSyntaxException e) {
-            log.error("Error while parsing jwt header", e);
         }
-        return null;
+        reader.endObject();
+    }
+
+    /**
+     * Reads the Content-Length header of the request without allocating.
+     *
+     * @param messageContext Carbon Message Context.
+     * @return content length, or 0 if the header is missing or invalid
+     */
+    public static long getContentLength(CarbonMessage messageContext) {
+        String contentLength = messageContext.getHeader(APIThrottleConstants.CONTENT_LENGTH);
+        // Longer values would overflow, and are not a valid request size anyway
+        if (contentLength == null || contentLength.isEmpty() || contentLength.length() > 18) {
+            return 0;
+        }
+        long length = 0;
+        for (int i = 0; i < contentLength.length(); i++) {
+            char c = contentLength.charAt(i);
+            if (c < '0' || c > '9') {
+                return 0;
+            }
+            length = length * 10 + (c - '0');
+        }
+        return length;
     }
 
     public static long ipToLong(String ipAddress) {
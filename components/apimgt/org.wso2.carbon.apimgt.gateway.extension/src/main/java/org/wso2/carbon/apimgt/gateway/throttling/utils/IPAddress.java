@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling.utils;
+
+/**
+ * IPv4 or IPv6 address held as an unsigned 128 bit number, so that addresses of both families can be compared and
+ * checked against ranges without string handling. IPv4 addresses are held in their IPv4-mapped IPv6 form
+ * (::ffff:a.b.c.d), hence an IPv4 address and its mapped IPv6 notation are equal.
+ * <p>
+ * Instances are mutable so that a request can parse its client address into a reused instance without allocating.
+ */
+public final class IPAddress implements Comparable<IPAddress> {
+
+    private static final long IPV4_MAPPED_PREFIX = 0xFFFFL << 32;
+    private static final int IPV4_OCTETS = 4;
+    private static final int IPV6_GROUPS = 8;
+
+    private long high;
+    private long low;
+    private boolean valid;
+
+    /**
+     * Parses the given address.
+     *
+     * @param address IPv4 or IPv6 address
+     * @return parsed address, or null if the given value is not a valid address
+     */
+    public static IPAddress parse(String address) {
+        IPAddress ipAddress = new IPAddress();
+        return address != null && ipAddress.set(address) ? ipAddress : null;
+    }
+
+    /**
+     * Parses the given address into this instance.
+     *
+     * @param address IPv4 or IPv6 address
+     * @return true if the address is valid. If not, this instance is left invalid.
+     */
+    public boolean set(CharSequence address) {
+        return set(address, 0, address.length());
+    }
+
+    /**
+     * Parses the address held in the given region of a character sequence into this instance. Surrounding white
+     * space, enclosing brackets and an IPv6 zone id are ignored.
+     *
+     * @param chars characters holding the address
+     * @param start start index of the address, inclusive
+     * @param end   end index of the address, exclusive
+     * @return true if the address is valid. If not, this instance is left invalid.
+     */
+    public boolean set(CharSequence chars, int start, int end) {
+        while (start < end && chars.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && chars.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (end - start > 2 && chars.charAt(start) == '[' && chars.charAt(end - 1) == ']') {
+            start++;
+            end--;
+        }
+        for (int i = start; i < end; i++) {
+            if (chars.charAt(i) == '%') {
+                end = i;
+                break;
+            }
+        }
+        valid = false;
+        for (int i = start; i < end; i++) {
+            char c = chars.charAt(i);
+            if (c == ':') {
+                return valid = parseIPv6(chars, start, end);
+            } else if (c == '.') {
+                long ipv4 = parseIPv4(chars, start, end);
+                if (ipv4 < 0) {
+                    return false;
+                }
+                high = 0;
+                low = IPV4_MAPPED_PREFIX | ipv4;
+                return valid = true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copies the given address into this instance.
+     */
+    public void set(IPAddress address) {
+        high = address.high;
+        low = address.low;
+        valid = address.valid;
+    }
+
+    public void clear() {
+        high = 0;
+        low = 0;
+        valid = false;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public boolean isIPv4() {
+        return high == 0 && (low & 0xFFFFFFFF00000000L) == IPV4_MAPPED_PREFIX;
+    }
+
+    /**
+     * @return upper 64 bits of the address
+     */
+    public long getHigh() {
+        return high;
+    }
+
+    /**
+     * @return lower 64 bits of the address
+     */
+    public long getLow() {
+        return low;
+    }
+
+    /**
+     * @return true if this address is within the given inclusive range
+     */
+    public boolean isWithin(IPAddress start, IPAddress end) {
+        return valid && compareTo(start) >= 0 && compareTo(end) <= 0;
+    }
+
+    /**
+     * Checks whether the given number of leading bits of this address and the given address are the same. For an
+     * IPv4 prefix length, add 96 to account for the mapped form.
+     *
+     * @param address      address to compare with
+     * @param prefixLength number of leading bits to compare, from 0 to 128
+     * @return true if the prefixes are equal
+     */
+    public boolean hasPrefix(IPAddress address, int prefixLength) {
+        if (prefixLength <= 0) {
+            return true;
+        }
+        if (prefixLength <= 64) {
+            return ((high ^ address.high) >>> (64 - prefixLength)) == 0;
+        }
+        return high == address.high
+                && (prefixLength >= 128 || ((low ^ address.low) >>> (128 - prefixLength)) == 0);
+    }
+
+    /**
+     * Returns the bit at the given position, counting from the most significant bit.
+     *
+     * @param index bit index from 0 to 127
+     * @return 0 or 1
+     */
+    public int bitAt(int index) {
+        return index < 64 ? (int) ((high >>> (63 - index)) & 1) : (int) ((low >>> (127 - index)) & 1);
+    }
+
+    @Override
+    public int compareTo(IPAddress address) {
+        int result = Long.compareUnsigned(high, address.high);
+        return result != 0 ? result : Long.compareUnsigned(low, address.low);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IPAddress)) {
+            return false;
+        }
+        IPAddress that = (IPAddress) o;
+        return high == that.high && low == that.low && valid == that.valid;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(high) * 31 + Long.hashCode(low);
+    }
+
+    @Override
+    public String toString() {
+        if (!valid) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder();
+        if (isIPv4()) {
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                builder.append((low >>> shift) & 0xFF);
+                if (shift > 0) {
+                    builder.append('.');
+                }
+            }
+            return builder.toString();
+        }
+        for (int i = 0; i < IPV6_GROUPS; i++) {
+            long part = i < 4 ? high : low;
+            builder.append(Long.toHexString((part >>> (48 - (i % 4) * 16)) & 0xFFFF));
+            if (i < IPV6_GROUPS - 1) {
+                builder.append(':');
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return the IPv4 address as an unsigned 32 bit value, or -1 if the value is not a valid IPv4 address
+     */
+    private static long parseIPv4(CharSequence chars, int start, int end) {
+        long result = 0;
+        int octets = 0;
+        int i = start;
+        while (i < end) {
+            int octet = 0;
+            int digits = 0;
+            while (i < end && chars.charAt(i) != '.') {
+                char c = chars.charAt(i++);
+                if (c < '0' || c > '9' || ++digits > 3) {
+                    return -1;
+                }
+                octet = octet * 10 + (c - '0');
+            }
+            if (digits == 0 || octet > 255 || ++octets > IPV4_OCTETS) {
+                return -1;
+            }
+            result = (result << 8) | octet;
+            if (i < end) {
+                // Skip the dot, which must be followed by another octet
+                if (++i == end) {
+                    return -1;
+                }
+            }
+        }
+        return octets == IPV4_OCTETS ? result : -1;
+    }
+
+    private boolean parseIPv6(CharSequence chars, int start, int end) {
+        // Groups before and after the "::" are accumulated separately and combined at the end
+        long leftHigh = 0;
+        long leftLow = 0;
+        int leftGroups = 0;
+        long rightHigh = 0;
+        long rightLow = 0;
+        int rightGroups = 0;
+        boolean compressed = false;
+        int i = start;
+        if (end - i >= 2 && chars.charAt(i) == ':' && chars.charAt(i + 1) == ':') {
+            compressed = true;
+            i += 2;
+        }
+        while (i < end) {
+            int tokenEnd = i;
+            boolean dotted = false;
+            while (tokenEnd < end && chars.charAt(tokenEnd) != ':') {
+                dotted |= chars.charAt(tokenEnd) == '.';
+                tokenEnd++;
+            }
+            long value;
+            int groups;
+            if (dotted) {
+                // An embedded IPv4 address is only allowed as the last two groups
+                value = tokenEnd == end ? parseIPv4(chars, i, tokenEnd) : -1;
+                groups = 2;
+            } else {
+                value = parseHexGroup(chars, i, tokenEnd);
+                groups = 1;
+            }
+            if (value < 0) {
+                return false;
+            }
+            for (int g = groups - 1; g >= 0; g--) {
+                long group = (value >>> (16 * g)) & 0xFFFF;
+                if (compressed) {
+                    rightHigh = (rightHigh << 16) | (rightLow >>> 48);
+                    rightLow = (rightLow << 16) | group;
+                    rightGroups++;
+                } else {
+                    leftHigh = (leftHigh << 16) | (leftLow >>> 48);
+                    leftLow = (leftLow << 16) | group;
+                    leftGroups++;
+                }
+            }
+            i = tokenEnd;
+            if (i == end) {
+                break;
+            }
+            // Skip the colon
+            if (++i == end) {
+                return false;
+            }
+            if (chars.charAt(i) == ':') {
+                if (compressed) {
+                    return false;
+                }
+                compressed = true;
+                i++;
+            }
+        }
+        int totalGroups = leftGroups + rightGroups;
+        if (compressed ? totalGroups >= IPV6_GROUPS : totalGroups != IPV6_GROUPS) {
+            return false;
+        }
+        // Move the left groups to the most significant end
+        for (int shift = IPV6_GROUPS - leftGroups; shift > 0; shift--) {
+            leftHigh = (leftHigh << 16) | (leftLow >>> 48);
+            leftLow = leftLow << 16;
+        }
+        high = leftHigh | rightHigh;
+        low = leftLow | rightLow;
+        return true;
+    }
+
+    private static long parseHexGroup(CharSequence chars, int start, int end) {
+        if (end <= start || end - start > 4) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = Character.digit(chars.charAt(i), 16);
+            if (digit < 0) {
+                return -1;
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling.utils;
+
+import java.util.Arrays;
+
+/**
+ * Binary trie of IP address prefixes, checking whether an address is within any of a set of CIDR blocks by walking
+ * at most one node per prefix bit. Tries are filled once and then only read, and can be shared between threads once
+ * safely published.
+ */
+public final class IPPrefixTrie {
+
+    private static final int NONE = -1;
+    private static final int IPV4_MAPPED_PREFIX_LENGTH = 96;
+
+    // Nodes are held in parallel arrays; node 0 is the root
+    private int[] zeroChildren = new int[16];
+    private int[] oneChildren = new int[16];
+    private boolean[] terminal = new boolean[16];
+    private int nodeCount = 1;
+    private int prefixCount;
+
+    public IPPrefixTrie() {
+        zeroChildren[0] = NONE;
+        oneChildren[0] = NONE;
+    }
+
+    /**
+     * Adds an address prefix.
+     *
+     * @param address      address of the block
+     * @param prefixLength prefix length of the block, from 0 to 32 for IPv4 and from 0 to 128 for IPv6 addresses
+     */
+    public void add(IPAddress address, int prefixLength) {
+        int length = address.isIPv4() ? prefixLength + IPV4_MAPPED_PREFIX_LENGTH : prefixLength;
+        int node = 0;
+        for (int i = 0; i < length && !terminal[node]; i++) {
+            int[] children = address.bitAt(i) == 0 ? zeroChildren : oneChildren;
+            if (children[node] == NONE) {
+                int child = newNode();
+                // The arrays may have been replaced while growing
+                children = address.bitAt(i) == 0 ? zeroChildren : oneChildren;
+                children[node] = child;
+            }
+            node = children[node];
+        }
+        // Longer prefixes under a terminal node are covered by it and need not be kept
+        terminal[node] = true;
+        prefixCount++;
+    }
+
+    /**
+     * @return true if the address is within any of the prefixes of the trie
+     */
+    public boolean contains(IPAddress address) {
+        if (!address.isValid()) {
+            return false;
+        }
+        int node = 0;
+        for (int i = 0; i < 128; i++) {
+            if (terminal[node]) {
+                return true;
+            }
+            node = address.bitAt(i) == 0 ? zeroChildren[node] : oneChildren[node];
+            if (node == NONE) {
+                return false;
+            }
+        }
+        return terminal[node];
+    }
+
+    public boolean isEmpty() {
+        return prefixCount == 0;
+    }
+
+    private int newNode() {
+        if (nodeCount == terminal.length) {
+            int capacity = nodeCount * 2;
+            zeroChildren = Arrays.copyOf(zeroChildren, capacity);
+            oneChildren = Arrays.copyOf(oneChildren, capacity);
+            terminal = Arrays.copyOf(terminal, capacity);
+        }
+        zeroChildren[nodeCount] = NONE;
+        oneChildren[nodeCount] = NONE;
+        return nodeCount++;
+    }
+}
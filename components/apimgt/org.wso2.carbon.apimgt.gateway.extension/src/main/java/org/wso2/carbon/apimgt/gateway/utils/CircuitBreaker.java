@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stops calls to a failing remote service for a while, so that requests fail fast instead of waiting for the
+ * service.
+ * <p>
+ * The breaker opens after a number of consecutive failures and rejects calls for the configured open time. After
+ * that a single trial call is let through; the breaker closes if the trial succeeds and stays open otherwise.
+ */
+public class CircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openTimeMillis;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean trialInProgress = new AtomicBoolean();
+    private final AtomicLong rejectedCalls = new AtomicLong();
+    // Time until which calls are rejected, or 0 while the breaker is closed
+    private volatile long openUntil;
+
+    /**
+     * @param name             name of the protected service, used in logs
+     * @param failureThreshold number of consecutive failures which opens the breaker
+     * @param openTimeMillis   time in milliseconds calls are rejected once the breaker is open
+     */
+    public CircuitBreaker(String name, int failureThreshold, long openTimeMillis) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openTimeMillis = openTimeMillis;
+    }
+
+    /**
+     * Checks whether a call may be made. Every permitted call must be followed by {@link #onSuccess()} or
+     * {@link #onFailure()}.
+     *
+     * @return true if the call may be made, false if it must be rejected
+     */
+    public boolean tryAcquire() {
+        long until = openUntil;
+        if (until == 0) {
+            return true;
+        }
+        if (System.currentTimeMillis() >= until && trialInProgress.compareAndSet(false, true)) {
+            return true;
+        }
+        rejectedCalls.incrementAndGet();
+        return false;
+    }
+
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        if (openUntil != 0) {
+            openUntil = 0;
+            trialInProgress.set(false);
+            log.info("Calls to " + name + " succeeded again. Closed the circuit breaker");
+        }
+    }
+
+    public void onFailure() {
+        if (openUntil != 0) {
+            openUntil = System.currentTimeMillis() + openTimeMillis;
+            trialInProgress.set(false);
+        } else if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openUntil = System.currentTimeMillis() + openTimeMillis;
+            log.warn(failureThreshold + " consecutive calls to " + name + " failed. Calls will be rejected for "
+                    + openTimeMillis + "ms");
+        }
+    }
+
+    public boolean isOpen() {
+        return openUntil != 0;
+    }
+
+    /**
+     * @return number of calls rejected while the breaker was open
+     */
+    public long getRejectedCallCount() {
+        return rejectedCalls.get();
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Bounded lock-free ring buffer of pre-allocated entries, written by any number of threads and drained by a single
+ * consumer.
+ * <p>
+ * A producer claims a sequence with {@link #tryClaim()}, fills the entry returned by {@link #get(long)} and makes it
+ * visible to the consumer with {@link #publish(long)}. A claimed sequence must always be published, otherwise the
+ * consumer cannot move past it. Claiming never blocks; when the buffer is full {@link #FULL} is returned and the
+ * caller decides what to do with the data.
+ *
+ * @param <E> type of the entries
+ */
+public final class RingBuffer<E> {
+
+    /**
+     * Returned by {@link #tryClaim()} when there is no free entry in the buffer.
+     */
+    public static final long FULL = -1L;
+
+    private final Object[] entries;
+    // Sequence of each entry: equal to the next sequence to claim when free, one above the claimed sequence when
+    // published and waiting to be consumed.
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    /**
+     * @param capacity minimum number of entries, rounded up to the next power of two
+     * @param factory  creates the entries of the buffer
+     */
+    public RingBuffer(int capacity, Supplier<E> factory) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid ring buffer capacity : " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        entries = new Object[size];
+        sequences = new AtomicLongArray(size);
+        mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            entries[i] = factory.get();
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Claims the next free entry of the buffer.
+     *
+     * @return claimed sequence, or {@link #FULL} if the buffer has no free entry
+     */
+    public long tryClaim() {
+        long sequence = tail.get();
+        while (true) {
+            long difference = sequences.get(indexOf(sequence)) - sequence;
+            if (difference == 0) {
+                if (tail.compareAndSet(sequence, sequence + 1)) {
+                    return sequence;
+                }
+            } else if (difference < 0) {
+                return FULL;
+            }
+            sequence = tail.get();
+        }
+    }
+
+    /**
+     * @param sequence sequence returned by {@link #tryClaim()}
+     * @return entry of the claimed sequence
+     */
+    @SuppressWarnings("unchecked")
+    public E get(long sequence) {
+        return (E) entries[indexOf(sequence)];
+    }
+
+    /**
+     * Makes the entry of a claimed sequence available to the consumer.
+     *
+     * @param sequence sequence returned by {@link #tryClaim()}
+     */
+    public void publish(long sequence) {
+        sequences.lazySet(indexOf(sequence), sequence + 1);
+    }
+
+    /**
+     * Passes published entries to the consumer in claim order, and frees them once consumed. Draining stops at the
+     * first entry which is claimed but not published yet. The consumer must not keep references to the entries.
+     *
+     * @param consumer   consumer of the entries
+     * @param maxEntries maximum number of entries to drain
+     * @return number of entries drained
+     */
+    public synchronized int drain(Consumer<E> consumer, int maxEntries) {
+        long sequence = head;
+        int drained = 0;
+        while (drained < maxEntries) {
+            int index = indexOf(sequence);
+            if (sequences.get(index) != sequence + 1) {
+                break;
+            }
+            try {
+                consumer.accept(get(sequence));
+            } finally {
+                sequences.lazySet(index, sequence + entries.length);
+                head = ++sequence;
+            }
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * @return approximate number of entries claimed and not yet drained
+     */
+    public int size() {
+        long size = tail.get() - head;
+        return size < 0 ? 0 : (int) Math.min(size, entries.length);
+    }
+
+    public int capacity() {
+        return entries.length;
+    }
+
+    private int indexOf(long sequence) {
+        return (int) sequence & mask;
+    }
+}
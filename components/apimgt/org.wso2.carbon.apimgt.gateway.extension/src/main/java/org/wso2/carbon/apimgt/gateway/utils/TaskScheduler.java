@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.utils;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared scheduler for the periodic housekeeping tasks of the gateway (expiring throttle data, flushing buffered
+ * events etc.). Tasks scheduled here must be short and must never block, since a small number of daemon threads
+ * serve all of them.
+ */
+public final class TaskScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskScheduler.class);
+    private static final int POOL_SIZE = 2;
+    private static ScheduledExecutorService executor;
+
+    private TaskScheduler() {
+    }
+
+    /**
+     * Schedules a task to run repeatedly with the given delay between the end of one execution and the start of
+     * the next. Exceptions thrown by the task are logged and do not cancel subsequent executions.
+     *
+     * @param name     name of the task, used when logging failures
+     * @param task     task to execute
+     * @param delay    delay between two executions
+     * @param timeUnit unit of the delay
+     * @return future which can be used to cancel the task
+     */
+    public static ScheduledFuture<?> scheduleWithFixedDelay(String name, Runnable task, long delay,
+                                                            TimeUnit timeUnit) {
+        return getExecutor().scheduleWithFixedDelay(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("Error while executing scheduled task : " + name, e);
+            }
+        }, delay, delay, timeUnit);
+    }
+
+    /**
+     * Stops the scheduler. Tasks scheduled afterwards will start a new scheduler.
+     */
+    public static synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private static synchronized ScheduledExecutorService getExecutor() {
+        if (executor == null) {
+            ScheduledThreadPoolExecutor scheduledExecutor = new ScheduledThreadPoolExecutor(POOL_SIZE,
+                    new ThreadFactoryBuilder().setNameFormat("apim-gateway-task-%d").setDaemon(true).build());
+            scheduledExecutor.setRemoveOnCancelPolicy(true);
+            executor = scheduledExecutor;
+        }
+        return executor;
+    }
+}
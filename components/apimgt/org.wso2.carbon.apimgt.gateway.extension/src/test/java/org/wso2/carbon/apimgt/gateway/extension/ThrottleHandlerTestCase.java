@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.extension;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.apimgt.core.models.policy.ApplicationPolicy;
+import org.wso2.carbon.apimgt.core.models.policy.BandwidthLimit;
+import org.wso2.carbon.apimgt.core.models.policy.Policy;
+import org.wso2.carbon.apimgt.core.models.policy.PolicyConstants;
+import org.wso2.carbon.apimgt.core.models.policy.QuotaPolicy;
+import org.wso2.carbon.apimgt.gateway.internal.ServiceReferenceHolder;
+import org.wso2.carbon.apimgt.gateway.throttling.EndpointLimiter;
+import org.wso2.carbon.apimgt.gateway.throttling.LocalThrottleEngine;
+import org.wso2.carbon.apimgt.gateway.throttling.RequestThrottleKeys;
+import org.wso2.carbon.apimgt.gateway.throttling.ThrottleDataHolder;
+import org.wso2.carbon.apimgt.gateway.throttling.ThrottlingConfiguration;
+import org.wso2.carbon.apimgt.gateway.throttling.constants.APIThrottleConstants;
+import org.wso2.carbon.apimgt.gateway.throttling.dto.VerbInfoDTO;
+import org.wso2.carbon.messaging.CarbonMessage;
+import org.wso2.carbon.messaging.DefaultCarbonMessage;
+
+public class ThrottleHandlerTestCase {
+
+    private ThrottleHandler throttleHandler;
+    private EndpointLimiter endpointLimiter;
+
+    @BeforeClass
+    public void init() {
+        if (ServiceReferenceHolder.getInstance().getThrottlingConfiguration() == null) {
+            ServiceReferenceHolder.getInstance().setThrottlingConfiguration(new ThrottlingConfiguration());
+        }
+        throttleHandler = new ThrottleHandler();
+        endpointLimiter = ThrottleDataHolder.getInstance().getEndpointLimiter();
+    }
+
+    @Test(description = "Requests over the maximum TPS of the production endpoint are hard limited")
+    public void testHardLimitExceeded() {
+        endpointLimiter.updateEndpoint("hardLimitedEndpoint", 2L);
+        try {
+            CarbonMessage first = sendRequest("/hardlimited", "hardLimitedEndpoint");
+            Assert.assertNull(first.getProperty(APIThrottleConstants.THROTTLED_OUT_REASON));
+            Assert.assertEquals(first.getProperty(APIThrottleConstants.ENDPOINT_ID), "hardLimitedEndpoint");
+
+            // Two requests are allowed per second, so one of the following is over the limit within any second
+            CarbonMessage throttled = null;
+            for (int i = 0; i < 4 && throttled == null; i++) {
+                CarbonMessage message = sendRequest("/hardlimited", "hardLimitedEndpoint");
+                if (message.getProperty(APIThrottleConstants.THROTTLED_OUT_REASON) != null) {
+                    throttled = message;
+                }
+            }
+            Assert.assertNotNull(throttled);
+            Assert.assertEquals(throttled.getProperty(APIThrottleConstants.THROTTLED_OUT_REASON),
+                    APIThrottleConstants.HARD_LIMIT_EXCEEDED);
+            Assert.assertEquals(throttled.getProperty(APIThrottleConstants.ERROR_CODE),
+                    APIThrottleConstants.HARD_LIMIT_EXCEEDED_ERROR_CODE);
+            Assert.assertTrue(ThrottleDataHolder.getInstance().getHardLimitThrottler().getRejectedRequestCount() > 0);
+        } finally {
+            endpointLimiter.removeEndpoint("hardLimitedEndpoint");
+        }
+    }
+
+    @Test(description = "Requests to an endpoint without a maximum TPS are not hard limited")
+    public void testNoHardLimit() {
+        endpointLimiter.updateEndpoint("unlimitedEndpoint", null);
+        try {
+            for (int i = 0; i < 5; i++) {
+                CarbonMessage message = sendRequest("/unlimited", "unlimitedEndpoint");
+                Assert.assertNull(message.getProperty(APIThrottleConstants.THROTTLED_OUT_REASON));
+            }
+            // An endpoint which is not known has no limit either
+            CarbonMessage message = sendRequest("/unknown", "unknownEndpoint");
+            Assert.assertNull(message.getProperty(APIThrottleConstants.THROTTLED_OUT_REASON));
+        } finally {
+            endpointLimiter.removeEndpoint("unlimitedEndpoint");
+        }
+    }
+
+    @Test(description = "Throttle keys are kept for the response only if a policy of the request limits bandwidth")
+    public void testResponseKeysOfBandwidthPolicies() {
+        CarbonMessage message = sendRequest("/requestcount", null);
+        Assert.assertNull(message.getProperty(APIThrottleConstants.REQUEST_THROTTLE_KEYS));
+
+        BandwidthLimit limit = new BandwidthLimit();
+        limit.setDataAmount(1);
+        limit.setDataUnit("MB");
+        limit.setTimeUnit("min");
+        limit.setUnitTime(1);
+        QuotaPolicy quotaPolicy = new QuotaPolicy();
+        quotaPolicy.setType(PolicyConstants.BANDWIDTH_TYPE);
+        quotaPolicy.setLimit(limit);
+        // Application policy of the authentication context of the handler
+        Policy policy = new ApplicationPolicy("UNLIMITED");
+        policy.setDefaultQuotaPolicy(quotaPolicy);
+        LocalThrottleEngine localThrottleEngine = ThrottleDataHolder.getInstance().getLocalThrottleEngine();
+        localThrottleEngine.deployPolicy(policy);
+        try {
+            message = sendRequest("/bandwidth", null);
+            RequestThrottleKeys keys = (RequestThrottleKeys) message.getProperty(
+                    APIThrottleConstants.REQUEST_THROTTLE_KEYS);
+            Assert.assertNotNull(keys);
+            Assert.assertEquals(keys.getSubscriptionKey().toString(), "1:/bandwidth:1.0.0");
+            // The keys of the handler thread are reused by the next request
+            sendRequest("/other", null);
+            Assert.assertEquals(keys.getSubscriptionKey().toString(), "1:/bandwidth:1.0.0");
+        } finally {
+            localThrottleEngine.undeployPolicy(policy);
+        }
+    }
+
+    private CarbonMessage sendRequest(String apiContext, String productionEndpointId) {
+        VerbInfoDTO verbInfoDTO = new VerbInfoDTO();
+        verbInfoDTO.setHttpVerb("GET");
+        verbInfoDTO.setThrottling(APIThrottleConstants.UNLIMITED_TIER);
+        verbInfoDTO.setRequestKey(apiContext + "/1.0.0/menu:GET");
+        verbInfoDTO.setProductionEndpointId(productionEndpointId);
+        verbInfoDTO.setSandboxEndpointId("sandboxEndpoint");
+        CarbonMessage message = new DefaultCarbonMessage();
+        message.setProperty("REST_API_CONTEXT", apiContext);
+        message.setProperty("REST_API_VERSION", "1.0.0");
+        message.setProperty(APIThrottleConstants.VERB_INFO_DTO, verbInfoDTO);
+        throttleHandler.invokeAtSourceRequestReceiving(message);
+        return message;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.resource;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wso2.carbon.apimgt.gateway.throttling.dto.VerbInfoDTO;
+
+public class ResourceTrieTestCase {
+
+    private static final String CONTEXT = "/petstore";
+    private static final String VERSION = "1.0.0";
+
+    private ResourceTrie resourceTrie;
+
+    @BeforeClass
+    public void init() {
+        resourceTrie = new ResourceTrie.Builder()
+                .add(CONTEXT, VERSION, createTemplate("/pets/mine", "GET"))
+                .add(CONTEXT, VERSION, createTemplate("/pets/{petId}", "GET"))
+                .add(CONTEXT, VERSION, createTemplate("/pets/{petId}", "PUT"))
+                .add(CONTEXT, VERSION, createTemplate("/pets/*", "GET"))
+                .add(CONTEXT, VERSION, createTemplate("/pets/*", "POST"))
+                .add(CONTEXT, VERSION, createTemplate("/pets/{petId}/photos/{photoId}.json", "GET"))
+                .add(CONTEXT, VERSION, createTemplate("/stores/main/orders", "GET"))
+                .add(CONTEXT, VERSION, createTemplate("/stores/{storeId}/items", "GET"))
+                .add(CONTEXT, VERSION, createTemplate("/users?name={name}", "GET"))
+                .add("store", "2.0.0", createTemplate("/*", "DELETE"))
+                .build();
+    }
+
+    @DataProvider(name = "requests")
+    public Object[][] requests() {
+        return new Object[][] {
+                // static parts take precedence over parameters, which take precedence over /* templates
+                {"/petstore/1.0.0/pets/mine", "GET", "/pets/mine"},
+                {"/petstore/1.0.0/pets/42", "GET", "/pets/{petId}"},
+                {"/petstore/1.0.0/pets/mines", "GET", "/pets/{petId}"},
+                {"/petstore/1.0.0/pets/42/toys", "GET", "/pets/*"},
+                // backtracking when the more specific resource does not accept the verb
+                {"/petstore/1.0.0/pets/mine", "PUT", "/pets/{petId}"},
+                {"/petstore/1.0.0/pets/mine", "POST", "/pets/*"},
+                {"/petstore/1.0.0/pets/42", "POST", "/pets/*"},
+                {"/petstore/1.0.0/stores/main/items", "GET", "/stores/{storeId}/items"},
+                // a /* template matches its base path
+                {"/petstore/1.0.0/pets", "GET", "/pets/*"},
+                {"/petstore/1.0.0/pets/", "POST", "/pets/*"},
+                {"/store/2.0.0", "DELETE", "/*"},
+                {"/store/2.0.0/any/path", "DELETE", "/*"},
+                // parameters within a segment
+                {"/petstore/1.0.0/pets/42/photos/7.json", "GET", "/pets/{petId}/photos/{photoId}.json"},
+                {"/petstore/1.0.0/pets/42/photos/7.1.json", "GET", "/pets/{petId}/photos/{photoId}.json"},
+                // query strings and trailing slashes are ignored
+                {"/petstore/1.0.0/pets/mine/", "GET", "/pets/mine"},
+                {"/petstore/1.0.0/pets/mine?owner=me", "GET", "/pets/mine"},
+                {"/petstore/1.0.0/pets/mine//?owner=/me/", "GET", "/pets/mine"},
+                {"/petstore/1.0.0/pets/42?a=b", "GET", "/pets/{petId}"},
+                {"/petstore/1.0.0/users?name=admin", "GET", "/users?name={name}"},
+                // HTTP verbs are matched ignoring case
+                {"/petstore/1.0.0/pets/mine", "get", "/pets/mine"},
+        };
+    }
+
+    @Test(description = "Requests are matched to the most specific resource accepting the verb",
+            dataProvider = "requests")
+    public void testMatch(String path, String httpVerb, String uriTemplate) {
+        ResourceTrie.Resource resource = resourceTrie.match(path, httpVerb);
+        Assert.assertNotNull(resource, httpVerb + " " + path);
+        Assert.assertEquals(resource.getUriTemplate(), uriTemplate, httpVerb + " " + path);
+        Assert.assertNotNull(resource.getVerbInfo(httpVerb));
+    }
+
+    @DataProvider(name = "unmatchedRequests")
+    public Object[][] unmatchedRequests() {
+        return new Object[][] {
+                {"/petstore/1.0.0/pets/mine", "DELETE"},
+                {"/petstore/1.0.0/stores/main/orders", "POST"},
+                {"/petstore/1.0.0/stores/main", "GET"},
+                {"/petstore/1.0.0/stores//items", "GET"},
+                {"/petstore/1.0.0/petsx", "GET"},
+                {"/petstore/2.0.0/pets/mine", "GET"},
+                {"/store/2.0.0x", "DELETE"},
+                {"/store/2.0.0/any", "GET"},
+                {"/", "GET"},
+                {"", "GET"},
+                {null, "GET"},
+                {"/petstore/1.0.0/pets/mine", null},
+        };
+    }
+
+    @Test(description = "Requests without a resource accepting the verb are not matched",
+            dataProvider = "unmatchedRequests")
+    public void testNoMatch(String path, String httpVerb) {
+        Assert.assertNull(resourceTrie.match(path, httpVerb), httpVerb + " " + path);
+    }
+
+    @Test(description = "The resource information of each verb is resolved when the trie is built")
+    public void testVerbInfo() {
+        UriTemplateDTO template = createTemplate("/pets/{petId}", "get");
+        template.setAuthType("None");
+        template.setPolicy("10PerMin");
+        template.setProductionEndpoint("production-endpoint");
+        template.setSandboxEndpoint("sandbox-endpoint");
+        ResourceTrie trie = new ResourceTrie.Builder().add(CONTEXT, VERSION, template).build();
+
+        ResourceTrie.Resource resource = trie.match("/petstore/1.0.0/pets/42", "GET");
+        Assert.assertEquals(resource.getApiContext(), CONTEXT);
+        Assert.assertEquals(resource.getApiVersion(), VERSION);
+        VerbInfoDTO verbInfo = resource.getVerbInfo("GET");
+        Assert.assertEquals(verbInfo.getHttpVerb(), "GET");
+        Assert.assertEquals(verbInfo.getAuthType(), "None");
+        Assert.assertEquals(verbInfo.getThrottling(), "10PerMin");
+        Assert.assertEquals(verbInfo.getProductionEndpointId(), "production-endpoint");
+        Assert.assertEquals(verbInfo.getSandboxEndpointId(), "sandbox-endpoint");
+        Assert.assertEquals(verbInfo.getRequestKey(), "/petstore/1.0.0/pets/{petId}:GET");
+    }
+
+    @Test(description = "Each verb of a template is counted once, and a later resource replaces an earlier one")
+    public void testSize() {
+        Assert.assertEquals(resourceTrie.size(), 10);
+        Assert.assertEquals(ResourceTrie.EMPTY.size(), 0);
+        Assert.assertNull(ResourceTrie.EMPTY.match("/petstore/1.0.0/pets/mine", "GET"));
+
+        UriTemplateDTO replacement = createTemplate("/pets", "GET");
+        replacement.setPolicy("Unlimited");
+        ResourceTrie trie = new ResourceTrie.Builder()
+                .add(CONTEXT, VERSION, createTemplate("/pets", "GET"))
+                .add(CONTEXT, VERSION, replacement)
+                .build();
+        Assert.assertEquals(trie.size(), 1);
+        Assert.assertEquals(trie.match("/petstore/1.0.0/pets", "GET").getVerbInfo("GET").getThrottling(),
+                "Unlimited");
+    }
+
+    private static UriTemplateDTO createTemplate(String uriTemplate, String httpVerb) {
+        UriTemplateDTO template = new UriTemplateDTO();
+        template.setUriTemplate(uriTemplate);
+        template.setHttpVerb(httpVerb);
+        return template;
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.security;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.apimgt.gateway.exception.APIKeyMgtException;
+import org.wso2.carbon.apimgt.gateway.models.AccessTokenInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TokenInfoCacheTestCase {
+
+    private final TokenInfoCache tokenInfoCache = TokenInfoCache.getInstance();
+
+    @AfterMethod
+    public void reset() {
+        tokenInfoCache.init(new KeyValidationConfiguration());
+    }
+
+    @Test(description = "A valid token is validated once and then served from the cache")
+    public void testValidTokenCached() throws APIKeyMgtException {
+        AtomicInteger validations = new AtomicInteger();
+        AccessTokenInfo tokenInfo = createTokenInfo(true, 0);
+        long misses = tokenInfoCache.getMissCount();
+        long hits = tokenInfoCache.getHitCount();
+        for (int i = 0; i < 3; i++) {
+            Assert.assertSame(tokenInfoCache.getTokenInfo("valid-token", () -> {
+                validations.incrementAndGet();
+                return tokenInfo;
+            }), tokenInfo);
+        }
+        Assert.assertEquals(validations.get(), 1);
+        Assert.assertEquals(tokenInfoCache.getMissCount() - misses, 1);
+        Assert.assertEquals(tokenInfoCache.getHitCount() - hits, 2);
+    }
+
+    @Test(description = "A token is cached no longer than until it expires")
+    public void testCacheTimeCappedAtTokenExpiry() throws Exception {
+        AtomicInteger validations = new AtomicInteger();
+        long tokenExpiryTime = System.currentTimeMillis() + 200;
+        AccessTokenInfo tokenInfo = createTokenInfo(true, tokenExpiryTime);
+        tokenInfoCache.getTokenInfo("expiring-token", () -> {
+            validations.incrementAndGet();
+            return tokenInfo;
+        });
+        tokenInfoCache.getTokenInfo("expiring-token", () -> {
+            validations.incrementAndGet();
+            return tokenInfo;
+        });
+        Assert.assertEquals(validations.get(), 1);
+
+        Thread.sleep(Math.max(0, tokenExpiryTime - System.currentTimeMillis()) + 50);
+        tokenInfoCache.getTokenInfo("expiring-token", () -> {
+            validations.incrementAndGet();
+            return createTokenInfo(true, 0);
+        });
+        Assert.assertEquals(validations.get(), 2);
+    }
+
+    @Test(description = "An invalid token is cached for the invalid token expiry only")
+    public void testInvalidTokenExpiry() throws Exception {
+        KeyValidationConfiguration configuration = new KeyValidationConfiguration();
+        configuration.setTokenCacheExpiry(900);
+        configuration.setInvalidTokenCacheExpiry(1);
+        tokenInfoCache.init(configuration);
+        AtomicInteger validations = new AtomicInteger();
+        AccessTokenInfo tokenInfo = createTokenInfo(false, 0);
+        long invalidTokenHits = tokenInfoCache.getInvalidTokenHitCount();
+        tokenInfoCache.getTokenInfo("invalid-token", () -> {
+            validations.incrementAndGet();
+            return tokenInfo;
+        });
+        Assert.assertFalse(tokenInfoCache.getTokenInfo("invalid-token", () -> {
+            validations.incrementAndGet();
+            return tokenInfo;
+        }).isTokenValid());
+        Assert.assertEquals(validations.get(), 1);
+        Assert.assertEquals(tokenInfoCache.getInvalidTokenHitCount() - invalidTokenHits, 1);
+
+        Thread.sleep(1100);
+        tokenInfoCache.getTokenInfo("invalid-token", () -> {
+            validations.incrementAndGet();
+            return tokenInfo;
+        });
+        Assert.assertEquals(validations.get(), 2);
+    }
+
+    @Test(description = "Failed validations are not cached")
+    public void testFailureNotCached() throws APIKeyMgtException {
+        try {
+            tokenInfoCache.getTokenInfo("failing-token", () -> {
+                throw new APIKeyMgtException(900900, "Key manager unavailable");
+            });
+            Assert.fail("Validation failure was not reported");
+        } catch (APIKeyMgtException e) {
+            Assert.assertEquals(e.getMessage(), "Key manager unavailable");
+        }
+        AccessTokenInfo tokenInfo = createTokenInfo(true, 0);
+        Assert.assertSame(tokenInfoCache.getTokenInfo("failing-token", () -> tokenInfo), tokenInfo);
+    }
+
+    @Test(description = "Concurrent requests with a token which is not cached wait for a single validation")
+    public void testSingleFlight() throws Exception {
+        int callers = 8;
+        AtomicInteger validations = new AtomicInteger();
+        CountDownLatch validationStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AccessTokenInfo tokenInfo = createTokenInfo(true, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<AccessTokenInfo>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> tokenInfoCache.getTokenInfo("shared-token", () -> {
+                    validations.incrementAndGet();
+                    validationStarted.countDown();
+                    release.await();
+                    return tokenInfo;
+                })));
+            }
+            Assert.assertTrue(validationStarted.await(5, TimeUnit.SECONDS));
+            // Give the other callers time to reach the cache while the validation is in progress
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<AccessTokenInfo> result : results) {
+                Assert.assertSame(result.get(5, TimeUnit.SECONDS), tokenInfo);
+            }
+            Assert.assertEquals(validations.get(), 1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(description = "Concurrent asynchronous requests with a token which is not cached share one validation")
+    public void testSingleFlightAsync() throws Exception {
+        AtomicInteger validations = new AtomicInteger();
+        CompletableFuture<AccessTokenInfo> validation = new CompletableFuture<>();
+        List<CompletableFuture<AccessTokenInfo>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(tokenInfoCache.getTokenInfoAsync("shared-async-token", () -> {
+                validations.incrementAndGet();
+                return validation;
+            }));
+        }
+        AccessTokenInfo tokenInfo = createTokenInfo(true, 0);
+        validation.complete(tokenInfo);
+        for (CompletableFuture<AccessTokenInfo> result : results) {
+            Assert.assertSame(result.get(5, TimeUnit.SECONDS), tokenInfo);
+        }
+        Assert.assertEquals(validations.get(), 1);
+        // The result is cached once the validation completes
+        Assert.assertSame(tokenInfoCache.getTokenInfoAsync("shared-async-token", () -> {
+            validations.incrementAndGet();
+            return new CompletableFuture<>();
+        }).get(5, TimeUnit.SECONDS), tokenInfo);
+        Assert.assertEquals(validations.get(), 1);
+    }
+
+    @Test(description = "Tokens are evicted beyond the capacity of the cache, and revoked tokens are removed")
+    public void testEviction() throws APIKeyMgtException {
+        KeyValidationConfiguration configuration = new KeyValidationConfiguration();
+        configuration.setTokenCacheCapacity(2);
+        tokenInfoCache.init(configuration);
+        for (int i = 0; i < 10; i++) {
+            tokenInfoCache.getTokenInfo("token-" + i, () -> createTokenInfo(true, 0));
+        }
+        Assert.assertTrue(tokenInfoCache.size() <= 2, "Cache size : " + tokenInfoCache.size());
+
+        tokenInfoCache.init(new KeyValidationConfiguration());
+        AtomicInteger validations = new AtomicInteger();
+        tokenInfoCache.getTokenInfo("revoked-token", () -> {
+            validations.incrementAndGet();
+            return createTokenInfo(true, 0);
+        });
+        tokenInfoCache.revoke("revoked-token");
+        tokenInfoCache.getTokenInfo("revoked-token", () -> {
+            validations.incrementAndGet();
+            return createTokenInfo(true, 0);
+        });
+        Assert.assertEquals(validations.get(), 2);
+    }
+
+    @Test(description = "Every request is validated while the cache is disabled")
+    public void testCacheDisabled() throws APIKeyMgtException {
+        KeyValidationConfiguration configuration = new KeyValidationConfiguration();
+        configuration.setTokenCacheEnabled(false);
+        tokenInfoCache.init(configuration);
+        AtomicInteger validations = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            tokenInfoCache.getTokenInfo("uncached-token", () -> {
+                validations.incrementAndGet();
+                return createTokenInfo(true, 0);
+            });
+        }
+        Assert.assertEquals(validations.get(), 3);
+    }
+
+    private static AccessTokenInfo createTokenInfo(boolean valid, long expiryTime) {
+        AccessTokenInfo tokenInfo = new AccessTokenInfo();
+        tokenInfo.setTokenValid(valid);
+        tokenInfo.setValidityPeriod(expiryTime);
+        return tokenInfo;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ *   Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.security;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.apimgt.gateway.exception.APIKeyMgtException;
+import org.wso2.carbon.apimgt.gateway.models.AccessTokenInfo;
+
+import java.util.concurrent.ExecutionException;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.configureFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+
+public class TokenIntrospectionClientIT {
+
+    private static final int KEY_SERVER_PORT = 9292;
+    private static final int TEST_PORT_OFFSET = 501;
+    private static final String INTROSPECT_PATH = "/keyserver/oauth2/introspect";
+
+    private WireMockServer wireMockServer;
+    private KeyValidationConfiguration configuration;
+
+    @BeforeClass
+    public void init() {
+        wireMockServer = new WireMockServer(options().port(getKeyServerPort()));
+        wireMockServer.start();
+        configureFor("127.0.0.1", getKeyServerPort());
+
+        stubFor(post(urlEqualTo(INTROSPECT_PATH))
+                .withHeader("Content-Type", equalTo("application/x-www-form-urlencoded"))
+                .withRequestBody(equalTo("token=active-token"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"active\":true,\"client_id\":\"1234-5678-90\",\"username\":\"admin\","
+                                + "\"exp\":2000000000,\"iat\":1500000000,\"scope\":\"read write\"}")));
+
+        stubFor(post(urlEqualTo(INTROSPECT_PATH))
+                .withRequestBody(equalTo("token=inactive-token"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"active\":false}")));
+
+        stubFor(post(urlEqualTo(INTROSPECT_PATH))
+                .withRequestBody(equalTo("token=unavailable-token"))
+                .willReturn(aResponse().withStatus(503)));
+
+        configuration = new KeyValidationConfiguration();
+        configuration.setIntrospectEndpoint("http://localhost:" + getKeyServerPort() + INTROSPECT_PATH);
+    }
+
+    @Test
+    public void testIntrospectActiveToken() throws APIKeyMgtException {
+        TokenIntrospectionClient client = new TokenIntrospectionClient(configuration);
+        AccessTokenInfo tokenInfo = client.introspect("active-token");
+        Assert.assertTrue(tokenInfo.isTokenValid());
+        Assert.assertEquals(tokenInfo.getConsumerKey(), "1234-5678-90");
+        Assert.assertEquals(tokenInfo.getEndUserName(), "admin");
+        Assert.assertEquals(tokenInfo.getValidityPeriod(), 2000000000000L);
+        Assert.assertEquals(tokenInfo.getScopes(), new String[]{"read", "write"});
+        client.shutdown();
+    }
+
+    @Test
+    public void testIntrospectInactiveTokenAsync() throws InterruptedException, ExecutionException {
+        TokenIntrospectionClient client = new TokenIntrospectionClient(configuration);
+        AccessTokenInfo tokenInfo = client.introspectAsync("inactive-token").get();
+        Assert.assertFalse(tokenInfo.isTokenValid());
+        client.shutdown();
+    }
+
+    @Test
+    public void testCircuitBreakerOpensWhenKeyServerFails() {
+        KeyValidationConfiguration failingConfiguration = new KeyValidationConfiguration();
+        failingConfiguration.setIntrospectEndpoint(configuration.getIntrospectEndpoint());
+        failingConfiguration.setIntrospectMaxRetries(1);
+        failingConfiguration.setCircuitBreakerFailureThreshold(2);
+        TokenIntrospectionClient client = new TokenIntrospectionClient(failingConfiguration);
+        for (int i = 0; i < 3; i++) {
+            try {
+                client.introspect("unavailable-token");
+                Assert.fail("Introspection of a token should fail when the key server is unavailable");
+            } catch (APIKeyMgtException e) {
+                // expected
+            }
+        }
+        Assert.assertTrue(client.isCircuitOpen());
+        Assert.assertEquals(client.getRetryCount(), 2);
+        Assert.assertEquals(client.getRejectedCallCount(), 1);
+        // Two calls with one retry each reached the key server, the third call was rejected
+        verify(4, postRequestedFor(urlEqualTo(INTROSPECT_PATH)).withRequestBody(equalTo("token=unavailable-token")));
+        client.shutdown();
+    }
+
+    @AfterClass
+    public void clean() {
+        wireMockServer.resetAll();
+        wireMockServer.stop();
+    }
+
+    public static int getKeyServerPort() {
+        return KEY_SERVER_PORT + TEST_PORT_OFFSET;
+    }
+}
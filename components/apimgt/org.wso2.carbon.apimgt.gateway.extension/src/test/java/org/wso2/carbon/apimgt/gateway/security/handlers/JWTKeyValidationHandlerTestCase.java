@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.security.handlers;
+
+import com.google.gson.JsonObject;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wso2.carbon.apimgt.gateway.models.AccessTokenInfo;
+import org.wso2.carbon.apimgt.gateway.security.JWTKeySet;
+import org.wso2.carbon.apimgt.gateway.security.KeyValidationConfiguration;
+import org.wso2.carbon.apimgt.gateway.security.TokenInfoCache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+public class JWTKeyValidationHandlerTestCase {
+
+    private static final String KEY_ID = "key1";
+    private static final String OTHER_KEY_ID = "key2";
+    private static final String ISSUER = "https://localhost:9443/oauth2/token";
+    private static final long NOW = 1500000000L;
+    private static final long CLOCK_SKEW = 60;
+
+    private KeyPair keyPair;
+    private KeyPair otherKeyPair;
+    private KeyPair untrustedKeyPair;
+    private JWTKeySet keySet;
+
+    @BeforeClass
+    public void init() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+        otherKeyPair = generator.generateKeyPair();
+        untrustedKeyPair = generator.generateKeyPair();
+        Map<String, RSAPublicKey> keys = new HashMap<>();
+        keys.put(KEY_ID, (RSAPublicKey) keyPair.getPublic());
+        keys.put(OTHER_KEY_ID, (RSAPublicKey) otherKeyPair.getPublic());
+        keySet = new JWTKeySet(keys);
+    }
+
+    @Test(description = "A token signed by a trusted key is valid, and its claims are returned")
+    public void testValidToken() throws Exception {
+        JsonObject claims = createClaims();
+        claims.addProperty("client_id", "consumerKey");
+        claims.addProperty("iat", NOW - 10);
+        claims.addProperty("scope", "read write");
+        String token = createToken("RS256", KEY_ID, claims, keyPair.getPrivate());
+
+        AccessTokenInfo tokenInfo = createHandler(ISSUER).verifyToken(token, NOW);
+        Assert.assertTrue(tokenInfo.isTokenValid());
+        Assert.assertEquals(tokenInfo.getAccessToken(), token);
+        Assert.assertEquals(tokenInfo.getConsumerKey(), "consumerKey");
+        Assert.assertEquals(tokenInfo.getEndUserName(), "admin");
+        Assert.assertEquals(tokenInfo.getIssuedTime(), NOW - 10);
+        Assert.assertEquals(tokenInfo.getValidityPeriod(), (NOW + 3600) * 1000);
+        Assert.assertEquals(tokenInfo.getScopes(), new String[] {"read", "write"});
+    }
+
+    @Test(description = "RS384 and RS512 signatures are verified, and the consumer key falls back to azp")
+    public void testOtherRsaAlgorithms() throws Exception {
+        JsonObject claims = createClaims();
+        claims.addProperty("azp", "authorizedParty");
+        JWTKeyValidationHandler handler = createHandler(ISSUER);
+        for (String algorithm : new String[] {"RS384", "RS512"}) {
+            AccessTokenInfo tokenInfo = handler.verifyToken(createToken(algorithm, KEY_ID, claims,
+                    keyPair.getPrivate()), NOW);
+            Assert.assertTrue(tokenInfo.isTokenValid(), algorithm);
+            Assert.assertEquals(tokenInfo.getConsumerKey(), "authorizedParty");
+        }
+    }
+
+    @Test(description = "A token whose payload or signature was modified after signing is invalid")
+    public void testTamperedToken() throws Exception {
+        String token = createToken("RS256", KEY_ID, createClaims(), keyPair.getPrivate());
+        String[] parts = token.split("\\.");
+        JsonObject claims = createClaims();
+        claims.addProperty("sub", "attacker");
+        String tamperedPayload = parts[0] + '.' + encode(claims.toString()) + '.' + parts[2];
+        char last = parts[2].charAt(0);
+        String tamperedSignature = parts[0] + '.' + parts[1] + '.' + (last == 'A' ? 'B' : 'A')
+                + parts[2].substring(1);
+
+        JWTKeyValidationHandler handler = createHandler(ISSUER);
+        Assert.assertTrue(handler.verifyToken(token, NOW).isTokenValid());
+        Assert.assertFalse(handler.verifyToken(tamperedPayload, NOW).isTokenValid());
+        Assert.assertFalse(handler.verifyToken(tamperedSignature, NOW).isTokenValid());
+    }
+
+    @Test(description = "Tokens which are not signed with a supported RSA algorithm are invalid")
+    public void testUnsupportedAlgorithms() throws Exception {
+        JsonObject claims = createClaims();
+        JWTKeyValidationHandler handler = createHandler(ISSUER);
+
+        String unsigned = encode("{\"alg\":\"none\",\"kid\":\"" + KEY_ID + "\"}") + '.' + encode(claims.toString())
+                + '.';
+        Assert.assertFalse(handler.verifyToken(unsigned, NOW).isTokenValid());
+
+        // HMAC keyed with the public key of a trusted RSA key
+        String signedContent = encode("{\"alg\":\"HS256\",\"kid\":\"" + KEY_ID + "\"}") + '.'
+                + encode(claims.toString());
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(keyPair.getPublic().getEncoded(), "HmacSHA256"));
+        String hmacSigned = signedContent + '.' + Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(mac.doFinal(signedContent.getBytes(StandardCharsets.US_ASCII)));
+        Assert.assertFalse(handler.verifyToken(hmacSigned, NOW).isTokenValid());
+
+        String missingAlgorithm = encode("{\"kid\":\"" + KEY_ID + "\"}") + '.' + encode(claims.toString()) + '.'
+                + createToken("RS256", KEY_ID, claims, keyPair.getPrivate()).split("\\.")[2];
+        Assert.assertFalse(handler.verifyToken(missingAlgorithm, NOW).isTokenValid());
+    }
+
+    @Test(description = "The key of the token is looked up by kid, falling back to all keys for an unknown kid")
+    public void testKeyLookup() throws Exception {
+        JsonObject claims = createClaims();
+        JWTKeyValidationHandler handler = createHandler(ISSUER);
+
+        Assert.assertTrue(handler.verifyToken(createToken("RS256", OTHER_KEY_ID, claims,
+                otherKeyPair.getPrivate()), NOW).isTokenValid());
+        Assert.assertTrue(handler.verifyToken(createToken("RS256", KEY_ID.toUpperCase(Locale.ENGLISH), claims,
+                keyPair.getPrivate()), NOW).isTokenValid());
+        Assert.assertTrue(handler.verifyToken(createToken("RS256", "unknown", claims,
+                otherKeyPair.getPrivate()), NOW).isTokenValid());
+        Assert.assertTrue(handler.verifyToken(createToken("RS256", null, claims,
+                otherKeyPair.getPrivate()), NOW).isTokenValid());
+        // a known kid is verified with its own key only
+        Assert.assertFalse(handler.verifyToken(createToken("RS256", KEY_ID, claims,
+                otherKeyPair.getPrivate()), NOW).isTokenValid());
+        Assert.assertFalse(handler.verifyToken(createToken("RS256", "unknown", claims,
+                untrustedKeyPair.getPrivate()), NOW).isTokenValid());
+    }
+
+    @DataProvider(name = "validityPeriods")
+    public Object[][] validityPeriods() {
+        return new Object[][] {
+                {NOW + 1, null, true},
+                {NOW, null, true},
+                {NOW - CLOCK_SKEW, null, true},
+                {NOW - CLOCK_SKEW - 1, null, false},
+                {null, null, false},
+                {NOW + 3600, NOW, true},
+                {NOW + 3600, NOW + CLOCK_SKEW, true},
+                {NOW + 3600, NOW + CLOCK_SKEW + 1, false},
+        };
+    }
+
+    @Test(description = "The expiry and not before claims are checked allowing for clock skew",
+            dataProvider = "validityPeriods")
+    public void testValidityPeriod(Long expiryTime, Long notBefore, boolean valid) throws Exception {
+        JsonObject claims = createClaims();
+        claims.remove("exp");
+        if (expiryTime != null) {
+            claims.addProperty("exp", expiryTime);
+        }
+        if (notBefore != null) {
+            claims.addProperty("nbf", notBefore);
+        }
+        String token = createToken("RS256", KEY_ID, claims, keyPair.getPrivate());
+        Assert.assertEquals(createHandler(ISSUER).verifyToken(token, NOW).isTokenValid(), valid);
+    }
+
+    @Test(description = "The issuer of the token must match the configured issuer, if any")
+    public void testIssuer() throws Exception {
+        JsonObject claims = createClaims();
+        claims.addProperty("iss", "https://example.com/oauth2/token");
+        String otherIssuerToken = createToken("RS256", KEY_ID, claims, keyPair.getPrivate());
+        claims.remove("iss");
+        String noIssuerToken = createToken("RS256", KEY_ID, claims, keyPair.getPrivate());
+
+        Assert.assertFalse(createHandler(ISSUER).verifyToken(otherIssuerToken, NOW).isTokenValid());
+        Assert.assertFalse(createHandler(ISSUER).verifyToken(noIssuerToken, NOW).isTokenValid());
+        Assert.assertTrue(createHandler("").verifyToken(otherIssuerToken, NOW).isTokenValid());
+        Assert.assertTrue(createHandler(null).verifyToken(noIssuerToken, NOW).isTokenValid());
+    }
+
+    @Test(description = "Malformed tokens are invalid")
+    public void testMalformedToken() throws Exception {
+        String token = createToken("RS256", KEY_ID, createClaims(), keyPair.getPrivate());
+        JWTKeyValidationHandler handler = createHandler(ISSUER);
+        for (String malformed : new String[] {"", "opaque-token", "a.b", token + ".extra", "a$.b.c",
+                encode("[]") + ".b.c", encode("{\"alg\":\"RS256\"}") + "." + encode("not json") + ".c"}) {
+            Assert.assertFalse(handler.verifyToken(malformed, NOW).isTokenValid(), malformed);
+        }
+    }
+
+    @Test(description = "A valid token is cached no longer than its expiry time")
+    public void testCacheExpiryCappedByTokenExpiry() throws Exception {
+        KeyValidationConfiguration configuration = new KeyValidationConfiguration();
+        configuration.setJwtClockSkew(0);
+        JWTKeyValidationHandler handler = new JWTKeyValidationHandler(configuration, keySet);
+        TokenInfoCache cache = TokenInfoCache.getInstance();
+        cache.init(configuration);
+
+        long expiryTime = System.currentTimeMillis() / 1000 + 1;
+        JsonObject claims = createClaims();
+        claims.addProperty("exp", expiryTime);
+        String token = createToken("RS256", KEY_ID, claims, keyPair.getPrivate());
+
+        long misses = cache.getMissCount();
+        Assert.assertTrue(cache.getTokenInfo(token, () -> handler.verifyToken(token)).isTokenValid());
+        Assert.assertTrue(cache.getTokenInfo(token, () -> handler.verifyToken(token)).isTokenValid());
+        Assert.assertEquals(cache.getMissCount(), misses + 1);
+
+        // past the expiry of the token, while the configured cache expiry is far away
+        Thread.sleep((expiryTime + 1) * 1000 + 100 - System.currentTimeMillis());
+        Assert.assertFalse(cache.getTokenInfo(token, () -> handler.verifyToken(token)).isTokenValid());
+        Assert.assertEquals(cache.getMissCount(), misses + 2);
+        cache.invalidateAll();
+    }
+
+    private JWTKeyValidationHandler createHandler(String issuer) {
+        KeyValidationConfiguration configuration = new KeyValidationConfiguration();
+        configuration.setJwtIssuer(issuer);
+        configuration.setJwtClockSkew(CLOCK_SKEW);
+        return new JWTKeyValidationHandler(configuration, keySet);
+    }
+
+    private static JsonObject createClaims() {
+        JsonObject claims = new JsonObject();
+        claims.addProperty("iss", ISSUER);
+        claims.addProperty("sub", "admin");
+        claims.addProperty("exp", NOW + 3600);
+        return claims;
+    }
+
+    private static String createToken(String algorithm, String keyId, JsonObject claims, PrivateKey key)
+            throws Exception {
+        JsonObject header = new JsonObject();
+        header.addProperty("alg", algorithm);
+        if (keyId != null) {
+            header.addProperty("kid", keyId);
+        }
+        String signedContent = encode(header.toString()) + '.' + encode(claims.toString());
+        Signature signature = Signature.getInstance("SHA" + algorithm.substring(2) + "withRSA");
+        signature.initSign(key);
+        signature.update(signedContent.getBytes(StandardCharsets.US_ASCII));
+        return signedContent + '.' + Base64.getUrlEncoder().withoutPadding().encodeToString(signature.sign());
+    }
+
+    private static String encode(String content) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
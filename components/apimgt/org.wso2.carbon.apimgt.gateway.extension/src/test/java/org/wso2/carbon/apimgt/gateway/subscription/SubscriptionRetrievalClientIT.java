@@ -27,7 +27,11 @@ import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.absent;
 import static com.github.tomakehurst.wiremock.client.WireMock.configureFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
@@ -84,6 +88,46 @@ public class SubscriptionRetrievalClientIT {
                         .withHeader("Content-Type", "application/json")
                         .withBody("{\"list\":[]}")));
 
+        //subscriptions in pages of 2, as newline delimited JSON
+        stubFor(get(urlPathEqualTo("/subscriptions"))
+                .withQueryParam("limit", equalTo("2"))
+                .withQueryParam("cursor", absent())
+                .withHeader("Accept", equalTo("application/x-ndjson"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/x-ndjson")
+                        .withHeader("X-Cursor", "page-2")
+                        .withBody(subscriptions.get(0) + "\n" + subscriptions.get(1) + "\n")));
+
+        stubFor(get(urlPathEqualTo("/subscriptions"))
+                .withQueryParam("limit", equalTo("2"))
+                .withQueryParam("cursor", equalTo("page-2"))
+                .withHeader("Accept", equalTo("application/x-ndjson"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/x-ndjson")
+                        .withBody(subscriptions.get(2) + "\n")));
+
+        //subscription change log
+        stubFor(get(urlPathEqualTo("/subscriptions/changes"))
+                .withQueryParam("since", absent())
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"list\":[],\"sequenceId\":12}")));
+
+        stubFor(get(urlPathEqualTo("/subscriptions/changes"))
+                .withQueryParam("since", equalTo("10"))
+                .withQueryParam("limit", equalTo("100"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"list\":[{\"sequenceId\":11,\"subscriptionId\":\"sub-1\","
+                                + "\"changeType\":\"ADDED\",\"apiContext\":\"/test\",\"apiVersion\":\"1.0.0\","
+                                + "\"applicationId\":\"app-1\"},{\"sequenceId\":12,\"subscriptionId\":\"sub-1\","
+                                + "\"changeType\":\"DELETED\",\"apiContext\":\"/test\",\"apiVersion\":\"1.0.0\","
+                                + "\"applicationId\":\"app-1\"}],\"sequenceId\":12}")));
+
         subscription = new JsonObject();
         subscription.addProperty("apiContext", "/test");
         subscription.addProperty("apiName", "TestAPI");
@@ -136,6 +180,34 @@ public class SubscriptionRetrievalClientIT {
 
     }
 
+    @Test
+    public void testLoadAllSubscriptionsByPage() {
+        List<SubscriptionDTO> subscriptionList = new ArrayList<>();
+        long count = new SubscriptionRetrievalClient(apimCoreBaseUrl).loadAllSubscriptions(2, subscriptionList::add);
+        Assert.assertEquals(count, 3);
+        Assert.assertEquals(subscriptionList.size(), 3);
+        Gson gson = new Gson();
+        for (int i = 0; i < subscriptionList.size(); i++) {
+            Assert.assertEquals(subscriptionList.get(i), gson.fromJson(subscriptions.get(i), SubscriptionDTO.class));
+        }
+    }
+
+    @Test
+    public void testLoadSubscriptionChanges() {
+        SubscriptionRetrievalClient client = new SubscriptionRetrievalClient(apimCoreBaseUrl);
+        SubscriptionChangeListDTO latest = client.loadLatestSubscriptionChange();
+        Assert.assertEquals(latest.getSequenceId(), 12);
+        Assert.assertTrue(latest.getChanges().isEmpty());
+
+        SubscriptionChangeListDTO changeList = client.loadSubscriptionChanges(10, 100);
+        Assert.assertEquals(changeList.getSequenceId(), 12);
+        Assert.assertEquals(changeList.getChanges().size(), 2);
+        Assert.assertEquals(changeList.getChanges().get(0).getSequenceId(), 11);
+        Assert.assertEquals(changeList.getChanges().get(0).getChangeType(), "ADDED");
+        Assert.assertEquals(changeList.getChanges().get(1).getChangeType(), "DELETED");
+        Assert.assertEquals(changeList.getChanges().get(1).getApiContext(), "/test");
+    }
+
     @Test
     public void testLoadSubscriptionsOfApi() {
         //load all subscriptions of api test/1.0.0
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.apimgt.gateway.internal.ServiceReferenceHolder;
+import org.wso2.carbon.apimgt.gateway.throttling.utils.IPAddress;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class BlockingConditionSnapshotTestCase {
+
+    private static final List<String> NONE = Collections.emptyList();
+
+    @BeforeClass
+    public void init() {
+        if (ServiceReferenceHolder.getInstance().getThrottlingConfiguration() == null) {
+            ServiceReferenceHolder.getInstance().setThrottlingConfiguration(new ThrottlingConfiguration());
+        }
+    }
+
+    @Test(description = "Blocked APIs and users are matched exactly, whatever the type of the value")
+    public void testAPIAndUserConditions() {
+        BlockingConditionSnapshot snapshot = new BlockingConditionSnapshot(1, Arrays.asList("/pizzashack/1.0.0"),
+                NONE, Arrays.asList("admin@carbon.super"), NONE);
+        Assert.assertFalse(snapshot.isEmpty());
+        Assert.assertTrue(snapshot.isAPIBlocked("/pizzashack/1.0.0"));
+        Assert.assertTrue(snapshot.isAPIBlocked(new StringBuilder("/pizzashack/1.0.0")));
+        Assert.assertTrue(snapshot.isAPIBlocked(new ThrottleKey().append("/pizzashack/1.0.0")));
+        Assert.assertFalse(snapshot.isAPIBlocked("/pizzashack/1.0.1"));
+        Assert.assertFalse(snapshot.isAPIBlocked(null));
+        Assert.assertTrue(snapshot.isUserBlocked("admin@carbon.super"));
+        Assert.assertTrue(snapshot.isUserBlocked(new StringBuilder("admin@carbon.super")));
+        Assert.assertFalse(snapshot.isUserBlocked("admin"));
+        // Conditions of one type do not block values of another
+        Assert.assertFalse(snapshot.isUserBlocked("/pizzashack/1.0.0"));
+        Assert.assertFalse(snapshot.isAPIBlocked("admin@carbon.super"));
+    }
+
+    @Test(description = "Values passing the Bloom filter by chance are not blocked unless in the exact set")
+    public void testFalsePositivesCheckedExactly() {
+        // A filter sized for 4 conditions lets a fraction of a percent of the values through
+        BlockingConditionSnapshot snapshot = new BlockingConditionSnapshot(1, Arrays.asList("/a", "/b"), NONE,
+                Arrays.asList("user0", "user1"), NONE);
+        for (int i = 2; i < 100000; i++) {
+            Assert.assertFalse(snapshot.isUserBlocked("user" + i));
+            Assert.assertFalse(snapshot.isAPIBlocked("/api" + i));
+        }
+        Assert.assertTrue(snapshot.isUserBlocked("user1"));
+    }
+
+    @Test(description = "Applications are matched on {subscriber}:{applicationName} without building the key first")
+    public void testApplicationConditions() {
+        StringBuilder longName = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            longName.append((char) ('a' + i % 26));
+        }
+        BlockingConditionSnapshot snapshot = new BlockingConditionSnapshot(1, NONE,
+                Arrays.asList("admin:DefaultApplication", "a:b:c", "admin:" + longName, "\u00e9t\u00e9:app\u00e9"),
+                NONE, NONE);
+        Assert.assertTrue(snapshot.isApplicationBlocked("admin", "DefaultApplication"));
+        Assert.assertTrue(snapshot.isApplicationBlocked(new StringBuilder("admin"),
+                new ThrottleKey().append("DefaultApplication")));
+        Assert.assertTrue(snapshot.isApplicationBlocked("admin", longName));
+        Assert.assertTrue(snapshot.isApplicationBlocked("\u00e9t\u00e9", "app\u00e9"));
+        // The key is {subscriber}:{applicationName}, so a separator in either part gives the same key
+        Assert.assertTrue(snapshot.isApplicationBlocked("a:b", "c"));
+        Assert.assertTrue(snapshot.isApplicationBlocked("a", "b:c"));
+        Assert.assertFalse(snapshot.isApplicationBlocked("admin", "DefaultApplicatio"));
+        Assert.assertFalse(snapshot.isApplicationBlocked("admi", "nDefaultApplication"));
+        Assert.assertFalse(snapshot.isApplicationBlocked("admin", "DefaultApplication2"));
+        Assert.assertFalse(snapshot.isApplicationBlocked(null, "DefaultApplication"));
+        Assert.assertFalse(snapshot.isApplicationBlocked("admin", null));
+    }
+
+    @Test(description = "IP conditions are matched per tenant, as single addresses or CIDR blocks")
+    public void testIPConditions() {
+        BlockingConditionSnapshot snapshot = new BlockingConditionSnapshot(1, NONE, NONE, NONE,
+                Arrays.asList("carbon.super:203.0.113.7", "carbon.super:10.0.0.0/8", "carbon.super:2001:db8::/32",
+                        "wso2.com:192.168.1.1", "carbon.super:not-an-ip", "carbon.super:10.0.0.0/33"));
+        Assert.assertTrue(snapshot.isIPBlocked("carbon.super", IPAddress.parse("203.0.113.7")));
+        Assert.assertFalse(snapshot.isIPBlocked("carbon.super", IPAddress.parse("203.0.113.8")));
+        Assert.assertTrue(snapshot.isIPBlocked("carbon.super", IPAddress.parse("10.255.255.255")));
+        Assert.assertFalse(snapshot.isIPBlocked("carbon.super", IPAddress.parse("11.0.0.0")));
+        Assert.assertTrue(snapshot.isIPBlocked("carbon.super", IPAddress.parse("2001:db8::1")));
+        Assert.assertFalse(snapshot.isIPBlocked("carbon.super", IPAddress.parse("2001:db9::1")));
+        Assert.assertTrue(snapshot.isIPBlocked("wso2.com", IPAddress.parse("192.168.1.1")));
+        Assert.assertFalse(snapshot.isIPBlocked("carbon.super", IPAddress.parse("192.168.1.1")));
+        Assert.assertFalse(snapshot.isIPBlocked("wso2.com", IPAddress.parse("203.0.113.7")));
+        Assert.assertFalse(snapshot.isIPBlocked("carbon.super", new IPAddress()));
+        Assert.assertFalse(snapshot.isIPBlocked(null, IPAddress.parse("203.0.113.7")));
+    }
+
+    @Test(description = "The empty snapshot blocks nothing")
+    public void testEmptySnapshot() {
+        BlockingConditionSnapshot snapshot = BlockingConditionSnapshot.EMPTY;
+        Assert.assertTrue(snapshot.isEmpty());
+        Assert.assertFalse(snapshot.isBlocked("/pizzashack/1.0.0", "admin", "DefaultApplication", "admin",
+                "carbon.super", IPAddress.parse("10.0.0.1")));
+    }
+
+    @Test(description = "Condition changes swap in a new snapshot, leaving the previous one as it was")
+    public void testSnapshotSwap() {
+        ThrottleDataHolder throttleDataHolder = ThrottleDataHolder.getInstance();
+        BlockingConditionSnapshot before = throttleDataHolder.getBlockingConditions();
+        throttleDataHolder.addAPIBlockingCondition("/swapped/1.0.0", "/swapped/1.0.0");
+        BlockingConditionSnapshot added = throttleDataHolder.getBlockingConditions();
+        Assert.assertTrue(added != before);
+        Assert.assertTrue(added.getVersion() > before.getVersion());
+        Assert.assertTrue(added.isAPIBlocked("/swapped/1.0.0"));
+        Assert.assertFalse(before.isAPIBlocked("/swapped/1.0.0"));
+        Assert.assertTrue(throttleDataHolder.isBlockingConditionsPresent());
+
+        throttleDataHolder.removeAPIBlockingCondition("/swapped/1.0.0");
+        BlockingConditionSnapshot removed = throttleDataHolder.getBlockingConditions();
+        Assert.assertTrue(removed.getVersion() > added.getVersion());
+        Assert.assertFalse(removed.isAPIBlocked("/swapped/1.0.0"));
+        Assert.assertTrue(added.isAPIBlocked("/swapped/1.0.0"));
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class EndpointLimiterTestCase {
+
+    private static final String ENDPOINT_ID = "endpoint-1";
+    private static final long LATENCY_THRESHOLD_MILLIS = 100;
+    private static final long NOW_MILLIS = 1500000000123L;
+
+    @Test(description = "Requests over the maximum TPS are rejected until the next second")
+    public void testMaxTps() {
+        EndpointLimiter endpointLimiter = createLimiter(1, false);
+        endpointLimiter.updateEndpoint(ENDPOINT_ID, 3L);
+        EndpointLimiter.EndpointLimit limit = endpointLimiter.getEndpointLimit(ENDPOINT_ID);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertTrue(endpointLimiter.tryAcquire(limit, NOW_MILLIS + i));
+        }
+        Assert.assertFalse(endpointLimiter.tryAcquire(limit, NOW_MILLIS + 876));
+        Assert.assertEquals(endpointLimiter.getRejectedRequestCount(), 1);
+        // The count of the next second starts over
+        Assert.assertTrue(endpointLimiter.tryAcquire(limit, NOW_MILLIS + 1000));
+        Assert.assertTrue(endpointLimiter.tryAcquire(limit, NOW_MILLIS + 1001));
+        Assert.assertTrue(endpointLimiter.tryAcquire(limit, NOW_MILLIS + 1002));
+        Assert.assertFalse(endpointLimiter.tryAcquire(limit, NOW_MILLIS + 1003));
+        // A request of an earlier second counts against the current second
+        Assert.assertFalse(endpointLimiter.tryAcquire(limit, NOW_MILLIS));
+    }
+
+    @Test(description = "Each node allows its share of the maximum TPS, rounded up")
+    public void testMaxTpsSharedByNodes() {
+        EndpointLimiter endpointLimiter = createLimiter(2, false);
+        endpointLimiter.updateEndpoint(ENDPOINT_ID, 3L);
+        EndpointLimiter.EndpointLimit limit = endpointLimiter.getEndpointLimit(ENDPOINT_ID);
+        Assert.assertTrue(endpointLimiter.tryAcquire(limit, NOW_MILLIS));
+        Assert.assertTrue(endpointLimiter.tryAcquire(limit, NOW_MILLIS));
+        Assert.assertFalse(endpointLimiter.tryAcquire(limit, NOW_MILLIS));
+    }
+
+    @Test(description = "Endpoints without a maximum TPS are not limited, and updates keep the state of the limit")
+    public void testEndpointWithoutMaxTps() {
+        EndpointLimiter endpointLimiter = createLimiter(1, false);
+        endpointLimiter.updateEndpoint(ENDPOINT_ID, null);
+        EndpointLimiter.EndpointLimit limit = endpointLimiter.getEndpointLimit(ENDPOINT_ID);
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(endpointLimiter.tryAcquire(limit, NOW_MILLIS));
+        }
+        endpointLimiter.updateEndpoint(ENDPOINT_ID, 1000L);
+        Assert.assertSame(endpointLimiter.getEndpointLimit(ENDPOINT_ID), limit);
+        Assert.assertTrue(endpointLimiter.tryAcquire(limit, NOW_MILLIS));
+        endpointLimiter.removeEndpoint(ENDPOINT_ID);
+        Assert.assertNull(endpointLimiter.getEndpointLimit(ENDPOINT_ID));
+        Assert.assertEquals(endpointLimiter.getConcurrencyLimit(ENDPOINT_ID), 0);
+    }
+
+    @Test(description = "Endpoints are not limited while endpoint limiting is disabled")
+    public void testEndpointLimitingDisabled() {
+        EndpointLimiter endpointLimiter = createLimiter(1, false);
+        endpointLimiter.updateEndpoint(ENDPOINT_ID, 3L);
+        ThrottlingConfiguration configuration = new ThrottlingConfiguration();
+        configuration.setEndpointLimitingEnabled(false);
+        endpointLimiter.init(configuration);
+        Assert.assertFalse(endpointLimiter.isEnabled());
+        Assert.assertNull(endpointLimiter.getEndpointLimit(ENDPOINT_ID));
+        endpointLimiter.updateEndpoint(ENDPOINT_ID, 3L);
+        Assert.assertNull(endpointLimiter.getEndpointLimit(ENDPOINT_ID));
+    }
+
+    @Test(description = "The concurrency limit grows by one on fast responses while it is at least half used")
+    public void testConcurrencyLimitIncrease() {
+        EndpointLimiter endpointLimiter = createLimiter(1, true);
+        endpointLimiter.updateEndpoint(ENDPOINT_ID, null);
+        EndpointLimiter.EndpointLimit limit = endpointLimiter.getEndpointLimit(ENDPOINT_ID);
+        long fast = TimeUnit.MILLISECONDS.toNanos(1);
+        Assert.assertEquals(endpointLimiter.getConcurrencyLimit(ENDPOINT_ID), 4);
+
+        Assert.assertTrue(endpointLimiter.tryAcquire(limit, NOW_MILLIS));
+        endpointLimiter.release(limit, fast, false);
+        // One request in flight out of four does not use the limit
+        Assert.assertEquals(endpointLimiter.getConcurrencyLimit(ENDPOINT_ID), 4);
+
+        Assert.assertTrue(endpointLimiter.tryAcquire(limit, NOW_MILLIS));
+        Assert.assertTrue(endpointLimiter.tryAcquire(limit, NOW_MILLIS));
+        endpointLimiter.release(limit, fast, false);
+        Assert.assertEquals(endpointLimiter.getConcurrencyLimit(ENDPOINT_ID), 5);
+        endpointLimiter.release(limit, fast, false);
+        Assert.assertEquals(endpointLimiter.getConcurrencyLimit(ENDPOINT_ID), 5);
+
+        // The limit does not grow above the maximum concurrency
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(endpointLimiter.tryAcquire(limit, NOW_MILLIS));
+        }
+        Assert.assertFalse(endpointLimiter.tryAcquire(limit, NOW_MILLIS));
+        endpointLimiter.release(limit, fast, false);
+        Assert.assertEquals(endpointLimiter.getConcurrencyLimit(ENDPOINT_ID), 5);
+    }
+
+    @Test(description = "The concurrency limit backs off on slow or failed responses, at most once per interval")
+    public void testConcurrencyLimitDecrease() {
+        EndpointLimiter endpointLimiter = createLimiter(1, true);
+        endpointLimiter.updateEndpoint(ENDPOINT_ID, null);
+        EndpointLimiter.EndpointLimit limit = endpointLimiter.getEndpointLimit(ENDPOINT_ID);
+        long threshold = TimeUnit.MILLISECONDS.toNanos(LATENCY_THRESHOLD_MILLIS);
+        long now = System.nanoTime() + 2 * threshold;
+
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(endpointLimiter.tryAcquire(limit, NOW_MILLIS));
+        }
+        endpointLimiter.release(limit, threshold + 1, false, now);
+        Assert.assertEquals(endpointLimiter.getConcurrencyLimit(ENDPOINT_ID), 2);
+        // Responses to requests sent under the previous limit do not back off again
+        endpointLimiter.release(limit, threshold + 1, false, now + threshold / 2);
+        endpointLimiter.release(limit, 0, true, now + threshold / 2);
+        Assert.assertEquals(endpointLimiter.getConcurrencyLimit(ENDPOINT_ID), 2);
+        // A failure backs off once the interval passed, down to the minimum concurrency
+        endpointLimiter.release(limit, 0, true, now + threshold);
+        Assert.assertEquals(endpointLimiter.getConcurrencyLimit(ENDPOINT_ID), 1);
+
+        Assert.assertTrue(endpointLimiter.tryAcquire(limit, NOW_MILLIS));
+        Assert.assertFalse(endpointLimiter.tryAcquire(limit, NOW_MILLIS));
+        endpointLimiter.release(limit, 0, true, now + 2 * threshold);
+        Assert.assertEquals(endpointLimiter.getConcurrencyLimit(ENDPOINT_ID), 1);
+    }
+
+    @Test(description = "A request rejected by one limit does not use up the other")
+    public void testRejectedRequestKeepsOtherLimit() {
+        EndpointLimiter endpointLimiter = createLimiter(1, true);
+        endpointLimiter.updateEndpoint(ENDPOINT_ID, 5L);
+        EndpointLimiter.EndpointLimit limit = endpointLimiter.getEndpointLimit(ENDPOINT_ID);
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(endpointLimiter.tryAcquire(limit, NOW_MILLIS));
+        }
+        // Rejected by the concurrency limit, so the fifth request of the second is still available
+        Assert.assertFalse(endpointLimiter.tryAcquire(limit, NOW_MILLIS));
+        endpointLimiter.release(limit, -1, false);
+        Assert.assertTrue(endpointLimiter.tryAcquire(limit, NOW_MILLIS));
+        // Rejected by the maximum TPS, so the concurrency slot is given back
+        endpointLimiter.release(limit, -1, false);
+        Assert.assertFalse(endpointLimiter.tryAcquire(limit, NOW_MILLIS));
+        Assert.assertTrue(endpointLimiter.tryAcquire(limit, NOW_MILLIS + 1000));
+        Assert.assertFalse(endpointLimiter.tryAcquire(limit, NOW_MILLIS + 1000));
+        Assert.assertEquals(endpointLimiter.getRejectedRequestCount(), 3);
+    }
+
+    @Test(description = "Requests with an unknown latency do not adapt the concurrency limit")
+    public void testUnknownLatency() {
+        EndpointLimiter endpointLimiter = createLimiter(1, true);
+        endpointLimiter.updateEndpoint(ENDPOINT_ID, null);
+        EndpointLimiter.EndpointLimit limit = endpointLimiter.getEndpointLimit(ENDPOINT_ID);
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(endpointLimiter.tryAcquire(limit, NOW_MILLIS));
+        }
+        endpointLimiter.release(limit, -1, true, System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+        Assert.assertEquals(endpointLimiter.getConcurrencyLimit(ENDPOINT_ID), 4);
+        Assert.assertTrue(endpointLimiter.tryAcquire(limit, NOW_MILLIS));
+    }
+
+    private static EndpointLimiter createLimiter(int nodeCount, boolean adaptiveConcurrencyEnabled) {
+        ThrottlingConfiguration configuration = new ThrottlingConfiguration();
+        configuration.setGatewayNodeCount(nodeCount);
+        configuration.setAdaptiveConcurrencyEnabled(adaptiveConcurrencyEnabled);
+        configuration.setEndpointInitialConcurrency(4);
+        configuration.setEndpointMinConcurrency(1);
+        configuration.setEndpointMaxConcurrency(5);
+        configuration.setEndpointLatencyThreshold(LATENCY_THRESHOLD_MILLIS);
+        configuration.setEndpointBackoffRatio(0.5);
+        EndpointLimiter endpointLimiter = new EndpointLimiter();
+        endpointLimiter.init(configuration);
+        return endpointLimiter;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.apimgt.core.models.policy.ApplicationPolicy;
+import org.wso2.carbon.apimgt.core.models.policy.BandwidthLimit;
+import org.wso2.carbon.apimgt.core.models.policy.Policy;
+import org.wso2.carbon.apimgt.core.models.policy.PolicyConstants;
+import org.wso2.carbon.apimgt.core.models.policy.QuotaPolicy;
+import org.wso2.carbon.apimgt.core.models.policy.RequestCountLimit;
+import org.wso2.carbon.apimgt.gateway.internal.ServiceReferenceHolder;
+
+import java.util.Locale;
+
+public class LocalThrottleEngineTestCase {
+
+    private static final String POLICY_NAME = "3PerMin";
+
+    private ThrottleDataHolder throttleDataHolder;
+    private LocalThrottleEngine localThrottleEngine;
+
+    @BeforeClass
+    public void init() {
+        if (ServiceReferenceHolder.getInstance().getThrottlingConfiguration() == null) {
+            ServiceReferenceHolder.getInstance().setThrottlingConfiguration(new ThrottlingConfiguration());
+        }
+        throttleDataHolder = ThrottleDataHolder.getInstance();
+        localThrottleEngine = throttleDataHolder.getLocalThrottleEngine();
+    }
+
+    @AfterMethod
+    public void reset() {
+        localThrottleEngine.setMode(ThrottlingMode.GLOBAL, 1);
+        localThrottleEngine.undeployPolicy(createPolicy(3));
+    }
+
+    @Test(description = "The request after the request count limit of a deployed policy is throttled")
+    public void testRequestAfterLimitIsThrottled() {
+        Assert.assertTrue(localThrottleEngine.deployPolicy(createPolicy(3)));
+        localThrottleEngine.setMode(ThrottlingMode.LOCAL, 1);
+        String applicationKey = "app:limit";
+        for (int i = 0; i < 2; i++) {
+            localThrottleEngine.onRequest(applicationKey, POLICY_NAME, null, null, null, null, null, 0);
+            Assert.assertFalse(throttleDataHolder.isThrottled(applicationKey));
+        }
+        localThrottleEngine.onRequest(applicationKey, POLICY_NAME, null, null, null, null, null, 0);
+        Assert.assertTrue(throttleDataHolder.isThrottled(applicationKey));
+        Assert.assertTrue(throttleDataHolder.getThrottleNextAccessTimestamp(applicationKey)
+                > System.currentTimeMillis());
+        Assert.assertFalse(throttleDataHolder.isThrottled("app:other"));
+    }
+
+    @Test(description = "Requests are not counted against undeployed policies or in global mode")
+    public void testRequestsNotCountedWithoutPolicyOrInGlobalMode() {
+        localThrottleEngine.deployPolicy(createPolicy(1));
+        String applicationKey = "app:global";
+        localThrottleEngine.onRequest(applicationKey, POLICY_NAME, null, null, null, null, null, 0);
+        Assert.assertFalse(throttleDataHolder.isThrottled(applicationKey));
+
+        localThrottleEngine.setMode(ThrottlingMode.LOCAL, 1);
+        localThrottleEngine.undeployPolicy(createPolicy(1));
+        applicationKey = "app:undeployed";
+        localThrottleEngine.onRequest(applicationKey, POLICY_NAME, null, null, null, null, null, 0);
+        Assert.assertFalse(throttleDataHolder.isThrottled(applicationKey));
+    }
+
+    @Test(description = "Each node enforces its share of the limit in local approximate mode")
+    public void testLimitSharedByNodes() {
+        localThrottleEngine.deployPolicy(createPolicy(4));
+        localThrottleEngine.setMode(ThrottlingMode.LOCAL_APPROXIMATE, 2);
+        String applicationKey = "app:approximate";
+        localThrottleEngine.onRequest(applicationKey, POLICY_NAME, null, null, null, null, null, 0);
+        Assert.assertFalse(throttleDataHolder.isThrottled(applicationKey));
+        localThrottleEngine.onRequest(applicationKey, POLICY_NAME, null, null, null, null, null, 0);
+        Assert.assertTrue(throttleDataHolder.isThrottled(applicationKey));
+    }
+
+    @Test(description = "Bandwidth policies are known from the deployed policies in global mode as well")
+    public void testBandwidthLimitedInGlobalMode() {
+        Assert.assertFalse(localThrottleEngine.isBandwidthLimited(POLICY_NAME, null, null));
+        localThrottleEngine.deployPolicy(createPolicy(3));
+        Assert.assertFalse(localThrottleEngine.isBandwidthLimited(POLICY_NAME, null, null));
+        localThrottleEngine.deployPolicy(createBandwidthPolicy(POLICY_NAME));
+        Assert.assertTrue(localThrottleEngine.isBandwidthLimited(POLICY_NAME, null, null));
+        Assert.assertFalse(localThrottleEngine.isBandwidthLimited("Unknown", null, null));
+    }
+
+    @Test(description = "Time units of policy limits are parsed independently of the default locale")
+    public void testTimeUnitsIgnoreDefaultLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        try {
+            Locale.setDefault(new Locale("tr", "TR"));
+            Assert.assertEquals(LocalThrottleEngine.toMillis("MIN"), 60000L);
+            Assert.assertEquals(LocalThrottleEngine.toMillis("Day"), 86400000L);
+            Assert.assertEquals(LocalThrottleEngine.toMillis("fortnight"), -1L);
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    private static Policy createPolicy(long requestCount) {
+        RequestCountLimit limit = new RequestCountLimit();
+        limit.setRequestCount(requestCount);
+        limit.setTimeUnit("min");
+        limit.setUnitTime(1);
+        QuotaPolicy quotaPolicy = new QuotaPolicy();
+        quotaPolicy.setType(PolicyConstants.REQUEST_COUNT_TYPE);
+        quotaPolicy.setLimit(limit);
+        Policy policy = new ApplicationPolicy(POLICY_NAME);
+        policy.setDefaultQuotaPolicy(quotaPolicy);
+        return policy;
+    }
+
+    private static Policy createBandwidthPolicy(String policyName) {
+        BandwidthLimit limit = new BandwidthLimit();
+        limit.setDataAmount(1);
+        limit.setDataUnit("MB");
+        limit.setTimeUnit("min");
+        limit.setUnitTime(1);
+        QuotaPolicy quotaPolicy = new QuotaPolicy();
+        quotaPolicy.setType(PolicyConstants.BANDWIDTH_TYPE);
+        quotaPolicy.setLimit(limit);
+        Policy policy = new ApplicationPolicy(policyName);
+        policy.setDefaultQuotaPolicy(quotaPolicy);
+        return policy;
+    }
+}
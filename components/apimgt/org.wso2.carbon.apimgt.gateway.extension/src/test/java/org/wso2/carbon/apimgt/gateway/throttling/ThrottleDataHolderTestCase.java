@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.apimgt.gateway.internal.ServiceReferenceHolder;
+
+public class ThrottleDataHolderTestCase {
+
+    private static final String TEMPLATE = "$userId:$apiContext:custom";
+    private static final String THROTTLE_KEY = "admin@carbon.super:/pizzashack:custom";
+
+    private ThrottleDataHolder throttleDataHolder;
+
+    @BeforeClass
+    public void init() {
+        if (ServiceReferenceHolder.getInstance().getThrottlingConfiguration() == null) {
+            ServiceReferenceHolder.getInstance().setThrottlingConfiguration(new ThrottlingConfiguration());
+        }
+        throttleDataHolder = ThrottleDataHolder.getInstance();
+    }
+
+    @AfterMethod
+    public void cleanup() {
+        throttleDataHolder.removeKeyTemplate(TEMPLATE);
+        throttleDataHolder.removeThrottleData(THROTTLE_KEY);
+    }
+
+    @Test(description = "A key template added after a matching throttle decision is throttleable at once")
+    public void testDecisionBeforeTemplate() {
+        long nextAccessTimestamp = System.currentTimeMillis() + 60000;
+        throttleDataHolder.addThrottleData(THROTTLE_KEY, nextAccessTimestamp);
+        throttleDataHolder.addThrottleData("admin@carbon.super:/other:key", nextAccessTimestamp + 1000);
+        throttleDataHolder.addKeyTemplate(TEMPLATE, TEMPLATE);
+        try {
+            KeyTemplate template = throttleDataHolder.getKeyTemplateMap().get(TEMPLATE);
+            Assert.assertEquals(template.getThrottledUntil(), nextAccessTimestamp);
+            Assert.assertTrue(template.isThrottleable(System.currentTimeMillis()));
+        } finally {
+            throttleDataHolder.removeThrottleData("admin@carbon.super:/other:key");
+        }
+    }
+
+    @Test(description = "A key template added before a matching throttle decision is marked when it arrives")
+    public void testTemplateBeforeDecision() {
+        throttleDataHolder.addKeyTemplate(TEMPLATE, TEMPLATE);
+        KeyTemplate template = throttleDataHolder.getKeyTemplateMap().get(TEMPLATE);
+        Assert.assertFalse(template.isThrottleable(System.currentTimeMillis()));
+
+        long nextAccessTimestamp = System.currentTimeMillis() + 60000;
+        throttleDataHolder.addThrottleData(THROTTLE_KEY, nextAccessTimestamp);
+        Assert.assertEquals(template.getThrottledUntil(), nextAccessTimestamp);
+    }
+
+    @Test(description = "A redeployed key template keeps the throttled state of the template it replaces")
+    public void testRedeployedTemplate() {
+        long nextAccessTimestamp = System.currentTimeMillis() + 60000;
+        throttleDataHolder.addKeyTemplate(TEMPLATE, TEMPLATE);
+        throttleDataHolder.addThrottleData(THROTTLE_KEY, nextAccessTimestamp);
+        // the decision is no longer held, e.g. evicted to keep the store within its capacity
+        throttleDataHolder.removeThrottleData(THROTTLE_KEY);
+
+        throttleDataHolder.addKeyTemplate(TEMPLATE, TEMPLATE);
+        KeyTemplate template = throttleDataHolder.getKeyTemplateMap().get(TEMPLATE);
+        Assert.assertEquals(template.getThrottledUntil(), nextAccessTimestamp);
+        Assert.assertEquals(throttleDataHolder.getKeyTemplates().length, 1);
+    }
+}
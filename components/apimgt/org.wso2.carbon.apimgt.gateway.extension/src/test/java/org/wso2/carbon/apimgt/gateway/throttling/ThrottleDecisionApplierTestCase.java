@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.apimgt.gateway.internal.ServiceReferenceHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ThrottleDecisionApplierTestCase {
+
+    private static final String THROTTLE_KEY = "/pizzashack/1.0.0:1.0.0_condition_1";
+    private static final String API_KEY = "/pizzashack/1.0.0:1.0.0";
+    private static final String OTHER_THROTTLE_KEY = "1:admin@carbon.super:50PerMin";
+
+    private ThrottleDataHolder throttleDataHolder;
+    private ThrottleDecisionApplier applier;
+
+    @BeforeClass
+    public void init() {
+        if (ServiceReferenceHolder.getInstance().getThrottlingConfiguration() == null) {
+            ServiceReferenceHolder.getInstance().setThrottlingConfiguration(new ThrottlingConfiguration());
+        }
+        throttleDataHolder = ThrottleDataHolder.getInstance();
+    }
+
+    @AfterMethod
+    public void cleanup() {
+        if (applier != null) {
+            applier.stop();
+        }
+        throttleDataHolder.removeThrottleData(THROTTLE_KEY);
+        throttleDataHolder.removeThrottleData(OTHER_THROTTLE_KEY);
+        throttleDataHolder.removeThrottledAPIKey(API_KEY);
+    }
+
+    @Test(description = "Decisions of a throttle key received within a window are applied once, as the last one")
+    public void testDecisionsMergedInWindow() throws InterruptedException {
+        List<ThrottleDecision> applied = new ArrayList<>();
+        applier = new ThrottleDecisionApplier(throttleDataHolder, 100, 200) {
+            @Override
+            void apply(ThrottleDecision decision) {
+                applied.add(decision);
+                super.apply(decision);
+            }
+        };
+        long expiryTimestamp = System.currentTimeMillis() + 60000;
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(applier.submit(new ThrottleDecision(THROTTLE_KEY, true, expiryTimestamp + i, API_KEY,
+                    null, "condition_1")));
+        }
+        Assert.assertTrue(applier.submit(new ThrottleDecision(OTHER_THROTTLE_KEY, true, expiryTimestamp, null, null,
+                null)));
+        applier.start();
+        awaitApplied(2);
+
+        Assert.assertEquals(applied.size(), 2);
+        Assert.assertEquals(applied.get(0).getThrottleKey(), THROTTLE_KEY);
+        Assert.assertEquals(applied.get(0).getExpiryTimestamp(), expiryTimestamp + 4);
+        Assert.assertEquals(applied.get(1).getThrottleKey(), OTHER_THROTTLE_KEY);
+        Assert.assertEquals(applier.getReceivedDecisionCount(), 6);
+        Assert.assertTrue(throttleDataHolder.isThrottled(THROTTLE_KEY));
+        Assert.assertEquals(throttleDataHolder.getThrottleNextAccessTimestamp(THROTTLE_KEY), expiryTimestamp + 4);
+        Assert.assertTrue(throttleDataHolder.isAPIThrottled(API_KEY));
+    }
+
+    @Test(description = "A throttle key throttled and released within a window ends up released")
+    public void testReleaseSupersedesThrottle() throws InterruptedException {
+        applier = new ThrottleDecisionApplier(throttleDataHolder, 100, 200);
+        applier.submit(new ThrottleDecision(THROTTLE_KEY, true, System.currentTimeMillis() + 60000, API_KEY, null,
+                "condition_1"));
+        applier.submit(new ThrottleDecision(THROTTLE_KEY, false, 0L, API_KEY, null, "condition_1"));
+        applier.start();
+        awaitApplied(1);
+
+        Assert.assertFalse(throttleDataHolder.isThrottled(THROTTLE_KEY));
+        Assert.assertFalse(throttleDataHolder.isAPIThrottled(API_KEY));
+    }
+
+    @Test(description = "Decisions are dropped and counted while the queue is full")
+    public void testQueueFull() {
+        applier = new ThrottleDecisionApplier(throttleDataHolder, 1, 200);
+        Assert.assertTrue(applier.submit(ThrottleDecision.withoutKeys(THROTTLE_KEY, true, 0L)));
+        Assert.assertFalse(applier.submit(ThrottleDecision.withoutKeys(OTHER_THROTTLE_KEY, true, 0L)));
+        Assert.assertEquals(applier.getPendingDecisionCount(), 1);
+        Assert.assertEquals(applier.getDroppedDecisionCount(), 1);
+    }
+
+    @Test(description = "The API or resource key of a legacy decision is extracted from its throttle key")
+    public void testExtractAPIorResourceKey() {
+        Assert.assertEquals(ThrottleDecisionApplier.extractAPIorResourceKey(THROTTLE_KEY), API_KEY);
+        Assert.assertEquals(ThrottleDecisionApplier.extractAPIorResourceKey(
+                "/pizzashack/1.0.0/1.0.0/menu:GET_default"), "/pizzashack/1.0.0/1.0.0/menu:GET");
+        Assert.assertNull(ThrottleDecisionApplier.extractAPIorResourceKey(OTHER_THROTTLE_KEY));
+    }
+
+    private void awaitApplied(long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (applier.getAppliedDecisionCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(applier.getAppliedDecisionCount(), count);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ThrottleDecisionCodecTestCase {
+
+    private static final List<ThrottleDecision> DECISIONS = Arrays.asList(
+            new ThrottleDecision("/pizzashack/1.0.0:1.0.0_condition_1", true, 1500000000000L,
+                    "/pizzashack/1.0.0:1.0.0", null, "condition_1"),
+            new ThrottleDecision("/pizzashack/1.0.0/1.0.0/menu:GET_default", false, 0L, null,
+                    "/pizzashack/1.0.0/1.0.0/menu:GET", null),
+            new ThrottleDecision("1:caf\u00e9", true, Long.MAX_VALUE, null, null, null));
+
+    @Test(description = "Decisions are decoded as they were encoded")
+    public void testRoundTrip() throws ThrottleException {
+        List<ThrottleDecision> decoded = ThrottleDecisionCodec.decode(ThrottleDecisionCodec.encode(DECISIONS));
+        Assert.assertEquals(decoded.size(), DECISIONS.size());
+        for (int i = 0; i < DECISIONS.size(); i++) {
+            ThrottleDecision expected = DECISIONS.get(i);
+            ThrottleDecision actual = decoded.get(i);
+            Assert.assertEquals(actual.getThrottleKey(), expected.getThrottleKey());
+            Assert.assertEquals(actual.isThrottled(), expected.isThrottled());
+            Assert.assertEquals(actual.getExpiryTimestamp(), expected.getExpiryTimestamp());
+            Assert.assertEquals(actual.getApiKey(), expected.getApiKey());
+            Assert.assertEquals(actual.getResourceKey(), expected.getResourceKey());
+            Assert.assertEquals(actual.getConditionId(), expected.getConditionId());
+            Assert.assertTrue(actual.isKeysResolved());
+        }
+        Assert.assertTrue(ThrottleDecisionCodec.decode(ThrottleDecisionCodec.encode(Collections.emptyList()))
+                .isEmpty());
+    }
+
+    @Test(description = "A batch truncated at any point is rejected as a whole")
+    public void testTruncatedBatch() {
+        byte[] batch = ThrottleDecisionCodec.encode(DECISIONS);
+        for (int length = 0; length < batch.length; length++) {
+            assertRejected(Arrays.copyOf(batch, length));
+        }
+    }
+
+    @Test(description = "A batch with bytes after its last decision is rejected")
+    public void testTrailingBytes() {
+        byte[] batch = ThrottleDecisionCodec.encode(DECISIONS);
+        assertRejected(Arrays.copyOf(batch, batch.length + 1));
+    }
+
+    @Test(description = "A batch with an invalid header or invalid flags is rejected")
+    public void testMalformedBatch() throws IOException {
+        byte[] batch = ThrottleDecisionCodec.encode(DECISIONS);
+
+        byte[] unsupportedVersion = batch.clone();
+        unsupportedVersion[0] = ThrottleDecisionCodec.VERSION + 1;
+        assertRejected(unsupportedVersion);
+
+        assertRejected(header(-1));
+        // A count larger than the decisions in the batch
+        assertRejected(header(Integer.MAX_VALUE));
+
+        byte[] invalidFlags = batch.clone();
+        invalidFlags[5] = (byte) 0x80;
+        assertRejected(invalidFlags);
+    }
+
+    private static byte[] header(int count) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(ThrottleDecisionCodec.VERSION);
+            out.writeInt(count);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void assertRejected(byte[] batch) {
+        try {
+            List<ThrottleDecision> decisions = ThrottleDecisionCodec.decode(batch);
+            Assert.fail("Malformed batch of " + batch.length + " bytes decoded to " + decisions);
+        } catch (ThrottleException e) {
+            Assert.assertNotNull(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ThrottleDecisionStoreTestCase {
+
+    private static final long TICK_MILLIS = 1000L;
+    private static final long REVOLUTION_MILLIS = 64 * TICK_MILLIS;
+
+    private ThrottleDecisionStore store;
+    private long base;
+
+    @BeforeMethod
+    public void setUp() {
+        store = new ThrottleDecisionStore("test", 1000);
+        // Expiry is driven by the test, not by the background sweeper.
+        store.shutdown();
+        base = (System.currentTimeMillis() / TICK_MILLIS + 10) * TICK_MILLIS;
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        store.shutdown();
+    }
+
+    @Test(description = "Keys are evicted once their tick has elapsed, and retained until then")
+    public void testExpiredKeysAreEvicted() {
+        store.put("a", base + 1500);
+        store.put("b", base + 30000);
+        store.put("c", base + 100000);
+
+        store.evictExpiredKeys(base + 1400);
+        Assert.assertEquals(store.getLiveKeyCount(), 3);
+
+        store.evictExpiredKeys(base + 2500);
+        Assert.assertEquals(getDecisions().keySet(), asSet("b", "c"));
+        Assert.assertEquals(store.getExpiredKeyEvictionCount(), 1);
+
+        // c is further than a full revolution of the wheel, and is retained when its slot is first swept
+        store.evictExpiredKeys(base + 70000);
+        Assert.assertEquals(getDecisions().keySet(), asSet("c"));
+
+        store.evictExpiredKeys(base + 101000);
+        Assert.assertEquals(store.getLiveKeyCount(), 0);
+        Assert.assertEquals(store.getExpiredKeyEvictionCount(), 3);
+        Assert.assertEquals(store.getCapacityEvictionCount(), 0);
+    }
+
+    @Test(description = "A key updated to a later expiry is evicted at the later expiry")
+    public void testUpdatedKeyIsEvictedAtNewExpiry() {
+        store.put("a", base + 1500);
+        store.put("a", base + 5500);
+        store.put("b", base + 1200);
+        store.put("b", base + 1800);
+
+        store.evictExpiredKeys(base + 2500);
+        Assert.assertEquals(getDecisions(), singletonMap("a", base + 5500));
+
+        store.evictExpiredKeys(base + 6500);
+        Assert.assertEquals(store.getLiveKeyCount(), 0);
+    }
+
+    @Test(description = "Removed keys are skipped when their slot is swept")
+    public void testRemovedKeyIsSkipped() {
+        store.put("a", base + 1500);
+        store.remove("a");
+        store.put("a", base + 3500);
+
+        store.evictExpiredKeys(base + 2500);
+        Assert.assertEquals(getDecisions(), singletonMap("a", base + 3500));
+        Assert.assertEquals(store.getExpiredKeyEvictionCount(), 0);
+    }
+
+    @Test(description = "Removing a key drops its wheel entry, so a key put again is held by a single slot")
+    public void testRemovedKeyLeavesWheel() {
+        store.put("a", base + 1500);
+        store.remove("a");
+        Assert.assertEquals(store.getWheelEntryCount(), 0);
+
+        // put again within the same slot, one revolution later
+        store.put("a", base + 1500 + REVOLUTION_MILLIS);
+        store.remove("a");
+        store.put("a", base + 1700 + REVOLUTION_MILLIS);
+        Assert.assertEquals(store.getWheelEntryCount(), 1);
+
+        store.evictExpiredKeys(base + 2500);
+        Assert.assertEquals(getDecisions(), singletonMap("a", base + 1700 + REVOLUTION_MILLIS));
+        store.evictExpiredKeys(base + 2500 + REVOLUTION_MILLIS);
+        Assert.assertEquals(store.getLiveKeyCount(), 0);
+        Assert.assertEquals(store.getWheelEntryCount(), 0);
+        Assert.assertEquals(store.getExpiredKeyEvictionCount(), 1);
+    }
+
+    @Test(description = "The keys closest to expiry are evicted when the store exceeds its capacity")
+    public void testCapacityEviction() {
+        store.setCapacity(3);
+        store.put("a", base + 10000);
+        store.put("b", base + 2000);
+        store.put("c", base + 5000);
+        store.put("d", base + 20000);
+
+        Assert.assertEquals(getDecisions().keySet(), asSet("a", "c", "d"));
+        Assert.assertEquals(store.getCapacityEvictionCount(), 1);
+
+        store.setCapacity(1);
+        Assert.assertEquals(getDecisions().keySet(), asSet("d"));
+        Assert.assertEquals(store.getCapacityEvictionCount(), 3);
+
+        // updating a held key does not evict anything
+        store.put("d", base + 25000);
+        Assert.assertEquals(store.getCapacityEvictionCount(), 3);
+    }
+
+    @Test(description = "Keys updated within the same slot while their slot is swept are not lost from the wheel")
+    public void testConcurrentPutDuringSweep() throws Exception {
+        final int keyCount = 50;
+        final int sweeps = 10000;
+        final AtomicBoolean sweeping = new AtomicBoolean(true);
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread writer = new Thread(() -> {
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            // every timestamp is expired, and within the same wheel slot
+            for (int i = 0; sweeping.get(); i++) {
+                store.put("key" + (i % keyCount), base + (i % 1000));
+            }
+        });
+        writer.start();
+        start.countDown();
+        long now = base + TICK_MILLIS;
+        for (int i = 0; i < sweeps; i++, now += REVOLUTION_MILLIS) {
+            store.evictExpiredKeys(now);
+        }
+        sweeping.set(false);
+        writer.join();
+
+        store.evictExpiredKeys(now);
+        Assert.assertEquals(getDecisions(), new HashMap<String, Long>());
+    }
+
+    private Map<String, Long> getDecisions() {
+        Map<String, Long> decisions = new HashMap<>();
+        store.forEach(decisions::put);
+        return decisions;
+    }
+
+    private static Map<String, Long> singletonMap(String key, long value) {
+        Map<String, Long> map = new HashMap<>();
+        map.put(key, value);
+        return map;
+    }
+
+    private static Set<String> asSet(String... keys) {
+        return new HashSet<>(Arrays.asList(keys));
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares composing the throttle and blocking keys of a request by string concatenation with composing them in the
+ * reusable {@link ThrottleKey}s of the thread. Both variants look up every key in a {@link ThrottleDecisionStore}, as
+ * the throttle handler does for a request which is not throttled.
+ * <p>
+ * Run with the GC profiler to see the allocation per request (gc.alloc.rate.norm). The benchmark forks a JVM, which
+ * needs the test class path on the command line, so run it from the module directory with:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile=target/test.classpath
+ * java -cp target/test-classes:target/classes:$(cat target/test.classpath)
+ *     org.wso2.carbon.apimgt.gateway.throttling.ThrottleKeyBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ThrottleKeyBenchmark {
+
+    private String applicationId = "12";
+    private String authorizedUser = "admin@carbon.super";
+    private String apiContext = "/pizzashack";
+    private String apiVersion = "1.0.0";
+    private String requestKey = "/pizzashack/1.0.0/menu:GET";
+    private String[] conditionGroupIds = {"_condition_1", "_condition_2", "_default"};
+    private String apiTenantDomain = "carbon.super";
+    private String clientIp = "10.100.5.192";
+    private String subscriber = "admin";
+    private String applicationName = "DefaultApplication";
+    private ThrottleDecisionStore store;
+
+    @Setup
+    public void setup() {
+        store = new ThrottleDecisionStore("benchmark", 10000);
+        long nextAccessTimestamp = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+        for (int i = 0; i < 1000; i++) {
+            store.put(i + ":" + authorizedUser, nextAccessTimestamp);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        store.shutdown();
+    }
+
+    @Benchmark
+    public long concatenatedKeys() {
+        long result = store.nextAccessTimestamp(apiTenantDomain + ":" + clientIp);
+        result += store.nextAccessTimestamp(subscriber + ":" + applicationName);
+        String applicationKey = applicationId + ":" + authorizedUser;
+        String apiKey = apiContext + ":" + apiVersion;
+        String resourceKey = requestKey + "_" + authorizedUser;
+        for (String conditionGroupId : conditionGroupIds) {
+            result += store.nextAccessTimestamp(resourceKey + conditionGroupId);
+        }
+        result += store.nextAccessTimestamp(applicationId + ":" + apiContext + ":" + apiVersion);
+        result += store.nextAccessTimestamp(applicationKey);
+        result += store.nextAccessTimestamp(apiKey);
+        return result;
+    }
+
+    @Benchmark
+    public long reusedKeys() {
+        ThrottleKey.Keys keys = ThrottleKey.forCurrentThread();
+        long result = store.nextAccessTimestamp(keys.getIpBlockingKey().reset()
+                .append(apiTenantDomain).append(':').append(clientIp));
+        result += store.nextAccessTimestamp(keys.getAppBlockingKey().reset()
+                .append(subscriber).append(':').append(applicationName));
+        ThrottleKey applicationKey = keys.getApplicationKey().reset()
+                .append(applicationId).append(':').append(authorizedUser);
+        ThrottleKey apiKey = keys.getApiKey().reset().append(apiContext).append(':').append(apiVersion);
+        ThrottleKey resourceKey = keys.getResourceKey().reset().append(requestKey).append('_').append(authorizedUser);
+        for (String conditionGroupId : conditionGroupIds) {
+            result += store.nextAccessTimestamp(keys.getConditionKey().set(resourceKey).append(conditionGroupId));
+        }
+        result += store.nextAccessTimestamp(keys.getSubscriptionKey().reset()
+                .append(applicationId).append(':').append(apiContext).append(':').append(apiVersion));
+        result += store.nextAccessTimestamp(applicationKey);
+        result += store.nextAccessTimestamp(apiKey);
+        return result;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ThrottleKeyBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
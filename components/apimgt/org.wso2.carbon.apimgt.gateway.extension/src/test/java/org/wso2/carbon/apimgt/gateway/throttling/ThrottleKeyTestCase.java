@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ThrottleKeyTestCase {
+
+    @Test(description = "A composed key has the hash code of the equivalent String and equals it")
+    public void testEqualToString() {
+        ThrottleKey key = new ThrottleKey(4).append("12").append(':').append("admin@carbon.super");
+        Assert.assertEquals(key.hashCode(), "12:admin@carbon.super".hashCode());
+        Assert.assertTrue(key.equals("12:admin@carbon.super"));
+        Assert.assertFalse(key.equals("12:admin"));
+        Assert.assertEquals(key.toString(), "12:admin@carbon.super");
+
+        key.reset().append("/pizzashack");
+        Assert.assertEquals(key.hashCode(), "/pizzashack".hashCode());
+        Assert.assertEquals(new ThrottleKey().set(key).append(":1.0.0").toString(), "/pizzashack:1.0.0");
+    }
+
+    @Test(description = "String keyed maps and sets are queried through the lookup key of any CharSequence")
+    public void testLookupKey() {
+        Map<String, Long> hashMap = new HashMap<>();
+        Map<String, Long> concurrentMap = new ConcurrentHashMap<>();
+        Set<String> set = new HashSet<>();
+        hashMap.put("/pizzashack:1.0.0", 1L);
+        concurrentMap.put("/pizzashack:1.0.0", 1L);
+        set.add("/pizzashack:1.0.0");
+
+        CharSequence[] keys = {"/pizzashack:1.0.0", new ThrottleKey().append("/pizzashack").append(":1.0.0"),
+                new StringBuilder("/pizzashack:1.0.0")};
+        for (CharSequence key : keys) {
+            Object lookupKey = ThrottleKey.lookupKey(key);
+            Assert.assertEquals(hashMap.get(lookupKey), Long.valueOf(1L), key.getClass().getName());
+            Assert.assertEquals(concurrentMap.get(lookupKey), Long.valueOf(1L), key.getClass().getName());
+            Assert.assertTrue(set.contains(lookupKey), key.getClass().getName());
+        }
+        Assert.assertSame(ThrottleKey.lookupKey(keys[1]), keys[1]);
+    }
+
+    @Test(description = "The decision store finds a key whatever CharSequence it is queried with")
+    public void testStoreLookup() {
+        ThrottleDecisionStore store = new ThrottleDecisionStore("test", 10);
+        try {
+            long nextAccessTimestamp = System.currentTimeMillis() + 60000;
+            store.put("12:admin", nextAccessTimestamp);
+            Assert.assertEquals(store.nextAccessTimestamp("12:admin"), nextAccessTimestamp);
+            Assert.assertEquals(store.nextAccessTimestamp(new ThrottleKey().append("12:admin")), nextAccessTimestamp);
+            Assert.assertEquals(store.nextAccessTimestamp(new StringBuilder("12:admin")), nextAccessTimestamp);
+            Assert.assertEquals(store.nextAccessTimestamp(new ThrottleKey().append("12:user")),
+                    ThrottleDecisionStore.NOT_THROTTLED);
+        } finally {
+            store.shutdown();
+        }
+    }
+}
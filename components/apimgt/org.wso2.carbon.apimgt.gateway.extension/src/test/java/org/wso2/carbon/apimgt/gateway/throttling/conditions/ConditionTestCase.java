@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling.conditions;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wso2.carbon.apimgt.gateway.GatewayConstants;
+import org.wso2.carbon.apimgt.gateway.internal.ServiceReferenceHolder;
+import org.wso2.carbon.apimgt.gateway.throttling.ThrottleConditionEvaluator;
+import org.wso2.carbon.apimgt.gateway.throttling.ThrottlingConfiguration;
+import org.wso2.carbon.apimgt.gateway.throttling.constants.APIThrottleConstants;
+import org.wso2.carbon.apimgt.gateway.throttling.dto.AuthenticationContextDTO;
+import org.wso2.carbon.apimgt.gateway.throttling.dto.ConditionDTO;
+import org.wso2.carbon.apimgt.gateway.throttling.dto.ConditionGroupDTO;
+import org.wso2.carbon.apimgt.gateway.throttling.utils.IPAddress;
+import org.wso2.carbon.messaging.CarbonMessage;
+import org.wso2.carbon.messaging.DefaultCarbonMessage;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+public class ConditionTestCase {
+
+    private static final long REQUEST_TIME = Instant.parse("2017-06-15T12:00:00Z").toEpochMilli();
+
+    @BeforeClass
+    public void init() {
+        if (ServiceReferenceHolder.getInstance().getThrottlingConfiguration() == null) {
+            ServiceReferenceHolder.getInstance().setThrottlingConfiguration(new ThrottlingConfiguration());
+        }
+    }
+
+    @AfterMethod
+    public void clear() {
+        RequestAttributes.forRequest(null, null).clear();
+    }
+
+    @DataProvider(name = "conditions")
+    public Object[][] conditions() {
+        return new Object[][] {
+                {APIThrottleConstants.IP_RANGE_TYPE, "192.168.10.0", "192.168.10.255", IPRangeCondition.class, true},
+                {APIThrottleConstants.IP_RANGE_TYPE, "192.168.10.20", "192.168.10.20", IPRangeCondition.class, true},
+                {APIThrottleConstants.IP_RANGE_TYPE, "192.168.10.21", "192.168.10.30", IPRangeCondition.class, false},
+                {APIThrottleConstants.IP_RANGE_TYPE, "::ffff:192.168.10.0", "::ffff:192.168.10.255",
+                        IPRangeCondition.class, true},
+                {APIThrottleConstants.IP_RANGE_TYPE, "2001:db8::", "2001:db8::ffff", IPRangeCondition.class, false},
+                {APIThrottleConstants.IP_SPECIFIC_TYPE, null, "192.168.10.20", IPSpecificCondition.class, true},
+                {APIThrottleConstants.IP_SPECIFIC_TYPE, null, "::ffff:192.168.10.20", IPSpecificCondition.class,
+                        true},
+                {APIThrottleConstants.IP_SPECIFIC_TYPE, null, "192.168.10.21", IPSpecificCondition.class, false},
+                // a repeated parameter takes its last value
+                {APIThrottleConstants.QUERY_PARAMETER_TYPE, "type", "dog", QueryParameterCondition.class, true},
+                {APIThrottleConstants.QUERY_PARAMETER_TYPE, "type", "cat", QueryParameterCondition.class, false},
+                {APIThrottleConstants.QUERY_PARAMETER_TYPE, "limit", "10", QueryParameterCondition.class, true},
+                {APIThrottleConstants.QUERY_PARAMETER_TYPE, "limit", "1", QueryParameterCondition.class, false},
+                {APIThrottleConstants.QUERY_PARAMETER_TYPE, "lim", "10", QueryParameterCondition.class, false},
+                {APIThrottleConstants.QUERY_PARAMETER_TYPE, "sort", "asc", QueryParameterCondition.class, false},
+                // claims are matched in full
+                {APIThrottleConstants.JWT_CLAIMS_TYPE, "role", "admin", JWTClaimCondition.class, true},
+                {APIThrottleConstants.JWT_CLAIMS_TYPE, "role", "adm", JWTClaimCondition.class, false},
+                {APIThrottleConstants.JWT_CLAIMS_TYPE, "role", "adm.*", JWTClaimCondition.class, true},
+                {APIThrottleConstants.JWT_CLAIMS_TYPE, "address.country", "LK|US", JWTClaimCondition.class, true},
+                {APIThrottleConstants.JWT_CLAIMS_TYPE, "email", ".*", JWTClaimCondition.class, false},
+                // headers are searched
+                {APIThrottleConstants.HEADER_TYPE, "User-Agent", "Mozilla", HeaderCondition.class, true},
+                {APIThrottleConstants.HEADER_TYPE, "User-Agent", "^Mozilla/5\\.0", HeaderCondition.class, true},
+                {APIThrottleConstants.HEADER_TYPE, "User-Agent", "Chrome", HeaderCondition.class, false},
+                {APIThrottleConstants.HEADER_TYPE, "X-Custom", ".*", HeaderCondition.class, false},
+                // a date covers the whole day, a date-time a single millisecond
+                {APIThrottleConstants.DATE_SPECIFIC_TYPE, null, "2017-06-15", DateRangeCondition.class, true},
+                {APIThrottleConstants.DATE_SPECIFIC_TYPE, null, "2017-06-14", DateRangeCondition.class, false},
+                {APIThrottleConstants.DATE_SPECIFIC_TYPE, null, "2017-06-16", DateRangeCondition.class, false},
+                {APIThrottleConstants.DATE_SPECIFIC_TYPE, null, "2017-06-15T12:00:00Z", DateRangeCondition.class,
+                        true},
+                {APIThrottleConstants.DATE_SPECIFIC_TYPE, null, "2017-06-15 12:00:00", DateRangeCondition.class,
+                        true},
+                {APIThrottleConstants.DATE_SPECIFIC_TYPE, null, "2017-06-15T12:00:00.001Z",
+                        DateRangeCondition.class, false},
+                {APIThrottleConstants.DATE_SPECIFIC_TYPE, null, "2017-06-15T14:00:00+02:00",
+                        DateRangeCondition.class, true},
+                {APIThrottleConstants.DATE_SPECIFIC_TYPE, null, Long.toString(REQUEST_TIME),
+                        DateRangeCondition.class, true},
+                // a range includes the whole of its end date
+                {APIThrottleConstants.DATE_RANGE_TYPE, "2017-06-15", "2017-06-15", DateRangeCondition.class, true},
+                {APIThrottleConstants.DATE_RANGE_TYPE, "2017-06-01", "2017-06-14", DateRangeCondition.class, false},
+                {APIThrottleConstants.DATE_RANGE_TYPE, "2017-06-16", "2017-06-30", DateRangeCondition.class, false},
+                {APIThrottleConstants.DATE_RANGE_TYPE, "2017-06-15T12:00:00Z", "2017-06-16",
+                        DateRangeCondition.class, true},
+                {APIThrottleConstants.DATE_RANGE_TYPE, "2017-06-15T12:00:00.001Z", "2017-06-16",
+                        DateRangeCondition.class, false},
+                {APIThrottleConstants.DATE_RANGE_TYPE, "2017-06-01", "2017-06-15T12:00:00Z",
+                        DateRangeCondition.class, true},
+                {APIThrottleConstants.DATE_RANGE_TYPE, "2017-06-01", "2017-06-15T11:59:59.999Z",
+                        DateRangeCondition.class, false},
+                {APIThrottleConstants.HTTP_VERB_TYPE, null, "POST", HTTPVerbCondition.class, true},
+                {APIThrottleConstants.HTTP_VERB_TYPE, null, "get, post", HTTPVerbCondition.class, true},
+                {APIThrottleConstants.HTTP_VERB_TYPE, null, "GET,PUT,DELETE", HTTPVerbCondition.class, false},
+        };
+    }
+
+    @Test(description = "Conditions are compiled to their type and applied to a request, with and without inversion",
+            dataProvider = "conditions")
+    public void testCompiledCondition(String type, String name, String value, Class<? extends Condition> conditionClass,
+                                      boolean matches) {
+        for (boolean inverted : new boolean[] {false, true}) {
+            Condition condition = compile(type, name, value, inverted);
+            Assert.assertEquals(condition.getClass(), conditionClass);
+            Assert.assertEquals(condition.isInverted(), inverted);
+            Assert.assertEquals(condition.evaluate(createRequest()), matches != inverted);
+        }
+    }
+
+    @DataProvider(name = "invalidConditions")
+    public Object[][] invalidConditions() {
+        return new Object[][] {
+                {null, null, "value"},
+                {"Unknown", null, "value"},
+                {APIThrottleConstants.IP_RANGE_TYPE, "192.168.10.0", null},
+                {APIThrottleConstants.IP_RANGE_TYPE, "192.168.10", "192.168.10.255"},
+                {APIThrottleConstants.IP_RANGE_TYPE, "192.168.10.0", "192.168.10.256"},
+                {APIThrottleConstants.IP_SPECIFIC_TYPE, null, "300.1.1.1"},
+                {APIThrottleConstants.IP_SPECIFIC_TYPE, null, "2001:db8:::1"},
+                {APIThrottleConstants.IP_SPECIFIC_TYPE, null, null},
+                {APIThrottleConstants.QUERY_PARAMETER_TYPE, "type", null},
+                {APIThrottleConstants.QUERY_PARAMETER_TYPE, null, "dog"},
+                {APIThrottleConstants.JWT_CLAIMS_TYPE, "role", "(admin"},
+                {APIThrottleConstants.JWT_CLAIMS_TYPE, "role", null},
+                {APIThrottleConstants.HEADER_TYPE, "User-Agent", "[Mozilla"},
+                {APIThrottleConstants.HEADER_TYPE, "User-Agent", null},
+                {APIThrottleConstants.DATE_SPECIFIC_TYPE, null, "2017-13-01"},
+                {APIThrottleConstants.DATE_SPECIFIC_TYPE, null, "2017-06-15T25:00:00"},
+                {APIThrottleConstants.DATE_SPECIFIC_TYPE, null, " "},
+                {APIThrottleConstants.DATE_SPECIFIC_TYPE, null, null},
+                {APIThrottleConstants.DATE_RANGE_TYPE, "2017-06-01", "tomorrow"},
+                {APIThrottleConstants.DATE_RANGE_TYPE, null, "2017-06-30"},
+                {APIThrottleConstants.HTTP_VERB_TYPE, null, "FETCH"},
+                {APIThrottleConstants.HTTP_VERB_TYPE, null, "POST,FETCH"},
+                {APIThrottleConstants.HTTP_VERB_TYPE, null, "POST,"},
+                {APIThrottleConstants.HTTP_VERB_TYPE, null, ",POST"},
+                {APIThrottleConstants.HTTP_VERB_TYPE, null, null},
+        };
+    }
+
+    @Test(description = "Conditions which cannot be compiled never match, and always match when inverted",
+            dataProvider = "invalidConditions")
+    public void testInvalidCondition(String type, String name, String value) {
+        for (boolean inverted : new boolean[] {false, true}) {
+            Condition condition = compile(type, name, value, inverted);
+            Assert.assertEquals(condition.getClass(), InvalidCondition.class);
+            Assert.assertEquals(condition.isInverted(), inverted);
+            Assert.assertEquals(condition.evaluate(createRequest()), inverted);
+        }
+    }
+
+    @DataProvider(name = "requestTimes")
+    public Object[][] requestTimes() {
+        return new Object[][] {
+                {REQUEST_TIME - 1, false},
+                {REQUEST_TIME, true},
+                {REQUEST_TIME + 999, true},
+                {REQUEST_TIME + 1000, false},
+                {Long.MIN_VALUE, false},
+                {Long.MAX_VALUE, false},
+        };
+    }
+
+    @Test(description = "A date range includes its start and excludes its end", dataProvider = "requestTimes")
+    public void testDateRangeBoundaries(long requestTime, boolean matches) {
+        DateRangeCondition condition = new DateRangeCondition(REQUEST_TIME, REQUEST_TIME + 1000, false);
+        DateRangeCondition inverted = new DateRangeCondition(REQUEST_TIME, REQUEST_TIME + 1000, true);
+        RequestAttributes attributes = RequestAttributes.forRequest(new DefaultCarbonMessage(), null, requestTime);
+        Assert.assertEquals(condition.evaluate(attributes), matches);
+        Assert.assertEquals(inverted.evaluate(attributes), !matches);
+    }
+
+    @DataProvider(name = "httpVerbs")
+    public Object[][] httpVerbs() {
+        return new Object[][] {
+                {"GET", true},
+                {"HEAD", true},
+                {"OPTIONS", true},
+                {"POST", false},
+                {"PATCH", false},
+                {"get", false},
+                {"TRACE", false},
+                {null, false},
+        };
+    }
+
+    @Test(description = "An HTTP method condition applies to any method in its mask", dataProvider = "httpVerbs")
+    public void testHTTPVerbCondition(String verb, boolean matches) {
+        int mask = HTTPVerbCondition.getVerbMask("GET") | HTTPVerbCondition.getVerbMask("HEAD")
+                | HTTPVerbCondition.getVerbMask("OPTIONS");
+        CarbonMessage message = new DefaultCarbonMessage();
+        if (verb != null) {
+            message.setProperty(GatewayConstants.HTTP_METHOD, verb);
+        }
+        RequestAttributes attributes = RequestAttributes.forRequest(message, null);
+        Assert.assertEquals(new HTTPVerbCondition(mask, false).evaluate(attributes), matches);
+        Assert.assertEquals(new HTTPVerbCondition(mask, true).evaluate(attributes), !matches);
+    }
+
+    @Test(description = "Request attributes are optional for the conditions which use them")
+    public void testMissingAttributes() {
+        RequestAttributes attributes = RequestAttributes.forRequest(new DefaultCarbonMessage(), null);
+        Condition[] conditions = {
+                new IPRangeCondition(IPAddress.parse("0.0.0.0"), IPAddress.parse("255.255.255.255"), false),
+                new IPSpecificCondition(IPAddress.parse("192.168.10.20"), false),
+                new QueryParameterCondition("type", "dog", false),
+                new JWTClaimCondition("role", Pattern.compile(".*"), false),
+                new HeaderCondition("User-Agent", Pattern.compile(".*"), false),
+                new HTTPVerbCondition(HTTPVerbCondition.getVerbMask("POST"), false),
+        };
+        for (Condition condition : conditions) {
+            Assert.assertFalse(condition.evaluate(attributes), condition.getClass().getSimpleName());
+        }
+    }
+
+    @Test(description = "A condition group applies only when it has conditions and all of them apply")
+    public void testConditionGroup() {
+        ThrottleConditionEvaluator evaluator = ThrottleConditionEvaluator.getInstance();
+        ConditionDTO header = createConditionDTO(APIThrottleConstants.HEADER_TYPE, "User-Agent", "Mozilla", false);
+        ConditionDTO verb = createConditionDTO(APIThrottleConstants.HTTP_VERB_TYPE, null, "POST", false);
+        ConditionDTO notVerb = createConditionDTO(APIThrottleConstants.HTTP_VERB_TYPE, null, "POST", true);
+        ConditionDTO invalid = createConditionDTO(APIThrottleConstants.HTTP_VERB_TYPE, null, "FETCH", false);
+
+        Assert.assertTrue(evaluator.isConditionGroupApplicable(createRequest(),
+                evaluator.compileConditionGroup(createConditionGroupDTO(header, verb))));
+        Assert.assertFalse(evaluator.isConditionGroupApplicable(createRequest(),
+                evaluator.compileConditionGroup(createConditionGroupDTO(header, notVerb))));
+        Assert.assertFalse(evaluator.isConditionGroupApplicable(createRequest(),
+                evaluator.compileConditionGroup(createConditionGroupDTO(header, invalid))));
+        Assert.assertFalse(evaluator.isConditionGroupApplicable(createRequest(),
+                evaluator.compileConditionGroup(createConditionGroupDTO())));
+
+        ConditionGroup group = evaluator.compileConditionGroup(createConditionGroupDTO(header));
+        Assert.assertEquals(group.getConditionGroupId(), "group");
+    }
+
+    private static Condition compile(String type, String name, String value, boolean inverted) {
+        ConditionGroup group = ThrottleConditionEvaluator.getInstance().compileConditionGroup(
+                createConditionGroupDTO(createConditionDTO(type, name, value, inverted)));
+        Condition[] conditions = group.getConditions();
+        Assert.assertEquals(conditions.length, 1);
+        return conditions[0];
+    }
+
+    private static ConditionDTO createConditionDTO(String type, String name, String value, boolean inverted) {
+        ConditionDTO conditionDTO = new ConditionDTO();
+        conditionDTO.setConditionType(type);
+        conditionDTO.setConditionName(name);
+        conditionDTO.setConditionValue(value);
+        conditionDTO.isInverted(inverted);
+        return conditionDTO;
+    }
+
+    private static ConditionGroupDTO createConditionGroupDTO(ConditionDTO... conditions) {
+        ConditionGroupDTO conditionGroupDTO = new ConditionGroupDTO();
+        conditionGroupDTO.setConditionGroupId("group");
+        conditionGroupDTO.setConditions(conditions);
+        return conditionGroupDTO;
+    }
+
+    private static RequestAttributes createRequest() {
+        CarbonMessage message = new DefaultCarbonMessage();
+        message.setProperty(GatewayConstants.HTTP_METHOD, "POST");
+        message.setProperty(APIThrottleConstants.REMOTE_ADDR, "192.168.10.20");
+        message.setProperty(APIThrottleConstants.REST_URL_POSTFIX, "/pets?limit=10&type=cat&type=dog");
+        Map<String, String> headers = new HashMap<>();
+        headers.put("User-Agent", "Mozilla/5.0 (X11; Linux x86_64)");
+        message.setProperty(APIThrottleConstants.TRANSPORT_HEADERS, headers);
+        Map<String, String> claims = new HashMap<>();
+        claims.put("role", "admin");
+        claims.put("address.country", "LK");
+        AuthenticationContextDTO authContext = new AuthenticationContextDTO();
+        authContext.setJWTClaims(claims);
+        return RequestAttributes.forRequest(message, authContext, REQUEST_TIME);
+    }
+}
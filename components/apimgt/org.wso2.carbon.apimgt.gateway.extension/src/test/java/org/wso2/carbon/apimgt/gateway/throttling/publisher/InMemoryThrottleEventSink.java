@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling.publisher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Throttle event sink keeping the events in memory, to inspect the events published by the gateway.
+ */
+public class InMemoryThrottleEventSink implements ThrottleEventSink {
+
+    private final List<ThrottleEvent> events = new ArrayList<>();
+    private int batchCount;
+
+    @Override
+    public synchronized void publish(List<ThrottleEvent> events) {
+        this.events.addAll(events);
+        batchCount++;
+    }
+
+    /**
+     * @return copy of the events received so far
+     */
+    public synchronized List<ThrottleEvent> getEvents() {
+        return new ArrayList<>(events);
+    }
+
+    /**
+     * @return number of batches received so far
+     */
+    public synchronized int getBatchCount() {
+        return batchCount;
+    }
+
+    public synchronized void clear() {
+        events.clear();
+        batchCount = 0;
+    }
+}
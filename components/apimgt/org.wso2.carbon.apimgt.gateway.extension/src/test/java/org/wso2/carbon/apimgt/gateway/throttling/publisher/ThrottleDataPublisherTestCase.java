@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling.publisher;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.apimgt.gateway.throttling.RequestThrottleKeys;
+import org.wso2.carbon.apimgt.gateway.throttling.ThrottleException;
+import org.wso2.carbon.apimgt.gateway.throttling.ThrottleKey;
+
+import java.util.List;
+
+public class ThrottleDataPublisherTestCase {
+
+    private static final long NO_FLUSH_INTERVAL = 3600000;
+
+    @Test(description = "Requests of the same throttle keys are aggregated into one event per flush window")
+    public void testDrainAggregatesRequests() {
+        InMemoryThrottleEventSink sink = new InMemoryThrottleEventSink();
+        ThrottleDataPublisher publisher = new ThrottleDataPublisher(sink, 16, 100, NO_FLUSH_INTERVAL);
+        try {
+            ThrottleKey applicationKey = new ThrottleKey().append("1:admin");
+            for (int i = 0; i < 3; i++) {
+                publish(publisher, applicationKey, "/pizzashack:1.0.0");
+            }
+            publish(publisher, applicationKey, "/weather:1.0.0");
+            publisher.publishResponseEvent(new RequestThrottleKeys(applicationKey, "Unlimited",
+                    new ThrottleKey().append("/pizzashack:1.0.0"), "Unlimited",
+                    new ThrottleKey().append("1:/pizzashack:1.0.0"), "Gold",
+                    new ThrottleKey().append("/pizzashack:1.0.0"), "Unlimited", null, "admin", "/pizzashack",
+                    "1.0.0", "carbon.super", "carbon.super", "1"), 512);
+            Assert.assertEquals(publisher.getPublishedEventCount(), 5);
+            Assert.assertEquals(publisher.getBufferedEventCount(), 5);
+
+            publisher.flush();
+            Assert.assertEquals(publisher.getBufferedEventCount(), 0);
+            Assert.assertEquals(publisher.getSentEventCount(), 2);
+            List<ThrottleEvent> events = sink.getEvents();
+            Assert.assertEquals(events.size(), 2);
+            ThrottleEvent event = events.get(0).getApiKey().equals("/pizzashack:1.0.0") ? events.get(0) : events.get(1);
+            Assert.assertEquals(event.getCount(), 3);
+            Assert.assertEquals(event.getBytes(), 512);
+            Assert.assertEquals(event.getApplicationKey(), "1:admin");
+            Assert.assertEquals(event.getSubscriptionKey(), "1:/pizzashack:1.0.0");
+            Assert.assertTrue(event.getWindowEnd() >= event.getWindowStart());
+
+            // The next window starts over
+            sink.clear();
+            publisher.flush();
+            Assert.assertEquals(sink.getBatchCount(), 0);
+        } finally {
+            publisher.shutdown();
+        }
+    }
+
+    @Test(description = "Events of a window are sent in batches of the configured size")
+    public void testBatches() {
+        InMemoryThrottleEventSink sink = new InMemoryThrottleEventSink();
+        ThrottleDataPublisher publisher = new ThrottleDataPublisher(sink, 16, 2, NO_FLUSH_INTERVAL);
+        try {
+            ThrottleKey applicationKey = new ThrottleKey().append("1:admin");
+            for (int i = 0; i < 5; i++) {
+                publish(publisher, applicationKey, "/api" + i + ":1.0.0");
+            }
+            publisher.flush();
+            Assert.assertEquals(sink.getBatchCount(), 3);
+            Assert.assertEquals(sink.getEvents().size(), 5);
+        } finally {
+            publisher.shutdown();
+        }
+    }
+
+    @Test(description = "Requests are dropped while the buffer is full, and accepted again once it is flushed")
+    public void testOverflow() {
+        InMemoryThrottleEventSink sink = new InMemoryThrottleEventSink();
+        ThrottleDataPublisher publisher = new ThrottleDataPublisher(sink, 2, 100, NO_FLUSH_INTERVAL);
+        try {
+            ThrottleKey applicationKey = new ThrottleKey().append("1:admin");
+            for (int i = 0; i < 4; i++) {
+                publish(publisher, applicationKey, "/pizzashack:1.0.0");
+            }
+            Assert.assertEquals(publisher.getPublishedEventCount(), 2);
+            Assert.assertEquals(publisher.getDroppedEventCount(), 2);
+
+            publisher.flush();
+            Assert.assertEquals(sink.getEvents().get(0).getCount(), 2);
+            publish(publisher, applicationKey, "/pizzashack:1.0.0");
+            Assert.assertEquals(publisher.getPublishedEventCount(), 3);
+            Assert.assertEquals(publisher.getDroppedEventCount(), 2);
+        } finally {
+            publisher.shutdown();
+        }
+    }
+
+    @Test(description = "A batch the sink fails to send is counted and discarded")
+    public void testSinkFailure() {
+        ThrottleDataPublisher publisher = new ThrottleDataPublisher(events -> {
+            throw new ThrottleException("Sink unavailable", null);
+        }, 16, 100, NO_FLUSH_INTERVAL);
+        try {
+            publish(publisher, new ThrottleKey().append("1:admin"), "/pizzashack:1.0.0");
+            publisher.flush();
+            Assert.assertEquals(publisher.getFailedBatchCount(), 1);
+            Assert.assertEquals(publisher.getSentEventCount(), 0);
+            Assert.assertEquals(publisher.getBufferedEventCount(), 0);
+        } finally {
+            publisher.shutdown();
+        }
+    }
+
+    @Test(description = "Shutting down sends the buffered events and stops the periodic flush")
+    public void testShutdown() throws InterruptedException {
+        InMemoryThrottleEventSink sink = new InMemoryThrottleEventSink();
+        ThrottleDataPublisher publisher = new ThrottleDataPublisher(sink, 16, 100, 10);
+        ThrottleKey applicationKey = new ThrottleKey().append("1:admin");
+        publisher.shutdown();
+        publish(publisher, applicationKey, "/pizzashack:1.0.0");
+        Thread.sleep(100);
+        Assert.assertEquals(publisher.getBufferedEventCount(), 1);
+        Assert.assertEquals(sink.getEvents().size(), 0);
+
+        publisher.shutdown();
+        Assert.assertEquals(publisher.getBufferedEventCount(), 0);
+        Assert.assertEquals(sink.getEvents().size(), 1);
+    }
+
+    @Test(description = "Buffered requests are flushed periodically")
+    public void testPeriodicFlush() throws InterruptedException {
+        InMemoryThrottleEventSink sink = new InMemoryThrottleEventSink();
+        ThrottleDataPublisher publisher = new ThrottleDataPublisher(sink, 16, 100, 10);
+        try {
+            publish(publisher, new ThrottleKey().append("1:admin"), "/pizzashack:1.0.0");
+            for (int i = 0; i < 500 && sink.getEvents().isEmpty(); i++) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(sink.getEvents().size(), 1);
+        } finally {
+            publisher.shutdown();
+        }
+    }
+
+    private static void publish(ThrottleDataPublisher publisher, ThrottleKey applicationKey, String apiKey) {
+        publisher.publishNonThrottledEvent(applicationKey, "Unlimited", apiKey, "Unlimited", "1:" + apiKey, "Gold",
+                apiKey, "Unlimited", "admin", null, "1.0.0", "carbon.super", "carbon.super", "1", null, null);
+    }
+}
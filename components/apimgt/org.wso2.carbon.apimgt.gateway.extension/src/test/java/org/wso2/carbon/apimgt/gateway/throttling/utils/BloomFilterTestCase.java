@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class BloomFilterTestCase {
+
+    @Test(description = "Added hashes are always reported as present")
+    public void testNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(1000);
+        for (int i = 0; i < 1000; i++) {
+            filter.add(("user" + i).hashCode());
+        }
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(filter.mightContain(("user" + i).hashCode()));
+        }
+    }
+
+    @Test(description = "Few absent hashes are reported as present when the filter holds its expected elements")
+    public void testFalsePositiveRate() {
+        BloomFilter filter = new BloomFilter(1000);
+        for (int i = 0; i < 1000; i++) {
+            filter.add(("user" + i).hashCode());
+        }
+        int falsePositives = 0;
+        for (int i = 1000; i < 101000; i++) {
+            if (filter.mightContain(("user" + i).hashCode())) {
+                falsePositives++;
+            }
+        }
+        Assert.assertTrue(falsePositives < 1000, "False positives : " + falsePositives);
+    }
+
+    @Test(description = "An empty filter reports every hash as absent")
+    public void testEmptyFilter() {
+        BloomFilter filter = new BloomFilter(0);
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertFalse(filter.mightContain(i));
+        }
+    }
+
+    @Test(description = "An overfilled filter reports absent hashes as present, which callers must check exactly")
+    public void testOverfilledFilterHasFalsePositives() {
+        BloomFilter filter = new BloomFilter(1);
+        for (int i = 0; i < 16; i++) {
+            filter.add(("user" + i).hashCode());
+        }
+        int falsePositives = 0;
+        for (int i = 16; i < 10016; i++) {
+            if (filter.mightContain(("user" + i).hashCode())) {
+                falsePositives++;
+            }
+        }
+        Assert.assertTrue(falsePositives > 0);
+    }
+}
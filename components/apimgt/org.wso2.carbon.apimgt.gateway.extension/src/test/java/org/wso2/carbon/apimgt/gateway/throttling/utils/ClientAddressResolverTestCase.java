@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wso2.carbon.apimgt.gateway.throttling.constants.APIThrottleConstants;
+import org.wso2.carbon.messaging.CarbonMessage;
+import org.wso2.carbon.messaging.DefaultCarbonMessage;
+
+public class ClientAddressResolverTestCase {
+
+    private static final String TRUSTED_PROXIES = "10.0.0.0/8,192.168.1.1,fc00::/7";
+
+    @DataProvider(name = "requests")
+    public Object[][] requests() {
+        return new Object[][] {
+                // untrusted peer, spoofed header is ignored
+                {"203.0.113.7", "198.51.100.1", "203.0.113.7"},
+                {"203.0.113.7", "10.0.0.1, 198.51.100.1", "203.0.113.7"},
+                // trusted peer without a header
+                {"10.1.2.3", null, "10.1.2.3"},
+                // chain of trusted hops, the first untrusted address from the right is the client
+                {"10.1.2.3", "198.51.100.1, 203.0.113.9, 192.168.1.1, 10.4.5.6", "203.0.113.9"},
+                // every hop trusted, the leftmost address is the client
+                {"10.1.2.3", "10.7.7.7, 192.168.1.1", "10.7.7.7"},
+                // IPv6 peer and hops
+                {"fd00::1", "2001:db8::1, fd12:3456::2", "2001:db8::1"},
+                {"2001:db8::5", "198.51.100.1", "2001:db8::5"},
+                {"10.1.2.3", "2001:db8::1", "2001:db8::1"},
+                // malformed entry stops the walk at the last hop that could be trusted to report it
+                {"10.1.2.3", "198.51.100.1, not-an-address, 10.4.5.6", "10.4.5.6"},
+                {"10.1.2.3", "198.51.100.1, 300.1.1.1", "10.1.2.3"},
+                {"10.1.2.3", "198.51.100.1,", "10.1.2.3"},
+        };
+    }
+
+    @Test(description = "The client address is resolved from the remote address and trusted X-Forwarded-For hops",
+            dataProvider = "requests")
+    public void testResolve(String remoteAddress, String forwardedFor, String clientAddress) {
+        ClientAddressResolver resolver = new ClientAddressResolver(TRUSTED_PROXIES);
+        IPAddress address = resolver.resolve(createMessage(remoteAddress, forwardedFor));
+        Assert.assertEquals(address, IPAddress.parse(clientAddress));
+    }
+
+    @Test(description = "The header is not trusted when the remote address is missing or invalid")
+    public void testUnknownRemoteAddress() {
+        ClientAddressResolver resolver = new ClientAddressResolver(TRUSTED_PROXIES);
+        Assert.assertFalse(resolver.resolve(createMessage(null, "198.51.100.1")).isValid());
+        Assert.assertFalse(resolver.resolve(createMessage("unknown", "198.51.100.1")).isValid());
+        Assert.assertFalse(resolver.resolve(createMessage(null, null)).isValid());
+    }
+
+    @Test(description = "Only the rightmost hop is used for an unknown remote address when it is trusted")
+    public void testTrustUnknownRemoteAddress() {
+        ClientAddressResolver resolver = new ClientAddressResolver(TRUSTED_PROXIES, true);
+        Assert.assertEquals(resolver.resolve(createMessage(null, "198.51.100.1, 10.0.0.1, 203.0.113.9")),
+                IPAddress.parse("203.0.113.9"));
+        Assert.assertEquals(resolver.resolve(createMessage(null, "198.51.100.1")), IPAddress.parse("198.51.100.1"));
+        Assert.assertFalse(resolver.resolve(createMessage(null, "198.51.100.1, bad")).isValid());
+        Assert.assertFalse(resolver.resolve(createMessage(null, null)).isValid());
+        Assert.assertEquals(resolver.resolve(createMessage("203.0.113.7", "198.51.100.1")),
+                IPAddress.parse("203.0.113.7"));
+    }
+
+    @Test(description = "The resolved address is cached on the message")
+    public void testCachedOnMessage() {
+        ClientAddressResolver resolver = new ClientAddressResolver(TRUSTED_PROXIES);
+        CarbonMessage message = createMessage("10.1.2.3", "198.51.100.1");
+        IPAddress address = resolver.resolve(message);
+        message.setProperty(APIThrottleConstants.REMOTE_ADDR, "203.0.113.7");
+        Assert.assertSame(resolver.resolve(message), address);
+    }
+
+    @Test(description = "Invalid trusted proxy blocks are ignored")
+    public void testInvalidTrustedProxies() {
+        ClientAddressResolver resolver = new ClientAddressResolver("10.0.0.0/33, bad, ,192.168.1.0/x,127.0.0.1");
+        Assert.assertFalse(resolver.isTrustedProxy(IPAddress.parse("10.0.0.1")));
+        Assert.assertFalse(resolver.isTrustedProxy(IPAddress.parse("192.168.1.1")));
+        Assert.assertTrue(resolver.isTrustedProxy(IPAddress.parse("127.0.0.1")));
+    }
+
+    private static CarbonMessage createMessage(String remoteAddress, String forwardedFor) {
+        CarbonMessage message = new DefaultCarbonMessage();
+        if (remoteAddress != null) {
+            message.setProperty(APIThrottleConstants.REMOTE_ADDR, remoteAddress);
+        }
+        if (forwardedFor != null) {
+            message.setHeader(APIThrottleConstants.X_FORWARDED_FOR, forwardedFor);
+        }
+        return message;
+    }
+}
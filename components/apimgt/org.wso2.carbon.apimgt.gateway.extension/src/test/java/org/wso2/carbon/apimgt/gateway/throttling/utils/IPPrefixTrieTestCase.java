@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.throttling.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class IPPrefixTrieTestCase {
+
+    @DataProvider(name = "prefixes")
+    public Object[][] prefixes() {
+        return new Object[][] {
+                // IPv4 blocks and the addresses just inside and outside them
+                {"192.168.1.0", 24, "192.168.1.0", true},
+                {"192.168.1.0", 24, "192.168.1.255", true},
+                {"192.168.1.0", 24, "192.168.0.255", false},
+                {"192.168.1.0", 24, "192.168.2.0", false},
+                {"10.0.0.128", 25, "10.0.0.128", true},
+                {"10.0.0.128", 25, "10.0.0.127", false},
+                {"172.16.0.0", 12, "172.31.255.255", true},
+                {"172.16.0.0", 12, "172.32.0.0", false},
+                {"203.0.113.7", 32, "203.0.113.7", true},
+                {"203.0.113.7", 32, "203.0.113.6", false},
+                {"203.0.113.7", 32, "203.0.113.8", false},
+                {"203.0.113.7", 31, "203.0.113.6", true},
+                {"203.0.113.7", 31, "203.0.113.8", false},
+                // An IPv4 /0 block holds every IPv4 address, but no IPv6 address
+                {"0.0.0.0", 0, "255.255.255.255", true},
+                {"0.0.0.0", 0, "0.0.0.0", true},
+                {"0.0.0.0", 0, "2001:db8::1", false},
+                // IPv6 blocks
+                {"2001:db8::", 32, "2001:db8:ffff:ffff:ffff:ffff:ffff:ffff", true},
+                {"2001:db8::", 32, "2001:db9::", false},
+                {"2001:db8::", 32, "2001:db7:ffff:ffff:ffff:ffff:ffff:ffff", false},
+                {"fc00::", 7, "fdff::1", true},
+                {"fc00::", 7, "fe00::", false},
+                {"2001:db8::1", 128, "2001:db8::1", true},
+                {"2001:db8::1", 128, "2001:db8::", false},
+                {"2001:db8::1", 128, "2001:db8::3", false},
+                {"2001:db8::2", 127, "2001:db8::3", true},
+                {"2001:db8::2", 127, "2001:db8::4", false},
+                // An IPv6 /0 block holds every address
+                {"::", 0, "2001:db8::1", true},
+                {"::", 0, "192.168.1.1", true},
+        };
+    }
+
+    @Test(description = "Addresses are matched against the prefix bits of a block only", dataProvider = "prefixes")
+    public void testContains(String block, int prefixLength, String address, boolean contained) {
+        IPPrefixTrie trie = new IPPrefixTrie();
+        trie.add(IPAddress.parse(block), prefixLength);
+        Assert.assertEquals(trie.contains(IPAddress.parse(address)), contained);
+    }
+
+    @Test(description = "A shorter prefix covers longer prefixes added before or after it")
+    public void testNestedPrefixes() {
+        IPPrefixTrie trie = new IPPrefixTrie();
+        trie.add(IPAddress.parse("10.1.2.0"), 24);
+        trie.add(IPAddress.parse("10.0.0.0"), 8);
+        trie.add(IPAddress.parse("10.3.4.5"), 32);
+        Assert.assertTrue(trie.contains(IPAddress.parse("10.1.2.3")));
+        Assert.assertTrue(trie.contains(IPAddress.parse("10.200.0.1")));
+        Assert.assertFalse(trie.contains(IPAddress.parse("11.0.0.0")));
+    }
+
+    @Test(description = "An empty trie and invalid addresses match nothing")
+    public void testEmptyTrieAndInvalidAddress() {
+        IPPrefixTrie trie = new IPPrefixTrie();
+        Assert.assertTrue(trie.isEmpty());
+        Assert.assertFalse(trie.contains(IPAddress.parse("10.0.0.1")));
+        trie.add(IPAddress.parse("::"), 0);
+        Assert.assertFalse(trie.isEmpty());
+        Assert.assertFalse(trie.contains(new IPAddress()));
+    }
+
+    @Test(description = "The trie grows past its initial node capacity")
+    public void testManyPrefixes() {
+        IPPrefixTrie trie = new IPPrefixTrie();
+        for (int i = 0; i < 256; i += 2) {
+            trie.add(IPAddress.parse("192.168." + i + ".0"), 24);
+        }
+        for (int i = 0; i < 256; i++) {
+            Assert.assertEquals(trie.contains(IPAddress.parse("192.168." + i + ".42")), i % 2 == 0);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.apimgt.gateway.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RingBufferTestCase {
+
+    @Test(description = "The capacity is rounded up to the next power of two")
+    public void testCapacity() {
+        Assert.assertEquals(new RingBuffer<>(1, Entry::new).capacity(), 1);
+        Assert.assertEquals(new RingBuffer<>(5, Entry::new).capacity(), 8);
+        Assert.assertEquals(new RingBuffer<>(8, Entry::new).capacity(), 8);
+    }
+
+    @Test(description = "A capacity out of range is rejected", expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidCapacity() {
+        new RingBuffer<>(0, Entry::new);
+    }
+
+    @Test(description = "Claims fail once the buffer is full and succeed again once it is drained")
+    public void testFullBuffer() {
+        RingBuffer<Entry> buffer = new RingBuffer<>(4, Entry::new);
+        for (int i = 0; i < 4; i++) {
+            publish(buffer, i);
+        }
+        Assert.assertEquals(buffer.size(), 4);
+        Assert.assertEquals(buffer.tryClaim(), RingBuffer.FULL);
+
+        List<Long> values = new ArrayList<>();
+        Assert.assertEquals(buffer.drain(entry -> values.add(entry.value), 2), 2);
+        publish(buffer, 4);
+        publish(buffer, 5);
+        Assert.assertEquals(buffer.tryClaim(), RingBuffer.FULL);
+        Assert.assertEquals(buffer.drain(entry -> values.add(entry.value), Integer.MAX_VALUE), 4);
+        Assert.assertEquals(values, longs(0, 6));
+        Assert.assertEquals(buffer.size(), 0);
+    }
+
+    @Test(description = "Draining stops at an entry which is claimed but not published")
+    public void testDrainStopsAtUnpublishedEntry() {
+        RingBuffer<Entry> buffer = new RingBuffer<>(4, Entry::new);
+        publish(buffer, 0);
+        long claimed = buffer.tryClaim();
+        publish(buffer, 2);
+
+        List<Long> values = new ArrayList<>();
+        Assert.assertEquals(buffer.drain(entry -> values.add(entry.value), Integer.MAX_VALUE), 1);
+        buffer.get(claimed).value = 1;
+        buffer.publish(claimed);
+        Assert.assertEquals(buffer.drain(entry -> values.add(entry.value), Integer.MAX_VALUE), 2);
+        Assert.assertEquals(values, longs(0, 3));
+    }
+
+    @Test(description = "Entries published by concurrent producers are each drained once")
+    public void testConcurrentProducers() throws InterruptedException {
+        int producers = 4;
+        int entriesPerProducer = 20000;
+        RingBuffer<Entry> buffer = new RingBuffer<>(64, Entry::new);
+        AtomicLong dropped = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            long first = (long) p * entriesPerProducer;
+            new Thread(() -> {
+                for (long value = first; value < first + entriesPerProducer; value++) {
+                    long sequence = buffer.tryClaim();
+                    if (sequence == RingBuffer.FULL) {
+                        dropped.incrementAndGet();
+                        continue;
+                    }
+                    buffer.get(sequence).value = value;
+                    buffer.publish(sequence);
+                }
+                done.countDown();
+            }).start();
+        }
+
+        boolean[] seen = new boolean[producers * entriesPerProducer];
+        AtomicBoolean duplicate = new AtomicBoolean();
+        long drained = 0;
+        while (done.getCount() > 0 || buffer.size() > 0) {
+            drained += buffer.drain(entry -> {
+                int value = (int) entry.value;
+                duplicate.compareAndSet(false, seen[value]);
+                seen[value] = true;
+            }, Integer.MAX_VALUE);
+        }
+        Assert.assertFalse(duplicate.get());
+        Assert.assertEquals(drained + dropped.get(), producers * entriesPerProducer);
+    }
+
+    private static void publish(RingBuffer<Entry> buffer, long value) {
+        long sequence = buffer.tryClaim();
+        Assert.assertNotEquals(sequence, RingBuffer.FULL);
+        buffer.get(sequence).value = value;
+        buffer.publish(sequence);
+    }
+
+    private static List<Long> longs(long from, long to) {
+        List<Long> values = new ArrayList<>();
+        for (long value = from; value < to; value++) {
+            values.add(value);
+        }
+        return values;
+    }
+
+    private static final class Entry {
+        private long value;
+    }
+}
@@ -0,0 +1,60 @@
+package org.wso2.carbon.apimgt.rest.api.core;
+
+
+import io.swagger.annotations.ApiParam;
+
+import org.wso2.carbon.apimgt.rest.api.core.dto.ErrorDTO;
+import org.wso2.carbon.apimgt.rest.api.core.dto.EndpointListDTO;
+import org.wso2.carbon.apimgt.rest.api.core.factories.EndpointsApiServiceFactory;
+
+import org.wso2.msf4j.Microservice;
+import org.wso2.msf4j.Request;
+import org.wso2.msf4j.formparam.FileInfo;
+import org.wso2.msf4j.formparam.FormDataParam;
+import org.osgi.service.component.annotations.Component;
+
+import java.io.InputStream;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.HEAD;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
+
+@Component(
+    name = "org.wso2.carbon.apimgt.rest.api.core.EndpointsApi",
+    service = Microservice.class,
+    immediate = true
+)
+@Path("/api/am/core/v1.[\\d]+/endpoints")
+@Consumes({ "application/json" })
+@Produces({ "application/json" })
+@io.swagger.annotations.Api(description = "the endpoints API")
+public class EndpointsApi implements Microservice  {
+   private final EndpointsApiService delegate = EndpointsApiServiceFactory.getEndpointsApi();
+
+    @GET
+    
+    @Consumes({ "application/json" })
+    @Produces({ "application/json" })
+    @io.swagger.annotations.ApiOperation(value = "Return all endpoints ", notes = "Return all endpoints along with their maximum TPS, so that gateways can enforce the limits of the endpoints. ", response = EndpointListDTO.class, tags={ "Endpoints", })
+    @io.swagger.annotations.ApiResponses(value = { 
+        @io.swagger.annotations.ApiResponse(code = 200, message = "OK. The list of endpoints. ", response = EndpointListDTO.class),
+        
+        @io.swagger.annotations.ApiResponse(code = 400, message = "Bad Request. Invalid request or validation error ", response = EndpointListDTO.class),
+        
+        @io.swagger.annotations.ApiResponse(code = 406, message = "Not Acceptable. The requested media type is not supported ", response = EndpointListDTO.class) })
+    public Response endpointsGet(@ApiParam(value = "Media types acceptable for the response. Default is application/json. " , defaultValue="application/json")@HeaderParam("Accept") String accept
+, @Context Request request)
+    throws NotFoundException {
+        return delegate.endpointsGet(accept, request);
+    }
+}
@@ -0,0 +1,61 @@
+package org.wso2.carbon.apimgt.rest.api.core;
+
+
+import io.swagger.annotations.ApiParam;
+
+import org.wso2.carbon.apimgt.rest.api.core.dto.ErrorDTO;
+import org.wso2.carbon.apimgt.rest.api.core.dto.PolicyListDTO;
+import org.wso2.carbon.apimgt.rest.api.core.factories.PoliciesApiServiceFactory;
+
+import org.wso2.msf4j.Microservice;
+import org.wso2.msf4j.Request;
+import org.wso2.msf4j.formparam.FileInfo;
+import org.wso2.msf4j.formparam.FormDataParam;
+import org.osgi.service.component.annotations.Component;
+
+import java.io.InputStream;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.HEAD;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
+
+@Component(
+    name = "org.wso2.carbon.apimgt.rest.api.core.PoliciesApi",
+    service = Microservice.class,
+    immediate = true
+)
+@Path("/api/am/core/v1.[\\d]+/policies")
+@Consumes({ "application/json" })
+@Produces({ "application/json" })
+@io.swagger.annotations.Api(description = "the policies API")
+public class PoliciesApi implements Microservice  {
+   private final PoliciesApiService delegate = PoliciesApiServiceFactory.getPoliciesApi();
+
+    @GET
+    
+    @Consumes({ "application/json" })
+    @Produces({ "application/json" })
+    @io.swagger.annotations.ApiOperation(value = "Return the throttle policies of a level ", notes = "Return the throttle policies of the given policy level along with their default quota, so that gateways can enforce them locally. ", response = PolicyListDTO.class, tags={ "Throttle Policies", })
+    @io.swagger.annotations.ApiResponses(value = { 
+        @io.swagger.annotations.ApiResponse(code = 200, message = "OK. The list of policies. ", response = PolicyListDTO.class),
+        
+        @io.swagger.annotations.ApiResponse(code = 400, message = "Bad Request. Invalid request or validation error ", response = PolicyListDTO.class),
+        
+        @io.swagger.annotations.ApiResponse(code = 406, message = "Not Acceptable. The requested media type is not supported ", response = PolicyListDTO.class) })
+    public Response policiesGet(@ApiParam(value = "Level of the policies. One of api, application or subscription. ",required=true) @QueryParam("policyLevel") String policyLevel
+,@ApiParam(value = "Media types acceptable for the response. Default is application/json. " , defaultValue="application/json")@HeaderParam("Accept") String accept
+, @Context Request request)
+    throws NotFoundException {
+        return delegate.policiesGet(policyLevel,accept, request);
+    }
+}
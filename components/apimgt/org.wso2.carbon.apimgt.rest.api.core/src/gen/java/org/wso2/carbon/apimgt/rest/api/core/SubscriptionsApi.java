@@ -4,6 +4,7 @@ package org.wso2.carbon.apimgt.rest.api.core;
 import io.swagger.annotations.ApiParam;
 
 import org.wso2.carbon.apimgt.rest.api.core.dto.ErrorDTO;
+import org.wso2.carbon.apimgt.rest.api.core.dto.SubscriptionChangeListDTO;
 import org.wso2.carbon.apimgt.rest.api.core.dto.SubscriptionListDTO;
 import org.wso2.carbon.apimgt.rest.api.core.factories.SubscriptionsApiServiceFactory;
 
@@ -42,9 +43,27 @@ public class SubscriptionsApi implements Microservice  {
    private final SubscriptionsApiService delegate = SubscriptionsApiServiceFactory.getSubscriptionsApi();
 
     @GET
-    
+    @Path("/changes")
     @Consumes({ "application/json" })
     @Produces({ "application/json" })
+    @io.swagger.annotations.ApiOperation(value = "Return the changes made to subscriptions ", notes = "Return the changes made to subscriptions after a given change, in the order they were made. When the change to start after is not given, only the sequence number of the latest change is returned ", response = SubscriptionChangeListDTO.class, tags={ "Subscriptions of API", })
+    @io.swagger.annotations.ApiResponses(value = { 
+        @io.swagger.annotations.ApiResponse(code = 200, message = "OK. The list of subscription changes. ", response = SubscriptionChangeListDTO.class),
+        
+        @io.swagger.annotations.ApiResponse(code = 400, message = "Bad Request. Invalid request or validation error ", response = SubscriptionChangeListDTO.class),
+        
+        @io.swagger.annotations.ApiResponse(code = 406, message = "Not Acceptable. The requested media type is not supported ", response = SubscriptionChangeListDTO.class) })
+    public Response subscriptionsChangesGet(@ApiParam(value = "Sequence number of the last change already known. ") @QueryParam("since") Long since
+,@ApiParam(value = "Number of entities that should be retrieved. ") @QueryParam("limit") Integer limit
+,@ApiParam(value = "Media types acceptable for the response. Default is application/json. " , defaultValue="application/json")@HeaderParam("Accept") String accept
+, @Context Request request)
+    throws NotFoundException {
+        return delegate.subscriptionsChangesGet(since,limit,accept, request);
+    }
+    @GET
+    
+    @Consumes({ "application/json" })
+    @Produces({ "application/json", "application/x-ndjson" })
     @io.swagger.annotations.ApiOperation(value = "Return the list of subscriptions of an API ", notes = "Return the list of subscriptions of an API, by proving API context and version. Response consist of API Context, API version, Consumer Key and Subscription Policy ", response = SubscriptionListDTO.class, tags={ "Subscriptions of API", })
     @io.swagger.annotations.ApiResponses(value = { 
         @io.swagger.annotations.ApiResponse(code = 200, message = "OK. The list of Subscriptions. ", response = SubscriptionListDTO.class),
@@ -57,9 +76,10 @@ public class SubscriptionsApi implements Microservice  {
     public Response subscriptionsGet(@ApiParam(value = "Context of the API. ") @QueryParam("apiContext") String apiContext
 ,@ApiParam(value = "Version of the API. ") @QueryParam("apiVersion") String apiVersion
 ,@ApiParam(value = "Number of entities that should be retrieved. ") @QueryParam("limit") Integer limit
+,@ApiParam(value = "Position after which the entities should be retrieved, as returned with the previous page. ") @QueryParam("cursor") String cursor
 ,@ApiParam(value = "Media types acceptable for the response. Default is application/json. " , defaultValue="application/json")@HeaderParam("Accept") String accept
 , @Context Request request)
     throws NotFoundException {
-        return delegate.subscriptionsGet(apiContext,apiVersion,limit,accept, request);
+        return delegate.subscriptionsGet(apiContext,apiVersion,limit,cursor,accept, request);
     }
 }
@@ -8,6 +8,7 @@ import org.wso2.msf4j.formparam.FileInfo;
 import org.wso2.msf4j.Request;
 
 import org.wso2.carbon.apimgt.rest.api.core.dto.ErrorDTO;
+import org.wso2.carbon.apimgt.rest.api.core.dto.SubscriptionChangeListDTO;
 import org.wso2.carbon.apimgt.rest.api.core.dto.SubscriptionListDTO;
 
 import java.util.List;
@@ -19,9 +20,14 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
 
 public abstract class SubscriptionsApiService {
+    public abstract Response subscriptionsChangesGet(Long since
+ ,Integer limit
+ ,String accept
+ , Request request) throws NotFoundException;
     public abstract Response subscriptionsGet(String apiContext
  ,String apiVersion
  ,Integer limit
+ ,String cursor
  ,String accept
  , Request request) throws NotFoundException;
 }
@@ -0,0 +1,120 @@
+package org.wso2.carbon.apimgt.rest.api.core.dto;
+
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import java.util.Objects;
+
+/**
+ * EndpointDTO
+ */
+public class EndpointDTO   {
+  @JsonProperty("id")
+  private String id = null;
+
+  @JsonProperty("name")
+  private String name = null;
+
+  @JsonProperty("maxTps")
+  private Long maxTps = null;
+
+  public EndpointDTO id(String id) {
+    this.id = id;
+    return this;
+  }
+
+   /**
+   * Get id
+   * @return id
+  **/
+  @ApiModelProperty(value = "")
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public EndpointDTO name(String name) {
+    this.name = name;
+    return this;
+  }
+
+   /**
+   * Get name
+   * @return name
+  **/
+  @ApiModelProperty(value = "")
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public EndpointDTO maxTps(Long maxTps) {
+    this.maxTps = maxTps;
+    return this;
+  }
+
+   /**
+   * Cluster wide maximum number of requests per second sent to the endpoint. 
+   * @return maxTps
+  **/
+  @ApiModelProperty(value = "Cluster wide maximum number of requests per second sent to the endpoint. ")
+  public Long getMaxTps() {
+    return maxTps;
+  }
+
+  public void setMaxTps(Long maxTps) {
+    this.maxTps = maxTps;
+  }
+
+
+  @Override
+  public boolean equals(java.lang.Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    EndpointDTO endpoint = (EndpointDTO) o;
+    return Objects.equals(this.id, endpoint.id) &&
+        Objects.equals(this.name, endpoint.name) &&
+        Objects.equals(this.maxTps, endpoint.maxTps);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(id, name, maxTps);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("class EndpointDTO {\n");
+    
+    sb.append("    id: ").append(toIndentedString(id)).append("\n");
+    sb.append("    name: ").append(toIndentedString(name)).append("\n");
+    sb.append("    maxTps: ").append(toIndentedString(maxTps)).append("\n");
+    sb.append("}");
+    return sb.toString();
+  }
+
+  /**
+   * Convert the given object to string with each line indented by 4 spaces
+   * (except the first line).
+   */
+  private String toIndentedString(java.lang.Object o) {
+    if (o == null) {
+      return "null";
+    }
+    return o.toString().replace("\n", "\n    ");
+  }
+}
+
@@ -0,0 +1,235 @@
+package org.wso2.carbon.apimgt.rest.api.core.dto;
+
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import java.util.Objects;
+
+/**
+ * PolicyDTO
+ */
+public class PolicyDTO   {
+  @JsonProperty("policyName")
+  private String policyName = null;
+
+  @JsonProperty("policyLevel")
+  private String policyLevel = null;
+
+  @JsonProperty("quotaType")
+  private String quotaType = null;
+
+  @JsonProperty("timeUnit")
+  private String timeUnit = null;
+
+  @JsonProperty("unitTime")
+  private Long unitTime = null;
+
+  @JsonProperty("requestCount")
+  private Long requestCount = null;
+
+  @JsonProperty("dataAmount")
+  private Long dataAmount = null;
+
+  @JsonProperty("dataUnit")
+  private String dataUnit = null;
+
+  public PolicyDTO policyName(String policyName) {
+    this.policyName = policyName;
+    return this;
+  }
+
+   /**
+   * Get policyName
+   * @return policyName
+  **/
+  @ApiModelProperty(value = "")
+  public String getPolicyName() {
+    return policyName;
+  }
+
+  public void setPolicyName(String policyName) {
+    this.policyName = policyName;
+  }
+
+  public PolicyDTO policyLevel(String policyLevel) {
+    this.policyLevel = policyLevel;
+    return this;
+  }
+
+   /**
+   * Get policyLevel
+   * @return policyLevel
+  **/
+  @ApiModelProperty(value = "")
+  public String getPolicyLevel() {
+    return policyLevel;
+  }
+
+  public void setPolicyLevel(String policyLevel) {
+    this.policyLevel = policyLevel;
+  }
+
+  public PolicyDTO quotaType(String quotaType) {
+    this.quotaType = quotaType;
+    return this;
+  }
+
+   /**
+   * Get quotaType
+   * @return quotaType
+  **/
+  @ApiModelProperty(value = "")
+  public String getQuotaType() {
+    return quotaType;
+  }
+
+  public void setQuotaType(String quotaType) {
+    this.quotaType = quotaType;
+  }
+
+  public PolicyDTO timeUnit(String timeUnit) {
+    this.timeUnit = timeUnit;
+    return this;
+  }
+
+   /**
+   * Get timeUnit
+   * @return timeUnit
+  **/
+  @ApiModelProperty(value = "")
+  public String getTimeUnit() {
+    return timeUnit;
+  }
+
+  public void setTimeUnit(String timeUnit) {
+    this.timeUnit = timeUnit;
+  }
+
+  public PolicyDTO unitTime(Long unitTime) {
+    this.unitTime = unitTime;
+    return this;
+  }
+
+   /**
+   * Get unitTime
+   * @return unitTime
+  **/
+  @ApiModelProperty(value = "")
+  public Long getUnitTime() {
+    return unitTime;
+  }
+
+  public void setUnitTime(Long unitTime) {
+    this.unitTime = unitTime;
+  }
+
+  public PolicyDTO requestCount(Long requestCount) {
+    this.requestCount = requestCount;
+    return this;
+  }
+
+   /**
+   * Get requestCount
+   * @return requestCount
+  **/
+  @ApiModelProperty(value = "")
+  public Long getRequestCount() {
+    return requestCount;
+  }
+
+  public void setRequestCount(Long requestCount) {
+    this.requestCount = requestCount;
+  }
+
+  public PolicyDTO dataAmount(Long dataAmount) {
+    this.dataAmount = dataAmount;
+    return this;
+  }
+
+   /**
+   * Get dataAmount
+   * @return dataAmount
+  **/
+  @ApiModelProperty(value = "")
+  public Long getDataAmount() {
+    return dataAmount;
+  }
+
+  public void setDataAmount(Long dataAmount) {
+    this.dataAmount = dataAmount;
+  }
+
+  public PolicyDTO dataUnit(String dataUnit) {
+    this.dataUnit = dataUnit;
+    return this;
+  }
+
+   /**
+   * Get dataUnit
+   * @return dataUnit
+  **/
+  @ApiModelProperty(value = "")
+  public String getDataUnit() {
+    return dataUnit;
+  }
+
+  public void setDataUnit(String dataUnit) {
+    this.dataUnit = dataUnit;
+  }
+
+
+  @Override
+  public boolean equals(java.lang.Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    PolicyDTO policy = (PolicyDTO) o;
+    return Objects.equals(this.policyName, policy.policyName) &&
+        Objects.equals(this.policyLevel, policy.policyLevel) &&
+        Objects.equals(this.quotaType, policy.quotaType) &&
+        Objects.equals(this.timeUnit, policy.timeUnit) &&
+        Objects.equals(this.unitTime, policy.unitTime) &&
+        Objects.equals(this.requestCount, policy.requestCount) &&
+        Objects.equals(this.dataAmount, policy.dataAmount) &&
+        Objects.equals(this.dataUnit, policy.dataUnit);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(policyName, policyLevel, quotaType, timeUnit, unitTime, requestCount, dataAmount, dataUnit);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("class PolicyDTO {\n");
+    
+    sb.append("    policyName: ").append(toIndentedString(policyName)).append("\n");
+    sb.append("    policyLevel: ").append(toIndentedString(policyLevel)).append("\n");
+    sb.append("    quotaType: ").append(toIndentedString(quotaType)).append("\n");
+    sb.append("    timeUnit: ").append(toIndentedString(timeUnit)).append("\n");
+    sb.append("    unitTime: ").append(toIndentedString(unitTime)).append("\n");
+    sb.append("    requestCount: ").append(toIndentedString(requestCount)).append("\n");
+    sb.append("    dataAmount: ").append(toIndentedString(dataAmount)).append("\n");
+    sb.append("    dataUnit: ").append(toIndentedString(dataUnit)).append("\n");
+    sb.append("}");
+    return sb.toString();
+  }
+
+  /**
+   * Convert the given object to string with each line indented by 4 spaces
+   * (except the first line).
+   */
+  private String toIndentedString(java.lang.Object o) {
+    if (o == null) {
+      return "null";
+    }
+    return o.toString().replace("\n", "\n    ");
+  }
+}
+
@@ -0,0 +1,189 @@
+package org.wso2.carbon.apimgt.rest.api.core.dto;
+
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import java.util.Objects;
+
+/**
+ * SubscriptionChangeDTO
+ */
+public class SubscriptionChangeDTO   {
+  @JsonProperty("sequenceId")
+  private Long sequenceId = null;
+
+  @JsonProperty("subscriptionId")
+  private String subscriptionId = null;
+
+  @JsonProperty("changeType")
+  private String changeType = null;
+
+  @JsonProperty("apiContext")
+  private String apiContext = null;
+
+  @JsonProperty("apiVersion")
+  private String apiVersion = null;
+
+  @JsonProperty("applicationId")
+  private String applicationId = null;
+
+  public SubscriptionChangeDTO sequenceId(Long sequenceId) {
+    this.sequenceId = sequenceId;
+    return this;
+  }
+
+   /**
+   * Sequence number of the change. Increases with each change. 
+   * @return sequenceId
+  **/
+  @ApiModelProperty(required = true, value = "Sequence number of the change. Increases with each change. ")
+  public Long getSequenceId() {
+    return sequenceId;
+  }
+
+  public void setSequenceId(Long sequenceId) {
+    this.sequenceId = sequenceId;
+  }
+
+  public SubscriptionChangeDTO subscriptionId(String subscriptionId) {
+    this.subscriptionId = subscriptionId;
+    return this;
+  }
+
+   /**
+   * UUID of the subscription. 
+   * @return subscriptionId
+  **/
+  @ApiModelProperty(required = true, value = "UUID of the subscription. ")
+  public String getSubscriptionId() {
+    return subscriptionId;
+  }
+
+  public void setSubscriptionId(String subscriptionId) {
+    this.subscriptionId = subscriptionId;
+  }
+
+  public SubscriptionChangeDTO changeType(String changeType) {
+    this.changeType = changeType;
+    return this;
+  }
+
+   /**
+   * Type of the change. One of ADDED, UPDATED or DELETED. 
+   * @return changeType
+  **/
+  @ApiModelProperty(required = true, value = "Type of the change. One of ADDED, UPDATED or DELETED. ")
+  public String getChangeType() {
+    return changeType;
+  }
+
+  public void setChangeType(String changeType) {
+    this.changeType = changeType;
+  }
+
+  public SubscriptionChangeDTO apiContext(String apiContext) {
+    this.apiContext = apiContext;
+    return this;
+  }
+
+   /**
+   * Context of API. 
+   * @return apiContext
+  **/
+  @ApiModelProperty(value = "Context of API. ")
+  public String getApiContext() {
+    return apiContext;
+  }
+
+  public void setApiContext(String apiContext) {
+    this.apiContext = apiContext;
+  }
+
+  public SubscriptionChangeDTO apiVersion(String apiVersion) {
+    this.apiVersion = apiVersion;
+    return this;
+  }
+
+   /**
+   * Version of API. 
+   * @return apiVersion
+  **/
+  @ApiModelProperty(value = "Version of API. ")
+  public String getApiVersion() {
+    return apiVersion;
+  }
+
+  public void setApiVersion(String apiVersion) {
+    this.apiVersion = apiVersion;
+  }
+
+  public SubscriptionChangeDTO applicationId(String applicationId) {
+    this.applicationId = applicationId;
+    return this;
+  }
+
+   /**
+   * UUID of the application. 
+   * @return applicationId
+  **/
+  @ApiModelProperty(value = "UUID of the application. ")
+  public String getApplicationId() {
+    return applicationId;
+  }
+
+  public void setApplicationId(String applicationId) {
+    this.applicationId = applicationId;
+  }
+
+
+  @Override
+  public boolean equals(java.lang.Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    SubscriptionChangeDTO subscriptionChange = (SubscriptionChangeDTO) o;
+    return Objects.equals(this.sequenceId, subscriptionChange.sequenceId) &&
+        Objects.equals(this.subscriptionId, subscriptionChange.subscriptionId) &&
+        Objects.equals(this.changeType, subscriptionChange.changeType) &&
+        Objects.equals(this.apiContext, subscriptionChange.apiContext) &&
+        Objects.equals(this.apiVersion, subscriptionChange.apiVersion) &&
+        Objects.equals(this.applicationId, subscriptionChange.applicationId);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(sequenceId, subscriptionId, changeType, apiContext, apiVersion, applicationId);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("class SubscriptionChangeDTO {\n");
+    
+    sb.append("    sequenceId: ").append(toIndentedString(sequenceId)).append("\n");
+    sb.append("    subscriptionId: ").append(toIndentedString(subscriptionId)).append("\n");
+    sb.append("    changeType: ").append(toIndentedString(changeType)).append("\n");
+    sb.append("    apiContext: ").append(toIndentedString(apiContext)).append("\n");
+    sb.append("    apiVersion: ").append(toIndentedString(apiVersion)).append("\n");
+    sb.append("    applicationId: ").append(toIndentedString(applicationId)).append("\n");
+    sb.append("}");
+    return sb.toString();
+  }
+
+  /**
+   * Convert the given object to string with each line indented by 4 spaces
+   * (except the first line).
+   */
+  private String toIndentedString(java.lang.Object o) {
+    if (o == null) {
+      return "null";
+    }
+    return o.toString().replace("\n", "\n    ");
+  }
+}
+
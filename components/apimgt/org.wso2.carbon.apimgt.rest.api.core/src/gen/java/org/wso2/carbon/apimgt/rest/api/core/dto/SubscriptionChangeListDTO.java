@@ -0,0 +1,105 @@
+package org.wso2.carbon.apimgt.rest.api.core.dto;
+
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import java.util.ArrayList;
+import java.util.List;
+import org.wso2.carbon.apimgt.rest.api.core.dto.SubscriptionChangeDTO;
+import java.util.Objects;
+
+/**
+ * SubscriptionChangeListDTO
+ */
+public class SubscriptionChangeListDTO   {
+  @JsonProperty("list")
+  private List<SubscriptionChangeDTO> list = new ArrayList<SubscriptionChangeDTO>();
+
+  @JsonProperty("sequenceId")
+  private Long sequenceId = null;
+
+  public SubscriptionChangeListDTO list(List<SubscriptionChangeDTO> list) {
+    this.list = list;
+    return this;
+  }
+
+  public SubscriptionChangeListDTO addListItem(SubscriptionChangeDTO listItem) {
+    this.list.add(listItem);
+    return this;
+  }
+
+   /**
+   * Get list
+   * @return list
+  **/
+  @ApiModelProperty(value = "")
+  public List<SubscriptionChangeDTO> getList() {
+    return list;
+  }
+
+  public void setList(List<SubscriptionChangeDTO> list) {
+    this.list = list;
+  }
+
+  public SubscriptionChangeListDTO sequenceId(Long sequenceId) {
+    this.sequenceId = sequenceId;
+    return this;
+  }
+
+   /**
+   * Sequence number of the last change of the list, or of the latest change when the list is empty. Changes after this sequence number are retrieved next. 
+   * @return sequenceId
+  **/
+  @ApiModelProperty(value = "Sequence number of the last change of the list, or of the latest change when the list is empty. Changes after this sequence number are retrieved next. ")
+  public Long getSequenceId() {
+    return sequenceId;
+  }
+
+  public void setSequenceId(Long sequenceId) {
+    this.sequenceId = sequenceId;
+  }
+
+
+  @Override
+  public boolean equals(java.lang.Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    SubscriptionChangeListDTO subscriptionChangeList = (SubscriptionChangeListDTO) o;
+    return Objects.equals(this.list, subscriptionChangeList.list) &&
+        Objects.equals(this.sequenceId, subscriptionChangeList.sequenceId);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(list, sequenceId);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("class SubscriptionChangeListDTO {\n");
+    
+    sb.append("    list: ").append(toIndentedString(list)).append("\n");
+    sb.append("    sequenceId: ").append(toIndentedString(sequenceId)).append("\n");
+    sb.append("}");
+    return sb.toString();
+  }
+
+  /**
+   * Convert the given object to string with each line indented by 4 spaces
+   * (except the first line).
+   */
+  private String toIndentedString(java.lang.Object o) {
+    if (o == null) {
+      return "null";
+    }
+    return o.toString().replace("\n", "\n    ");
+  }
+}
+
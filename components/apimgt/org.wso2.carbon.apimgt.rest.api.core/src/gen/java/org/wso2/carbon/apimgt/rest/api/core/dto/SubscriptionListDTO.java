@@ -17,6 +17,9 @@ public class SubscriptionListDTO   {
   @JsonProperty("list")
   private List<SubscriptionDTO> list = new ArrayList<SubscriptionDTO>();
 
+  @JsonProperty("cursor")
+  private String cursor = null;
+
   public SubscriptionListDTO list(List<SubscriptionDTO> list) {
     this.list = list;
     return this;
@@ -40,6 +43,24 @@ public class SubscriptionListDTO   {
     this.list = list;
   }
 
+  public SubscriptionListDTO cursor(String cursor) {
+    this.cursor = cursor;
+    return this;
+  }
+
+   /**
+   * Position of the last entity of the list. Used to retrieve the next page, absent when there are no more entities
+   * @return cursor
+  **/
+  @ApiModelProperty(value = "Position of the last entity of the list. Used to retrieve the next page, absent when there are no more entities")
+  public String getCursor() {
+    return cursor;
+  }
+
+  public void setCursor(String cursor) {
+    this.cursor = cursor;
+  }
+
 
   @Override
   public boolean equals(java.lang.Object o) {
@@ -50,12 +71,13 @@ public class SubscriptionListDTO   {
       return false;
     }
     SubscriptionListDTO subscriptionList = (SubscriptionListDTO) o;
-    return Objects.equals(this.list, subscriptionList.list);
+    return Objects.equals(this.list, subscriptionList.list) &&
+        Objects.equals(this.cursor, subscriptionList.cursor);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(list);
+    return Objects.hash(list, cursor);
   }
 
   @Override
@@ -64,6 +86,7 @@ public class SubscriptionListDTO   {
     sb.append("class SubscriptionListDTO {\n");
     
     sb.append("    list: ").append(toIndentedString(list)).append("\n");
+    sb.append("    cursor: ").append(toIndentedString(cursor)).append("\n");
     sb.append("}");
     return sb.toString();
   }
@@ -28,6 +28,12 @@ public class UriTemplateDTO   {
   @JsonProperty("scopes")
   private List<String> scopes = new ArrayList<String>();
 
+  @JsonProperty("productionEndpoint")
+  private String productionEndpoint = null;
+
+  @JsonProperty("sandboxEndpoint")
+  private String sandboxEndpoint = null;
+
   public UriTemplateDTO uriTemplate(String uriTemplate) {
     this.uriTemplate = uriTemplate;
     return this;
@@ -123,6 +129,42 @@ public class UriTemplateDTO   {
     this.scopes = scopes;
   }
 
+  public UriTemplateDTO productionEndpoint(String productionEndpoint) {
+    this.productionEndpoint = productionEndpoint;
+    return this;
+  }
+
+   /**
+   * ID of the production endpoint of the uri template.
+   * @return productionEndpoint
+  **/
+  @ApiModelProperty(value = "ID of the production endpoint of the uri template. ")
+  public String getProductionEndpoint() {
+    return productionEndpoint;
+  }
+
+  public void setProductionEndpoint(String productionEndpoint) {
+    this.productionEndpoint = productionEndpoint;
+  }
+
+  public UriTemplateDTO sandboxEndpoint(String sandboxEndpoint) {
+    this.sandboxEndpoint = sandboxEndpoint;
+    return this;
+  }
+
+   /**
+   * ID of the sandbox endpoint of the uri template.
+   * @return sandboxEndpoint
+  **/
+  @ApiModelProperty(value = "ID of the sandbox endpoint of the uri template. ")
+  public String getSandboxEndpoint() {
+    return sandboxEndpoint;
+  }
+
+  public void setSandboxEndpoint(String sandboxEndpoint) {
+    this.sandboxEndpoint = sandboxEndpoint;
+  }
+
 
   @Override
   public boolean equals(java.lang.Object o) {
@@ -137,12 +179,14 @@ public class UriTemplateDTO   {
         Objects.equals(this.httpVerb, uriTemplate.httpVerb) &&
         Objects.equals(this.authType, uriTemplate.authType) &&
         Objects.equals(this.policy, uriTemplate.policy) &&
-        Objects.equals(this.scopes, uriTemplate.scopes);
+        Objects.equals(this.scopes, uriTemplate.scopes) &&
+        Objects.equals(this.productionEndpoint, uriTemplate.productionEndpoint) &&
+        Objects.equals(this.sandboxEndpoint, uriTemplate.sandboxEndpoint);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(uriTemplate, httpVerb, authType, policy, scopes);
+    return Objects.hash(uriTemplate, httpVerb, authType, policy, scopes, productionEndpoint, sandboxEndpoint);
   }
 
   @Override
@@ -155,6 +199,8 @@ public class UriTemplateDTO   {
     sb.append("    authType: ").append(toIndentedString(authType)).append("\n");
     sb.append("    policy: ").append(toIndentedString(policy)).append("\n");
     sb.append("    scopes: ").append(toIndentedString(scopes)).append("\n");
+    sb.append("    productionEndpoint: ").append(toIndentedString(productionEndpoint)).append("\n");
+    sb.append("    sandboxEndpoint: ").append(toIndentedString(sandboxEndpoint)).append("\n");
     sb.append("}");
     return sb.toString();
   }
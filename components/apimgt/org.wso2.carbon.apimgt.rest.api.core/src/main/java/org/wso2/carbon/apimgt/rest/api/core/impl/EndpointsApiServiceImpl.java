@@ -0,0 +1,37 @@
+package org.wso2.carbon.apimgt.rest.api.core.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.apimgt.core.api.APIMgtAdminService;
+import org.wso2.carbon.apimgt.core.exception.APIManagementException;
+import org.wso2.carbon.apimgt.core.impl.APIManagerFactory;
+import org.wso2.carbon.apimgt.core.models.Endpoint;
+import org.wso2.carbon.apimgt.rest.api.common.util.RestApiUtil;
+import org.wso2.carbon.apimgt.rest.api.core.EndpointsApiService;
+import org.wso2.carbon.apimgt.rest.api.core.NotFoundException;
+import org.wso2.carbon.apimgt.rest.api.core.dto.EndpointListDTO;
+import org.wso2.carbon.apimgt.rest.api.core.utils.MappingUtil;
+import org.wso2.msf4j.Request;
+
+import java.util.List;
+import javax.ws.rs.core.Response;
+
+public class EndpointsApiServiceImpl extends EndpointsApiService {
+    private static final Logger log = LoggerFactory.getLogger(EndpointsApiServiceImpl.class);
+
+    @Override
+    public Response endpointsGet(String accept
+            , Request request) throws NotFoundException {
+        try {
+            APIMgtAdminService apiMgtAdminService = APIManagerFactory.getInstance().getAPIMgtAdminService();
+            List<Endpoint> endpoints = apiMgtAdminService.getAllEndpoints();
+            EndpointListDTO endpointListDTO = MappingUtil.convertToEndpointListDto(endpoints);
+            return Response.ok(endpointListDTO).build();
+        } catch (APIManagementException e) {
+            String errorMessage = "Error while retrieving endpoints";
+            org.wso2.carbon.apimgt.rest.api.common.dto.ErrorDTO errorDTO = RestApiUtil.getErrorDTO(e.getErrorHandler());
+            log.error(errorMessage, e);
+            return Response.status(e.getErrorHandler().getHttpStatusCode()).entity(errorDTO).build();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.wso2.carbon.apimgt.rest.api.core.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.apimgt.core.api.APIMgtAdminService;
+import org.wso2.carbon.apimgt.core.exception.APIManagementException;
+import org.wso2.carbon.apimgt.core.impl.APIManagerFactory;
+import org.wso2.carbon.apimgt.core.models.policy.Policy;
+import org.wso2.carbon.apimgt.core.util.APIMgtConstants;
+import org.wso2.carbon.apimgt.rest.api.common.util.RestApiUtil;
+import org.wso2.carbon.apimgt.rest.api.core.NotFoundException;
+import org.wso2.carbon.apimgt.rest.api.core.PoliciesApiService;
+import org.wso2.carbon.apimgt.rest.api.core.dto.PolicyListDTO;
+import org.wso2.carbon.apimgt.rest.api.core.utils.MappingUtil;
+import org.wso2.msf4j.Request;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.ws.rs.core.Response;
+
+public class PoliciesApiServiceImpl extends PoliciesApiService {
+    private static final Logger log = LoggerFactory.getLogger(PoliciesApiServiceImpl.class);
+
+    @Override
+    public Response policiesGet(String policyLevel
+            , String accept
+            , Request request) throws NotFoundException {
+        try {
+            APIMgtAdminService apiMgtAdminService = APIManagerFactory.getInstance().getAPIMgtAdminService();
+            List<Policy> policies = apiMgtAdminService.getAllPoliciesByLevel(policyLevel);
+            PolicyListDTO policyListDTO = MappingUtil.convertToPolicyListDto(policies, policyLevel);
+            return Response.ok(policyListDTO).build();
+        } catch (APIManagementException e) {
+            String errorMessage = "Error while retrieving policies of level " + policyLevel;
+            Map<String, String> paramList = new HashMap<String, String>();
+            paramList.put(APIMgtConstants.ExceptionsConstants.TIER_LEVEL, policyLevel);
+            org.wso2.carbon.apimgt.rest.api.common.dto.ErrorDTO errorDTO = RestApiUtil.getErrorDTO(e.getErrorHandler
+                    (), paramList);
+            log.error(errorMessage, e);
+            return Response.status(e.getErrorHandler().getHttpStatusCode()).entity(errorDTO).build();
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package org.wso2.carbon.apimgt.rest.api.core.impl;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wso2.carbon.apimgt.core.api.APIMgtAdminService;
 import org.wso2.carbon.apimgt.core.exception.APIManagementException;
+import org.wso2.carbon.apimgt.core.exception.ExceptionCodes;
 import org.wso2.carbon.apimgt.core.impl.APIManagerFactory;
+import org.wso2.carbon.apimgt.core.models.SubscriptionChange;
 import org.wso2.carbon.apimgt.core.models.SubscriptionValidationData;
 import org.wso2.carbon.apimgt.core.util.APIMgtConstants;
 import org.wso2.carbon.apimgt.core.util.APIUtils;
@@ -17,38 +21,115 @@ import org.wso2.carbon.apimgt.rest.api.core.dto.SubscriptionListDTO;
 import org.wso2.carbon.apimgt.rest.api.core.utils.MappingUtil;
 import org.wso2.msf4j.Request;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 @javax.annotation.Generated(value = "org.wso2.maven.plugins.JavaMSF4JServerCodegen", date = "2017-01-18T15:27:32.639+05:30")
 public class SubscriptionsApiServiceImpl extends SubscriptionsApiService {
 
     private static final Logger log = LoggerFactory.getLogger(SubscriptionsApiServiceImpl.class);
+    private static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+    private static final String CURSOR_HEADER = "X-Cursor";
+    private static final String CURSOR_DELIMITER = "\n";
+    private static final int DEFAULT_PAGE_SIZE = 1000;
+    private static final int MAX_PAGE_SIZE = 10000;
+    private static final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
-     * Retrieve subscriptions
+     * Retrieve the changes made to subscriptions
+     *
+     * @param since  Sequence ID of the last change already known
+     * @param limit  Maximum number of changes to retrieve
+     * @param accept Accept header value
+     * @return Subscription changes made after the given change
+     * @throws NotFoundException If failed to retrieve subscription changes
+     */
+    @Override
+    public Response subscriptionsChangesGet(Long since, Integer limit, String accept, Request request)
+            throws NotFoundException {
+        try {
+            APIMgtAdminService apiMgtAdminService = APIManagerFactory.getInstance().getAPIMgtAdminService();
+            List<SubscriptionChange> changes = new ArrayList<>();
+            if (since != null) {
+                int pageSize = limit == null || limit < 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+                changes = apiMgtAdminService.getSubscriptionChanges(since, pageSize);
+            }
+            long sequenceId;
+            if (!changes.isEmpty()) {
+                sequenceId = changes.get(changes.size() - 1).getSequenceId();
+            } else if (since == null) {
+                sequenceId = apiMgtAdminService.getLatestSubscriptionChangeSequenceId();
+            } else {
+                // Never ahead of the given sequence ID, since changes may have been made after the lookup above. It is
+                // behind the given sequence ID only if the change log was reset.
+                sequenceId = Math.min(since, apiMgtAdminService.getLatestSubscriptionChangeSequenceId());
+            }
+            return Response.ok(MappingUtil.convertToSubscriptionChangeListDto(changes, sequenceId)).build();
+        } catch (APIManagementException e) {
+            String errorMessage = "Error while retrieving subscription changes.";
+            ErrorDTO errorDTO = RestApiUtil.getErrorDTO(e.getErrorHandler());
+            log.error(errorMessage, e);
+            return Response.status(e.getErrorHandler().getHttpStatusCode()).entity(errorDTO).build();
+        }
+    }
+
+    /**
+     * Retrieve subscriptions. Subscriptions of all APIs are returned page by page when a cursor or a positive limit
+     * is given, or when they are requested as newline delimited JSON.
      *
      * @param apiContext Context of the API
      * @param apiVersion API version
      * @param limit      Limit value
+     * @param cursor     Position after which the subscriptions should be retrieved
+     * @param accept     Accept header value
      * @return Subscriptions of the API
      * @throws NotFoundException If failed to retrieve subscriptions
      */
     @Override
     public Response subscriptionsGet(String apiContext, String apiVersion,
-                                     Integer limit, String accept,
+                                     Integer limit, String cursor, String accept,
                                      Request request) throws NotFoundException {
         try {
             APIMgtAdminService apiMgtAdminService = APIManagerFactory.getInstance().getAPIMgtAdminService();
             List<SubscriptionValidationData> subscriptionsOfApi;
-            if (StringUtils.isEmpty(apiContext) || StringUtils.isEmpty(apiVersion)) {
-                APIUtils.logDebug("API Context or version is null or empty. Retrieving subscriptions of all APIs", log);
-                subscriptionsOfApi = apiMgtAdminService.getAPISubscriptions(limit);
-            } else {
+            if (!StringUtils.isEmpty(apiContext) && !StringUtils.isEmpty(apiVersion)) {
                 subscriptionsOfApi = apiMgtAdminService.getAPISubscriptionsOfApi(apiContext, apiVersion);
+                return Response.ok(MappingUtil.convertToSubscriptionListDto(subscriptionsOfApi)).build();
+            }
+            APIUtils.logDebug("API Context or version is null or empty. Retrieving subscriptions of all APIs", log);
+            boolean isNdjson = accept != null && accept.contains(NDJSON_MEDIA_TYPE);
+            if (StringUtils.isEmpty(cursor) && !isNdjson && (limit == null || limit < 0)) {
+                subscriptionsOfApi = apiMgtAdminService.getAPISubscriptions(-1);
+                return Response.ok(MappingUtil.convertToSubscriptionListDto(subscriptionsOfApi)).build();
+            }
+            String[] position = null;
+            if (!StringUtils.isEmpty(cursor)) {
+                position = decodeCursor(cursor);
+                if (position == null) {
+                    String errorMessage = "Invalid subscription cursor : " + cursor;
+                    log.error(errorMessage);
+                    ErrorDTO errorDTO = RestApiUtil.getErrorDTO(ExceptionCodes.SUBSCRIPTION_CURSOR_INVALID);
+                    return Response.status(Response.Status.BAD_REQUEST).entity(errorDTO).build();
+                }
+            }
+            int pageSize = limit == null || limit < 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+            subscriptionsOfApi = position == null ?
+                    apiMgtAdminService.getAPISubscriptions(null, null, null, pageSize) :
+                    apiMgtAdminService.getAPISubscriptions(position[0], position[1], position[2], pageSize);
+            // A short page is the last one
+            String nextCursor = subscriptionsOfApi.isEmpty() || subscriptionsOfApi.size() < pageSize ? null :
+                    encodeCursor(subscriptionsOfApi.get(subscriptionsOfApi.size() - 1));
+            if (isNdjson) {
+                return Response.ok(toNdjson(subscriptionsOfApi), NDJSON_MEDIA_TYPE)
+                        .header(CURSOR_HEADER, nextCursor).build();
             }
             SubscriptionListDTO subscriptionsList = MappingUtil.convertToSubscriptionListDto(subscriptionsOfApi);
+            subscriptionsList.setCursor(nextCursor);
             return Response.ok(subscriptionsList).build();
         } catch (APIManagementException e) {
             String errorMessage = "Error while retrieving subscriptions.";
@@ -64,4 +145,41 @@ public class SubscriptionsApiServiceImpl extends SubscriptionsApiService {
             return Response.status(e.getErrorHandler().getHttpStatusCode()).entity(errorDTO).build();
         }
     }
+
+    /**
+     * Writes the given subscriptions as newline delimited JSON, one subscription per line, without building the
+     * whole response in memory.
+     */
+    private static StreamingOutput toNdjson(List<SubscriptionValidationData> subscriptions) {
+        return output -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+                for (SubscriptionValidationData subscription : subscriptions) {
+                    objectMapper.writeValue(generator, MappingUtil.convertToSubscriptionDto(subscription));
+                    generator.writeRaw('\n');
+                }
+            }
+        };
+    }
+
+    /**
+     * The cursor is the opaque form of the sort key of the last subscription of a page.
+     */
+    private static String encodeCursor(SubscriptionValidationData subscription) {
+        String position = subscription.getApiId() + CURSOR_DELIMITER + subscription.getSubscriptionId()
+                + CURSOR_DELIMITER + subscription.getKeyEnvType();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return API ID, subscription ID and key environment type of the cursor, or null if the cursor is invalid
+     */
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split(CURSOR_DELIMITER, -1);
+            return position.length == 3 ? position : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
 }
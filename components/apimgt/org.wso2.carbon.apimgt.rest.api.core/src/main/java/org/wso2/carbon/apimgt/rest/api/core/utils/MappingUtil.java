@@ -24,11 +24,25 @@ package org.wso2.carbon.apimgt.rest.api.core.utils;
 
 
 import org.wso2.carbon.apimgt.core.models.API;
+import org.wso2.carbon.apimgt.core.models.Endpoint;
 import org.wso2.carbon.apimgt.core.models.Label;
+import org.wso2.carbon.apimgt.core.models.SubscriptionChange;
 import org.wso2.carbon.apimgt.core.models.SubscriptionValidationData;
 import org.wso2.carbon.apimgt.core.models.UriTemplate;
+import org.wso2.carbon.apimgt.core.models.policy.BandwidthLimit;
+import org.wso2.carbon.apimgt.core.models.policy.Limit;
+import org.wso2.carbon.apimgt.core.models.policy.Policy;
+import org.wso2.carbon.apimgt.core.models.policy.QuotaPolicy;
+import org.wso2.carbon.apimgt.core.models.policy.RequestCountLimit;
+import org.wso2.carbon.apimgt.core.util.APIMgtConstants;
+import org.wso2.carbon.apimgt.rest.api.core.dto.EndpointDTO;
+import org.wso2.carbon.apimgt.rest.api.core.dto.EndpointListDTO;
 import org.wso2.carbon.apimgt.rest.api.core.dto.LabelDTO;
+import org.wso2.carbon.apimgt.rest.api.core.dto.PolicyDTO;
+import org.wso2.carbon.apimgt.rest.api.core.dto.PolicyListDTO;
 import org.wso2.carbon.apimgt.rest.api.core.dto.ResourcesListDTO;
+import org.wso2.carbon.apimgt.rest.api.core.dto.SubscriptionChangeDTO;
+import org.wso2.carbon.apimgt.rest.api.core.dto.SubscriptionChangeListDTO;
 import org.wso2.carbon.apimgt.rest.api.core.dto.SubscriptionDTO;
 import org.wso2.carbon.apimgt.rest.api.core.dto.SubscriptionListDTO;
 import org.wso2.carbon.apimgt.rest.api.core.dto.UriTemplateDTO;
@@ -52,21 +66,55 @@ public class MappingUtil {
             List<SubscriptionValidationData> subscriptionValidationData) {
         SubscriptionListDTO subscriptionListDTO = new SubscriptionListDTO();
         for (SubscriptionValidationData subscriptionData : subscriptionValidationData) {
-            SubscriptionDTO subscriptionDTO = new SubscriptionDTO();
-            subscriptionDTO.setApiName(subscriptionData.getApiName());
-            subscriptionDTO.setApiContext(subscriptionData.getApiContext());
-            subscriptionDTO.setApiVersion(subscriptionData.getApiVersion());
-            subscriptionDTO.setApiProvider(subscriptionData.getApiProvider());
-            subscriptionDTO.setConsumerKey(subscriptionData.getConsumerKey());
-            subscriptionDTO.setSubscriptionPolicy(subscriptionData.getSubscriptionPolicy());
-            subscriptionDTO.setApplicationName(subscriptionData.getApplicationName());
-            subscriptionDTO.setApplicationOwner(subscriptionData.getApplicationOwner());
-            subscriptionDTO.setKeyEnvType(subscriptionData.getKeyEnvType());
-            subscriptionListDTO.addListItem(subscriptionDTO);
+            subscriptionListDTO.addListItem(convertToSubscriptionDto(subscriptionData));
         }
         return subscriptionListDTO;
     }
 
+    /**
+     * This method converts SubscriptionValidationData into SubscriptionDTO object.
+     *
+     * @param subscriptionData Subscription Validation Data
+     * @return subscriptionDTO
+     */
+    public static SubscriptionDTO convertToSubscriptionDto(SubscriptionValidationData subscriptionData) {
+        SubscriptionDTO subscriptionDTO = new SubscriptionDTO();
+        subscriptionDTO.setApiName(subscriptionData.getApiName());
+        subscriptionDTO.setApiContext(subscriptionData.getApiContext());
+        subscriptionDTO.setApiVersion(subscriptionData.getApiVersion());
+        subscriptionDTO.setApiProvider(subscriptionData.getApiProvider());
+        subscriptionDTO.setConsumerKey(subscriptionData.getConsumerKey());
+        subscriptionDTO.setSubscriptionPolicy(subscriptionData.getSubscriptionPolicy());
+        subscriptionDTO.setApplicationName(subscriptionData.getApplicationName());
+        subscriptionDTO.setApplicationOwner(subscriptionData.getApplicationOwner());
+        subscriptionDTO.setKeyEnvType(subscriptionData.getKeyEnvType());
+        return subscriptionDTO;
+    }
+
+    /**
+     * This method converts List of SubscriptionChange into SubscriptionChangeListDTO object.
+     *
+     * @param subscriptionChanges List of Subscription Changes
+     * @param sequenceId          Sequence ID after which the next changes are retrieved
+     * @return subscriptionChangeListDTO
+     */
+    public static SubscriptionChangeListDTO convertToSubscriptionChangeListDto(
+            List<SubscriptionChange> subscriptionChanges, long sequenceId) {
+        SubscriptionChangeListDTO subscriptionChangeListDTO = new SubscriptionChangeListDTO();
+        for (SubscriptionChange subscriptionChange : subscriptionChanges) {
+            SubscriptionChangeDTO subscriptionChangeDTO = new SubscriptionChangeDTO();
+            subscriptionChangeDTO.setSequenceId(subscriptionChange.getSequenceId());
+            subscriptionChangeDTO.setSubscriptionId(subscriptionChange.getSubscriptionId());
+            subscriptionChangeDTO.setChangeType(subscriptionChange.getChangeType().toString());
+            subscriptionChangeDTO.setApiContext(subscriptionChange.getApiContext());
+            subscriptionChangeDTO.setApiVersion(subscriptionChange.getApiVersion());
+            subscriptionChangeDTO.setApplicationId(subscriptionChange.getApplicationId());
+            subscriptionChangeListDTO.addListItem(subscriptionChangeDTO);
+        }
+        subscriptionChangeListDTO.setSequenceId(sequenceId);
+        return subscriptionChangeListDTO;
+    }
+
     /**
      * Converts labelDTOs into labels
      *
@@ -99,12 +147,71 @@ public class MappingUtil {
             uriTemplateDTO.setPolicy(v.getPolicy());
             uriTemplateDTO.setHttpVerb(v.getHttpVerb());
             uriTemplateDTO.setScopes(Collections.emptyList());
+            Endpoint productionEndpoint = v.getEndpoint().get(APIMgtConstants.PRODUCTION_ENDPOINT);
+            if (productionEndpoint != null) {
+                uriTemplateDTO.setProductionEndpoint(productionEndpoint.getId());
+            }
+            Endpoint sandboxEndpoint = v.getEndpoint().get(APIMgtConstants.SANDBOX_ENDPOINT);
+            if (sandboxEndpoint != null) {
+                uriTemplateDTO.setSandboxEndpoint(sandboxEndpoint.getId());
+            }
             uriTemplateDTOArrayList.add(uriTemplateDTO);
         });
         resourcesListDTO.setList(uriTemplateDTOArrayList);
         return resourcesListDTO;
     }
 
+    /**
+     * Converts endpoints into an EndpointListDTO carrying their maximum TPS
+     *
+     * @param endpoints List of endpoints
+     * @return EndpointListDTO
+     */
+    public static EndpointListDTO convertToEndpointListDto(List<Endpoint> endpoints) {
+        EndpointListDTO endpointListDTO = new EndpointListDTO();
+        for (Endpoint endpoint : endpoints) {
+            EndpointDTO endpointDTO = new EndpointDTO();
+            endpointDTO.setId(endpoint.getId());
+            endpointDTO.setName(endpoint.getName());
+            endpointDTO.setMaxTps(endpoint.getMaxTps());
+            endpointListDTO.addListItem(endpointDTO);
+        }
+        endpointListDTO.setCount(endpointListDTO.getList().size());
+        return endpointListDTO;
+    }
+
+    /**
+     * Converts policies of a level into a PolicyListDTO carrying their default quota
+     *
+     * @param policies    List of policies
+     * @param policyLevel Level of the policies
+     * @return PolicyListDTO
+     */
+    public static PolicyListDTO convertToPolicyListDto(List<Policy> policies, String policyLevel) {
+        PolicyListDTO policyListDTO = new PolicyListDTO();
+        for (Policy policy : policies) {
+            PolicyDTO policyDTO = new PolicyDTO();
+            policyDTO.setPolicyName(policy.getPolicyName());
+            policyDTO.setPolicyLevel(policyLevel);
+            QuotaPolicy quotaPolicy = policy.getDefaultQuotaPolicy();
+            if (quotaPolicy != null && quotaPolicy.getLimit() != null) {
+                Limit limit = quotaPolicy.getLimit();
+                policyDTO.setQuotaType(quotaPolicy.getType());
+                policyDTO.setTimeUnit(limit.getTimeUnit());
+                policyDTO.setUnitTime(limit.getUnitTime());
+                if (limit instanceof RequestCountLimit) {
+                    policyDTO.setRequestCount(((RequestCountLimit) limit).getRequestCount());
+                } else if (limit instanceof BandwidthLimit) {
+                    policyDTO.setDataAmount(((BandwidthLimit) limit).getDataAmount());
+                    policyDTO.setDataUnit(((BandwidthLimit) limit).getDataUnit());
+                }
+            }
+            policyListDTO.addListItem(policyDTO);
+        }
+        policyListDTO.setCount(policyListDTO.getList().size());
+        return policyListDTO;
+    }
+
     /**
      * Converts API list to APIListDTO list.
      *
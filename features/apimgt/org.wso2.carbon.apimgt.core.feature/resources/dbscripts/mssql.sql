@@ -333,6 +333,19 @@ CREATE TABLE AM_SUBSCRIPTION (
   PRIMARY KEY (UUID)
 );
 
+CREATE INDEX IDX_SUBSCRIPTION_API_ID ON AM_SUBSCRIPTION (API_ID, UUID);
+
+CREATE TABLE AM_SUBSCRIPTION_CHANGE (
+  SEQUENCE_ID BIGINT IDENTITY,
+  SUBSCRIPTION_ID VARCHAR(255) NOT NULL,
+  API_CONTEXT VARCHAR(255),
+  API_VERSION VARCHAR(30),
+  APPLICATION_ID VARCHAR(255),
+  CHANGE_TYPE VARCHAR(50) NOT NULL,
+  CHANGED_TIME DATETIME DEFAULT GETDATE(),
+  PRIMARY KEY (SEQUENCE_ID)
+);
+
 CREATE TABLE AM_API_GROUP_PERMISSION (
   API_ID VARCHAR(255) NOT NULL DEFAULT '',
   GROUP_ID VARCHAR(11) NOT NULL,
@@ -329,6 +329,17 @@ CREATE TABLE IF NOT EXISTS AM_SUBSCRIPTION (
   PRIMARY KEY (UUID)
 )CHARACTER SET utf8 COLLATE utf8_general_ci;
 
+CREATE TABLE IF NOT EXISTS AM_SUBSCRIPTION_CHANGE (
+  SEQUENCE_ID BIGINT NOT NULL AUTO_INCREMENT,
+  SUBSCRIPTION_ID VARCHAR(255) NOT NULL,
+  API_CONTEXT VARCHAR(255),
+  API_VERSION VARCHAR(30),
+  APPLICATION_ID VARCHAR(255),
+  CHANGE_TYPE VARCHAR(50) NOT NULL,
+  CHANGED_TIME TIMESTAMP(6) DEFAULT CURRENT_TIMESTAMP(6),
+  PRIMARY KEY (SEQUENCE_ID)
+)CHARACTER SET utf8 COLLATE utf8_general_ci;
+
 CREATE TABLE `AM_API_GROUP_PERMISSION` (
   `API_ID` VARCHAR(255) NOT NULL DEFAULT '',
   `GROUP_ID` VARCHAR(11) NOT NULL,
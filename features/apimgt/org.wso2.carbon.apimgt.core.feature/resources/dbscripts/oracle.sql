@@ -445,6 +445,32 @@ CREATE TABLE AM_SUBSCRIPTION (
 )
 /
 
+CREATE INDEX IDX_SUBSCRIPTION_API_ID ON AM_SUBSCRIPTION (API_ID, UUID)
+/
+
+CREATE TABLE AM_SUBSCRIPTION_CHANGE (
+  SEQUENCE_ID NUMBER(19),
+  SUBSCRIPTION_ID VARCHAR2(255) NOT NULL,
+  API_CONTEXT VARCHAR2(255),
+  API_VERSION VARCHAR2(30),
+  APPLICATION_ID VARCHAR2(255),
+  CHANGE_TYPE VARCHAR2(50) NOT NULL,
+  CHANGED_TIME TIMESTAMP(6) DEFAULT CURRENT_TIMESTAMP(6),
+  PRIMARY KEY (SEQUENCE_ID)
+)
+/
+-- Generate ID using sequence and trigger
+CREATE SEQUENCE AM_SUBSCRIPTION_CHANGE_seq START WITH 1 INCREMENT BY 1
+/
+
+CREATE OR REPLACE TRIGGER AM_SUBSCRIPTION_CHANGE_seq_tr
+ BEFORE INSERT ON AM_SUBSCRIPTION_CHANGE FOR EACH ROW
+ WHEN (NEW.SEQUENCE_ID IS NULL)
+BEGIN
+ SELECT AM_SUBSCRIPTION_CHANGE_seq.NEXTVAL INTO :NEW.SEQUENCE_ID FROM DUAL;
+END;
+/
+
 CREATE TABLE AM_API_GROUP_PERMISSION (
   API_ID VARCHAR2(255) DEFAULT '' NOT NULL ,
   GROUP_ID VARCHAR2(11) NOT NULL,
@@ -346,6 +346,21 @@ CREATE TABLE IF NOT EXISTS AM_SUBSCRIPTION (
   PRIMARY KEY (UUID)
 );
 
+CREATE INDEX IF NOT EXISTS IDX_SUBSCRIPTION_API_ID ON AM_SUBSCRIPTION (API_ID, UUID);
+
+CREATE SEQUENCE AM_SUBSCRIPTION_CHANGE_seq;
+
+CREATE TABLE IF NOT EXISTS AM_SUBSCRIPTION_CHANGE (
+  SEQUENCE_ID BIGINT NOT NULL DEFAULT NEXTVAL ('AM_SUBSCRIPTION_CHANGE_seq'),
+  SUBSCRIPTION_ID VARCHAR(255) NOT NULL,
+  API_CONTEXT VARCHAR(255),
+  API_VERSION VARCHAR(30),
+  APPLICATION_ID VARCHAR(255),
+  CHANGE_TYPE VARCHAR(50) NOT NULL,
+  CHANGED_TIME TIMESTAMP(6) DEFAULT CURRENT_TIMESTAMP(6),
+  PRIMARY KEY (SEQUENCE_ID)
+);
+
 CREATE TABLE AM_API_GROUP_PERMISSION (
   API_ID VARCHAR(255) NOT NULL DEFAULT '',
   GROUP_ID VARCHAR(11) NOT NULL,